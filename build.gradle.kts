@@ -7,6 +7,7 @@ plugins {
     application
     id("org.danilopianini.gradle-java-qa") version "1.87.0"
     id("com.gradleup.shadow") version "9.0.2"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 dependencies {
@@ -36,6 +37,10 @@ tasks.test {
     testLogging.showStandardStreams = true
 }
 
+jmh {
+    jmhVersion = "1.37"
+}
+
 application {
     mainClass = "it.ristorantelorma.RistoranteLorMa"
 }
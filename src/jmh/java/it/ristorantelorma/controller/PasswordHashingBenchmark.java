@@ -0,0 +1,59 @@
+package it.ristorantelorma.controller;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashes per second of PasswordManager, to choose the number of PBKDF2 iterations.
+ * perCore is the rate of a single core, its inverse is the latency of a login;
+ * allCores is the rate of the whole machine, the most logins PasswordHashingService can serve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "P@ssw0rd";
+
+    @Param({"65535", "210000", "600000"})
+    private int iterations;
+
+    private final byte[] salt = PasswordManager.generateSalt();
+
+    /**
+     * @return the hashed password
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     */
+    @Benchmark
+    @Threads(1)
+    public byte[] perCore() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return PasswordManager.hashPassword(PASSWORD, salt, iterations);
+    }
+
+    /**
+     * @return the hashed password
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] allCores() throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return PasswordManager.hashPassword(PASSWORD, salt, iterations);
+    }
+}
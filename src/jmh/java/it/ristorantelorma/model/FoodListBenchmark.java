@@ -0,0 +1,81 @@
+package it.ristorantelorma.model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare Food.DAO.list, the whole menu joined with its FoodTypes in one query,
+ * with reading the same food rows alone: the difference is the cost of the JOIN and of building the Foods.
+ * Needs a running database, configured with the same environment variables of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoodListBenchmark {
+
+    private static final String LIST_FOOD_ROWS = "SELECT * FROM vivande WHERE nome_attività = ?;";
+
+    @Param({"Da Mario"})
+    private String restaurantName;
+
+    private DatabaseConnectionManager db;
+    private Restaurant restaurant;
+
+    /**
+     * Load the restaurant whose menu is listed.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        db = DatabaseConnectionManager.getInstance();
+        restaurant = db.withConnection(conn -> Restaurant.DAO.find(conn, restaurantName))
+            .getValue()
+            .orElseThrow(() -> new IllegalStateException("Restaurant not found: " + restaurantName));
+    }
+
+    /**
+     * @return the menu of the restaurant
+     */
+    @Benchmark
+    public Collection<Food> listFoods() {
+        return db.withConnection(conn -> Food.DAO.list(conn, restaurant)).getValue();
+    }
+
+    /**
+     * @return the number of foods of the restaurant, read without the JOIN and without building them
+     */
+    @Benchmark
+    public int listFoodRows() {
+        return db.withConnection(conn -> {
+            try (
+                PreparedStatement statement = DBHelper.prepare(conn, LIST_FOOD_ROWS, restaurantName);
+                ResultSet result = statement.executeQuery();
+            ) {
+                int rows = 0;
+                while (result.next()) {
+                    rows++;
+                }
+                return Result.success(rows);
+            } catch (SQLException e) {
+                return Result.failure("Failed reading the foods of " + restaurantName, e);
+            }
+        }).getValue();
+    }
+}
@@ -0,0 +1,121 @@
+package it.ristorantelorma.model.order;
+
+import it.ristorantelorma.model.DatabaseConnectionManager;
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.user.ClientUser;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of inserting the food requested by one order, by number of order lines.
+ * Everything runs in a single transaction that is rolled back at the end, so the database is left untouched.
+ * Needs a running database, configured with the same environment variables of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderDetailsBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    @Param({"Da Mario"})
+    private String restaurantName;
+
+    @Param({"anna"})
+    private String clientUsername;
+
+    private Connection connection;
+    private Savepoint savepoint;
+    private int orderId;
+    private final Map<Food, Integer> foods = new HashMap<>();
+
+    /**
+     * Create an order and as many foods as lines, without committing them.
+     * @throws SQLException
+     */
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DatabaseConnectionManager.getInstance().getConnection();
+        connection.setAutoCommit(false);
+        final Restaurant restaurant = Restaurant.DAO.find(connection, restaurantName).getValue()
+            .orElseThrow(() -> new IllegalStateException("Restaurant not found: " + restaurantName));
+        final ClientUser client = ClientUser.DAO.find(connection, clientUsername).getValue()
+            .orElseThrow(() -> new IllegalStateException("Client not found: " + clientUsername));
+        final FoodType type = FoodType.DAO.list(connection).getValue().iterator().next();
+        for (int i = 1; i <= lines; i++) {
+            final Result<Food> food = Food.DAO.insert(
+                connection,
+                "Benchmark " + i,
+                restaurant,
+                BigDecimal.ONE,
+                type
+            );
+            foods.put(food.getValue(), i);
+        }
+        final Result<WaitingOrder> order = Order.DAO.insert(
+            connection,
+            restaurant,
+            Timestamp.valueOf(LocalDateTime.now()),
+            BigDecimal.ONE,
+            client,
+            foods
+        );
+        orderId = order.getValue().getId();
+        savepoint = connection.setSavepoint();
+    }
+
+    /**
+     * Undo the lines inserted by the last invocation.
+     * @throws SQLException
+     */
+    @TearDown(Level.Invocation)
+    public void undoInvocation() throws SQLException {
+        connection.rollback(savepoint);
+    }
+
+    /**
+     * Undo everything and give the connection back.
+     * @throws SQLException
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        connection.setAutoCommit(true);
+        connection.close();
+    }
+
+    /**
+     * @return the inserted foods
+     */
+    @Benchmark
+    public Result<Map<Food, Integer>> insertFoodRequested() {
+        return Order.DAO.insertFoodRequested(connection, orderId, foods);
+    }
+}
@@ -1,13 +1,29 @@
 package it.ristorantelorma;
 
+import it.ristorantelorma.controller.CreditCompactor;
+import it.ristorantelorma.controller.MetricsServer;
+import it.ristorantelorma.controller.SimpleLogger;
 import it.ristorantelorma.model.DatabaseConnectionManager;
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.MenuCache;
+import it.ristorantelorma.model.QueryStats;
 import it.ristorantelorma.view.FirstPage;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Application entry point class.
  */
 public final class RistoranteLorMa {
 
+    private static final String CLASS_NAME = RistoranteLorMa.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final Duration CREDIT_COMPACTION_PERIOD = Duration.ofMinutes(5);
+
     /**
      * Entry-point class non instantiable.
      */
@@ -19,11 +35,50 @@ public final class RistoranteLorMa {
      * @param args command-line arguments
      */
     public static void main(final String[] args) {
+        final CreditCompactor compactor = new CreditCompactor(DatabaseConnectionManager.getInstance().getDataSource());
+        final Optional<MetricsServer> metrics = startMetricsServer();
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            compactor.close();
+            metrics.ifPresent(MetricsServer::close);
+            final MenuCache.Stats menus = Food.DAO.menuCacheStats();
+            LOGGER.log(Level.INFO, String.format(
+                "Menu cache: %.1f%% hits (%d/%d), %d evictions, %d invalidations, %d menus, %d foods, ~%d KiB",
+                menus.hitRatio() * 100,
+                menus.hits(),
+                menus.hits() + menus.misses(),
+                menus.evictions(),
+                menus.invalidations(),
+                menus.size(),
+                menus.foods(),
+                menus.estimatedBytes() / 1024
+            ));
+            LOGGER.log(Level.INFO, "Query statistics:\n" + QueryStats.getInstance().dump());
             DatabaseConnectionManager.getInstance().close();
         }));
+        compactor.start(CREDIT_COMPACTION_PERIOD);
+        QueryStats.registerMBean();
+        // FoodTypes are reference data: load them once instead of once per Food
+        DatabaseConnectionManager.getInstance().withConnection(FoodType.DAO::preload);
         javax.swing.SwingUtilities.invokeLater(() -> {
             new FirstPage().show();
         });
     }
+
+    /**
+     * Serve the metrics only if the METRICS_PORT environment variable is set.
+     */
+    private static Optional<MetricsServer> startMetricsServer() {
+        final String port = System.getenv("METRICS_PORT");
+        if (port == null) {
+            return Optional.empty();
+        }
+        try {
+            final MetricsServer server = new MetricsServer(Integer.parseUnsignedInt(port));
+            server.start();
+            return Optional.of(server);
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.log(Level.SEVERE, "Cannot serve the metrics on port " + port, e);
+            return Optional.empty();
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package it.ristorantelorma.controller;
+
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.order.ReadyOrder;
+import it.ristorantelorma.model.user.ClientUser;
+import java.math.BigDecimal;
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a checkout, committed by CheckoutService once its retries are over.
+ */
+@Name("it.ristorantelorma.Checkout")
+@Label("Checkout")
+@Description("Payment and insertion of an order, retries included")
+@Category({"RistoranteLorMa", "Orders"})
+final class CheckoutEvent extends Event {
+
+    @Label("Client")
+    String client;
+
+    @Label("Restaurant")
+    String restaurant;
+
+    @Label("Foods")
+    @Description("Number of distinct foods requested")
+    int foods;
+
+    @Label("Quantity")
+    @Description("Number of items requested")
+    int quantity;
+
+    @Label("Total")
+    double total;
+
+    @Label("Attempts")
+    @Description("Transactions run, more than one if deadlocked")
+    int attempts;
+
+    @Label("Order")
+    int orderId;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Error")
+    String error;
+
+    /**
+     * Start timing a checkout.
+     * @param client
+     * @param restaurant
+     * @param foods     the food requested, with their quantity
+     * @param total     the price of the order, shipping included
+     * @return the started event
+     */
+    static CheckoutEvent begin(
+        final ClientUser client,
+        final Restaurant restaurant,
+        final Map<Food, Integer> foods,
+        final BigDecimal total
+    ) {
+        final CheckoutEvent event = new CheckoutEvent();
+        if (event.isEnabled()) {
+            event.client = client.getUsername();
+            event.restaurant = restaurant.getRestaurantName();
+            event.foods = foods.size();
+            event.quantity = foods.values().stream().mapToInt(Integer::intValue).sum();
+            event.total = total.doubleValue();
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param result the outcome of the checkout
+     */
+    void finish(final Result<ReadyOrder> result) {
+        if (shouldCommit()) {
+            success = result.isSuccess();
+            if (success) {
+                orderId = result.getValue().getId();
+            } else {
+                error = result.getErrorMessage();
+            }
+            commit();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package it.ristorantelorma.controller;
+
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.UnitOfWork;
+import it.ristorantelorma.model.order.Order;
+import it.ristorantelorma.model.order.ReadyOrder;
+import it.ristorantelorma.model.order.WaitingOrder;
+import it.ristorantelorma.model.user.ClientUser;
+import it.ristorantelorma.model.user.RestaurantUser;
+import it.ristorantelorma.model.user.User;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Places an order as a single database transaction.
+ * The client's credit is withdrawn first, with a conditional update that fails if it is not enough,
+ * then the restaurant is paid and the order with its foods is inserted.
+ * The totals of the statistics, shared by every order of the restaurant, are updated last.
+ * Credits are changed relatively, so concurrent checkouts never overwrite each other.
+ * Transactions rolled back by a deadlock are retried with an exponential backoff.
+ * Every checkout is also committed as a CheckoutEvent, when JFR records it.
+ */
+public final class CheckoutService {
+
+    private static final String CLASS_NAME = CheckoutService.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_BACKOFF = Duration.ofMillis(50);
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    // Shared by every instance, a service is created for each checkout
+    private static final LongAdder SUCCESSES = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private final DataSource dataSource;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    /**
+     * Checkouts since the application started, counted by every CheckoutService.
+     * @param successes     orders placed
+     * @param failures      checkouts given up, for not enough credit or a failed transaction
+     * @param retries       transactions run again after a deadlock
+     */
+    public record Stats(long successes, long failures, long retries) { }
+
+    /**
+     * @param dataSource the source of the connections, usually DatabaseConnectionManager.getDataSource()
+     */
+    public CheckoutService(final DataSource dataSource) {
+        this(dataSource, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF);
+    }
+
+    /**
+     * @param dataSource
+     * @param maxAttempts   attempts before giving up on deadlocks
+     * @param backoff       wait before the first retry, doubled at each following one
+     */
+    CheckoutService(final DataSource dataSource, final int maxAttempts, final Duration backoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is needed, got " + maxAttempts);
+        }
+        this.dataSource = dataSource;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Read without locks, so that it can be scraped as often as needed.
+     * @return the checkouts since the application started
+     */
+    public static Stats getStats() {
+        return new Stats(SUCCESSES.sum(), FAILURES.sum(), RETRIES.sum());
+    }
+
+    /**
+     * Place an order: pay it with the client's credit and insert it, all or nothing.
+     * The in-memory credits of client and restaurant are not updated.
+     * @param client
+     * @param restaurant
+     * @param foods         the food requested, with their quantity
+     * @param shippingRate
+     * @return the placed order, error if the credit is not enough or the transaction fails
+     */
+    public Result<ReadyOrder> checkout(
+        final ClientUser client,
+        final Restaurant restaurant,
+        final Map<Food, Integer> foods,
+        final BigDecimal shippingRate
+    ) {
+        if (foods.isEmpty()) {
+            return Result.failure("The order is empty");
+        }
+        final BigDecimal subtotal = foods.entrySet()
+            .stream()
+            .map(el -> el.getKey().getPrice().multiply(new BigDecimal(el.getValue())))
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        final BigDecimal total = subtotal.add(shippingRate);
+
+        final CheckoutEvent event = CheckoutEvent.begin(client, restaurant, foods, total);
+        final Result<ReadyOrder> result = withRetries(client, restaurant, foods, shippingRate, subtotal, total, event);
+        event.finish(result);
+        (result.isSuccess() ? SUCCESSES : FAILURES).increment();
+        return result;
+    }
+
+    private Result<ReadyOrder> withRetries(
+        final ClientUser client,
+        final Restaurant restaurant,
+        final Map<Food, Integer> foods,
+        final BigDecimal shippingRate,
+        final BigDecimal subtotal,
+        final BigDecimal total,
+        final CheckoutEvent event
+    ) {
+        Result<ReadyOrder> result = Result.failure("No attempt made");
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            event.attempts = attempt;
+            result = inTransaction(client, restaurant, foods, shippingRate, subtotal, total);
+            if (result.isSuccess() || !isDeadlock(result)) {
+                return result;
+            }
+            LOGGER.log(Level.WARNING, "Checkout deadlocked, attempt " + attempt + " of " + maxAttempts);
+            if (attempt < maxAttempts) {
+                if (!sleep(attempt)) {
+                    return Result.failure("Interrupted while retrying the checkout");
+                }
+                RETRIES.increment();
+            }
+        }
+        return result;
+    }
+
+    private Result<ReadyOrder> inTransaction(
+        final ClientUser client,
+        final Restaurant restaurant,
+        final Map<Food, Integer> foods,
+        final BigDecimal shippingRate,
+        final BigDecimal subtotal,
+        final BigDecimal total
+    ) {
+        return UnitOfWork.call(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    final Result<ReadyOrder> result = placeOrder(
+                        connection, client, restaurant, foods, shippingRate, subtotal, total
+                    );
+                    if (result.isSuccess()) {
+                        connection.commit();
+                    } else {
+                        connection.rollback();
+                    }
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                final String errorMessage = "Failed checkout transaction for client: " + client.getUsername();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        });
+    }
+
+    private static Result<ReadyOrder> placeOrder(
+        final Connection connection,
+        final ClientUser client,
+        final Restaurant restaurant,
+        final Map<Food, Integer> foods,
+        final BigDecimal shippingRate,
+        final BigDecimal subtotal,
+        final BigDecimal total
+    ) {
+        final Result<ClientUser> resClient = ClientUser.DAO.withdrawCredit(connection, client, total);
+        if (!resClient.isSuccess()) {
+            // Propagate the error
+            return Result.failure(resClient);
+        }
+        final Result<RestaurantUser> resRestaurant = User.DAO.addCredit(
+            connection,
+            restaurant.getUser(),
+            subtotal
+        );
+        if (!resRestaurant.isSuccess()) {
+            // Propagate the error
+            return Result.failure(resRestaurant);
+        }
+        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        final Result<WaitingOrder> resNewOrder = Order.DAO.insert(
+            connection,
+            restaurant,
+            now,
+            shippingRate,
+            client,
+            foods
+        );
+        if (!resNewOrder.isSuccess()) {
+            // Propagate the error
+            return Result.failure(resNewOrder);
+        }
+        // Restaurants have no preparation step in the application: a paid order is ready to be delivered
+        final Result<ReadyOrder> resOrder = ReadyOrder.DAO.from(connection, resNewOrder.getValue());
+        if (!resOrder.isSuccess()) {
+            // Propagate the error
+            return resOrder;
+        }
+        final Result<Map<Food, Integer>> resFoods = Order.DAO.insertFoodRequested(
+            connection,
+            resOrder.getValue().getId(),
+            foods
+        );
+        if (!resFoods.isSuccess()) {
+            // Propagate the error
+            return Result.failure(resFoods);
+        }
+        // Last, so that the counters shared by every order of the restaurant are locked until the commit only
+        final Result<Map<Food, Integer>> resTotals = Order.DAO.addTotals(connection, restaurant, foods);
+        if (!resTotals.isSuccess()) {
+            // Propagate the error
+            return Result.failure(resTotals);
+        }
+        return resOrder;
+    }
+
+    private static boolean isDeadlock(final Result<?> result) {
+        return result.getCause()
+            .filter(SQLException.class::isInstance)
+            .map(SQLException.class::cast)
+            .map(e -> SERIALIZATION_FAILURE.equals(e.getSQLState()) || e.getErrorCode() == ER_LOCK_DEADLOCK)
+            .orElse(false);
+    }
+
+    /**
+     * Wait before the next attempt, with exponential backoff and jitter so that the
+     * transactions that deadlocked together do not collide again.
+     * @return false if interrupted
+     */
+    private boolean sleep(final int attempt) {
+        final long base = backoff.toMillis() << (attempt - 1);
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(base + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package it.ristorantelorma.controller;
+
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.user.User;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Periodically folds the credit ledger into the credit snapshot of the users,
+ * so that reading a credit never sums more than the movements of one period.
+ */
+public final class CreditCompactor implements AutoCloseable {
+
+    private static final String CLASS_NAME = CreditCompactor.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    /**
+     * Movements newer than this are left to the next run, so that none is still being inserted.
+     */
+    private static final Duration MIN_AGE = Duration.ofSeconds(10);
+
+    private final DataSource dataSource;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("credit-compactor").daemon().factory()
+    );
+
+    /**
+     * @param dataSource the source of the connections, usually DatabaseConnectionManager.getDataSource()
+     */
+    public CreditCompactor(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Run compact() every period, starting after one period.
+     * @param period
+     */
+    public void start(final Duration period) {
+        scheduler.scheduleWithFixedDelay(this::compact, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fold the credit movements older than MIN_AGE into the users' credit snapshot.
+     * @return the number of users whose snapshot was updated if there are no errors
+     */
+    public Result<Integer> compact() {
+        try (Connection connection = dataSource.getConnection()) {
+            final Result<Integer> result = User.DAO.compactCredits(connection, MIN_AGE);
+            if (result.isSuccess()) {
+                LOGGER.log(Level.FINE, "Compacted the credit of " + result.getValue() + " users");
+            }
+            return result;
+        } catch (SQLException e) {
+            final String errorMessage = "Failed getting a connection to compact users' credit";
+            LOGGER.log(Level.SEVERE, errorMessage, e);
+            return Result.failure(errorMessage, e);
+        }
+    }
+
+    /**
+     * Stop the periodic compaction, interrupting the one running if any.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,255 @@
+package it.ristorantelorma.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.ristorantelorma.model.ConnectionPool;
+import it.ristorantelorma.model.DatabaseConnectionManager;
+import it.ristorantelorma.model.QueryStats;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.QueryStats.QueryStat;
+import it.ristorantelorma.model.order.Order;
+import it.ristorantelorma.model.order.State;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the application metrics on localhost, at /metrics in the Prometheus text format.
+ * Every value is read from counters that are updated without locks (LongAdder and atomics),
+ * so a scrape never makes the queries, the checkouts or the password hashes wait.
+ * The only exception is the number of orders in each state, counted by a plain read of the database that takes no locks.
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    /**
+     * Path of the metrics.
+     */
+    public static final String PATH = "/metrics";
+    private static final String CLASS_NAME = MetricsServer.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "ristorantelorma_";
+    private static final double MICROS_PER_SECOND = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final int OK = 200;
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Supplier<String> metrics;
+
+    /**
+     * @param port the port to listen on, on the loopback address only, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsServer(final int port) throws IOException {
+        this(port, MetricsServer::scrape);
+    }
+
+    /**
+     * @param port
+     * @param metrics   the body of every response
+     * @throws IOException if the port cannot be bound
+     */
+    MetricsServer(final int port, final Supplier<String> metrics) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("metrics").daemon().factory());
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Start serving the metrics, in background.
+     */
+    public void start() {
+        server.start();
+        LOGGER.log(Level.INFO, "Serving metrics at http://localhost:" + getPort() + PATH);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final boolean head = "HEAD".equals(exchange.getRequestMethod());
+            if (!head && !"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            final byte[] body = metrics.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, head ? -1 : body.length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+    }
+
+    private static String scrape() {
+        return render(
+            DatabaseConnectionManager.getInstance().getPoolStats(),
+            QueryStats.getInstance().snapshot(),
+            DatabaseConnectionManager.getInstance().withConnection(Order.DAO::countByState),
+            Order.DAO.stateChanges(),
+            CheckoutService.getStats(),
+            PasswordHashingService.getInstance().getStats()
+        );
+    }
+
+    /**
+     * @param pool
+     * @param queries
+     * @param orders        the orders in each state, no samples if they could not be counted
+     * @param transitions   the orders moved to each state since the application started
+     * @param checkouts
+     * @param passwords
+     * @return the metrics in the Prometheus text format
+     */
+    static String render(
+        final ConnectionPool.Stats pool,
+        final List<QueryStat> queries,
+        final Result<Map<State, Long>> orders,
+        final Map<State, Long> transitions,
+        final CheckoutService.Stats checkouts,
+        final PasswordHashingService.Stats passwords
+    ) {
+        final Exposition out = new Exposition();
+
+        out.family("db_pool_active_connections", "gauge", "Connections currently borrowed");
+        out.sample("db_pool_active_connections", "", pool.active());
+        out.family("db_pool_idle_connections", "gauge", "Connections open and ready to be borrowed");
+        out.sample("db_pool_idle_connections", "", pool.idle());
+        out.family("db_pool_waiting_threads", "gauge", "Threads waiting for a connection");
+        out.sample("db_pool_waiting_threads", "", pool.waiting());
+        out.family("db_pool_borrows_total", "counter", "Connections borrowed");
+        out.sample("db_pool_borrows_total", "", pool.borrows());
+        out.family("db_pool_timeouts_total", "counter", "Borrows failed because the pool was exhausted");
+        out.sample("db_pool_timeouts_total", "", pool.timeouts());
+        out.family("db_pool_wait_seconds_total", "counter", "Time spent waiting for a connection");
+        out.sample("db_pool_wait_seconds_total", "", seconds(pool.totalWait()));
+        out.family("db_pool_wait_seconds_max", "gauge", "Longest time spent waiting for a connection");
+        out.sample("db_pool_wait_seconds_max", "", seconds(pool.maxWait()));
+        out.family("db_statement_cache_hits_total", "counter", "Prepared statements reused from the cache");
+        out.sample("db_statement_cache_hits_total", "", pool.statementHits());
+        out.family("db_statement_cache_misses_total", "counter", "Prepared statements created");
+        out.sample("db_statement_cache_misses_total", "", pool.statementMisses());
+
+        out.family("query_duration_seconds", "summary", "Execution time of each query, rows read excluded");
+        for (final QueryStat query : queries) {
+            final String label = "query=\"" + query.name() + "\"";
+            out.sample("query_duration_seconds", label + ",quantile=\"0.5\"", query.p50Micros() / MICROS_PER_SECOND);
+            out.sample("query_duration_seconds", label + ",quantile=\"0.95\"", query.p95Micros() / MICROS_PER_SECOND);
+            out.sample("query_duration_seconds", label + ",quantile=\"0.99\"", query.p99Micros() / MICROS_PER_SECOND);
+            out.sample("query_duration_seconds_sum", label, query.totalMicros() / MICROS_PER_SECOND);
+            out.sample("query_duration_seconds_count", label, query.calls());
+        }
+        out.family("query_errors_total", "counter", "Executions of each query that failed");
+        for (final QueryStat query : queries) {
+            out.sample("query_errors_total", "query=\"" + query.name() + "\"", query.errors());
+        }
+        out.family("query_rows_total", "counter", "Rows read or changed by each query");
+        for (final QueryStat query : queries) {
+            out.sample("query_rows_total", "query=\"" + query.name() + "\"", query.rows());
+        }
+
+        out.family("orders", "gauge", "Orders in each state, counted in the database at every scrape");
+        if (orders.isSuccess()) {
+            for (final Map.Entry<State, Long> entry : orders.getValue().entrySet()) {
+                out.sample("orders", label(entry.getKey()), entry.getValue());
+            }
+        }
+        out.family(
+            "order_state_transitions_total",
+            "counter",
+            "Orders moved to each state by this process, including the changes rolled back afterwards"
+        );
+        for (final Map.Entry<State, Long> entry : transitions.entrySet()) {
+            out.sample("order_state_transitions_total", label(entry.getKey()), entry.getValue());
+        }
+
+        out.family("checkouts_total", "counter", "Checkouts by outcome");
+        out.sample("checkouts_total", "outcome=\"success\"", checkouts.successes());
+        out.sample("checkouts_total", "outcome=\"failure\"", checkouts.failures());
+        out.family("checkout_retries_total", "counter", "Checkout transactions run again after a deadlock");
+        out.sample("checkout_retries_total", "", checkouts.retries());
+
+        out.family("password_hash_seconds", "summary", "Time spent hashing passwords, by operation");
+        out.sample("password_hash_seconds_sum", "operation=\"encode\"", seconds(passwords.encodeTime()));
+        out.sample("password_hash_seconds_count", "operation=\"encode\"", passwords.encodes());
+        out.sample("password_hash_seconds_sum", "operation=\"verify\"", seconds(passwords.verifyTime()));
+        out.sample("password_hash_seconds_count", "operation=\"verify\"", passwords.verifications());
+        out.family("password_hash_wait_seconds_total", "counter", "Time password hashes waited for a free worker");
+        out.sample("password_hash_wait_seconds_total", "", seconds(passwords.waitTime()));
+        return out.toString();
+    }
+
+    private static String label(final State state) {
+        return "state=\"" + state.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private static double seconds(final Duration duration) {
+        return duration.toNanos() / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Stop serving the metrics.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Builder of a response in the Prometheus text format.
+     */
+    private static final class Exposition {
+
+        private final StringBuilder text = new StringBuilder();
+
+        void family(final String name, final String type, final String help) {
+            text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+            text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        }
+
+        void sample(final String name, final String labels, final long value) {
+            sample(name, labels, String.valueOf(value));
+        }
+
+        void sample(final String name, final String labels, final double value) {
+            sample(name, labels, String.valueOf(value));
+        }
+
+        private void sample(final String name, final String labels, final String value) {
+            text.append(PREFIX).append(name);
+            if (!labels.isEmpty()) {
+                text.append('{').append(labels).append('}');
+            }
+            text.append(' ').append(value).append('\n');
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
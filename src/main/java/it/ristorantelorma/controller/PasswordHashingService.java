@@ -0,0 +1,159 @@
+package it.ristorantelorma.controller;
+
+import it.ristorantelorma.model.Result;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashes and verifies passwords on a fixed pool of worker threads, one per core by default.
+ * PBKDF2 keeps a core busy for the whole hash: running it here keeps it off the Swing event thread
+ * and bounds how many hashes run at once, the others wait in the queue of the pool.
+ * Every worker keeps its own SecretKeyFactory, see PasswordManager.
+ */
+public final class PasswordHashingService implements AutoCloseable {
+
+    private static final String CLASS_NAME = PasswordHashingService.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+
+    private final ExecutorService executor;
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * Hashes computed since the service started.
+     * @param encodes           passwords hashed by encode()
+     * @param encodeTime        total time spent hashing them
+     * @param verifications     passwords compared by verify()
+     * @param verifyTime        total time spent comparing them
+     * @param waitTime          total time the hashes waited in the queue for a free worker
+     */
+    public record Stats(
+        long encodes,
+        Duration encodeTime,
+        long verifications,
+        Duration verifyTime,
+        Duration waitTime
+    ) { }
+
+    private static final class LazyHashingService {
+        static final PasswordHashingService SERVICE = new PasswordHashingService();
+    }
+
+    /**
+     * A service with one worker per available core.
+     */
+    public PasswordHashingService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of passwords hashed at the same time
+     */
+    public PasswordHashingService(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.executor = Executors.newFixedThreadPool(
+            threads,
+            Thread.ofPlatform().name("password-hashing-", 0).daemon().factory()
+        );
+    }
+
+    /**
+     * @return the service shared by the whole application
+     */
+    public static PasswordHashingService getInstance() {
+        return LazyHashingService.SERVICE;
+    }
+
+    /**
+     * Hash and salt the given password with a new random salt.
+     * @param password
+     * @return the future $pbkdf2-sha256$iterations$salt$hash
+     * @see PasswordManager#newEncodedPassword(String)
+     */
+    public CompletableFuture<Result<String>> encode(final String password) {
+        return submit(encodes, encodeNanos, () -> {
+            final String encoded = PasswordManager.newEncodedPassword(password);
+            if (encoded == null) {
+                return Result.failure("Error while hashing password");
+            }
+            return Result.success(encoded);
+        });
+    }
+
+    /**
+     * Compare the given password with the given hashed password.
+     * @param password
+     * @param hashedPassword    $pbkdf2-sha256$iterations$salt$hash, or the legacy Base64-encoded salt:hash
+     * @return the future outcome of the comparison, a failure if hashedPassword is invalid
+     * @see PasswordManager#checkPassword(String, String)
+     */
+    public CompletableFuture<Result<Boolean>> verify(final String password, final String hashedPassword) {
+        return submit(verifications, verifyNanos, () -> {
+            try {
+                return Result.success(PasswordManager.checkPassword(password, hashedPassword));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                final String errorMessage = "Cannot verify the password";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        });
+    }
+
+    /**
+     * Read without locks, so that it can be scraped as often as needed.
+     * @return the hashes computed since the service started
+     */
+    public Stats getStats() {
+        return new Stats(
+            encodes.sum(),
+            Duration.ofNanos(encodeNanos.sum()),
+            verifications.sum(),
+            Duration.ofNanos(verifyNanos.sum()),
+            Duration.ofNanos(waitNanos.sum())
+        );
+    }
+
+    private <T> CompletableFuture<Result<T>> submit(
+        final LongAdder count,
+        final LongAdder nanos,
+        final Supplier<Result<T>> task
+    ) {
+        final long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                final long start = System.nanoTime();
+                waitNanos.add(start - submitted);
+                try {
+                    return task.get();
+                } finally {
+                    nanos.add(System.nanoTime() - start);
+                    count.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            final String errorMessage = "The password hashing service is closed";
+            LOGGER.log(Level.SEVERE, errorMessage, e);
+            return CompletableFuture.completedFuture(Result.failure(errorMessage, e));
+        }
+    }
+
+    /**
+     * Stop the workers, after the hashes already submitted.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
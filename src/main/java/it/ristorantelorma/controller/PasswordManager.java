@@ -1,9 +1,11 @@
 package it.ristorantelorma.controller;
 
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
+import java.util.Base64.Decoder;
 import java.util.Base64.Encoder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,14 +15,42 @@ import javax.crypto.spec.PBEKeySpec;
 
 /**
  * Handles password hashing and comparison.
+ *
+ * Passwords are stored as $pbkdf2-sha256$iterations$salt$hash, salt and hash Base64-encoded without padding,
+ * so that the cost can be raised without invalidating the stored passwords: see needsRehash().
+ * The legacy salt:hash format (65_535 iterations, 600bit key) is still accepted.
  */
 public final class PasswordManager {
 
+    /**
+     * PBKDF2 iterations of the new passwords.
+     * The legacy 600bit key costs three PBKDF2 blocks of 65_535 iterations, but guessing a password needs only
+     * the first one: a 256bit key is a single block, so this costs the same CPU time and three times as much to guess.
+     */
+    public static final int ITERATIONS = 196_608;
     private static final String CLASS_NAME = PasswordManager.class.getName();
     private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
     private static final SecureRandom RANDOM = new SecureRandom();
     private static final int SALT_LENGTH = 18; // when base64-encoded: 24 chars
-    private static final int KEY_LENGTH = 600; // when base64-encoded: 100 chars
+    private static final int KEY_LENGTH = 256; // when base64-encoded without padding: 43 chars
+    private static final int LEGACY_ITERATIONS = 65_535;
+    private static final int LEGACY_KEY_LENGTH = 600; // when base64-encoded: 100 chars
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String ALGORITHM_ID = "pbkdf2-sha256";
+    private static final String SEPARATOR = "$";
+    /**
+     * SecretKeyFactory is not thread-safe and costly to look up, so every thread keeps its own.
+     */
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = new ThreadLocal<>();
+
+    /**
+     * A stored password, decoded.
+     * @param iterations
+     * @param salt
+     * @param hash
+     * @param legacy    true if stored in the salt:hash format
+     */
+    private record StoredPassword(int iterations, byte[] salt, byte[] hash, boolean legacy) { }
 
     private PasswordManager() {
         throw new UnsupportedOperationException("Utility class and cannot be instantiated");
@@ -48,26 +78,65 @@ public final class PasswordManager {
      */
     public static byte[] hashPassword(final String password, final byte[] salt)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, 65_535, KEY_LENGTH);
-        final SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        return factory.generateSecret(spec).getEncoded();
+        return hashPassword(password, salt, ITERATIONS);
+    }
+
+    /**
+     * Hash and salt the given password, using PBKDF2-HMAC-SHA256 with the given number of iterations.
+     *
+     * @param password
+     * @param salt random bytes
+     * @param iterations
+     * @return the hashed password
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     */
+    public static byte[] hashPassword(final String password, final byte[] salt, final int iterations)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return hashPassword(password, salt, iterations, KEY_LENGTH);
+    }
+
+    private static byte[] hashPassword(
+        final String password,
+        final byte[] salt,
+        final int iterations,
+        final int keyLength
+    ) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            return factory().generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static SecretKeyFactory factory() throws NoSuchAlgorithmException {
+        SecretKeyFactory factory = FACTORY.get();
+        if (factory == null) {
+            factory = SecretKeyFactory.getInstance(ALGORITHM);
+            FACTORY.set(factory);
+        }
+        return factory;
     }
 
     /**
-     * Hash and salt the given password, return Base64-encoded salt:hash.
+     * Hash and salt the given password, return $pbkdf2-sha256$iterations$salt$hash.
      *
-     * 18byte salt, 600bit key, both Base64-encoded: the returned "salt:hash" is long 125 chars
+     * 18byte salt, 256bit key, both Base64-encoded without padding: with ITERATIONS the result is long 90 chars
      *
      * @param password
      * @param salt
-     * @return base64 encoded salt:hash, null if an error is encountered
+     * @return the encoded password, null if an error is encountered
      */
     @CheckForNull
     public static String encodePassword(final String password, final byte[] salt) {
-        final Encoder encoder = Base64.getEncoder();
+        final Encoder encoder = Base64.getEncoder().withoutPadding();
         try {
-            final byte[] hash = hashPassword(password, salt);
-            return encoder.encodeToString(salt) + ":" + encoder.encodeToString(hash);
+            final byte[] hash = hashPassword(password, salt, ITERATIONS);
+            return SEPARATOR + ALGORITHM_ID
+                + SEPARATOR + ITERATIONS
+                + SEPARATOR + encoder.encodeToString(salt)
+                + SEPARATOR + encoder.encodeToString(hash);
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
             LOGGER.log(Level.SEVERE, "Error while hashing password", e);
             return null;
@@ -79,7 +148,7 @@ public final class PasswordManager {
      *
      * @see encodePassword()
      * @param password
-     * @return base64 encoded salt:hash, null if an error is encountered
+     * @return the encoded password, null if an error is encountered
      */
     @CheckForNull
     public static String newEncodedPassword(final String password) {
@@ -88,8 +157,8 @@ public final class PasswordManager {
     }
 
     /**
-     * Compare the given password with the given hashed password. The salt will be extracted from
-     * hashedPassword.
+     * Compare the given password with the given hashed password, in either format.
+     * The salt and the cost will be extracted from hashedPassword, the hashes are compared in constant time.
      *
      * @param password
      * @param hashedPassword
@@ -98,20 +167,64 @@ public final class PasswordManager {
      * @throws IllegalStateException if an exception is found while hasing password
      */
     public static boolean checkPassword(final String password, final String hashedPassword) {
-        final String[] slice = hashedPassword.split(":");
-        if (slice.length != 2) {
-            throw new IllegalArgumentException(
-                    "hashedPassword is invalid (not in the form salt:hash)");
+        final StoredPassword stored = parse(hashedPassword);
+        final byte[] hash;
+        try {
+            hash = hashPassword(password, stored.salt(), stored.iterations(), stored.hash().length * Byte.SIZE);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            LOGGER.log(Level.SEVERE, "Error while hashing password", e);
+            throw new IllegalStateException("Error while hashing password", e);
+        }
+        return MessageDigest.isEqual(hash, stored.hash());
+    }
+
+    /**
+     * To be checked after a successful checkPassword(), to store the password again with encodePassword().
+     *
+     * @param hashedPassword
+     * @return true if hashedPassword is in the legacy format or with a cost different from ITERATIONS
+     * @throws IllegalArgumentException if hashedPassword is invalid
+     */
+    public static boolean needsRehash(final String hashedPassword) {
+        final StoredPassword stored = parse(hashedPassword);
+        return stored.legacy() || stored.iterations() != ITERATIONS || stored.hash().length * Byte.SIZE != KEY_LENGTH;
+    }
+
+    private static StoredPassword parse(final String hashedPassword) {
+        final Decoder decoder = Base64.getDecoder();
+        if (!hashedPassword.startsWith(SEPARATOR)) {
+            final String[] slice = hashedPassword.split(":");
+            if (slice.length != 2) {
+                throw new IllegalArgumentException(
+                        "hashedPassword is invalid (not in the form salt:hash)");
+            }
+            if (slice[0].length() != SALT_LENGTH * 4 / 3 || slice[1].length() != LEGACY_KEY_LENGTH / 8 * 4 / 3) {
+                throw new IllegalArgumentException(
+                        "hashedPassword: hash or salt have an invalid length");
+            }
+            return new StoredPassword(LEGACY_ITERATIONS, decoder.decode(slice[0]), decoder.decode(slice[1]), true);
         }
-        if (slice[0].length() != SALT_LENGTH * 4 / 3 || slice[1].length() != KEY_LENGTH / 8 * 4 / 3) {
+        // The leading separator leaves an empty first slice
+        final String[] slice = hashedPassword.split("\\" + SEPARATOR);
+        if (slice.length != 5 || !slice[0].isEmpty()) {
             throw new IllegalArgumentException(
-                    "hashedPassword: hash or salt have an invalid length");
+                    "hashedPassword is invalid (not in the form $algorithm$iterations$salt$hash)");
+        }
+        if (!ALGORITHM_ID.equals(slice[1])) {
+            throw new IllegalArgumentException("hashedPassword: unknown algorithm " + slice[1]);
         }
-        final byte[] salt = Base64.getDecoder().decode(slice[0]);
-        final String newHash = encodePassword(password, salt);
-        if (newHash == null) {
-            throw new IllegalStateException("Error while hashing password");
+        final int iterations;
+        try {
+            iterations = Integer.parseUnsignedInt(slice[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("hashedPassword: invalid iterations " + slice[2], e);
+        }
+        final byte[] salt = decoder.decode(slice[3]);
+        final byte[] hash = decoder.decode(slice[4]);
+        if (iterations == 0 || salt.length == 0 || hash.length == 0) {
+            throw new IllegalArgumentException(
+                    "hashedPassword: iterations, hash or salt are empty");
         }
-        return newHash.equals(hashedPassword);
+        return new StoredPassword(iterations, salt, hash, false);
     }
 }
@@ -0,0 +1,196 @@
+package it.ristorantelorma.controller;
+
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.UnitOfWork;
+import it.ristorantelorma.model.order.Order;
+import it.ristorantelorma.model.user.DeliverymanUser;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Computes the statistics shown to the administrator.
+ * The statistics are read from the totals kept by the orders: they run at the same time, each on its own
+ * connection, and are cached for a time-to-live, so that a snapshot costs at most as much as the slowest of them.
+ * A failed statistic is not cached, the next snapshot computes it again.
+ */
+public final class StatisticsService {
+
+    /**
+     * Default time-to-live of a statistic.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    private static final String CLASS_NAME = StatisticsService.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final Executor EXECUTOR = task -> Thread.ofVirtual().name("statistics").start(task);
+
+    private final DataSource dataSource;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Cached<Entry<Food, Integer>> topFood = new Cached<>(Food.DAO::getMostPurchased);
+    private final Cached<Entry<FoodType, Integer>> topFoodType = new Cached<>(FoodType.DAO::getMostPurchased);
+    private final Cached<Entry<Restaurant, Float>> worstRestaurant =
+        new Cached<>(Restaurant.DAO::getTopByNegativeReviews);
+    private final Cached<Entry<Restaurant, Integer>> bestRestaurant =
+        new Cached<>(Restaurant.DAO::getTopByOrderCount);
+    private final Cached<Entry<DeliverymanUser, Integer>> bestDeliveryman =
+        new Cached<>(DeliverymanUser.DAO::getTopByDeliveryCount);
+
+    /**
+     * A computed statistic.
+     * @param <T> the class of the value
+     * @param value
+     * @param computedAt    when the value was read from the database
+     */
+    public record Statistic<T>(T value, Instant computedAt) { }
+
+    /**
+     * Every statistic, each one with its own time of computation.
+     * @param topFood           the most purchased Food, with the quantity
+     * @param topFoodType       the most purchased FoodType, with the quantity
+     * @param worstRestaurant   the Restaurant with the lowest average vote, with the average
+     * @param bestRestaurant    the Restaurant with the most orders, with their number
+     * @param bestDeliveryman   the DeliverymanUser with the most deliveries, with their number
+     */
+    public record Snapshot(
+        Result<Statistic<Entry<Food, Integer>>> topFood,
+        Result<Statistic<Entry<FoodType, Integer>>> topFoodType,
+        Result<Statistic<Entry<Restaurant, Float>>> worstRestaurant,
+        Result<Statistic<Entry<Restaurant, Integer>>> bestRestaurant,
+        Result<Statistic<Entry<DeliverymanUser, Integer>>> bestDeliveryman
+    ) { }
+
+    /**
+     * @param dataSource the source of the connections, usually DatabaseConnectionManager.getDataSource()
+     */
+    public StatisticsService(final DataSource dataSource) {
+        this(dataSource, DEFAULT_TTL);
+    }
+
+    /**
+     * @param dataSource
+     * @param ttl           how long a computed statistic is reused
+     */
+    public StatisticsService(final DataSource dataSource, final Duration ttl) {
+        this(dataSource, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * @param dataSource
+     * @param ttl
+     * @param clock         the clock used to timestamp and expire the statistics
+     */
+    StatisticsService(final DataSource dataSource, final Duration ttl, final Clock clock) {
+        this.dataSource = dataSource;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Start computing the statistics missing or older than the time-to-live, reuse the others.
+     * A statistic already being computed is not computed twice.
+     * @return the future snapshot, completed when the slowest statistic is computed
+     */
+    public CompletableFuture<Snapshot> snapshot() {
+        final CompletableFuture<Result<Statistic<Entry<Food, Integer>>>> food = topFood.get();
+        final CompletableFuture<Result<Statistic<Entry<FoodType, Integer>>>> foodType = topFoodType.get();
+        final CompletableFuture<Result<Statistic<Entry<Restaurant, Float>>>> worst = worstRestaurant.get();
+        final CompletableFuture<Result<Statistic<Entry<Restaurant, Integer>>>> best = bestRestaurant.get();
+        final CompletableFuture<Result<Statistic<Entry<DeliverymanUser, Integer>>>> deliveryman =
+            bestDeliveryman.get();
+        return CompletableFuture.allOf(food, foodType, worst, best, deliveryman).thenApply(v -> new Snapshot(
+            food.join(),
+            foodType.join(),
+            worst.join(),
+            best.join(),
+            deliveryman.join()
+        ));
+    }
+
+    /**
+     * Forget every cached statistic, so that the next snapshot computes them again.
+     */
+    public void invalidate() {
+        topFood.clear();
+        topFoodType.clear();
+        worstRestaurant.clear();
+        bestRestaurant.clear();
+        bestDeliveryman.clear();
+    }
+
+    /**
+     * Recompute from scratch the totals the statistics are read from, then invalidate the cached statistics.
+     * @return the number of totals written if there are no errors
+     * @see Order.DAO#rebuildTotals(Connection)
+     */
+    public Result<Integer> rebuildTotals() {
+        try (Connection connection = dataSource.getConnection()) {
+            final Result<Integer> result = Order.DAO.rebuildTotals(connection);
+            invalidate();
+            return result;
+        } catch (SQLException e) {
+            final String errorMessage = "Cannot get a connection to rebuild the totals of the statistics";
+            LOGGER.log(Level.SEVERE, errorMessage, e);
+            return Result.failure(errorMessage, e);
+        }
+    }
+
+    private <T> Result<Statistic<T>> compute(final Function<Connection, Result<T>> query) {
+        try (Connection connection = dataSource.getConnection()) {
+            final Result<T> result = UnitOfWork.call(() -> query.apply(connection));
+            if (!result.isSuccess()) {
+                // Propagate error
+                return Result.failure(result);
+            }
+            return Result.success(new Statistic<>(result.getValue(), clock.instant()));
+        } catch (SQLException e) {
+            final String errorMessage = "Cannot get a connection to compute the statistics";
+            LOGGER.log(Level.SEVERE, errorMessage, e);
+            return Result.failure(errorMessage, e);
+        } catch (RuntimeException e) {
+            final String errorMessage = "Failed computing a statistic";
+            LOGGER.log(Level.SEVERE, errorMessage, e);
+            return Result.failure(errorMessage, e);
+        }
+    }
+
+    /**
+     * The last computation of one statistic.
+     * @param <T> the class of the value
+     */
+    private final class Cached<T> {
+        private final Function<Connection, Result<T>> query;
+        private CompletableFuture<Result<Statistic<T>>> last;
+
+        Cached(final Function<Connection, Result<T>> query) {
+            this.query = query;
+        }
+
+        synchronized CompletableFuture<Result<Statistic<T>>> get() {
+            if (last == null || last.isDone() && isStale(last.join())) {
+                last = CompletableFuture.supplyAsync(() -> compute(query), EXECUTOR);
+            }
+            return last;
+        }
+
+        synchronized void clear() {
+            last = null;
+        }
+
+        private boolean isStale(final Result<Statistic<T>> result) {
+            return !result.isSuccess() || result.getValue().computedAt().plus(ttl).isBefore(clock.instant());
+        }
+    }
+}
@@ -0,0 +1,618 @@
+package it.ristorantelorma.model;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import it.ristorantelorma.controller.SimpleLogger;
+
+/**
+ * Bounded pool of JDBC connections, exposed as a DataSource.
+ * The connections handed out are proxies: closing them gives the physical connection back to the pool.
+ * Each physical connection also keeps a LRU cache of its prepared statements of the Queries constants,
+ * keyed by SQL text: closing a cached statement only clears its parameters, so the next prepare of the same
+ * query reuses it.
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final String CLASS_NAME = ConnectionPool.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final Duration MIN_HOUSEKEEPING_PERIOD = Duration.ofSeconds(1);
+
+    private final ConnectionFactory factory;
+    private final Config config;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Pool configuration.
+     * @param minSize               connections kept open even when idle
+     * @param maxSize               maximum number of connections borrowed at the same time
+     * @param borrowTimeout         maximum wait for a free connection
+     * @param idleTimeout           idle connections above minSize are closed after this time
+     * @param leakThreshold         a connection borrowed for longer than this is reported as leaked
+     * @param validationTimeout     timeout of the validation done on borrow
+     * @param statementCacheSize    prepared statements cached per connection, 0 disables the cache
+     */
+    public record Config(
+        int minSize,
+        int maxSize,
+        Duration borrowTimeout,
+        Duration idleTimeout,
+        Duration leakThreshold,
+        Duration validationTimeout,
+        int statementCacheSize
+    ) {
+        /**
+         * Default configuration.
+         */
+        public static final Config DEFAULT = new Config(
+            1,
+            10,
+            Duration.ofSeconds(30),
+            Duration.ofMinutes(10),
+            Duration.ofMinutes(1),
+            Duration.ofSeconds(5),
+            64
+        );
+
+        /**
+         * @throws IllegalArgumentException if the sizes are not 0 <= minSize <= maxSize, 0 < maxSize,
+         *      0 <= statementCacheSize
+         */
+        public Config {
+            if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+                throw new IllegalArgumentException(
+                    "Invalid pool size: min " + minSize + ", max " + maxSize
+                );
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the pool usage.
+     * @param active        connections currently borrowed
+     * @param idle          connections open and ready to be borrowed
+     * @param waiting       threads waiting for a connection
+     * @param borrows       total number of borrowed connections
+     * @param timeouts      total number of borrows failed because the pool was exhausted
+     * @param totalWait     total time spent waiting for a connection
+     * @param maxWait       longest time spent waiting for a connection
+     * @param statementHits     prepared statements reused from the cache
+     * @param statementMisses   prepared statements created because not in the cache
+     */
+    public record Stats(
+        int active,
+        int idle,
+        int waiting,
+        long borrows,
+        long timeouts,
+        Duration totalWait,
+        Duration maxWait,
+        long statementHits,
+        long statementMisses
+    ) {
+        /**
+         * @return average time spent waiting for a connection
+         */
+        public Duration averageWait() {
+            return borrows == 0 ? Duration.ZERO : totalWait.dividedBy(borrows);
+        }
+    }
+
+    /**
+     * Opens the physical connections of the pool.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private record StatementKey(String sql, int autoGeneratedKeys) { }
+
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(final PreparedStatement physical) {
+            this.physical = physical;
+        }
+    }
+
+    private static final class PooledConnection {
+        private final Connection physical;
+        /** Only used by the thread that borrowed the connection. */
+        private final Map<StatementKey, CachedStatement> statements;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(final Connection physical, final int statementCacheSize) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<StatementKey, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    final CachedStatement cached = eldest.getValue();
+                    if (cached.inUse) {
+                        // Closed for real when the caller closes it
+                        cached.evicted = true;
+                    } else {
+                        closeQuietly(cached.physical);
+                    }
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * Create a new pool and open its first minSize connections.
+     * @param url
+     * @param user
+     * @param password
+     * @param config
+     * @throws SQLException if the first connections cannot be opened
+     */
+    public ConnectionPool(
+        final String url,
+        final String user,
+        final String password,
+        final Config config
+    ) throws SQLException {
+        this(() -> DriverManager.getConnection(url, user, password), config);
+    }
+
+    /**
+     * Create a new pool on top of the given factory and open its first minSize connections.
+     * @param factory
+     * @param config
+     * @throws SQLException if the first connections cannot be opened
+     */
+    ConnectionPool(final ConnectionFactory factory, final Config config) throws SQLException {
+        this.factory = factory;
+        this.config = config;
+        permits = new Semaphore(config.maxSize(), true);
+        for (int i = 0; i < config.minSize(); i++) {
+            idle.offerLast(open());
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = Math.max(
+            MIN_HOUSEKEEPING_PERIOD.toMillis(),
+            Math.min(config.idleTimeout().toMillis(), config.leakThreshold().toMillis()) / 2
+        );
+        housekeeper.scheduleAtFixedRate(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout if the pool is exhausted.
+     * The returned connection must be closed to give it back to the pool.
+     * @return a valid connection
+     * @throws SQLException if the pool is closed, exhausted, or a new connection cannot be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed");
+        }
+        final long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.borrowTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException(
+                    "No connection available within " + config.borrowTimeout().toMillis() + " ms"
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        final long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        borrows.increment();
+        try {
+            PooledConnection pooled = idle.pollFirst();
+            while (pooled != null && !isValid(pooled)) {
+                discard(pooled);
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowSite = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+            active.add(pooled);
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool usage
+     */
+    public Stats getStats() {
+        return new Stats(
+            active.size(),
+            idle.size(),
+            permits.getQueueLength(),
+            borrows.sum(),
+            timeouts.sum(),
+            Duration.ofNanos(waitNanos.sum()),
+            Duration.ofNanos(maxWaitNanos.get()),
+            statementHits.sum(),
+            statementMisses.sum()
+        );
+    }
+
+    /**
+     * Close every idle connection and stop accepting borrows.
+     * Borrowed connections are closed when given back.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PooledConnection pooled = idle.pollFirst();
+        while (pooled != null) {
+            discard(pooled);
+            pooled = idle.pollFirst();
+        }
+        if (!active.isEmpty()) {
+            LOGGER.log(Level.WARNING, active.size() + " connections still borrowed while closing the pool");
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        final Connection physical = factory.open();
+        total.incrementAndGet();
+        return new PooledConnection(physical, config.statementCacheSize());
+    }
+
+    private static void closeQuietly(final Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed closing a cached statement", e);
+        }
+    }
+
+    private boolean isValid(final PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid((int) config.validationTimeout().toSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(final PooledConnection pooled) {
+        total.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed closing a pooled connection", e);
+        }
+    }
+
+    private void release(final PooledConnection pooled) {
+        active.remove(pooled);
+        pooled.borrowSite = null;
+        // Statements left open by the borrower can be handed out again to the next one
+        pooled.statements.values().forEach(cached -> cached.inUse = false);
+        try {
+            final Connection physical = pooled.physical;
+            if (!physical.getAutoCommit()) {
+                // Never give back a connection in the middle of a transaction
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (closed.get() || total.get() > config.maxSize()) {
+                discard(pooled);
+            } else {
+                pooled.lastUsed = System.nanoTime();
+                // LIFO: keep the most recently used connections warm, let the others expire
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Discarding a broken connection", e);
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Evict the expired idle connections, refill the pool up to minSize and report the leaked connections.
+     * Run periodically by the housekeeper thread.
+     */
+    void housekeeping() {
+        try {
+            final long now = System.nanoTime();
+            // Evict the oldest idle connections
+            final Iterator<PooledConnection> oldest = idle.descendingIterator();
+            while (oldest.hasNext()) {
+                final PooledConnection pooled = oldest.next();
+                if (total.get() <= config.minSize()) {
+                    break;
+                }
+                if (now - pooled.lastUsed > config.idleTimeout().toNanos() && idle.remove(pooled)) {
+                    discard(pooled);
+                }
+            }
+            // Refill up to minSize
+            while (!closed.get() && total.get() < config.minSize()) {
+                idle.offerLast(open());
+            }
+            // Report leaks
+            for (final PooledConnection pooled : active) {
+                final Throwable site = pooled.borrowSite;
+                if (site != null && !pooled.leakReported
+                    && now - pooled.borrowedAt > config.leakThreshold().toNanos()) {
+                    pooled.leakReported = true;
+                    LOGGER.log(
+                        Level.WARNING,
+                        "Connection borrowed for more than " + config.leakThreshold().toMillis()
+                            + " ms, possible leak",
+                        site
+                    );
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private Connection wrap(final PooledConnection pooled) {
+        final AtomicBoolean handleClosed = new AtomicBoolean();
+        final InvocationHandler handler = (final Object proxy, final Method method, final Object[] args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (handleClosed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed.get() || pooled.physical.isClosed();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (handleClosed.get()) {
+                throw new SQLException("Connection is closed");
+            }
+            // Only the constant queries are cached: the built ones differ in their number of placeholders,
+            // each of them would be used once and evict a constant one
+            if (config.statementCacheSize() > 0 && "prepareStatement".equals(method.getName())
+                && Queries.isConstant((String) args[0])) {
+                final Class<?>[] params = method.getParameterTypes();
+                if (Arrays.equals(params, new Class<?>[] {String.class})) {
+                    return prepareCached(pooled, (Connection) proxy, handleClosed, (String) args[0],
+                        Statement.NO_GENERATED_KEYS);
+                } else if (Arrays.equals(params, new Class<?>[] {String.class, int.class})) {
+                    return prepareCached(pooled, (Connection) proxy, handleClosed, (String) args[0],
+                        (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            handler
+        );
+    }
+
+    private PreparedStatement prepareCached(
+        final PooledConnection pooled,
+        final Connection handle,
+        final AtomicBoolean handleClosed,
+        final String sql,
+        final int autoGeneratedKeys
+    ) throws SQLException {
+        final StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+        CachedStatement cached = pooled.statements.get(key);
+        if (cached != null && cached.inUse) {
+            // The same query is already open higher in the call stack, give out a private statement
+            statementMisses.increment();
+            return pooled.physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        if (cached == null || cached.physical.isClosed()) {
+            statementMisses.increment();
+            cached = new CachedStatement(pooled.physical.prepareStatement(sql, autoGeneratedKeys));
+            pooled.statements.put(key, cached);
+        } else {
+            statementHits.increment();
+        }
+        cached.inUse = true;
+        return wrap(cached, handle, handleClosed);
+    }
+
+    private PreparedStatement wrap(
+        final CachedStatement cached,
+        final Connection handle,
+        final AtomicBoolean connectionClosed
+    ) {
+        final AtomicBoolean statementClosed = new AtomicBoolean();
+        final InvocationHandler handler = (final Object proxy, final Method method, final Object[] args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (statementClosed.compareAndSet(false, true) && !connectionClosed.get()) {
+                        cached.inUse = false;
+                        if (cached.evicted) {
+                            closeQuietly(cached.physical);
+                        } else {
+                            try {
+                                cached.physical.clearParameters();
+                                cached.physical.setFetchSize(0);
+                            } catch (SQLException e) {
+                                closeQuietly(cached.physical);
+                            }
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return statementClosed.get() || connectionClosed.get() || cached.physical.isClosed();
+                case "getConnection":
+                    return handle;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "CachedStatement[" + cached.physical + "]";
+                default:
+                    break;
+            }
+            if (statementClosed.get() || connectionClosed.get()) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            handler
+        );
+    }
+
+    /**
+     * Not supported, the credentials are fixed when the pool is created.
+     * @param username
+     * @param password
+     * @throws SQLFeatureNotSupportedException always
+     */
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool credentials cannot be changed");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLogWriter(final PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLoginTimeout(final int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
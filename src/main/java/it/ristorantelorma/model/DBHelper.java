@@ -4,17 +4,25 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Helper class, used to simplify interaction with the database.
  */
 public final class DBHelper {
+    private static final int NANOS_PER_MICRO = 1000;
+
     private DBHelper() {
         throw new UnsupportedOperationException("Utility class and cannot be instantiated");
     }
 
     /**
      * Build helper for PreparedStatement.
+     * Generated keys are requested only for INSERT queries, the other ones never read them.
+     * The executions of the statement are recorded in QueryStats.getInstance().
      * @param connection     A Connection to the DatabaseConnectionManager
      * @param query          Query to be executed
      * @param objects        Objects that will be mapped in the query
@@ -26,11 +34,13 @@ public final class DBHelper {
     ) throws SQLException {
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+            statement = isInsert(query)
+                ? connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(query);
             for (int i = 0; i < objects.length; i++) {
                 statement.setObject(i + 1, objects[i]);
             }
-            return statement;
+            return QueryStats.getInstance().instrument(statement, query);
         } catch (SQLException e) {
             if (statement != null) {
                 statement.close();
@@ -38,4 +48,84 @@ public final class DBHelper {
             throw e;
         }
     }
+
+    /**
+     * Truncate a Timestamp to the microseconds stored by a datetime(6) column,
+     * so that the value kept in memory is the same that is read back from the database.
+     * @param timestamp
+     * @return a new Timestamp without the nanoseconds below the microsecond
+     */
+    public static Timestamp toMicros(final Timestamp timestamp) {
+        final Timestamp truncated = new Timestamp(timestamp.getTime());
+        truncated.setNanos(timestamp.getNanos() / NANOS_PER_MICRO * NANOS_PER_MICRO);
+        return truncated;
+    }
+
+    /**
+     * Split the keys of a multi-key lookup in chunks of at most Queries.IN_LIST_CHUNK_SIZE keys,
+     * so that each chunk can be bound to one IN (...) query.
+     * @param <K> the class of the keys
+     * @param keys
+     * @return the chunks, in the iteration order of keys; none if keys is empty
+     */
+    public static <K> List<List<K>> chunks(final Collection<K> keys) {
+        final List<K> list = new ArrayList<>(keys);
+        final List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += Queries.IN_LIST_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(list.size(), from + Queries.IN_LIST_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    /**
+     * An operation on a connection that may throw SQLException.
+     * @param <T> the class of the result value
+     */
+    @FunctionalInterface
+    public interface SQLOperation<T> {
+        /**
+         * @param connection
+         * @return the result of the operation
+         * @throws SQLException
+         */
+        Result<T> apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Run an operation in a transaction.
+     * If the connection is in auto-commit mode a new transaction is started, committed if the operation
+     * succeeds and rolled back if it fails or throws; otherwise the operation joins the current transaction,
+     * which is left to the caller to end.
+     * @param <T> the class of the result value
+     * @param connection
+     * @param operation
+     * @return the result of the operation
+     * @throws SQLException
+     */
+    public static <T> Result<T> inTransaction(
+        final Connection connection, final SQLOperation<T> operation
+    ) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return operation.apply(connection);
+        }
+        connection.setAutoCommit(false);
+        try {
+            final Result<T> result = operation.apply(connection);
+            if (result.isSuccess()) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static boolean isInsert(final String query) {
+        return query.stripLeading().regionMatches(true, 0, "INSERT", 0, "INSERT".length());
+    }
 }
@@ -1,12 +1,20 @@
 package it.ristorantelorma.model;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.ristorantelorma.controller.SimpleLogger;
 
@@ -21,12 +29,10 @@ public final class DatabaseConnectionManager {
     private static final String DEFAULT_USER = "root";
     private static final String DEFAULT_PASSWORD = "";
 
-    private final String url;
-    private final String user;
-    private final String password;
     private final String className = getClass().getName();
     private final Logger logger = SimpleLogger.getLogger(className);
-    private Connection connection;
+    private final ConnectionPool pool;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
     private static final class LazyConnectionManager {
         private static final DatabaseConnectionManager DB = new DatabaseConnectionManager();
@@ -36,29 +42,55 @@ public final class DatabaseConnectionManager {
         final Map<String, String> env = System.getenv();
 
         final String hostname = env.getOrDefault("DB_HOSTNAME", DEFAULT_HOSTNAME);
-        int port;
-        try {
-            port = Integer.parseUnsignedInt(
-                env.getOrDefault("DB_PORT", String.valueOf(DEFAULT_PORT))
-            );
-        } catch (NumberFormatException e) {
-            port = DEFAULT_PORT;
-        }
+        final int port = parseEnv(env, "DB_PORT", DEFAULT_PORT);
         final String dbName = env.getOrDefault("DB_NAME", DEFAULT_DBNAME);
-        user = env.getOrDefault("DB_USER", DEFAULT_USER);
-        password = env.getOrDefault("DB_PASSWORD", DEFAULT_PASSWORD);
+        final String user = env.getOrDefault("DB_USER", DEFAULT_USER);
+        final String password = env.getOrDefault("DB_PASSWORD", DEFAULT_PASSWORD);
 
-        url = String.format("jdbc:mysql://%s:%d/%s", hostname, port, dbName);
+        // Server-side prepares: the pool caches the statements, so each query is parsed once per connection.
+        // Cursor fetch: statements with a fetch size read their rows in chunks through a server-side cursor
+        final String url = String.format(
+            "jdbc:mysql://%s:%d/%s?useServerPrepStmts=true&cachePrepStmts=false&useCursorFetch=true",
+            hostname,
+            port,
+            dbName
+        );
+
+        final ConnectionPool.Config defaults = ConnectionPool.Config.DEFAULT;
+        final int maxSize = Math.max(1, parseEnv(env, "DB_POOL_MAX_SIZE", defaults.maxSize()));
+        final ConnectionPool.Config config = new ConnectionPool.Config(
+            Math.min(parseEnv(env, "DB_POOL_MIN_SIZE", defaults.minSize()), maxSize),
+            maxSize,
+            Duration.ofMillis(parseEnv(env, "DB_POOL_TIMEOUT_MS", (int) defaults.borrowTimeout().toMillis())),
+            Duration.ofMillis(parseEnv(env, "DB_POOL_IDLE_TIMEOUT_MS", (int) defaults.idleTimeout().toMillis())),
+            Duration.ofMillis(parseEnv(env, "DB_POOL_LEAK_THRESHOLD_MS", (int) defaults.leakThreshold().toMillis())),
+            defaults.validationTimeout(),
+            parseEnv(env, "DB_STATEMENT_CACHE_SIZE", defaults.statementCacheSize())
+        );
+
+        QueryStats.getInstance().setSlowQueryThreshold(Duration.ofMillis(parseEnv(
+            env, "DB_SLOW_QUERY_MS", (int) QueryStats.DEFAULT_SLOW_QUERY_THRESHOLD.toMillis()
+        )));
 
         try {
-            logger.log(Level.INFO, "Connecting to " + url);
-            connection = DriverManager.getConnection(url, user, password);
+            logger.log(Level.INFO, "Connecting to " + url + " with " + config);
+            pool = new ConnectionPool(url, user, password, config);
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Cannot create a connection to the database", e);
             throw new ExceptionInInitializerError(e);
         }
     }
 
+    private static int parseEnv(final Map<String, String> env, final String name, final int defaultValue) {
+        try {
+            return Integer.parseUnsignedInt(
+                env.getOrDefault(name, String.valueOf(defaultValue))
+            );
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /**
     * @return copy of a DatabaseConnectionManager
     */
@@ -67,35 +99,95 @@ public final class DatabaseConnectionManager {
     }
 
     /**
-     * @return copy of a connection
-     * TODO: switch to a DriverManager
+     * Borrow a connection from the pool.
+     * The connection must be closed as soon as possible, to give it back to the pool.
+     * @return a pooled connection
+     * @throws IllegalStateException if no connection can be obtained
      */
-    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "This is a demo, not production code")
-    public synchronized Connection getConnection() {
+    public Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                logger.log(Level.INFO, "Connecting to " + url);
-                connection = DriverManager.getConnection(url, user, password);
-            }
+            return pool.getConnection();
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Cannot create a connection to the database", e);
-            throw new ExceptionInInitializerError(e);
+            logger.log(Level.SEVERE, "Cannot get a connection to the database", e);
+            throw new IllegalStateException("Cannot get a connection to the database", e);
+        }
+    }
+
+    /**
+     * Run a DAO operation on a pooled connection, giving the connection back as soon as it returns.
+     * The operation runs inside a UnitOfWork, so every entity it loads is built once.
+     * @param <T> the class of the result value
+     * @param operation     the operation to run
+     * @return the result of the operation, or a failure if no connection can be obtained
+     */
+    public <T> Result<T> withConnection(final Function<Connection, Result<T>> operation) {
+        try (Connection connection = pool.getConnection()) {
+            return UnitOfWork.call(() -> operation.apply(connection));
+        } catch (SQLException e) {
+            final String errorMessage = "Cannot get a connection to the database";
+            logger.log(Level.SEVERE, errorMessage, e);
+            return Result.failure(errorMessage);
         }
-        return connection;
     }
 
     /**
-     * Close connection to the database.
+     * Run a DAO operation on a pooled connection in a virtual thread, without blocking the caller.
+     * @param <T> the class of the result value
+     * @param operation     the operation to run
+     * @return the future result of the operation, see withConnection
+     * @see #supplyAsync(Supplier)
+     */
+    public <T> CompletableFuture<Result<T>> withConnectionAsync(final Function<Connection, Result<T>> operation) {
+        return supplyAsync(() -> withConnection(operation));
+    }
+
+    /**
+     * Run a task in a virtual thread, without blocking the caller.
+     * The task may borrow any number of connections, e.g. with withConnection.
+     * Cancelling the returned future interrupts the thread running the task.
+     * @param <T> the class of the result value
+     * @param task          the task to run
+     * @return the future result of the task, completed exceptionally if the task throws
      */
-    public synchronized void close() {
-        logger.log(Level.INFO, "Closing DB connection");
-        if (connection != null) {
+    public <T> CompletableFuture<Result<T>> supplyAsync(final Supplier<Result<T>> task) {
+        final CompletableFuture<Result<T>> result = new CompletableFuture<>();
+        final Future<?> running = executor.submit(() -> {
             try {
-                connection.close();
-                connection = null;
-            } catch (SQLException e) {
-                logger.log(Level.SEVERE, "Failed closing connection to the database", e);
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Background task failed", e);
+                result.completeExceptionally(e);
             }
-        }
+        });
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return the pooled DataSource
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The pool is meant to be shared")
+    public DataSource getDataSource() {
+        return pool;
+    }
+
+    /**
+     * @return a snapshot of the connection pool usage
+     */
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
+    /**
+     * Stop the background tasks still running and close the connections to the database.
+     */
+    public void close() {
+        executor.shutdownNow();
+        logger.log(Level.INFO, "Closing DB connections, pool usage: " + pool.getStats());
+        pool.close();
     }
 }
@@ -1,5 +1,6 @@
 package it.ristorantelorma.model;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.ristorantelorma.controller.SimpleLogger;
 import java.math.BigDecimal;
 import java.sql.Connection;
@@ -7,11 +8,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -129,6 +136,10 @@ public final class Food {
 
         private static final String CLASS_NAME = DAO.class.getName();
         private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+        /**
+         * Menus read by menu(), invalidated by every insert(), update() and delete().
+         */
+        private static final MenuCache MENUS = new MenuCache();
 
         private DAO() {
             throw new UnsupportedOperationException(
@@ -136,6 +147,95 @@ public final class Food {
             );
         }
 
+        /**
+         * Columns of a food row (see Queries.FOOD_SELECT), read before its Restaurant is resolved.
+         */
+        private record FoodRow(
+            int id,
+            String name,
+            String restaurantName,
+            BigDecimal price,
+            String typeName,
+            MacroType macroType
+        ) {
+            static FoodRow read(final ResultSet result) throws SQLException {
+                return new FoodRow(
+                    result.getInt("codice"),
+                    result.getString("nome"),
+                    result.getString("nome_attività"),
+                    result.getBigDecimal("prezzo"),
+                    result.getString("tipologia"),
+                    MacroType.fromString(result.getString("t_tipologia"))
+                );
+            }
+        }
+
+        /**
+         * Build the Foods of the given rows, resolving all their Restaurants with one Restaurant.DAO.findAll call.
+         * FoodTypes are read from the same rows and shared (see FoodType.DAO.resolve);
+         * Foods already loaded by the current UnitOfWork are reused.
+         * @param connection
+         * @param rows
+         * @param optRestaurant the Restaurant serving every Food, null to look them up
+         * @return the Foods, in the same order as the rows, if there are no errors
+         * @throws IllegalStateException if one Food have a non-existent linked Restaurant.
+         */
+        private static Result<List<Food>> build(
+            final Connection connection,
+            final List<FoodRow> rows,
+            final Restaurant optRestaurant
+        ) {
+            final Map<String, Restaurant> restaurants;
+            if (optRestaurant == null) {
+                final Result<Map<String, Restaurant>> resRestaurants = Restaurant.DAO.findAll(
+                    connection,
+                    rows.stream()
+                        .filter(row -> UnitOfWork.lookup(Food.class, row.id()).isEmpty())
+                        .map(FoodRow::restaurantName)
+                        .toList()
+                );
+                if (!resRestaurants.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resRestaurants.getErrorMessage());
+                }
+                restaurants = resRestaurants.getValue();
+            } else {
+                restaurants = Map.of();
+            }
+
+            final Map<String, FoodType> types = new HashMap<>();
+            final List<Food> foods = new ArrayList<>(rows.size());
+            for (final FoodRow row : rows) {
+                final Optional<Food> loaded = UnitOfWork.lookup(Food.class, row.id());
+                if (loaded.isPresent()) {
+                    foods.add(loaded.get());
+                } else {
+                    final FoodType type = types.computeIfAbsent(
+                        row.typeName(),
+                        name -> FoodType.DAO.resolve(name, row.macroType())
+                    );
+                    final Restaurant restaurant = optRestaurant == null
+                        ? restaurants.get(row.restaurantName())
+                        : optRestaurant;
+                    if (restaurant == null) {
+                        final String errorMessage =
+                            "The Food have an invalid Restaurant name: "
+                            + row.restaurantName();
+                        LOGGER.log(Level.SEVERE, errorMessage);
+                        throw new IllegalStateException(errorMessage);
+                    }
+                    foods.add(
+                        UnitOfWork.register(
+                            Food.class,
+                            row.id(),
+                            new Food(row.id(), row.name(), restaurant, row.price(), type)
+                        )
+                    );
+                }
+            }
+            return Result.success(foods);
+        }
+
         /**
          * @param connection
          * @param result
@@ -148,48 +248,16 @@ public final class Food {
             final ResultSet result,
             final Restaurant optRestaurant
         ) throws SQLException {
-            final int id = result.getInt("codice");
-            final String typeStr = result.getString("tipologia");
-            final Result<Optional<FoodType>> tmpType = FoodType.DAO.find(
+            final Result<List<Food>> resFoods = build(
                 connection,
-                typeStr
+                List.of(FoodRow.read(result)),
+                optRestaurant
             );
-            if (!tmpType.isSuccess()) {
+            if (!resFoods.isSuccess()) {
                 // Propagate the error
-                return Result.failure(tmpType.getErrorMessage());
-            }
-            if (!tmpType.getValue().isPresent()) {
-                final String errorMessage =
-                    "The Food have an invalid FoodType: " + typeStr;
-                LOGGER.log(Level.SEVERE, errorMessage);
-                throw new IllegalStateException(errorMessage);
-            }
-            final FoodType type = tmpType.getValue().get();
-
-            final Restaurant restaurant;
-            if (optRestaurant == null) {
-                final String restaurantStr = result.getString("nome_attività");
-                final Result<Optional<Restaurant>> tmpRestaurant =
-                    Restaurant.DAO.find(connection, restaurantStr);
-                if (!tmpRestaurant.isSuccess()) {
-                    // Propagate the error
-                    return Result.failure(tmpRestaurant.getErrorMessage());
-                }
-                if (!tmpRestaurant.getValue().isPresent()) {
-                    final String errorMessage =
-                        "The Food have an invalid Restaurant name: "
-                        + restaurantStr;
-                    LOGGER.log(Level.SEVERE, errorMessage);
-                    throw new IllegalStateException(errorMessage);
-                }
-                restaurant = tmpRestaurant.getValue().get();
-            } else {
-                restaurant = optRestaurant;
+                return Result.failure(resFoods.getErrorMessage());
             }
-
-            final String name = result.getString("nome");
-            final BigDecimal price = result.getBigDecimal("prezzo");
-            return Result.success(new Food(id, name, restaurant, price, type));
+            return Result.success(resFoods.getValue().get(0));
         }
 
         /**
@@ -198,7 +266,6 @@ public final class Food {
          * @param name
          * @param restaurant
          * @return Optional.of(Food) if it exists, Optional.empty() if no Food was found, error otherwise
-         * @throws IllegalStateException if the Food searched exists but the linked FoodType no.
          */
         public static Result<Optional<Food>> find(
             final Connection connection,
@@ -240,12 +307,16 @@ public final class Food {
          * @param connection
          * @param id
          * @return Optional.of(Food) if it exists, Optional.empty() if no Food was found, error otherwise
-         * @throws IllegalStateException if the Food searched exists but the linked FoodType no.
+         * @throws IllegalStateException if the Food searched exists but the linked Restaurant no.
          */
         public static Result<Optional<Food>> find(
             final Connection connection,
             final int id
         ) {
+            final Optional<Food> loaded = UnitOfWork.lookup(Food.class, id);
+            if (loaded.isPresent()) {
+                return Result.success(loaded);
+            }
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
@@ -277,6 +348,66 @@ public final class Food {
             }
         }
 
+        /**
+         * Find the Foods with the given IDs, with one query every Queries.IN_LIST_CHUNK_SIZE IDs
+         * and one more for all their Restaurants.
+         * Foods already loaded by the current UnitOfWork are not queried again.
+         * @param connection
+         * @param ids
+         * @return map ID -> Food of the Foods found, the IDs not found are left out; error otherwise
+         * @throws IllegalStateException if one Food have a non-existent linked Restaurant.
+         */
+        @SuppressFBWarnings(
+            value = "SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING",
+            justification = "SQL string built by Queries.findFoodsByIds from static strings"
+        )
+        public static Result<Map<Integer, Food>> findAll(
+            final Connection connection,
+            final Collection<Integer> ids
+        ) {
+            final Map<Integer, Food> foods = new HashMap<>();
+            final Set<Integer> missing = new LinkedHashSet<>();
+            for (final Integer id : ids) {
+                final Optional<Food> loaded = UnitOfWork.lookup(Food.class, id);
+                if (loaded.isPresent()) {
+                    foods.put(id, loaded.get());
+                } else {
+                    missing.add(id);
+                }
+            }
+            final List<FoodRow> rows = new ArrayList<>();
+            try {
+                for (final List<Integer> chunk : DBHelper.chunks(missing)) {
+                    try (
+                        PreparedStatement statement = DBHelper.prepare(
+                            connection,
+                            Queries.findFoodsByIds(chunk.size()),
+                            chunk.toArray()
+                        );
+                        ResultSet result = statement.executeQuery();
+                    ) {
+                        while (result.next()) {
+                            rows.add(FoodRow.read(result));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed research of " + missing.size() + " foods";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+            final Result<List<Food>> resFoods = build(connection, rows, null);
+            if (!resFoods.isSuccess()) {
+                // Propagate the error
+                return Result.failure(resFoods.getErrorMessage());
+            }
+            for (final Food food : resFoods.getValue()) {
+                foods.put(food.getId(), food);
+            }
+            return Result.success(foods);
+        }
+
         /**
          * Insert a new Food in the database.
          * @param connection
@@ -330,6 +461,7 @@ public final class Food {
                     try (ResultSet keys = statement.getGeneratedKeys()) {
                         if (keys.next()) {
                             final int id = keys.getInt(1);
+                            MENUS.invalidate(restaurant.getRestaurantName());
                             return Result.success(
                                 new Food(id, name, restaurant, price, type)
                             );
@@ -353,7 +485,6 @@ public final class Food {
          * @param connection
          * @param restaurant
          * @return a Collection<Restaurant> if there are no error
-         * @throws IllegalStateException if one Food have a non-existent linked FoodType.
          */
         public static Result<Collection<Food>> list(
             final Connection connection,
@@ -367,20 +498,16 @@ public final class Food {
                 );
                 ResultSet result = statement.executeQuery();
             ) {
-                final Collection<Food> foods = new HashSet<>();
+                final List<FoodRow> rows = new ArrayList<>();
                 while (result.next()) {
-                    final Result<Food> resFood = fromFoodResultSet(
-                        connection,
-                        result,
-                        restaurant
-                    );
-                    if (resFood.isSuccess()) {
-                        foods.add(resFood.getValue());
-                    } else {
-                        return Result.failure(resFood.getErrorMessage());
-                    }
+                    rows.add(FoodRow.read(result));
+                }
+                final Result<List<Food>> resFoods = build(connection, rows, restaurant);
+                if (!resFoods.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resFoods.getErrorMessage());
                 }
-                return Result.success(foods);
+                return Result.success(new HashSet<>(resFoods.getValue()));
             } catch (SQLException e) {
                 final String errorMessage = "Failed listing restaurants";
                 LOGGER.log(Level.SEVERE, errorMessage, e);
@@ -388,6 +515,45 @@ public final class Food {
             }
         }
 
+        /**
+         * The menu of the given Restaurant, served from an immutable snapshot when it is cached.
+         * The snapshot is dropped by every write done through this DAO, so use list() when the menu is being edited.
+         * @param connection
+         * @param restaurant
+         * @return the unmodifiable list of the Foods served by the Restaurant if there are no error
+         */
+        public static Result<List<Food>> menu(
+            final Connection connection,
+            final Restaurant restaurant
+        ) {
+            final String restaurantName = restaurant.getRestaurantName();
+            final Optional<List<Food>> cached = MENUS.get(restaurantName);
+            if (cached.isPresent()) {
+                return Result.success(cached.get());
+            }
+            final long version = MENUS.version(restaurantName);
+            final Result<Collection<Food>> foods = list(connection, restaurant);
+            if (!foods.isSuccess()) {
+                // Propagate the error
+                return Result.failure(foods.getErrorMessage());
+            }
+            return Result.success(MENUS.put(restaurantName, version, new ArrayList<>(foods.getValue())));
+        }
+
+        /**
+         * @return the statistics of the cache used by menu()
+         */
+        public static MenuCache.Stats menuCacheStats() {
+            return MENUS.stats();
+        }
+
+        /**
+         * Drop every menu cached by menu().
+         */
+        public static void clearMenuCache() {
+            MENUS.clear();
+        }
+
         /**
          * Find the most purchased Food.
          * @param connection
@@ -469,9 +635,10 @@ public final class Food {
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
                 } else {
-                    return Result.success(
-                        new Food(id, name, food.getRestaurant(), price, type)
-                    );
+                    final Food updated = new Food(id, name, food.getRestaurant(), price, type);
+                    UnitOfWork.replace(Food.class, id, updated);
+                    MENUS.invalidate(food.getRestaurant().getRestaurantName());
+                    return Result.success(updated);
                 }
             } catch (SQLException e) {
                 final String errorMessage =
@@ -502,6 +669,8 @@ public final class Food {
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
                 } else {
+                    UnitOfWork.evict(Food.class, food.getId());
+                    MENUS.invalidate(food.getRestaurant().getRestaurantName());
                     return Result.success(new Object()); // Return dummy value
                 }
             } catch (SQLException e) {
@@ -7,12 +7,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * Represent an entry in the FOOD_TYPES table of the database.
@@ -89,6 +94,12 @@ public final class FoodType {
 
         private static final String CLASS_NAME = DAO.class.getName();
         private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+        /**
+         * Immutable snapshot of every FoodType by name, empty until preload() is called.
+         * Writers replace the whole map, so readers never need a lock.
+         */
+        private static final AtomicReference<Optional<Map<String, FoodType>>> REGISTRY =
+            new AtomicReference<>(Optional.empty());
 
         private DAO() {
             throw new UnsupportedOperationException(
@@ -97,7 +108,65 @@ public final class FoodType {
         }
 
         /**
-         * Find a FoodType in the database by its name.
+         * Load every FoodType in the in-memory registry, so that find() no longer queries the database.
+         * Meant to be called once at startup: FoodTypes are reference data that almost never change.
+         * @param connection
+         * @return the loaded FoodTypes if no error is encountered, error otherwise
+         */
+        public static Result<Collection<FoodType>> preload(final Connection connection) {
+            final Result<Collection<FoodType>> types = list(connection);
+            if (!types.isSuccess()) {
+                // Propagate the error
+                return types;
+            }
+            REGISTRY.set(
+                Optional.of(
+                    types.getValue().stream().collect(
+                        Collectors.toUnmodifiableMap(FoodType::getName, Function.identity())
+                    )
+                )
+            );
+            LOGGER.log(Level.INFO, "Loaded " + types.getValue().size() + " FoodTypes in the registry");
+            return types;
+        }
+
+        /**
+         * Drop the in-memory registry: find() goes back to the database until the next preload().
+         */
+        public static void clearRegistry() {
+            REGISTRY.set(Optional.empty());
+        }
+
+        /**
+         * Add a FoodType to the registry, if it has been loaded, replacing the snapshot with an updated copy.
+         */
+        private static void addToRegistry(final FoodType foodType) {
+            REGISTRY.updateAndGet(registry -> registry.map(types -> {
+                final Map<String, FoodType> copy = new HashMap<>(types);
+                copy.put(foodType.getName(), foodType);
+                return Map.copyOf(copy);
+            }));
+        }
+
+        /**
+         * Get the shared instance of a FoodType read from a join, without querying the database:
+         * the one in the registry if it has been loaded, otherwise the one of the current UnitOfWork.
+         * @param name
+         * @param type
+         * @return the shared FoodType
+         */
+        public static FoodType resolve(final String name, final MacroType type) {
+            final Optional<FoodType> registered = REGISTRY.get().map(types -> types.get(name));
+            if (registered.isPresent()) {
+                return registered.get();
+            }
+            return UnitOfWork.register(FoodType.class, name, new FoodType(name, type));
+        }
+
+        /**
+         * Find a FoodType by its name.
+         * If the registry has been loaded the FoodType is resolved in memory,
+         * the database is queried only for names missing from the registry.
          * @param connection
          * @param name
          * @return Optional.of(FoodType) if it was found, Optional.empty() if no FoodType was found, error otherwise
@@ -107,6 +176,14 @@ public final class FoodType {
             final Connection connection,
             final String name
         ) {
+            final Optional<FoodType> registered = REGISTRY.get().map(types -> types.get(name));
+            if (registered.isPresent()) {
+                return Result.success(registered);
+            }
+            final Optional<FoodType> loaded = UnitOfWork.lookup(FoodType.class, name);
+            if (loaded.isPresent()) {
+                return Result.success(loaded);
+            }
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
@@ -118,9 +195,10 @@ public final class FoodType {
                 if (result.next()) {
                     final String typeStr = result.getString("tipologia");
                     final MacroType type = MacroType.fromString(typeStr);
-                    return Result.success(
-                        Optional.of(new FoodType(name, type))
-                    );
+                    final FoodType foodType = UnitOfWork.register(FoodType.class, name, new FoodType(name, type));
+                    // Inserted by someone else after the preload
+                    addToRegistry(foodType);
+                    return Result.success(Optional.of(foodType));
                 } else {
                     return Result.success(Optional.empty());
                 }
@@ -153,7 +231,7 @@ public final class FoodType {
                     final String name = result.getString("nome");
                     final String typeStr = result.getString("tipologia");
                     final MacroType type = MacroType.fromString(typeStr);
-                    foodTypes.add(new FoodType(name, type));
+                    foodTypes.add(UnitOfWork.register(FoodType.class, name, new FoodType(name, type)));
                 }
                 return Result.success(foodTypes);
             } catch (SQLException e) {
@@ -190,7 +268,7 @@ public final class FoodType {
                 // Propagate the error
                 return Result.failure(foodType.getErrorMessage());
             }
-            if (foodType.getValue().isEmpty()) {
+            if (foodType.getValue().isPresent()) {
                 final String errorMessage =
                     "FoodType '" + name + "' not inserted, it already exists";
                 LOGGER.log(Level.WARNING, errorMessage);
@@ -212,7 +290,9 @@ public final class FoodType {
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
                 } else {
-                    return Result.success(new FoodType(name, type));
+                    final FoodType inserted = new FoodType(name, type);
+                    addToRegistry(inserted);
+                    return Result.success(inserted);
                 }
             } catch (SQLException e) {
                 final String errorMessage =
@@ -0,0 +1,184 @@
+package it.ristorantelorma.model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of the menus of the restaurants, as immutable snapshots indexed by restaurant name.
+ * Every restaurant has a version counter, bumped by invalidate() on every write to its menu:
+ * a snapshot loaded while the menu was being changed is discarded instead of being cached.
+ * When full, the least recently read menu is evicted.
+ * Snapshots also expire after maxAge, to bound how stale a menu changed by another instance of the application can be.
+ */
+public final class MenuCache {
+
+    /**
+     * Default number of cached menus.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * Default lifetime of a snapshot.
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(1);
+    /**
+     * Rough size of a Food, with its price, excluding the name and the shared Restaurant and FoodType.
+     */
+    private static final int FOOD_BYTES = 96;
+    /**
+     * Rough size of a cached entry, with its list and its node in the map.
+     */
+    private static final int SNAPSHOT_BYTES = 128;
+
+    private final int capacity;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Map<String, Snapshot> snapshots;
+    private final Map<String, Long> versions = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Statistics of a MenuCache.
+     * @param hits              reads served by a snapshot
+     * @param misses            reads that had to load the menu
+     * @param evictions         snapshots dropped because the cache was full
+     * @param invalidations     writes to a menu
+     * @param size              cached menus
+     * @param foods             cached foods, in every menu
+     * @param estimatedBytes    rough memory used by the cached menus
+     */
+    public record Stats(
+        long hits,
+        long misses,
+        long evictions,
+        long invalidations,
+        int size,
+        int foods,
+        long estimatedBytes
+    ) {
+        /**
+         * @return the fraction of the reads served by a snapshot, 0 if there are no reads
+         */
+        public double hitRatio() {
+            final long reads = hits + misses;
+            return reads == 0 ? 0 : (double) hits / reads;
+        }
+    }
+
+    private record Snapshot(List<Food> foods, Instant loaded, long bytes) { }
+
+    /**
+     * @param capacity  maximum number of cached menus
+     * @param maxAge    lifetime of a snapshot
+     * @param clock     the clock used to expire the snapshots
+     */
+    public MenuCache(final int capacity, final Duration maxAge, final Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.snapshots = new LinkedHashMap<>(capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Snapshot> eldest) {
+                final boolean full = size() > MenuCache.this.capacity;
+                if (full) {
+                    evictions++;
+                }
+                return full;
+            }
+        };
+    }
+
+    /**
+     * A cache with DEFAULT_CAPACITY and DEFAULT_MAX_AGE.
+     */
+    public MenuCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_AGE, Clock.systemUTC());
+    }
+
+    /**
+     * @param restaurantName
+     * @return the cached menu of the restaurant, empty if it is not cached or expired
+     */
+    public synchronized Optional<List<Food>> get(final String restaurantName) {
+        final Snapshot snapshot = snapshots.get(restaurantName);
+        if (snapshot == null || snapshot.loaded().plus(maxAge).isBefore(clock.instant())) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(snapshot.foods());
+    }
+
+    /**
+     * Read before loading a menu, to be passed to put().
+     * @param restaurantName
+     * @return the current version of the menu of the restaurant
+     */
+    public synchronized long version(final String restaurantName) {
+        return versions.getOrDefault(restaurantName, 0L);
+    }
+
+    /**
+     * Cache a menu, unless it has been changed since it was loaded.
+     * @param restaurantName
+     * @param version   the version read before loading the menu
+     * @param foods     the menu
+     * @return the immutable snapshot of the menu
+     */
+    public synchronized List<Food> put(final String restaurantName, final long version, final List<Food> foods) {
+        final List<Food> snapshot = List.copyOf(foods);
+        if (version == version(restaurantName)) {
+            final long bytes = SNAPSHOT_BYTES + snapshot.stream()
+                .mapToLong(food -> FOOD_BYTES + 2L * food.getName().length())
+                .sum();
+            snapshots.put(restaurantName, new Snapshot(snapshot, clock.instant(), bytes));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Bump the version of the menu of the restaurant and drop its snapshot.
+     * To be called after every write to the menu.
+     * @param restaurantName
+     */
+    public synchronized void invalidate(final String restaurantName) {
+        versions.merge(restaurantName, 1L, Long::sum);
+        snapshots.remove(restaurantName);
+        invalidations++;
+    }
+
+    /**
+     * Drop every snapshot, keeping versions and statistics.
+     */
+    public synchronized void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * @return the current statistics of the cache
+     */
+    public synchronized Stats stats() {
+        return new Stats(
+            hits,
+            misses,
+            evictions,
+            invalidations,
+            snapshots.size(),
+            snapshots.values().stream().mapToInt(snapshot -> snapshot.foods().size()).sum(),
+            snapshots.values().stream().mapToLong(Snapshot::bytes).sum()
+        );
+    }
+}
@@ -0,0 +1,85 @@
+package it.ristorantelorma.model;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (seek) paginated list.
+ * Pages are requested by the key of the last row already shown, so fetching page N costs
+ * the same as fetching the first one, no matter how many rows come before it.
+ * @param <T> the class of the items
+ * @param <K> the class of the key the items are sorted by
+ */
+public final class Page<T, K> {
+
+    private final List<T> items;
+    private final Optional<K> nextKey;
+
+    private Page(final List<T> items, final Optional<K> nextKey) {
+        this.items = List.copyOf(items);
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * Build a page from the rows fetched with a LIMIT of pageSize + 1:
+     * the extra row is not returned, it only tells that there is a next page.
+     * @param <T> the class of the items
+     * @param <K> the class of the key the items are sorted by
+     * @param fetched   the rows read from the database, at most pageSize + 1
+     * @param pageSize  the number of items in a full page
+     * @param key       extracts the sort key from an item
+     * @return the page
+     */
+    public static <T, K> Page<T, K> of(
+        final List<T> fetched,
+        final int pageSize,
+        final Function<? super T, ? extends K> key
+    ) {
+        if (fetched.size() <= pageSize) {
+            return new Page<>(fetched, Optional.empty());
+        }
+        final List<T> items = fetched.subList(0, pageSize);
+        return new Page<>(items, Optional.of(key.apply(items.get(pageSize - 1))));
+    }
+
+    /**
+     * @param pageSize
+     * @throws IllegalArgumentException if pageSize is not positive
+     */
+    public static void checkPageSize(final int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+    }
+
+    /**
+     * @return the items of this page, in key order
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the key to request the next page with, empty if this is the last page
+     */
+    public Optional<K> getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * @return true if there is a page after this one
+     */
+    public boolean hasNext() {
+        return nextKey.isPresent();
+    }
+
+    /**
+     * @param <U> the class of the mapped items
+     * @param mapper
+     * @return a page with the same next key and the mapped items
+     */
+    public <U> Page<U, K> map(final Function<? super T, ? extends U> mapper) {
+        return new Page<>(items.stream().<U>map(mapper).toList(), nextKey);
+    }
+}
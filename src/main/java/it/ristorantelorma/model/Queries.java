@@ -1,16 +1,95 @@
 package it.ristorantelorma.model;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
 
 /**
  * This class contains all the SQL queries required.
  */
 public final class Queries {
+    /**
+     * Credit of the user with the given alias: the snapshot in utenti.credito plus the movements
+     * of movimenti_credito not compacted into it yet.
+     */
+    private static final String BALANCE =
+        """
+        %1$s.credito + COALESCE((SELECT SUM(m.importo) FROM movimenti_credito m \
+        WHERE m.username = %1$s.username AND m.codice > %1$s.ultimo_movimento), 0)""";
+
+    /**
+     * Columns of the user aliased "u", with the credit computed from the ledger.
+     */
+    private static final String USER_COLUMNS =
+        """
+        u.nome, u.cognome, u.username, u.password, u.telefono, u.email,
+        u.città, u.via, u.n_civico, %s AS credito, u.ruolo""".formatted(BALANCE.formatted("u"));
+
+    /**
+     * Columns of an order joined with its restaurant, the restaurant owner ("p_"),
+     * the client ("c_") and the optional deliveryman ("f_").
+     */
+    private static final String ORDER_GRAPH_SELECT =
+        """
+        SELECT o.*,
+        r.nome_attività AS r_nome_attività, r.p_iva AS r_p_iva,
+        r.ora_apertura AS r_ora_apertura, r.ora_chiusura AS r_ora_chiusura,
+        p.nome AS p_nome, p.cognome AS p_cognome, p.username AS p_username,
+        p.password AS p_password, p.telefono AS p_telefono, p.email AS p_email,
+        p.città AS p_città, p.via AS p_via, p.n_civico AS p_n_civico,
+        %s AS p_credito, p.ruolo AS p_ruolo,
+        c.nome AS c_nome, c.cognome AS c_cognome, c.username AS c_username,
+        c.password AS c_password, c.telefono AS c_telefono, c.email AS c_email,
+        c.città AS c_città, c.via AS c_via, c.n_civico AS c_n_civico,
+        %s AS c_credito, c.ruolo AS c_ruolo,
+        f.nome AS f_nome, f.cognome AS f_cognome, f.username AS f_username,
+        f.password AS f_password, f.telefono AS f_telefono, f.email AS f_email,
+        f.città AS f_città, f.via AS f_via, f.n_civico AS f_n_civico,
+        %s AS f_credito, f.ruolo AS f_ruolo
+        FROM ordini o
+        JOIN ristoranti r ON r.nome_attività = o.nome_attività
+        JOIN utenti p ON p.username = r.username
+        JOIN utenti c ON c.username = o.username_cliente
+        LEFT JOIN utenti f ON f.username = o.username_fattorino
+        """.formatted(BALANCE.formatted("p"), BALANCE.formatted("c"), BALANCE.formatted("f"));
+
+    /**
+     * Columns of an order detail joined with its food ("v_") and the food type ("t_").
+     */
+    private static final String ORDER_DETAIL_SELECT =
+        """
+        SELECT d.codice_ordine, d.quantità,
+        v.codice AS v_codice, v.nome AS v_nome, v.nome_attività AS v_nome_attività,
+        v.prezzo AS v_prezzo, v.tipologia AS v_tipologia,
+        t.tipologia AS t_tipologia
+        FROM dettaglio_ordini d
+        JOIN vivande v ON v.codice = d.codice_vivanda
+        JOIN tipo_vivande t ON t.nome = v.tipologia
+        """;
+
+    /**
+     * Columns of a food joined with the macro type of its FoodType ("t_tipologia"),
+     * so that a Food is built with its FoodType from the same row.
+     */
+    private static final String FOOD_SELECT =
+        """
+        SELECT v.*, t.tipologia AS t_tipologia
+        FROM vivande v
+        JOIN tipo_vivande t ON t.nome = v.tipologia
+        """;
+
     /**
      * Find a User based of its username.
      */
     public static final String FIND_USER =
-        """
-        SELECT * FROM utenti WHERE username = ?;
+        "SELECT " + USER_COLUMNS
+        + """
+
+        FROM utenti u WHERE u.username = ?;
         """;
 
     /**
@@ -25,25 +104,114 @@ public final class Queries {
         """;
 
     /**
-     * Set the credit of a User.
+     * Replace the password of a User, only if it is still the one that was read.
      */
-    public static final String SET_USER_CREDIT =
+    public static final String UPDATE_USER_PASSWORD =
         """
         UPDATE utenti
-        SET credito = ?
-        WHERE username = ?;
+        SET password = ?
+        WHERE username = ? AND password = ?;
+        """;
+
+    /**
+     * Append a movement to the credit ledger of a User: positive amounts add to the credit, negative ones subtract.
+     * Nothing is read or updated, so concurrent movements for the same User do not wait for each other;
+     * they only wait while the User is locked by LOCK_USER_CREDIT, since the foreign key check reads its row.
+     */
+    public static final String INSERT_CREDIT_MOVEMENT =
+        """
+        INSERT INTO movimenti_credito
+        (username, importo)
+        VALUES (?, ?);
+        """;
+
+    /**
+     * Lock a User until the end of the transaction, reading its credit snapshot.
+     * New movements of the User wait for the lock, and the ones not committed yet make this statement wait,
+     * so that SUM_USER_CREDIT_MOVEMENTS reads every movement not folded in the snapshot.
+     */
+    public static final String LOCK_USER_CREDIT =
+        """
+        SELECT credito, ultimo_movimento
+        FROM utenti WHERE username = ?
+        FOR UPDATE;
+        """;
+
+    /**
+     * Sum the movements of a User after the given one, with a locking read:
+     * unlike a plain read, it sees the movements committed after the transaction started.
+     */
+    public static final String SUM_USER_CREDIT_MOVEMENTS =
+        """
+        SELECT COALESCE(SUM(importo), 0) AS importo
+        FROM movimenti_credito
+        WHERE username = ? AND codice > ?
+        LOCK IN SHARE MODE;
+        """;
+
+    /**
+     * Fold the ledger movements into the credit snapshot of each User.
+     * Only the movements up to the last one older than the given number of seconds are folded:
+     * the lower IDs are already inserted, and the locking read of this statement waits for the
+     * ones not committed yet instead of skipping them.
+     */
+    public static final String COMPACT_CREDIT_MOVEMENTS =
+        """
+        UPDATE utenti u JOIN (
+            SELECT m.username, SUM(m.importo) AS delta, MAX(m.codice) AS ultimo
+            FROM movimenti_credito m JOIN utenti x ON x.username = m.username
+            WHERE m.codice > x.ultimo_movimento AND m.codice <= COALESCE((
+                SELECT codice FROM movimenti_credito
+                WHERE data_ora < NOW() - INTERVAL ? SECOND
+                ORDER BY codice DESC LIMIT 1
+            ), 0)
+            GROUP BY m.username
+        ) d ON d.username = u.username
+        SET u.credito = u.credito + d.delta, u.ultimo_movimento = d.ultimo;
         """;
 
     /**
-     * Find the deliveryman with more deliveries.
+     * Find the deliveryman with more deliveries, from the counters in totali_fattorini.
      */
     public static final String FIND_DELIVERYMAN_WITH_MORE_DELIVERIES =
+        "SELECT " + USER_COLUMNS
+        + """
+        , tf.consegne AS "numero_ordini"
+        FROM totali_fattorini tf
+        JOIN utenti u ON u.username = tf.username
+        ORDER BY tf.consegne DESC LIMIT 1;
+        """;
+
+    /**
+     * Count one more delivery of the given deliveryman.
+     */
+    public static final String ADD_DELIVERYMAN_DELIVERY =
+        """
+        INSERT INTO totali_fattorini (username, consegne)
+        VALUES (?, 1)
+        ON DUPLICATE KEY UPDATE consegne = consegne + 1;
+        """;
+
+    /**
+     * Empty totali_fattorini, before REBUILD_DELIVERYMAN_TOTALS.
+     */
+    public static final String CLEAR_DELIVERYMAN_TOTALS =
         """
-        SELECT u.*,COUNT(o.username_fattorino) AS "numero_ordini"
-        FROM utenti u, ordini o
-        WHERE u.username = o.username_fattorino AND ora_consegna IS NOT NULL
-        GROUP BY o.username_fattorino ORDER BY numero_ordini DESC LIMIT 1;
+        DELETE FROM totali_fattorini;
         """;
+
+    /**
+     * Recompute totali_fattorini from the delivered orders.
+     * Runs right after CLEAR_DELIVERYMAN_TOTALS, in the same transaction of Order.DAO.rebuildTotals.
+     */
+    public static final String REBUILD_DELIVERYMAN_TOTALS =
+        """
+        INSERT INTO totali_fattorini (username, consegne)
+        SELECT username_fattorino, COUNT(*) FROM ordini
+        WHERE ora_consegna IS NOT NULL
+        GROUP BY username_fattorino;
+        """;
+
     /**
      * Find a Restaurant by its name.
      */
@@ -79,14 +247,55 @@ public final class Queries {
         """;
 
     /**
-     * Find the Restaurant with the most orders.
+     * List a page of Restaurants, in name order, after the given name (keyset pagination).
+     * Parameters: last name of the previous page ("" for the first page), rows to fetch.
+     */
+    public static final String PAGE_RESTAURANTS =
+        """
+        SELECT * FROM ristoranti
+        WHERE nome_attività > ?
+        ORDER BY nome_attività
+        LIMIT ?;
+        """;
+
+    /**
+     * Find the Restaurant with the most orders, from the counters in totali_ristoranti.
      */
     public static final String FIND_RESTAURANT_MOST_ORDERS =
         """
-        SELECT r.*,COUNT(o.nome_attività) AS "numero_ordini"
-        FROM ristoranti r, ordini o
-        WHERE r.nome_attività = o.nome_attività
-        GROUP BY o.nome_attività ORDER BY numero_ordini DESC LIMIT 1;
+        SELECT r.*, tr.ordini AS "numero_ordini"
+        FROM totali_ristoranti tr
+        JOIN ristoranti r ON r.nome_attività = tr.nome_attività
+        ORDER BY tr.ordini DESC LIMIT 1;
+        """;
+
+    /**
+     * Count one more order of the given Restaurant.
+     */
+    public static final String ADD_RESTAURANT_ORDER =
+        """
+        INSERT INTO totali_ristoranti (nome_attività, ordini)
+        VALUES (?, 1)
+        ON DUPLICATE KEY UPDATE ordini = ordini + 1;
+        """;
+
+    /**
+     * Empty totali_ristoranti, before REBUILD_RESTAURANT_TOTALS.
+     */
+    public static final String CLEAR_RESTAURANT_TOTALS =
+        """
+        DELETE FROM totali_ristoranti;
+        """;
+
+    /**
+     * Recompute totali_ristoranti from the orders.
+     * Runs right after CLEAR_RESTAURANT_TOTALS, in the same transaction of Order.DAO.rebuildTotals.
+     */
+    public static final String REBUILD_RESTAURANT_TOTALS =
+        """
+        INSERT INTO totali_ristoranti (nome_attività, ordini)
+        SELECT nome_attività, COUNT(*) FROM ordini
+        GROUP BY nome_attività;
         """;
 
     /**
@@ -137,13 +346,15 @@ public final class Queries {
         """;
 
     /**
-     * Find the most purchased FoodType.
+     * Find the most purchased FoodType, summing the counters in totali_vivande:
+     * one row for each Food ever ordered, however long the order history.
      */
     public static final String FIND_FOOD_TYPE_MOST_PURCHASED =
         """
-        SELECT t.*,SUM(d.quantità) AS "totale"
-        FROM tipo_vivande t, vivande v, dettaglio_ordini d
-        WHERE t.nome = v.tipologia AND v.codice = d.codice_vivanda
+        SELECT t.*, SUM(tv.quantità) AS "totale"
+        FROM totali_vivande tv
+        JOIN vivande v ON v.codice = tv.codice_vivanda
+        JOIN tipo_vivande t ON t.nome = v.tipologia
         GROUP BY t.nome ORDER BY totale DESC LIMIT 1;
         """;
 
@@ -151,18 +362,18 @@ public final class Queries {
      * Find a Food based on its name and the Restaurant name.
      */
     public static final String FIND_FOOD_BY_NAME =
-        """
-        SELECT * FROM vivande
-        WHERE nome = ? AND nome_attività = ?;
+        FOOD_SELECT
+        + """
+        WHERE v.nome = ? AND v.nome_attività = ?;
         """;
 
     /**
      * Find a Food based on its ID.
      */
     public static final String FIND_FOOD_BY_ID =
-        """
-        SELECT * FROM vivande
-        WHERE codice = ?;
+        FOOD_SELECT
+        + """
+        WHERE v.codice = ?;
         """;
 
     /**
@@ -176,32 +387,52 @@ public final class Queries {
         """;
 
     /**
-     * List all foods of a Restaurant.
+     * List all foods of a Restaurant, the whole menu in one query.
      */
     public static final String LIST_FOODS =
-        """
-        SELECT * FROM vivande
-        WHERE nome_attività = ?;
+        FOOD_SELECT
+        + """
+        WHERE v.nome_attività = ?;
         """;
 
     /**
-     * List foodIds and quantities for the given Order ID.
+     * List order details, with their Food and FoodType, for the given Order ID.
      */
     public static final String LIST_FOODS_BY_ORDER_ID =
-        """
-        SELECT * FROM dettaglio_ordini
-        WHERE codice_ordine = ?;
+        ORDER_DETAIL_SELECT
+        + """
+        WHERE d.codice_ordine = ?;
         """;
 
     /**
-     * Find the most purchased Food.
+     * Find the most purchased Food, from the counters in totali_vivande.
      */
     public static final String FIND_FOOD_MOST_PURCHASED =
         """
-        SELECT v.*,SUM(d.quantità) AS "quantità_totale"
-        FROM vivande v, dettaglio_ordini d
-        WHERE v.codice = d.codice_vivanda
-        GROUP BY codice_vivanda ORDER BY quantità_totale DESC LIMIT 1;
+        SELECT v.*, t.tipologia AS t_tipologia, tv.quantità AS "quantità_totale"
+        FROM totali_vivande tv
+        JOIN vivande v ON v.codice = tv.codice_vivanda
+        JOIN tipo_vivande t ON t.nome = v.tipologia
+        ORDER BY tv.quantità DESC LIMIT 1;
+        """;
+
+    /**
+     * Empty totali_vivande, before REBUILD_FOOD_TOTALS.
+     */
+    public static final String CLEAR_FOOD_TOTALS =
+        """
+        DELETE FROM totali_vivande;
+        """;
+
+    /**
+     * Recompute totali_vivande from the order details.
+     * Runs right after CLEAR_FOOD_TOTALS, in the same transaction of Order.DAO.rebuildTotals.
+     */
+    public static final String REBUILD_FOOD_TOTALS =
+        """
+        INSERT INTO totali_vivande (codice_vivanda, quantità)
+        SELECT codice_vivanda, SUM(quantità) FROM dettaglio_ordini
+        GROUP BY codice_vivanda;
         """;
 
     /**
@@ -223,22 +454,43 @@ public final class Queries {
         """;
 
     /**
-     * Insert a new record in dettaglio_ordini.
+     * Maximum number of rows inserted by a single insertOrderDetails statement.
+     * A row is three integer parameters, so a full chunk stays around 10 KB on the wire:
+     * far below both the server max_allowed_packet and the 65535 placeholders of a prepared statement.
      */
-    public static final String INSERT_ORDER_DETAIL =
+    public static final int ORDER_DETAILS_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum number of keys looked up by a single findUsers / findRestaurantsByNames / findFoodsByIds query.
+     * Longer key lists are split in chunks of this size, one query each (see DBHelper.chunks).
+     */
+    public static final int IN_LIST_CHUNK_SIZE = 500;
+
+    private static final String INSERT_ORDER_DETAILS =
         """
         INSERT INTO dettaglio_ordini
         (codice_vivanda, codice_ordine, quantità)
-        VALUES (?, ?, ?);
+        VALUES
         """;
 
+    private static final String ORDER_DETAIL_VALUES = "(?, ?, ?)";
+
+    private static final String ADD_FOOD_TOTALS =
+        """
+        INSERT INTO totali_vivande
+        (codice_vivanda, quantità)
+        VALUES
+        """;
+
+    private static final String FOOD_TOTAL_VALUES = "(?, ?)";
+
     /**
-     * Find an Order by its ID.
+     * Find an Order by its ID, joined with its restaurant and users.
      */
     public static final String FIND_ORDER_BY_ID =
-        """
-        SELECT * FROM ordini
-        WHERE id = ?;
+        ORDER_GRAPH_SELECT
+        + """
+        WHERE o.codice = ?;
         """;
 
     /**
@@ -262,23 +514,45 @@ public final class Queries {
         """;
 
     /**
-     * Set state to accepted and the acceptance time and deliveryman for the given order ID.
+     * Set state to accepted and the acceptance time and deliveryman for the given order ID,
+     * only if the order is still ready: no rows are changed if another deliveryman accepted it first.
      */
     public static final String SET_ORDER_ACCEPTED =
         """
         UPDATE ordini
         SET stato = 'accettato', ora_accettazione = ?, username_fattorino = ?
-        WHERE codice = ?;
+        WHERE codice = ? AND stato = 'pronto';
         """;
 
     /**
-     * Set state to delivered and set the delivery time for the given order ID.
+     * Lock the IDs of the oldest ready orders, skipping the ones locked by other transactions.
+     * Parameters: maximum number of orders.
+     */
+    public static final String LOCK_NEXT_READY_ORDERS =
+        """
+        SELECT codice FROM ordini
+        WHERE stato = 'pronto'
+        ORDER BY codice
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED;
+        """;
+
+    private static final String SET_ORDERS_ACCEPTED =
+        """
+        UPDATE ordini
+        SET stato = 'accettato', ora_accettazione = ?, username_fattorino = ?
+        WHERE stato = 'pronto' AND codice IN
+        """;
+
+    /**
+     * Set state to delivered and set the delivery time for the given order ID, only if it is accepted:
+     * delivering an order twice changes no rows, so it is not counted nor paid twice.
      */
     public static final String SET_ORDER_DELIVERED =
         """
         UPDATE ordini
         SET stato = 'consegnato', ora_consegna = ?
-        WHERE codice = ?;
+        WHERE codice = ? AND stato = 'accettato';
         """;
 
     /**
@@ -292,12 +566,44 @@ public final class Queries {
         """;
 
     /**
-     * Lists orders with the given state.
+     * Lists orders with the given state, joined with their restaurant and users.
      */
     public static final String LIST_ORDERS_BY_STATE =
+        ORDER_GRAPH_SELECT
+        + """
+        WHERE o.stato = ?;
+        """;
+
+    /**
+     * List the orders accepted by the given deliveryman username, joined with their restaurant and users.
+     * Served by the IDX_ORDINI_FATTORINO index, so it reads only the orders of that deliveryman.
+     */
+    public static final String LIST_ACCEPTED_ORDERS_BY_DELIVERYMAN =
+        ORDER_GRAPH_SELECT
+        + """
+        WHERE o.stato = 'accettato' AND o.username_fattorino = ?;
+        """;
+
+    /**
+     * List a page of orders with the given state, in ID order, after the given ID (keyset pagination).
+     * Parameters: state, last ID of the previous page (0 for the first page), rows to fetch.
+     */
+    public static final String PAGE_ORDERS_BY_STATE =
+        ORDER_GRAPH_SELECT
+        + """
+        WHERE o.stato = ? AND o.codice > ?
+        ORDER BY o.codice
+        LIMIT ?;
+        """;
+
+    /**
+     * Count the orders in each state, reading only IDX_ORDINI_STATO.
+     */
+    public static final String COUNT_ORDERS_BY_STATE =
         """
-        SELECT * FROM ordini
-        WHERE stato = ?;
+        SELECT stato, COUNT(*) AS ordini
+        FROM ordini
+        GROUP BY stato;
         """;
 
     /**
@@ -309,6 +615,18 @@ public final class Queries {
         WHERE nome_attività = ?;
         """;
 
+    /**
+     * List a page of reviews for the given restaurant name, in ID order, after the given ID (keyset pagination).
+     * Parameters: restaurant name, last ID of the previous page (0 for the first page), rows to fetch.
+     */
+    public static final String PAGE_REVIEWS_OF_RESTAURANT =
+        """
+        SELECT * FROM recensioni
+        WHERE nome_attività = ? AND codice > ?
+        ORDER BY codice
+        LIMIT ?;
+        """;
+
     /**
      * Insert a new Review.
      */
@@ -328,7 +646,192 @@ public final class Queries {
         WHERE codice = ?;
         """;
 
+    /**
+     * Insert multiple records in dettaglio_ordini with a single statement.
+     * @param rows  the number of records, at most ORDER_DETAILS_CHUNK_SIZE
+     * @return a multi-row INSERT with the parameters (codice_vivanda, codice_ordine, quantità) for each record
+     * @throws IllegalArgumentException if rows is not between 1 and ORDER_DETAILS_CHUNK_SIZE
+     */
+    public static String insertOrderDetails(final int rows) {
+        if (rows < 1 || rows > ORDER_DETAILS_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid number of order details: " + rows);
+        }
+        return INSERT_ORDER_DETAILS
+            + String.join(", ", Collections.nCopies(rows, ORDER_DETAIL_VALUES))
+            + ";";
+    }
+
+    /**
+     * Add the quantities of multiple Foods to their counters in totali_vivande with a single statement.
+     * @param rows  the number of Foods, at most ORDER_DETAILS_CHUNK_SIZE
+     * @return a multi-row upsert with the parameters (codice_vivanda, quantità) for each Food
+     * @throws IllegalArgumentException if rows is not between 1 and ORDER_DETAILS_CHUNK_SIZE
+     */
+    public static String addFoodTotals(final int rows) {
+        if (rows < 1 || rows > ORDER_DETAILS_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid number of food totals: " + rows);
+        }
+        return ADD_FOOD_TOTALS
+            + String.join(", ", Collections.nCopies(rows, FOOD_TOTAL_VALUES))
+            + "\nON DUPLICATE KEY UPDATE quantità = quantità + VALUES(quantità);";
+    }
+
+    /**
+     * List order details, with their Food and FoodType, of the orders with the given IDs.
+     * @param orders    the number of order IDs
+     * @return a query with one parameter for each order ID
+     * @throws IllegalArgumentException if orders is not positive
+     */
+    public static String listFoodsByOrderIds(final int orders) {
+        return ORDER_DETAIL_SELECT
+            + "WHERE d.codice_ordine IN "
+            + placeholders(orders)
+            + ";";
+    }
+
+    /**
+     * Set state to accepted and the acceptance time and deliveryman for the given order IDs,
+     * only for the orders still ready.
+     * @param orders    the number of order IDs
+     * @return a query with the parameters acceptance time, deliveryman username, then one for each order ID
+     * @throws IllegalArgumentException if orders is not positive
+     */
+    public static String setOrdersAccepted(final int orders) {
+        return SET_ORDERS_ACCEPTED + placeholders(orders) + ";";
+    }
+
+    /**
+     * Find the orders with the given IDs, joined with their restaurant and users, in ID order.
+     * @param orders    the number of order IDs
+     * @return a query with one parameter for each order ID
+     * @throws IllegalArgumentException if orders is not positive
+     */
+    public static String findOrdersByIds(final int orders) {
+        return ORDER_GRAPH_SELECT
+            + "WHERE o.codice IN "
+            + placeholders(orders)
+            + "\nORDER BY o.codice;";
+    }
+
+    /**
+     * Find the Users with the given usernames.
+     * @param users     the number of usernames, at most IN_LIST_CHUNK_SIZE
+     * @return a query with one parameter for each username
+     * @throws IllegalArgumentException if users is not positive
+     */
+    public static String findUsers(final int users) {
+        return "SELECT " + USER_COLUMNS
+            + "\nFROM utenti u WHERE u.username IN "
+            + placeholders(users)
+            + ";";
+    }
+
+    /**
+     * Find the Restaurants with the given names.
+     * @param restaurants   the number of names, at most IN_LIST_CHUNK_SIZE
+     * @return a query with one parameter for each name
+     * @throws IllegalArgumentException if restaurants is not positive
+     */
+    public static String findRestaurantsByNames(final int restaurants) {
+        return "SELECT * FROM ristoranti WHERE nome_attività IN "
+            + placeholders(restaurants)
+            + ";";
+    }
+
+    /**
+     * Find the Foods with the given IDs.
+     * @param foods     the number of IDs, at most IN_LIST_CHUNK_SIZE
+     * @return a query with one parameter for each ID
+     * @throws IllegalArgumentException if foods is not positive
+     */
+    public static String findFoodsByIds(final int foods) {
+        return FOOD_SELECT
+            + "WHERE v.codice IN "
+            + placeholders(foods)
+            + ";";
+    }
+
+    /**
+     * Name of a query, to report its statistics: the name of its constant, or of the method that built it.
+     * @param query     the SQL text
+     * @return the name of the query, "other" if it is not one of Queries
+     */
+    public static String nameOf(final String query) {
+        final String name = Names.CONSTANTS.get(query);
+        if (name != null) {
+            return name;
+        }
+        for (final Map.Entry<String, String> built : Names.BUILT.entrySet()) {
+            if (query.startsWith(built.getKey())) {
+                return built.getValue();
+            }
+        }
+        return "other";
+    }
+
+    /**
+     * @param query     the SQL text
+     * @return true if the query is one of the public constants, false if built or not one of Queries
+     */
+    public static boolean isConstant(final String query) {
+        return Names.CONSTANTS.containsKey(query);
+    }
+
+    private static String placeholders(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid number of keys: " + count);
+        }
+        return "(" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
     private Queries() {
         throw new UnsupportedOperationException("Utility class and cannot be instantiated");
     }
+
+    /**
+     * Loaded on the first nameOf(), when every constant is initialized.
+     */
+    private static final class Names {
+        /**
+         * Name of every public constant, by SQL text.
+         */
+        static final Map<String, String> CONSTANTS = new HashMap<>();
+        /**
+         * Name of every builder, by the text before its repeated placeholders:
+         * the common prefix of the queries built for one and two rows.
+         */
+        static final Map<String, String> BUILT = new LinkedHashMap<>();
+
+        static {
+            for (final Field field : Queries.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                    try {
+                        CONSTANTS.put((String) field.get(null), field.getName());
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            final Map<String, IntFunction<String>> builders = new LinkedHashMap<>();
+            builders.put("insertOrderDetails", Queries::insertOrderDetails);
+            builders.put("addFoodTotals", Queries::addFoodTotals);
+            builders.put("listFoodsByOrderIds", Queries::listFoodsByOrderIds);
+            builders.put("setOrdersAccepted", Queries::setOrdersAccepted);
+            builders.put("findOrdersByIds", Queries::findOrdersByIds);
+            builders.put("findUsers", Queries::findUsers);
+            builders.put("findRestaurantsByNames", Queries::findRestaurantsByNames);
+            builders.put("findFoodsByIds", Queries::findFoodsByIds);
+            builders.forEach((name, builder) -> {
+                final String one = builder.apply(1);
+                final String two = builder.apply(2);
+                int common = 0;
+                while (one.charAt(common) == two.charAt(common)) {
+                    common++;
+                }
+                BUILT.put(one.substring(0, common), name);
+            });
+        }
+
+        private Names() { }
+    }
 }
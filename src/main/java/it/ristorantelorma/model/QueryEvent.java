@@ -0,0 +1,41 @@
+package it.ristorantelorma.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a statement prepared by DBHelper: from its execution to the closing of its rows, if any.
+ * Committed by QueryStats.
+ */
+@Name("it.ristorantelorma.Query")
+@Label("Query")
+@Description("Execution of a query of Queries, with the rows it read or changed")
+@Category({"RistoranteLorMa", "Database"})
+@StackTrace(false)
+final class QueryEvent extends Event {
+
+    /**
+     * Checked before creating an event, so that nothing is allocated when the event is disabled.
+     */
+    static final EventType TYPE = EventType.getEventType(QueryEvent.class);
+
+    @Label("Query")
+    @Description("Name of the query, see Queries.nameOf()")
+    String query;
+
+    @Label("DAO")
+    @Description("The outermost DAO method on the stack, the one called by the application")
+    String dao;
+
+    @Label("Rows")
+    @Description("Rows read from the result, or changed by an update")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,452 @@
+package it.ristorantelorma.model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import it.ristorantelorma.controller.SimpleLogger;
+
+/**
+ * Per-query statistics of the statements prepared by DBHelper: calls, failures, rows and a latency histogram.
+ * The statements are wrapped so that every execution is timed; the rows of a query are counted as they are read.
+ * Recording only increments counters, the percentiles are computed when the statistics are read.
+ * An execution slower than the slow query threshold is also logged.
+ * While a JFR recording enables it, every execution is also committed as a QueryEvent.
+ */
+public final class QueryStats implements QueryStatsMBean {
+
+    /**
+     * Default slow query threshold.
+     */
+    public static final Duration DEFAULT_SLOW_QUERY_THRESHOLD = Duration.ofMillis(200);
+    /**
+     * Name of the MBean registered by registerMBean().
+     */
+    public static final String OBJECT_NAME = "it.ristorantelorma:type=QueryStats";
+    private static final String CLASS_NAME = QueryStats.class.getName();
+    private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double P50 = 0.50;
+    private static final double P95 = 0.95;
+    private static final double P99 = 0.99;
+    private static final String DAO_SUFFIX = "$DAO";
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final Map<String, Stat> byQuery = new ConcurrentHashMap<>();
+    private final Map<String, Stat> byName = new ConcurrentHashMap<>();
+    private volatile long slowQueryNanos = DEFAULT_SLOW_QUERY_THRESHOLD.toNanos();
+
+    private static final class LazyQueryStats {
+        private static final QueryStats STATS = new QueryStats();
+    }
+
+    /**
+     * Statistics of one query.
+     * @param name          the name of the query, see Queries.nameOf()
+     * @param calls         executions
+     * @param errors        executions that threw
+     * @param rows          rows read from a query, or changed by an update
+     * @param totalMicros   time spent executing the query
+     * @param p50Micros     median latency, from the histogram
+     * @param p95Micros
+     * @param p99Micros
+     * @param maxMicros     slowest execution
+     */
+    public record QueryStat(
+        String name,
+        long calls,
+        long errors,
+        long rows,
+        long totalMicros,
+        long p50Micros,
+        long p95Micros,
+        long p99Micros,
+        long maxMicros
+    ) { }
+
+    /**
+     * A new, empty, set of statistics; the application uses getInstance().
+     */
+    QueryStats() { }
+
+    /**
+     * @return the statistics of every statement prepared by DBHelper
+     */
+    public static QueryStats getInstance() {
+        return LazyQueryStats.STATS;
+    }
+
+    /**
+     * Register getInstance() in the platform MBean server as OBJECT_NAME, to be read and reset from a JMX console.
+     * @return true if the MBean was registered
+     */
+    public static boolean registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(getInstance(), new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Cannot register the query statistics MBean", e);
+            return false;
+        }
+    }
+
+    /**
+     * Wrap a statement, so that its executions are recorded under the name of its query.
+     * If enabled, a QueryEvent is also committed for every execution, when its rows are closed.
+     * @param statement     the statement, with its parameters already set
+     * @param query         the SQL text of the statement
+     * @return the wrapped statement
+     */
+    public PreparedStatement instrument(final PreparedStatement statement, final String query) {
+        final Stat stat = statOf(query);
+        // The event of the last execution, while its rows are being read
+        final QueryEvent[] open = new QueryEvent[1];
+        final InvocationHandler handler = (final Object proxy, final Method method, final Object[] args) -> {
+            final String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if ("close".equals(name)) {
+                    commit(open);
+                }
+                return invoke(statement, method, args);
+            }
+            // A new execution closes the rows of the previous one
+            commit(open);
+            final QueryEvent event = QueryEvent.TYPE.isEnabled() ? begin(stat) : null;
+            final long start = System.nanoTime();
+            boolean failed = true;
+            long rows = 0;
+            try {
+                final Object result = invoke(statement, method, args);
+                if (result instanceof ResultSet resultSet) {
+                    failed = false;
+                    open[0] = event;
+                    return countRows(resultSet, stat, open);
+                }
+                rows = rowsOf(result);
+                failed = false;
+                return result;
+            } finally {
+                record(stat, System.nanoTime() - start, rows, failed);
+                if (event != null && open[0] != event) {
+                    event.rows = rows;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+            QueryStats.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            handler
+        );
+    }
+
+    private static QueryEvent begin(final Stat stat) {
+        final QueryEvent event = new QueryEvent();
+        event.query = stat.name;
+        event.dao = WALKER.walk(frames -> frames
+            .filter(frame -> frame.getClassName().endsWith(DAO_SUFFIX))
+            .reduce((inner, outer) -> outer)
+            .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1).replace('$', '.')
+                + "." + frame.getMethodName())
+            .orElse(null));
+        event.begin();
+        return event;
+    }
+
+    private static void commit(final QueryEvent[] open) {
+        final QueryEvent event = open[0];
+        if (event != null) {
+            open[0] = null;
+            event.commit();
+        }
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long rowsOf(final Object result) {
+        long rows = 0;
+        if (result instanceof Number count) {
+            rows = Math.max(0, count.longValue());
+        } else if (result instanceof int[] counts) {
+            for (final int count : counts) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[] counts) {
+            for (final long count : counts) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    private static ResultSet countRows(final ResultSet resultSet, final Stat stat, final QueryEvent[] open) {
+        final InvocationHandler handler = (final Object proxy, final Method method, final Object[] args) -> {
+            final Object result = invoke(resultSet, method, args);
+            if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                stat.rows.increment();
+                if (open[0] != null) {
+                    open[0].rows++;
+                }
+            } else if ("close".equals(method.getName())) {
+                commit(open);
+            }
+            return result;
+        };
+        return (ResultSet) Proxy.newProxyInstance(
+            QueryStats.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            handler
+        );
+    }
+
+    private Stat statOf(final String query) {
+        return byQuery.computeIfAbsent(query, q -> byName.computeIfAbsent(Queries.nameOf(q), Stat::new));
+    }
+
+    /**
+     * Record an execution of a query.
+     * @param query     the SQL text
+     * @param nanos     the duration of the execution
+     * @param rows      rows changed by the execution, 0 for a query
+     * @param failed    true if the execution threw
+     */
+    void record(final String query, final long nanos, final long rows, final boolean failed) {
+        record(statOf(query), nanos, rows, failed);
+    }
+
+    private void record(final Stat stat, final long nanos, final long rows, final boolean failed) {
+        stat.record(nanos, rows, failed);
+        if (nanos > slowQueryNanos) {
+            LOGGER.log(Level.WARNING, String.format(
+                "Slow query %s: %.1f ms%s",
+                stat.name,
+                TimeUnit.NANOSECONDS.toMicros(nanos) / MICROS_PER_MILLI,
+                failed ? ", failed" : ""
+            ));
+        }
+    }
+
+    /**
+     * @param threshold executions slower than this are logged
+     */
+    public void setSlowQueryThreshold(final Duration threshold) {
+        slowQueryNanos = threshold.toNanos();
+    }
+
+    /**
+     * @return the statistics of every executed query, the ones that took the most time first
+     */
+    public List<QueryStat> snapshot() {
+        final List<QueryStat> stats = new ArrayList<>();
+        for (final Stat stat : byName.values()) {
+            final QueryStat snapshot = stat.snapshot();
+            if (snapshot.calls() > 0) {
+                stats.add(snapshot);
+            }
+        }
+        stats.sort(Comparator.comparingLong(QueryStat::totalMicros).reversed());
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String dump() {
+        final StringBuilder dump = new StringBuilder(String.format(
+            "%-40s %8s %6s %9s %11s %9s %9s %9s %9s%n",
+            "query", "calls", "errors", "rows", "total ms", "p50 ms", "p95 ms", "p99 ms", "max ms"
+        ));
+        for (final QueryStat stat : snapshot()) {
+            dump.append(String.format(
+                "%-40s %8d %6d %9d %11.1f %9.2f %9.2f %9.2f %9.2f%n",
+                stat.name(),
+                stat.calls(),
+                stat.errors(),
+                stat.rows(),
+                stat.totalMicros() / MICROS_PER_MILLI,
+                stat.p50Micros() / MICROS_PER_MILLI,
+                stat.p95Micros() / MICROS_PER_MILLI,
+                stat.p99Micros() / MICROS_PER_MILLI,
+                stat.maxMicros() / MICROS_PER_MILLI
+            ));
+        }
+        return dump.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        byName.values().forEach(Stat::reset);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSlowQueryThresholdMillis(final long millis) {
+        setSlowQueryThreshold(Duration.ofMillis(millis));
+    }
+
+    /**
+     * Counters and latency histogram of one query.
+     */
+    private static final class Stat {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final Histogram latency = new Histogram();
+
+        Stat(final String name) {
+            this.name = name;
+        }
+
+        void record(final long nanos, final long changed, final boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(changed);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+
+        QueryStat snapshot() {
+            final long max = TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+            final long[] counts = latency.counts();
+            return new QueryStat(
+                name,
+                calls.sum(),
+                errors.sum(),
+                rows.sum(),
+                TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()),
+                Math.min(max, Histogram.percentile(counts, P50)),
+                Math.min(max, Histogram.percentile(counts, P95)),
+                Math.min(max, Histogram.percentile(counts, P99)),
+                max
+            );
+        }
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            latency.reset();
+        }
+    }
+
+    /**
+     * Log-linear histogram of latencies in microseconds: values below SUB_BUCKETS are exact,
+     * every power of two above is split in SUB_BUCKETS buckets, so a percentile is at most 12.5% above the truth.
+     * Recording is one increment of a preallocated array.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(final long micros) {
+            counts.incrementAndGet(bucket(Math.max(0, micros)));
+        }
+
+        long[] counts() {
+            final long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+            }
+            return copy;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+        }
+
+        static int bucket(final long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+            final int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @param bucket
+         * @return the highest value recorded in the bucket
+         */
+        static long highestValue(final int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            final int sub = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        /**
+         * @param counts    the counts of the buckets
+         * @param quantile  between 0 and 1
+         * @return the highest value of the bucket of the quantile, 0 if nothing was recorded
+         */
+        static long percentile(final long[] counts, final double quantile) {
+            long total = 0;
+            for (final long count : counts) {
+                total += count;
+            }
+            final long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package it.ristorantelorma.model;
+
+/**
+ * Management interface of QueryStats, exposed through JMX.
+ */
+public interface QueryStatsMBean {
+
+    /**
+     * @return a table with the statistics of every executed query, the ones that took the most time first
+     */
+    String dump();
+
+    /**
+     * Forget every recorded execution.
+     */
+    void reset();
+
+    /**
+     * @return the threshold above which an execution is logged as slow
+     */
+    long getSlowQueryThresholdMillis();
+
+    /**
+     * @param millis the threshold above which an execution is logged as slow
+     */
+    void setSlowQueryThresholdMillis(long millis);
+}
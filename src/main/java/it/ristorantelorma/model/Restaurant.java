@@ -2,6 +2,7 @@ package it.ristorantelorma.model;
 
 import it.ristorantelorma.controller.SimpleLogger;
 import it.ristorantelorma.model.user.RestaurantUser;
+import it.ristorantelorma.model.user.User;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,11 +10,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -158,8 +165,14 @@ public final class Restaurant {
             final ResultSet result,
             final RestaurantUser optUser
         ) throws SQLException {
+            final Optional<Restaurant> loaded = UnitOfWork.lookup(
+                Restaurant.class,
+                result.getString("nome_attività")
+            );
+            if (loaded.isPresent()) {
+                return Result.success(loaded.get());
+            }
             final String username = result.getString("username");
-            final String restaurantName = result.getString("nome_attività");
 
             final RestaurantUser user;
             if (optUser == null) {
@@ -180,11 +193,35 @@ public final class Restaurant {
                 user = optUser;
             }
 
-            final String vatID = result.getString("p_iva");
-            final Timestamp openingTime = result.getTimestamp("ora_apertura");
-            final Timestamp closingTime = result.getTimestamp("ora_chiusura");
+            return Result.success(fromRestaurantResultSet(result, "", user));
+        }
 
-            return Result.success(
+        /**
+         * Build a Restaurant from the current row of the given ResultSet, given its already loaded owner.
+         * Every column is read as prefix + column name (e.g. "r_nome_attività" for a join).
+         * If the current UnitOfWork has already loaded the Restaurant, that instance is returned.
+         * @param result    a ResultSet positioned on a valid row
+         * @param prefix    prefix of the column labels, empty for a plain "SELECT * FROM ristoranti"
+         * @param user      the owner of the Restaurant
+         * @return the Restaurant
+         * @throws SQLException
+         */
+        public static Restaurant fromRestaurantResultSet(
+            final ResultSet result,
+            final String prefix,
+            final RestaurantUser user
+        ) throws SQLException {
+            final String restaurantName = result.getString(prefix + "nome_attività");
+            final Optional<Restaurant> loaded = UnitOfWork.lookup(Restaurant.class, restaurantName);
+            if (loaded.isPresent()) {
+                return loaded.get();
+            }
+            final String vatID = result.getString(prefix + "p_iva");
+            final Timestamp openingTime = result.getTimestamp(prefix + "ora_apertura");
+            final Timestamp closingTime = result.getTimestamp(prefix + "ora_chiusura");
+            return UnitOfWork.register(
+                Restaurant.class,
+                restaurantName,
                 new Restaurant(
                     user,
                     restaurantName,
@@ -206,6 +243,10 @@ public final class Restaurant {
             final Connection connection,
             final String restaurantName
         ) {
+            final Optional<Restaurant> loaded = UnitOfWork.lookup(Restaurant.class, restaurantName);
+            if (loaded.isPresent()) {
+                return Result.success(loaded);
+            }
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
@@ -239,6 +280,141 @@ public final class Restaurant {
             }
         }
 
+        /**
+         * Columns of a RISTORANTI row, read before its owner is resolved.
+         */
+        private record RestaurantRow(
+            String restaurantName,
+            String username,
+            String vatID,
+            Timestamp openingTime,
+            Timestamp closingTime
+        ) {
+            static RestaurantRow read(final ResultSet result) throws SQLException {
+                return new RestaurantRow(
+                    result.getString("nome_attività"),
+                    result.getString("username"),
+                    result.getString("p_iva"),
+                    result.getTimestamp("ora_apertura"),
+                    result.getTimestamp("ora_chiusura")
+                );
+            }
+        }
+
+        /**
+         * Build the Restaurants of the given rows, resolving all their owners with one User.DAO.findAll call.
+         * Restaurants already loaded by the current UnitOfWork are reused.
+         * @param connection
+         * @param rows
+         * @return the Restaurants, in the same order as the rows, if there are no errors
+         * @throws IllegalStateException if one Restaurant have a non-existent linked User.
+         */
+        private static Result<List<Restaurant>> build(
+            final Connection connection,
+            final List<RestaurantRow> rows
+        ) {
+            final Result<Map<String, User>> resOwners = User.DAO.findAll(
+                connection,
+                rows.stream()
+                    .filter(row -> UnitOfWork.lookup(Restaurant.class, row.restaurantName()).isEmpty())
+                    .map(RestaurantRow::username)
+                    .toList()
+            );
+            if (!resOwners.isSuccess()) {
+                // Propagate the error
+                return Result.failure(resOwners.getErrorMessage());
+            }
+            final List<Restaurant> restaurants = new ArrayList<>(rows.size());
+            for (final RestaurantRow row : rows) {
+                final Optional<Restaurant> loaded = UnitOfWork.lookup(Restaurant.class, row.restaurantName());
+                if (loaded.isPresent()) {
+                    restaurants.add(loaded.get());
+                } else {
+                    final User owner = resOwners.getValue().get(row.username());
+                    if (!(owner instanceof RestaurantUser)) {
+                        final String errorMessage =
+                            "The Restaurant have an invalid username: " + row.username();
+                        LOGGER.log(Level.SEVERE, errorMessage);
+                        throw new IllegalStateException(errorMessage);
+                    }
+                    restaurants.add(
+                        UnitOfWork.register(
+                            Restaurant.class,
+                            row.restaurantName(),
+                            new Restaurant(
+                                (RestaurantUser) owner,
+                                row.restaurantName(),
+                                row.vatID(),
+                                row.openingTime(),
+                                row.closingTime()
+                            )
+                        )
+                    );
+                }
+            }
+            return Result.success(restaurants);
+        }
+
+        /**
+         * Find the Restaurants with the given names, with one query every Queries.IN_LIST_CHUNK_SIZE names
+         * and one more for all their owners.
+         * Restaurants already loaded by the current UnitOfWork are not queried again.
+         * @param connection
+         * @param restaurantNames
+         * @return map name -> Restaurant of the Restaurants found, the names not found are left out; error otherwise
+         * @throws IllegalStateException if one Restaurant have a non-existent linked User.
+         */
+        @SuppressFBWarnings(
+            value = "SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING",
+            justification = "SQL string built by Queries.findRestaurantsByNames from static strings"
+        )
+        public static Result<Map<String, Restaurant>> findAll(
+            final Connection connection,
+            final Collection<String> restaurantNames
+        ) {
+            final Map<String, Restaurant> restaurants = new HashMap<>();
+            final Set<String> missing = new LinkedHashSet<>();
+            for (final String restaurantName : restaurantNames) {
+                final Optional<Restaurant> loaded = UnitOfWork.lookup(Restaurant.class, restaurantName);
+                if (loaded.isPresent()) {
+                    restaurants.put(restaurantName, loaded.get());
+                } else {
+                    missing.add(restaurantName);
+                }
+            }
+            final List<RestaurantRow> rows = new ArrayList<>();
+            try {
+                for (final List<String> chunk : DBHelper.chunks(missing)) {
+                    try (
+                        PreparedStatement statement = DBHelper.prepare(
+                            connection,
+                            Queries.findRestaurantsByNames(chunk.size()),
+                            chunk.toArray()
+                        );
+                        ResultSet result = statement.executeQuery();
+                    ) {
+                        while (result.next()) {
+                            rows.add(RestaurantRow.read(result));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed research of " + missing.size() + " restaurants";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+            final Result<List<Restaurant>> resRestaurants = build(connection, rows);
+            if (!resRestaurants.isSuccess()) {
+                // Propagate the error
+                return Result.failure(resRestaurants.getErrorMessage());
+            }
+            for (final Restaurant restaurant : resRestaurants.getValue()) {
+                restaurants.put(restaurant.getRestaurantName(), restaurant);
+            }
+            return Result.success(restaurants);
+        }
+
         /**
          * Find in the database the Restaurant owned by the given User.
          * @param connection
@@ -397,20 +573,16 @@ public final class Restaurant {
                 );
                 ResultSet result = statement.executeQuery();
             ) {
-                final Collection<Restaurant> restaurants = new HashSet<>();
+                final List<RestaurantRow> rows = new ArrayList<>();
                 while (result.next()) {
-                    final Result<Restaurant> resRestaurant = fromRestaurantResultSet(
-                        connection,
-                        result,
-                        null
-                    );
-                    if (resRestaurant.isSuccess()) {
-                        restaurants.add(resRestaurant.getValue());
-                    } else {
-                        return Result.failure(resRestaurant.getErrorMessage());
-                    }
+                    rows.add(RestaurantRow.read(result));
+                }
+                final Result<List<Restaurant>> resRestaurants = build(connection, rows);
+                if (!resRestaurants.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resRestaurants.getErrorMessage());
                 }
-                return Result.success(restaurants);
+                return Result.success(new HashSet<>(resRestaurants.getValue()));
             } catch (SQLException e) {
                 final String errorMessage = "Failed listing restaurants";
                 LOGGER.log(Level.SEVERE, errorMessage, e);
@@ -418,6 +590,47 @@ public final class Restaurant {
             }
         }
 
+        /**
+         * Lists one page of the restaurants, in name order (keyset pagination).
+         * @param connection
+         * @param afterName     the last name of the previous page, empty for the first page
+         * @param pageSize      the maximum number of restaurants in the page
+         * @return the page if there are no errors
+         * @throws IllegalStateException if one Restaurant have a non-existent linked User.
+         * @throws IllegalArgumentException if pageSize is not positive
+         */
+        public static Result<Page<Restaurant, String>> page(
+            final Connection connection,
+            final Optional<String> afterName,
+            final int pageSize
+        ) {
+            Page.checkPageSize(pageSize);
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.PAGE_RESTAURANTS,
+                    afterName.orElse(""),
+                    pageSize + 1
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                final List<RestaurantRow> rows = new ArrayList<>(pageSize + 1);
+                while (result.next()) {
+                    rows.add(RestaurantRow.read(result));
+                }
+                final Result<List<Restaurant>> resRestaurants = build(connection, rows);
+                if (!resRestaurants.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resRestaurants.getErrorMessage());
+                }
+                return Result.success(Page.of(resRestaurants.getValue(), pageSize, Restaurant::getRestaurantName));
+            } catch (SQLException e) {
+                final String errorMessage = "Failed listing a page of restaurants";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+        }
+
         /**
          * Find the Restaurant with the most orders.
          * @param connection
@@ -540,15 +753,15 @@ public final class Restaurant {
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
                 } else {
-                    return Result.success(
-                        new Restaurant(
-                            restaurant.getUser(),
-                            restaurant.getRestaurantName(),
-                            restaurant.getVatNumber(),
-                            openingTime,
-                            closingTime
-                        )
+                    final Restaurant updated = new Restaurant(
+                        restaurant.getUser(),
+                        restaurant.getRestaurantName(),
+                        restaurant.getVatNumber(),
+                        openingTime,
+                        closingTime
                     );
+                    UnitOfWork.replace(Restaurant.class, updated.getRestaurantName(), updated);
+                    return Result.success(updated);
                 }
             } catch (SQLException e) {
                 final String errorMessage =
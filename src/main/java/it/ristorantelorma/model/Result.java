@@ -1,6 +1,7 @@
 package it.ristorantelorma.model;
 
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Helper class used as return value for DAO functions.
@@ -9,11 +10,13 @@ import java.util.Objects;
 public final class Result<T> {
     private final T value;
     private final String errorMessage;
+    private final Throwable cause;
     private final boolean success;
 
-    private Result(final T value, final String errorMessage, final boolean success) {
+    private Result(final T value, final String errorMessage, final Throwable cause, final boolean success) {
         this.value = value;
         this.errorMessage = errorMessage;
+        this.cause = cause;
         this.success = success;
     }
 
@@ -26,7 +29,7 @@ public final class Result<T> {
      */
     public static <T> Result<T> success(final T value) {
         Objects.requireNonNull(value);
-        return new Result<>(value, null, true);
+        return new Result<>(value, null, null, true);
     }
 
     /**
@@ -38,7 +41,36 @@ public final class Result<T> {
      */
     public static <T> Result<T> failure(final String errorMessage) {
         Objects.requireNonNull(errorMessage);
-        return new Result<>(null, errorMessage, false);
+        return new Result<>(null, errorMessage, null, false);
+    }
+
+    /**
+     * Returns a Result with the specified non-null error message and the exception that caused it,
+     * so that callers can tell transient errors (e.g. deadlocks) apart.
+     * @param <T> the class of the non-existent value
+     * @param errorMessage the error message to be present, which must be non-null
+     * @param cause the exception that caused the failure, which must be non-null
+     * @return a Result with the error message and its cause
+     * @throws NullPointerException if errorMessage or cause is null
+     */
+    public static <T> Result<T> failure(final String errorMessage, final Throwable cause) {
+        Objects.requireNonNull(errorMessage);
+        Objects.requireNonNull(cause);
+        return new Result<>(null, errorMessage, cause, false);
+    }
+
+    /**
+     * Returns a failure with the same error message and cause of the given one, used to propagate it.
+     * @param <T> the class of the non-existent value
+     * @param failed a failed Result
+     * @return a Result with the same error message and cause
+     * @throws IllegalArgumentException if failed is a success
+     */
+    public static <T> Result<T> failure(final Result<?> failed) {
+        if (failed.isSuccess()) {
+            throw new IllegalArgumentException("Cannot propagate a successful Result");
+        }
+        return new Result<>(null, failed.errorMessage, failed.cause, false);
     }
 
     /**
@@ -59,6 +91,13 @@ public final class Result<T> {
         return errorMessage;
     }
 
+    /**
+     * @return the exception that caused the failure, if known
+     */
+    public Optional<Throwable> getCause() {
+        return Optional.ofNullable(cause);
+    }
+
     /**
      * @return true if a value is present, empty otherwise
      */
@@ -3,13 +3,17 @@ package it.ristorantelorma.model;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.ristorantelorma.controller.SimpleLogger;
 import it.ristorantelorma.model.user.ClientUser;
+import it.ristorantelorma.model.user.User;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -164,6 +168,67 @@ public final class Review {
             );
         }
 
+        /**
+         * Columns of a RECENSIONI row, read before its User is resolved.
+         */
+        private record ReviewRow(
+            int id,
+            Timestamp date,
+            Vote vote,
+            Optional<String> comment,
+            String username
+        ) {
+            static ReviewRow read(final ResultSet result) throws SQLException {
+                return new ReviewRow(
+                    result.getInt("codice"),
+                    result.getTimestamp("data"),
+                    Vote.fromString(result.getString("voto")),
+                    Optional.ofNullable(result.getString("commento")),
+                    result.getString("username")
+                );
+            }
+        }
+
+        /**
+         * Build the Reviews of the given rows, resolving all their Users with one User.DAO.findAll call.
+         * @param connection
+         * @param rows
+         * @param restaurant    the Restaurant the reviews are about
+         * @return the Reviews, in the same order as the rows, if there are no errors
+         * @throws IllegalStateException if one Review is linked to a non-existent User.
+         */
+        private static Result<List<Review>> build(
+            final Connection connection,
+            final List<ReviewRow> rows,
+            final Restaurant restaurant
+        ) {
+            final Result<Map<String, User>> resUsers = User.DAO.findAll(
+                connection,
+                rows.stream().map(ReviewRow::username).toList()
+            );
+            if (!resUsers.isSuccess()) {
+                // Propagate error
+                return Result.failure(resUsers.getErrorMessage());
+            }
+            final List<Review> reviews = new ArrayList<>(rows.size());
+            for (final ReviewRow row : rows) {
+                final User user = resUsers.getValue().get(row.username());
+                if (!(user instanceof ClientUser)) {
+                    final String errorMessage =
+                        "The Review (ID: "
+                        + row.id()
+                        + ") have an invalid username: "
+                        + row.username();
+                    LOGGER.log(Level.SEVERE, errorMessage);
+                    throw new IllegalStateException(errorMessage);
+                }
+                reviews.add(
+                    new Review(row.id(), restaurant, row.date(), row.vote(), row.comment(), (ClientUser) user)
+                );
+            }
+            return Result.success(reviews);
+        }
+
         /**
          * Lists all reviews in the database of a particular restaurant.
          * @param connection
@@ -183,36 +248,16 @@ public final class Review {
                 );
                 ResultSet result = statement.executeQuery();
             ) {
-                final Collection<Review> reviews = new HashSet<>();
+                final List<ReviewRow> rows = new ArrayList<>();
                 while (result.next()) {
-                    final int id = result.getInt("codice");
-                    final Timestamp date = result.getTimestamp("data");
-                    final Vote vote = Vote.fromString(result.getString("voto"));
-                    final Optional<String> comment = Optional.ofNullable(
-                        result.getString("commento")
-                    );
-                    final String username = result.getString("username");
-                    final Result<Optional<ClientUser>> tmpUser =
-                        ClientUser.DAO.find(connection, username);
-                    if (!tmpUser.isSuccess()) {
-                        // Propagate error
-                        return Result.failure(tmpUser.getErrorMessage());
-                    }
-                    if (!tmpUser.getValue().isPresent()) {
-                        final String errorMessage =
-                            "The Review (ID: "
-                            + id
-                            + ") have an invalid username: "
-                            + username;
-                        LOGGER.log(Level.SEVERE, errorMessage);
-                        throw new IllegalStateException(errorMessage);
-                    }
-                    final ClientUser user = tmpUser.getValue().get();
-                    reviews.add(
-                        new Review(id, restaurant, date, vote, comment, user)
-                    );
+                    rows.add(ReviewRow.read(result));
+                }
+                final Result<List<Review>> resReviews = build(connection, rows, restaurant);
+                if (!resReviews.isSuccess()) {
+                    // Propagate error
+                    return Result.failure(resReviews.getErrorMessage());
                 }
-                return Result.success(reviews);
+                return Result.success(new HashSet<>(resReviews.getValue()));
             } catch (SQLException e) {
                 final String errorMessage =
                     "Failed listing reviews for the restaurant: "
@@ -222,11 +267,57 @@ public final class Review {
             }
         }
 
+        /**
+         * Lists one page of the reviews of a particular restaurant, in ID order (keyset pagination).
+         * @param connection
+         * @param restaurant
+         * @param afterId       the last ID of the previous page, empty for the first page
+         * @param pageSize      the maximum number of reviews in the page
+         * @return the page if there are no errors
+         * @throws IllegalStateException if one Review is linked to a non-existent User.
+         * @throws IllegalArgumentException if pageSize is not positive
+         */
+        public static Result<Page<Review, Integer>> page(
+            final Connection connection,
+            final Restaurant restaurant,
+            final Optional<Integer> afterId,
+            final int pageSize
+        ) {
+            Page.checkPageSize(pageSize);
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.PAGE_REVIEWS_OF_RESTAURANT,
+                    restaurant.getRestaurantName(),
+                    afterId.orElse(0),
+                    pageSize + 1
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                final List<ReviewRow> rows = new ArrayList<>(pageSize + 1);
+                while (result.next()) {
+                    rows.add(ReviewRow.read(result));
+                }
+                final Result<List<Review>> resReviews = build(connection, rows, restaurant);
+                if (!resReviews.isSuccess()) {
+                    // Propagate error
+                    return Result.failure(resReviews.getErrorMessage());
+                }
+                return Result.success(Page.of(resReviews.getValue(), pageSize, Review::getId));
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed listing a page of reviews for the restaurant: "
+                    + restaurant.getRestaurantName();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+        }
+
         /**
          * Insert a new Review in the database.
          * @param connection
          * @param restaurant
-         * @param date
+         * @param date          stored, and kept in the returned review, with microsecond precision
          * @param vote
          * @param comment
          * @param user
@@ -241,12 +332,13 @@ public final class Review {
             final Optional<String> comment,
             final ClientUser user
         ) {
+            final Timestamp stored = DBHelper.toMicros(date);
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
                     Queries.INSERT_REVIEW,
                     restaurant.getRestaurantName(),
-                    date,
+                    stored,
                     String.valueOf(vote.getValue()),
                     comment.orElse(null),
                     user.getUsername()
@@ -266,7 +358,7 @@ public final class Review {
                                 new Review(
                                     id,
                                     restaurant,
-                                    date,
+                                    stored,
                                     vote,
                                     comment,
                                     user
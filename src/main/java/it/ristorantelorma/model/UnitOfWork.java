@@ -0,0 +1,141 @@
+package it.ristorantelorma.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Identity map bound to one logical operation of the current thread.
+ * While a UnitOfWork is open, the DAOs register every entity they load and look it up by primary key
+ * before querying, so each entity is loaded and built once and the object graph keeps its identity.
+ * Without an open UnitOfWork every lookup misses and every registration is a no-op.
+ * <pre>
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ *     ...
+ * }
+ * </pre>
+ * Nested begin() calls join the UnitOfWork already open on the thread.
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Map<Class<?>, Map<Object, Object>> entities = new HashMap<>();
+    private int depth;
+
+    private UnitOfWork() { }
+
+    /**
+     * Open a UnitOfWork on the current thread, or join the one already open.
+     * @return the UnitOfWork of the current thread, to be closed at the end of the operation
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork uow = CURRENT.get();
+        if (uow == null) {
+            uow = new UnitOfWork();
+            CURRENT.set(uow);
+        }
+        uow.depth++;
+        return uow;
+    }
+
+    /**
+     * Run an operation inside a UnitOfWork, joining the one already open on the current thread if any.
+     * @param <T> the class of the result
+     * @param operation     the operation to run
+     * @return the result of the operation
+     */
+    public static <T> T call(final Supplier<T> operation) {
+        final UnitOfWork uow = begin();
+        try {
+            return operation.get();
+        } finally {
+            uow.close();
+        }
+    }
+
+    /**
+     * @return the UnitOfWork open on the current thread, if any
+     */
+    public static Optional<UnitOfWork> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Look up an entity already loaded by the current UnitOfWork.
+     * @param <T> the class of the entity
+     * @param type  the class of the entity
+     * @param key   the primary key of the entity
+     * @return the entity if the current UnitOfWork has already loaded it, empty otherwise
+     */
+    public static <T> Optional<T> lookup(final Class<T> type, final Object key) {
+        final UnitOfWork uow = CURRENT.get();
+        if (uow == null) {
+            return Optional.empty();
+        }
+        final Map<Object, Object> byKey = uow.entities.get(type);
+        return byKey == null ? Optional.empty() : Optional.ofNullable(type.cast(byKey.get(key)));
+    }
+
+    /**
+     * Register a freshly loaded entity in the current UnitOfWork.
+     * If an entity with the same key was already registered, that one is kept and returned,
+     * so callers should always use the returned instance.
+     * @param <T> the class of the entity
+     * @param <E> the actual class of the entity
+     * @param type      the class the entity is registered as
+     * @param key       the primary key of the entity
+     * @param entity    the entity just loaded
+     * @return the registered instance
+     */
+    public static <T, E extends T> T register(final Class<T> type, final Object key, final E entity) {
+        final UnitOfWork uow = CURRENT.get();
+        if (uow == null) {
+            return entity;
+        }
+        final Object existing = uow.entities
+            .computeIfAbsent(type, t -> new HashMap<>())
+            .putIfAbsent(key, entity);
+        return existing == null ? entity : type.cast(existing);
+    }
+
+    /**
+     * Replace the registered entity after an update, so that later lookups see the new state.
+     * @param <T> the class of the entity
+     * @param <E> the actual class of the entity
+     * @param type      the class the entity is registered as
+     * @param key       the primary key of the entity
+     * @param entity    the updated entity
+     */
+    public static <T, E extends T> void replace(final Class<T> type, final Object key, final E entity) {
+        final UnitOfWork uow = CURRENT.get();
+        if (uow != null) {
+            uow.entities.computeIfAbsent(type, t -> new HashMap<>()).put(key, entity);
+        }
+    }
+
+    /**
+     * Forget an entity, e.g. after it has been deleted.
+     * @param type  the class the entity is registered as
+     * @param key   the primary key of the entity
+     */
+    public static void evict(final Class<?> type, final Object key) {
+        final UnitOfWork uow = CURRENT.get();
+        if (uow != null && uow.entities.containsKey(type)) {
+            uow.entities.get(type).remove(key);
+        }
+    }
+
+    /**
+     * Leave the UnitOfWork; the outermost close discards the identity map.
+     */
+    @Override
+    public void close() {
+        depth--;
+        if (depth == 0) {
+            entities.clear();
+            CURRENT.remove();
+        }
+    }
+}
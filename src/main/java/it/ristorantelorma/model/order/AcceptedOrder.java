@@ -11,6 +11,7 @@ import java.sql.Connection;
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -122,7 +123,8 @@ public class AcceptedOrder extends ReadyOrder {
          * @param order
          * @param acceptanceTime
          * @param deliveryman
-         * @return AcceptedOrder if everything goes right during the conversion, error otherwise
+         * @return AcceptedOrder if everything goes right during the conversion,
+         *         error otherwise, also if another deliveryman accepted the order first
          */
         public static Result<AcceptedOrder> from(
             final Connection connection,
@@ -130,10 +132,40 @@ public class AcceptedOrder extends ReadyOrder {
             final Timestamp acceptanceTime,
             final DeliverymanUser deliveryman
         ) {
-            final Result<Order> res = Order.DAO.updateState(
+            final Result<Optional<AcceptedOrder>> res = claim(
                 connection,
                 order,
-                State.ACCEPTED,
+                acceptanceTime,
+                deliveryman
+            );
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            if (res.getValue().isEmpty()) {
+                return Result.failure("Order already accepted by another deliveryman: " + order.getId());
+            }
+            return Result.success(res.getValue().get());
+        }
+
+        /**
+         * Accept a ready order, only if no other deliveryman accepted it first.
+         * Losing the race is not an error: the result is successful and empty.
+         * @param connection
+         * @param order
+         * @param acceptanceTime
+         * @param deliveryman
+         * @return the AcceptedOrder, empty if the order is not ready anymore
+         */
+        public static Result<Optional<AcceptedOrder>> claim(
+            final Connection connection,
+            final ReadyOrder order,
+            final Timestamp acceptanceTime,
+            final DeliverymanUser deliveryman
+        ) {
+            final Result<Boolean> res = Order.DAO.claim(
+                connection,
+                order.getId(),
                 acceptanceTime,
                 deliveryman.getUsername()
             );
@@ -142,7 +174,46 @@ public class AcceptedOrder extends ReadyOrder {
                 return Result.failure(res.getErrorMessage());
             }
             return Result.success(
-                new AcceptedOrder(order, acceptanceTime, deliveryman)
+                res.getValue()
+                    ? Optional.of(new AcceptedOrder(order, acceptanceTime, deliveryman))
+                    : Optional.empty()
+            );
+        }
+
+        /**
+         * Accept up to count of the oldest ready orders.
+         * Orders being accepted by other deliverymen at the same time are skipped, not waited for.
+         * @param connection
+         * @param count         the maximum number of orders to accept
+         * @param acceptanceTime
+         * @param deliveryman
+         * @return the accepted orders, empty if there are no ready orders left
+         * @throws IllegalStateException if an Order exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if count is not positive
+         */
+        public static Result<Collection<AcceptedOrder>> claimNext(
+            final Connection connection,
+            final int count,
+            final Timestamp acceptanceTime,
+            final DeliverymanUser deliveryman
+        ) {
+            final Result<Collection<Order>> res = Order.DAO.claimReady(
+                connection,
+                count,
+                acceptanceTime,
+                deliveryman.getUsername()
+            );
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            return Result.success(
+                res
+                    .getValue()
+                    .stream()
+                    .map(val -> (AcceptedOrder) val)
+                    .toList()
             );
         }
 
@@ -173,5 +244,36 @@ public class AcceptedOrder extends ReadyOrder {
                     .collect(Collectors.toSet())
             );
         }
+
+        /**
+         * List the orders accepted by the given deliveryman and not delivered yet.
+         * Unlike list, only the orders of that deliveryman are read from the database.
+         * @param connection
+         * @param deliveryman
+         * @return a Collection<AcceptedOrder> if there are no errors
+         * @throws IllegalStateException if an Order exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         */
+        public static Result<Collection<AcceptedOrder>> listByDeliveryman(
+            final Connection connection,
+            final DeliverymanUser deliveryman
+        ) {
+            final Result<Collection<Order>> res = Order.DAO.listAcceptedBy(
+                connection,
+                deliveryman.getUsername()
+            );
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            return Result.success(
+                res
+                    .getValue()
+                    .stream()
+                    .map(val -> (AcceptedOrder) val)
+                    .collect(Collectors.toSet())
+            );
+        }
     }
 }
@@ -105,6 +105,8 @@ public final class DeliveredOrder extends AcceptedOrder {
         }
 
         /**
+         * Deliver the order, paying the deliveryman and counting the delivery in the statistics
+         * in the same transaction.
          * @param connection
          * @param order
          * @param deliveryTime
@@ -115,12 +117,7 @@ public final class DeliveredOrder extends AcceptedOrder {
             final AcceptedOrder order,
             final Timestamp deliveryTime
         ) {
-            final Result<Order> res = Order.DAO.updateState(
-                connection,
-                order,
-                State.DELIVERED,
-                deliveryTime
-            );
+            final Result<Order> res = Order.DAO.deliver(connection, order, deliveryTime);
             if (!res.isSuccess()) {
                 // Propagate error
                 return Result.failure(res.getErrorMessage());
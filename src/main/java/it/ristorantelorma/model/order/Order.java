@@ -4,11 +4,17 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.ristorantelorma.controller.SimpleLogger;
 import it.ristorantelorma.model.DBHelper;
 import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.MacroType;
+import it.ristorantelorma.model.Page;
 import it.ristorantelorma.model.Queries;
 import it.ristorantelorma.model.Restaurant;
 import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.UnitOfWork;
 import it.ristorantelorma.model.user.ClientUser;
 import it.ristorantelorma.model.user.DeliverymanUser;
+import it.ristorantelorma.model.user.RestaurantUser;
+import it.ristorantelorma.model.user.User;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -19,14 +25,18 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -180,6 +190,20 @@ public abstract class Order {
 
         private static final String CLASS_NAME = Order.class.getName();
         private static final Logger LOGGER = SimpleLogger.getLogger(CLASS_NAME);
+        /**
+         * Orders fetched from the server at a time when streaming, and hydrated together.
+         */
+        private static final int STREAM_BATCH_SIZE = 500;
+        /**
+         * State changes made by the DAO, by state, filled once: the map is never changed, only its counters.
+         */
+        private static final Map<State, LongAdder> STATE_CHANGES = new EnumMap<>(State.class);
+
+        static {
+            for (final State state : State.values()) {
+                STATE_CHANGES.put(state, new LongAdder());
+            }
+        }
 
         private DAO() {
             throw new UnsupportedOperationException(
@@ -187,6 +211,42 @@ public abstract class Order {
             );
         }
 
+        /**
+         * Read without locks, so that it can be scraped as often as needed.
+         * Orders changed in a transaction that was rolled back afterwards are counted too.
+         * @return the number of orders moved to each state since the application started, unlike countByState
+         */
+        public static Map<State, Long> stateChanges() {
+            final Map<State, Long> changes = new EnumMap<>(State.class);
+            STATE_CHANGES.forEach((state, counter) -> changes.put(state, counter.sum()));
+            return changes;
+        }
+
+        /**
+         * Count the orders stored in each state, with a plain read that takes no locks.
+         * @param connection
+         * @return the number of orders in each state, zero for the states with none, if there are no errors
+         */
+        public static Result<Map<State, Long>> countByState(final Connection connection) {
+            try (
+                PreparedStatement statement = DBHelper.prepare(connection, Queries.COUNT_ORDERS_BY_STATE);
+                ResultSet result = statement.executeQuery();
+            ) {
+                final Map<State, Long> counts = new EnumMap<>(State.class);
+                for (final State state : State.values()) {
+                    counts.put(state, 0L);
+                }
+                while (result.next()) {
+                    counts.put(State.fromString(result.getString("stato")), result.getLong("ordini"));
+                }
+                return Result.success(counts);
+            } catch (SQLException e) {
+                final String errorMessage = "Failed counting the orders by state";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
         /**
          * Get the list of foods for the given Order.
          * @param connection
@@ -211,29 +271,15 @@ public abstract class Order {
                     id
                 );
                 ResultSet result = statement.executeQuery();
+                Hydrator hydrator = new Hydrator(connection);
             ) {
-                final Map<Food, Integer> foods = new HashMap<>();
-                while (result.next()) {
-                    final int quantity = result.getInt("quantità");
-                    final int foodId = result.getInt("codice_vivanda");
-                    final Result<Optional<Food>> tmpFood = Food.DAO.find(
-                        connection,
-                        foodId
-                    );
-                    if (!tmpFood.isSuccess()) {
-                        // Propagate the error
-                        return Result.failure(tmpFood.getErrorMessage());
-                    }
-                    if (!tmpFood.getValue().isPresent()) {
-                        final String errorMessage =
-                            "Invalid Food id: " + foodId;
-                        LOGGER.log(Level.SEVERE, errorMessage);
-                        return Result.failure(errorMessage);
-                    }
-                    final Food food = tmpFood.getValue().get();
-                    foods.put(food, quantity);
+                final Map<Integer, Map<Food, Integer>> details = new HashMap<>();
+                final Result<?> res = hydrator.readDetails(result, details);
+                if (!res.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(res.getErrorMessage());
                 }
-                return Result.success(foods);
+                return Result.success(details.getOrDefault(id, Map.of()));
             } catch (SQLException e) {
                 final String errorMessage =
                     "Failed listing foods for Order ID: " + id;
@@ -243,204 +289,421 @@ public abstract class Order {
         }
 
         /**
-         * Insert (batch) the pairs (food,count) for the given orderId.
+         * Insert the pairs (food,count) for the given orderId, as multi-row INSERTs of at most
+         * Queries.ORDER_DETAILS_CHUNK_SIZE rows each.
+         * The foods are not counted in the totals of the statistics yet, see addTotals().
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one.
          * @param connection
          * @param orderId
          * @param foods
          * @return the input foods if everything goes well, error otherwise
          */
+        @SuppressFBWarnings(
+            value = "SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING",
+            justification = "SQL string built by Queries.insertOrderDetails from static strings"
+        )
         public static Result<Map<Food, Integer>> insertFoodRequested(
             final Connection connection,
             final int orderId,
             final Map<Food, Integer> foods
         ) {
-            final Iterator<Entry<Food, Integer>> iter = foods
-                .entrySet()
-                .iterator();
-            boolean autocommit = true;
-
-            try (
-                PreparedStatement statement = DBHelper.prepare(
-                    connection,
-                    Queries.INSERT_ORDER_DETAIL
-                );
-            ) {
-                autocommit = connection.getAutoCommit();
-                connection.setAutoCommit(false); // Temporary disable autocommit
-                while (iter.hasNext()) {
-                    final Entry<Food, Integer> element = iter.next();
-                    final Food food = element.getKey();
-                    final Integer count = element.getValue();
-                    statement.setInt(1, food.getId());
-                    statement.setInt(2, orderId);
-                    statement.setInt(3, count);
-                    statement.addBatch();
-                }
-                statement.executeBatch();
-                connection.commit();
-                connection.setAutoCommit(autocommit); // Restore autocommit
-
-                return Result.success(foods);
+            final List<Entry<Food, Integer>> rows = new ArrayList<>(foods.entrySet());
+            try {
+                return DBHelper.inTransaction(connection, conn -> {
+                    for (int from = 0; from < rows.size(); from += Queries.ORDER_DETAILS_CHUNK_SIZE) {
+                        final List<Entry<Food, Integer>> chunk = rows.subList(
+                            from,
+                            Math.min(rows.size(), from + Queries.ORDER_DETAILS_CHUNK_SIZE)
+                        );
+                        final Object[] details = new Object[chunk.size() * 3];
+                        int i = 0;
+                        for (final Entry<Food, Integer> element : chunk) {
+                            details[i++] = element.getKey().getId();
+                            details[i++] = orderId;
+                            details[i++] = element.getValue();
+                        }
+                        try (
+                            PreparedStatement statement = DBHelper.prepare(
+                                conn,
+                                Queries.insertOrderDetails(chunk.size()),
+                                details
+                            );
+                        ) {
+                            statement.executeUpdate();
+                        }
+                    }
+                    return Result.success(foods);
+                });
             } catch (SQLException e) {
-                try {
-                    connection.rollback();
-                    LOGGER.log(
-                        Level.WARNING,
-                        "Rolled back transaction for orderId: " + orderId
-                    );
-                } catch (SQLException er) {
-                    LOGGER.log(
-                        Level.SEVERE,
-                        "Failed rollback while handling an exception",
-                        er
-                    );
-                }
                 final String errorMessage =
-                    "Failed batch insertion of food requested for orderId: "
+                    "Failed insertion of food requested for orderId: "
                     + orderId;
                 LOGGER.log(Level.SEVERE, errorMessage, e);
-                return Result.failure(errorMessage);
-            } finally {
-                try {
-                    connection.setAutoCommit(autocommit); // Restore autocommit
-                } catch (SQLException e) {
-                    LOGGER.log(
-                        Level.SEVERE,
-                        "Failed setting back autocommit",
-                        e
-                    );
-                }
+                return Result.failure(errorMessage, e);
             }
         }
 
         /**
+         * Count an order in the totals of the statistics: one more order of its Restaurant, and the quantity
+         * of each Food, as multi-row upserts of at most Queries.ORDER_DETAILS_CHUNK_SIZE rows each.
+         * Every order of a restaurant updates the same counter rows, and keeps them locked until its transaction
+         * ends: to be called as the last statements before the commit, so that concurrent orders wait the least.
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one.
          * @param connection
-         * @param result
-         * @return the Order if there are no errors
-         * @throws IllegalStateException if the Order searched exists but the linked Restaurant name,
-         *         client username, or deliveryman username do not.
-         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         * @param restaurant
+         * @param foods         the food requested, with their quantity
+         * @return the input foods if everything goes well, error otherwise
          */
-        private static Result<Order> fromOrderResultSet(
+        @SuppressFBWarnings(
+            value = "SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING",
+            justification = "SQL string built by Queries.addFoodTotals from static strings"
+        )
+        public static Result<Map<Food, Integer>> addTotals(
             final Connection connection,
-            final ResultSet result
-        ) throws SQLException {
-            final int id = result.getInt("codice");
-            final String restaurantStr = result.getString(
-                "nome_attività"
-            );
-            final Result<Optional<Restaurant>> tmpRestaurant =
-                Restaurant.DAO.find(connection, restaurantStr);
-            if (!tmpRestaurant.isSuccess()) {
-                // Propagate the error
-                return Result.failure(tmpRestaurant.getErrorMessage());
-            }
-            if (!tmpRestaurant.getValue().isPresent()) {
+            final Restaurant restaurant,
+            final Map<Food, Integer> foods
+        ) {
+            final List<Entry<Food, Integer>> rows = new ArrayList<>(foods.entrySet());
+            // Concurrent orders lock the shared counters in the same order, so they wait instead of deadlocking
+            rows.sort(Comparator.comparingInt(row -> row.getKey().getId()));
+            try {
+                return DBHelper.inTransaction(connection, conn -> {
+                    try (
+                        PreparedStatement statement = DBHelper.prepare(
+                            conn,
+                            Queries.ADD_RESTAURANT_ORDER,
+                            restaurant.getRestaurantName()
+                        );
+                    ) {
+                        statement.executeUpdate();
+                    }
+                    for (int from = 0; from < rows.size(); from += Queries.ORDER_DETAILS_CHUNK_SIZE) {
+                        final List<Entry<Food, Integer>> chunk = rows.subList(
+                            from,
+                            Math.min(rows.size(), from + Queries.ORDER_DETAILS_CHUNK_SIZE)
+                        );
+                        final Object[] totals = new Object[chunk.size() * 2];
+                        int i = 0;
+                        for (final Entry<Food, Integer> element : chunk) {
+                            totals[i++] = element.getKey().getId();
+                            totals[i++] = element.getValue();
+                        }
+                        try (
+                            PreparedStatement statement = DBHelper.prepare(
+                                conn,
+                                Queries.addFoodTotals(chunk.size()),
+                                totals
+                            );
+                        ) {
+                            statement.executeUpdate();
+                        }
+                    }
+                    return Result.success(foods);
+                });
+            } catch (SQLException e) {
                 final String errorMessage =
-                    "The Order have an invalid Restaurant name: "
-                    + restaurantStr;
-                LOGGER.log(Level.SEVERE, errorMessage);
-                throw new IllegalStateException(errorMessage);
+                    "Failed counting the order in the totals of restaurant: " + restaurant.getRestaurantName();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
             }
-            final Restaurant restaurant = tmpRestaurant
-                .getValue()
-                .get();
+        }
 
-            final String clientStr = result.getString(
-                "username_cliente"
-            );
-            final Result<Optional<ClientUser>> tmpClient = ClientUser.DAO.find(
-                connection,
-                clientStr
-            );
-            if (!tmpClient.isSuccess()) {
-                // Propagate the error
-                return Result.failure(tmpClient.getErrorMessage());
+        /**
+         * Recompute from scratch the totals of the admin statistics (totali_vivande, totali_ristoranti
+         * and totali_fattorini) from the orders, e.g. after creating them on an existing database.
+         * Runs at SERIALIZABLE in its own transaction, so that the orders placed in the meantime are counted
+         * exactly once: emptying a table locks it whole, so their updates of the totals wait for the rebuild,
+         * and the orders are read with locking reads, which wait for the ones not committed yet.
+         * An order caught in between deadlocks with the rebuild, and one of the two is rolled back.
+         * @param connection    a connection in auto-commit mode
+         * @return the number of totals written if there are no errors, an error if a transaction is open already
+         */
+        public static Result<Integer> rebuildTotals(final Connection connection) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    // The isolation level of a transaction cannot change once it has started
+                    final String errorMessage = "The totals of the statistics must be rebuilt in their own transaction";
+                    LOGGER.log(Level.SEVERE, errorMessage);
+                    return Result.failure(errorMessage);
+                }
+                final int isolation = connection.getTransactionIsolation();
+                connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+                try {
+                    return DBHelper.inTransaction(connection, conn -> {
+                        int totals = 0;
+                        // Each counter table is emptied, then filled again from the orders
+                        for (final Entry<String, String> table : List.of(
+                            Map.entry(Queries.CLEAR_FOOD_TOTALS, Queries.REBUILD_FOOD_TOTALS),
+                            Map.entry(Queries.CLEAR_RESTAURANT_TOTALS, Queries.REBUILD_RESTAURANT_TOTALS),
+                            Map.entry(Queries.CLEAR_DELIVERYMAN_TOTALS, Queries.REBUILD_DELIVERYMAN_TOTALS)
+                        )) {
+                            try (PreparedStatement statement = DBHelper.prepare(conn, table.getKey())) {
+                                statement.executeUpdate();
+                            }
+                            try (PreparedStatement statement = DBHelper.prepare(conn, table.getValue())) {
+                                totals += statement.executeUpdate();
+                            }
+                        }
+                        LOGGER.log(Level.INFO, "Rebuilt " + totals + " totals of the statistics");
+                        return Result.success(totals);
+                    });
+                } finally {
+                    connection.setTransactionIsolation(isolation);
+                }
+            } catch (SQLException e) {
+                final String errorMessage = "Failed rebuilding the totals of the statistics";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
             }
-            if (!tmpClient.getValue().isPresent()) {
-                final String errorMessage =
-                    "The Order have an invalid client's username: "
-                    + clientStr;
-                LOGGER.log(Level.SEVERE, errorMessage);
-                throw new IllegalStateException(errorMessage);
+        }
+
+        /**
+         * Columns of an order row, read from the order graph query before its food list is available.
+         */
+        private record OrderRow(
+            int id,
+            State state,
+            Restaurant restaurant,
+            Timestamp dateTime,
+            BigDecimal shippingRate,
+            ClientUser client,
+            Optional<Timestamp> acceptanceTime,
+            Optional<DeliverymanUser> deliveryman,
+            Optional<Timestamp> deliveryTime
+        ) { }
+
+        /**
+         * Builds the object graph of a set of orders from the rows of Queries.LIST_ORDERS_BY_STATE /
+         * Queries.FIND_ORDER_BY_ID and Queries.LIST_FOODS_BY_ORDER_STATE / Queries.LIST_FOODS_BY_ORDER_ID,
+         * so that loading N orders costs two queries instead of a few for every order and order line.
+         * The Hydrator runs inside a UnitOfWork, so every Restaurant, User, Food and FoodType is built once.
+         */
+        private static final class Hydrator implements AutoCloseable {
+
+            private final Connection connection;
+            private final UnitOfWork uow = UnitOfWork.begin();
+
+            Hydrator(final Connection connection) {
+                this.connection = connection;
             }
-            final ClientUser client = tmpClient.getValue().get();
 
-            final Optional<String> deliverymanStr = Optional.ofNullable(
-                result.getString("username_fattorino")
-            );
-            final Optional<DeliverymanUser> deliveryman;
-            if (deliverymanStr.isPresent()) {
+            @Override
+            public void close() {
+                uow.close();
+            }
+
+            /**
+             * @return the User with the given prefix in the current row, empty if the username is null
+             */
+            private <T extends User> Result<Optional<T>> readUser(
+                final ResultSet result,
+                final String prefix,
+                final Class<T> type
+            ) throws SQLException {
+                final String username = result.getString(prefix + "username");
+                if (username == null) {
+                    return Result.success(Optional.empty());
+                }
+                final Result<User> resUser = User.DAO.fromUserResultSet(result, prefix);
+                if (!resUser.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resUser.getErrorMessage());
+                }
+                final User user = resUser.getValue();
+                if (!type.isInstance(user)) {
+                    final String errorMessage =
+                        "The user " + username + " is not a " + type.getSimpleName();
+                    LOGGER.log(Level.SEVERE, errorMessage);
+                    return Result.failure(errorMessage);
+                }
+                return Result.success(Optional.of(type.cast(user)));
+            }
+
+            Result<OrderRow> readOrder(final ResultSet result) throws SQLException {
+                final String restaurantStr = result.getString("r_nome_attività");
+                Restaurant restaurant = UnitOfWork.lookup(Restaurant.class, restaurantStr).orElse(null);
+                if (restaurant == null) {
+                    final Result<Optional<RestaurantUser>> tmpOwner =
+                        readUser(result, "p_", RestaurantUser.class);
+                    if (!tmpOwner.isSuccess()) {
+                        // Propagate the error
+                        return Result.failure(tmpOwner.getErrorMessage());
+                    }
+                    if (tmpOwner.getValue().isEmpty()) {
+                        final String errorMessage =
+                            "The Restaurant have an invalid username: " + restaurantStr;
+                        LOGGER.log(Level.SEVERE, errorMessage);
+                        throw new IllegalStateException(errorMessage);
+                    }
+                    restaurant = Restaurant.DAO.fromRestaurantResultSet(
+                        result,
+                        "r_",
+                        tmpOwner.getValue().get()
+                    );
+                }
+
+                final Result<Optional<ClientUser>> tmpClient =
+                    readUser(result, "c_", ClientUser.class);
+                if (!tmpClient.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(tmpClient.getErrorMessage());
+                }
+                if (tmpClient.getValue().isEmpty()) {
+                    final String errorMessage =
+                        "The Order have an invalid client's username: "
+                        + result.getString("username_cliente");
+                    LOGGER.log(Level.SEVERE, errorMessage);
+                    throw new IllegalStateException(errorMessage);
+                }
+
                 final Result<Optional<DeliverymanUser>> tmpDeliveryman =
-                    DeliverymanUser.DAO.find(connection, deliverymanStr.get());
+                    readUser(result, "f_", DeliverymanUser.class);
                 if (!tmpDeliveryman.isSuccess()) {
                     // Propagate the error
-                    return Result.failure(
-                        tmpDeliveryman.getErrorMessage()
-                    );
+                    return Result.failure(tmpDeliveryman.getErrorMessage());
                 }
-                if (!tmpDeliveryman.getValue().isPresent()) {
+                final String deliverymanStr = result.getString("username_fattorino");
+                if (deliverymanStr != null && tmpDeliveryman.getValue().isEmpty()) {
                     final String errorMessage =
                         "The Order have an invalid deliveryman's username: "
-                        + deliverymanStr.get();
+                        + deliverymanStr;
                     LOGGER.log(Level.SEVERE, errorMessage);
                     throw new IllegalStateException(errorMessage);
                 }
-                deliveryman = tmpDeliveryman.getValue();
-            } else {
-                deliveryman = Optional.empty();
+
+                return Result.success(
+                    new OrderRow(
+                        result.getInt("codice"),
+                        State.fromString(result.getString("stato")),
+                        restaurant,
+                        result.getTimestamp("data_ora"),
+                        result.getBigDecimal("tariffa_spedizione"),
+                        tmpClient.getValue().get(),
+                        Optional.ofNullable(result.getTimestamp("ora_accettazione")),
+                        tmpDeliveryman.getValue(),
+                        Optional.ofNullable(result.getTimestamp("ora_consegna"))
+                    )
+                );
             }
 
-            final Result<Map<Food, Integer>> tmpFoodRequested =
-                getFoodList(connection, id);
-            if (!tmpFoodRequested.isSuccess()) {
-                // Propagate the error
-                return Result.failure(tmpClient.getErrorMessage());
+            /**
+             * Read every order detail of the given ResultSet, adding it to the food list of its order.
+             * The Restaurants of the foods not loaded yet are resolved all together with one
+             * Restaurant.DAO.findAll call after the last row.
+             * @param result    rows of an ORDER_DETAIL query
+             * @param details   map order ID -> food requested, filled by this method
+             * @return success (dummy value) if no error is encountered, error otherwise
+             */
+            Result<?> readDetails(
+                final ResultSet result,
+                final Map<Integer, Map<Food, Integer>> details
+            ) throws SQLException {
+                final List<DetailRow> rows = new ArrayList<>();
+                final Set<String> restaurantNames = new HashSet<>();
+                while (result.next()) {
+                    final DetailRow row = DetailRow.read(result);
+                    if (UnitOfWork.lookup(Food.class, row.foodId()).isEmpty()) {
+                        restaurantNames.add(row.restaurantName());
+                    }
+                    rows.add(row);
+                }
+                final Result<Map<String, Restaurant>> resRestaurants =
+                    Restaurant.DAO.findAll(connection, restaurantNames);
+                if (!resRestaurants.isSuccess()) {
+                    // Propagate the error
+                    return Result.failure(resRestaurants.getErrorMessage());
+                }
+
+                for (final DetailRow row : rows) {
+                    Food food = UnitOfWork.lookup(Food.class, row.foodId()).orElse(null);
+                    if (food == null) {
+                        final FoodType type = FoodType.DAO.resolve(row.typeName(), row.macroType());
+                        final Restaurant restaurant = resRestaurants.getValue().get(row.restaurantName());
+                        if (restaurant == null) {
+                            final String errorMessage =
+                                "The Food have an invalid Restaurant name: "
+                                + row.restaurantName();
+                            LOGGER.log(Level.SEVERE, errorMessage);
+                            throw new IllegalStateException(errorMessage);
+                        }
+                        food = UnitOfWork.register(
+                            Food.class,
+                            row.foodId(),
+                            new Food(row.foodId(), row.foodName(), restaurant, row.price(), type)
+                        );
+                    }
+                    details
+                        .computeIfAbsent(row.orderId(), k -> new HashMap<>())
+                        .put(food, row.quantity());
+                }
+                return Result.success(new Object()); // Return dummy value
             }
-            final Map<Food, Integer> foodRequested =
-                tmpFoodRequested.getValue();
+        }
 
-            final Timestamp dateTime = result.getTimestamp("data_ora");
-            final BigDecimal shippingRate = result.getBigDecimal(
-                "tariffa_spedizione"
-            );
-            final Optional<Timestamp> acceptanceTime =
-                Optional.ofNullable(
-                    result.getTimestamp("ora_accettazione")
-                );
-            final Optional<Timestamp> deliveryTime =
-                Optional.ofNullable(
-                    result.getTimestamp("ora_consegna")
+        /**
+         * Columns of an order detail row, read before the Restaurant of its food is resolved.
+         */
+        private record DetailRow(
+            int orderId,
+            int quantity,
+            int foodId,
+            String foodName,
+            String restaurantName,
+            BigDecimal price,
+            String typeName,
+            MacroType macroType
+        ) {
+            static DetailRow read(final ResultSet result) throws SQLException {
+                return new DetailRow(
+                    result.getInt("codice_ordine"),
+                    result.getInt("quantità"),
+                    result.getInt("v_codice"),
+                    result.getString("v_nome"),
+                    result.getString("v_nome_attività"),
+                    result.getBigDecimal("v_prezzo"),
+                    result.getString("v_tipologia"),
+                    MacroType.fromString(result.getString("t_tipologia"))
                 );
+            }
+        }
 
-            final String stateStr = result.getString("stato");
-            switch (State.fromString(stateStr)) {
+        /**
+         * @param row
+         * @param foodRequested
+         * @return the Order if there are no errors
+         * @throws IllegalStateException if the state is incoherent with the optional fields
+         */
+        private static Result<Order> buildOrder(
+            final OrderRow row,
+            final Map<Food, Integer> foodRequested
+        ) {
+            switch (row.state()) {
                 case State.WAITING:
                     return Result.success(
                         new WaitingOrder(
-                            id,
-                            restaurant,
-                            dateTime,
-                            shippingRate,
-                            client,
+                            row.id(),
+                            row.restaurant(),
+                            row.dateTime(),
+                            row.shippingRate(),
+                            row.client(),
                             foodRequested
                         )
                     );
                 case State.READY:
                     return Result.success(
                         new ReadyOrder(
-                            id,
-                            restaurant,
-                            dateTime,
-                            shippingRate,
-                            client,
+                            row.id(),
+                            row.restaurant(),
+                            row.dateTime(),
+                            row.shippingRate(),
+                            row.client(),
                             foodRequested
                         )
                     );
                 case State.ACCEPTED:
                     if (
-                        acceptanceTime.isEmpty()
-                        || deliveryman.isEmpty()
+                        row.acceptanceTime().isEmpty()
+                        || row.deliveryman().isEmpty()
                     ) {
                         throw new IllegalStateException(
                             "State cannot be 'accepted' with empty acceptanceTime or deliveryman"
@@ -448,21 +711,21 @@ public abstract class Order {
                     }
                     return Result.success(
                         new AcceptedOrder(
-                            id,
-                            restaurant,
-                            dateTime,
-                            shippingRate,
-                            client,
+                            row.id(),
+                            row.restaurant(),
+                            row.dateTime(),
+                            row.shippingRate(),
+                            row.client(),
                             foodRequested,
-                            acceptanceTime.get(),
-                            deliveryman.get()
+                            row.acceptanceTime().get(),
+                            row.deliveryman().get()
                         )
                     );
                 case State.DELIVERED:
                     if (
-                        acceptanceTime.isEmpty()
-                        || deliveryman.isEmpty()
-                        || deliveryTime.isEmpty()
+                        row.acceptanceTime().isEmpty()
+                        || row.deliveryman().isEmpty()
+                        || row.deliveryTime().isEmpty()
                     ) {
                         throw new IllegalStateException(
                             "State cannot be 'accepted' with empty acceptanceTime, deliveryman or deliveryTime"
@@ -470,29 +733,29 @@ public abstract class Order {
                     }
                     return Result.success(
                         new DeliveredOrder(
-                            id,
-                            restaurant,
-                            dateTime,
-                            shippingRate,
-                            client,
+                            row.id(),
+                            row.restaurant(),
+                            row.dateTime(),
+                            row.shippingRate(),
+                            row.client(),
                             foodRequested,
-                            acceptanceTime.get(),
-                            deliveryman.get(),
-                            deliveryTime.get()
+                            row.acceptanceTime().get(),
+                            row.deliveryman().get(),
+                            row.deliveryTime().get()
                         )
                     );
                 case State.CANCELLED:
                     return Result.success(
                         new CancelledOrder(
-                            id,
-                            restaurant,
-                            dateTime,
-                            shippingRate,
-                            client,
+                            row.id(),
+                            row.restaurant(),
+                            row.dateTime(),
+                            row.shippingRate(),
+                            row.client(),
                             foodRequested,
-                            acceptanceTime,
-                            deliveryman,
-                            deliveryTime
+                            row.acceptanceTime(),
+                            row.deliveryman(),
+                            row.deliveryTime()
                         )
                     );
                 default:
@@ -500,6 +763,114 @@ public abstract class Order {
             }
         }
 
+        /**
+         * Load a set of orders with a fixed number of queries: one for the orders (joined with restaurant
+         * and users) and one for all their details (joined with foods and food types).
+         * @param connection
+         * @param ordersQuery   an order graph query
+         * @param detailsQuery  an order detail query selecting the details of the same orders
+         * @param param         the only parameter of both queries
+         * @return the loaded orders, in the same order as returned by ordersQuery
+         */
+        private static Result<List<Order>> loadGraph(
+            final Connection connection,
+            final String ordersQuery,
+            final String detailsQuery,
+            final Object param
+        ) throws SQLException {
+            try (Hydrator hydrator = new Hydrator(connection)) {
+                return loadGraph(hydrator, connection, ordersQuery, detailsQuery, param);
+            }
+        }
+
+        private static Result<List<Order>> loadGraph(
+            final Hydrator hydrator,
+            final Connection connection,
+            final String ordersQuery,
+            final String detailsQuery,
+            final Object param
+        ) throws SQLException {
+            final List<OrderRow> rows = new ArrayList<>();
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    ordersQuery,
+                    param
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                while (result.next()) {
+                    final Result<OrderRow> resRow = hydrator.readOrder(result);
+                    if (!resRow.isSuccess()) {
+                        // Propagate error
+                        return Result.failure(resRow.getErrorMessage());
+                    }
+                    rows.add(resRow.getValue());
+                }
+            }
+            if (rows.isEmpty()) {
+                return Result.success(List.of());
+            }
+
+            final List<Order> orders = new ArrayList<>(rows.size());
+            final Result<?> res = buildOrders(
+                hydrator,
+                connection,
+                rows,
+                detailsQuery,
+                new Object[] {param},
+                orders::add
+            );
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            return Result.success(orders);
+        }
+
+        /**
+         * Load the details of the given order rows with one query, then build the orders and pass them to the action.
+         * @param detailsQuery  an order detail query selecting the details of the orders
+         * @param params        the parameters of detailsQuery
+         * @return success (dummy value) if no error is encountered, error otherwise
+         */
+        private static Result<?> buildOrders(
+            final Hydrator hydrator,
+            final Connection connection,
+            final List<OrderRow> rows,
+            final String detailsQuery,
+            final Object[] params,
+            final Consumer<? super Order> action
+        ) throws SQLException {
+            final Map<Integer, Map<Food, Integer>> details = new HashMap<>();
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    detailsQuery,
+                    params
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                final Result<?> res = hydrator.readDetails(result, details);
+                if (!res.isSuccess()) {
+                    // Propagate error
+                    return res;
+                }
+            }
+            for (final OrderRow row : rows) {
+                final Result<Order> resOrder = buildOrder(
+                    row,
+                    details.getOrDefault(row.id(), Map.of())
+                );
+                if (!resOrder.isSuccess()) {
+                    // Propagate error
+                    return resOrder;
+                }
+                action.accept(resOrder.getValue());
+            }
+            return Result.success(new Object()); // Return dummy value
+        }
+
         /**
          * Find in the database the Order with the given id.
          * @param connection
@@ -513,33 +884,18 @@ public abstract class Order {
             final Connection connection,
             final int id
         ) {
-            try (
-                PreparedStatement statement = DBHelper.prepare(
+            try {
+                final Result<List<Order>> resOrders = loadGraph(
                     connection,
                     Queries.FIND_ORDER_BY_ID,
+                    Queries.LIST_FOODS_BY_ORDER_ID,
                     id
                 );
-                ResultSet result = statement.executeQuery();
-            ) {
-                if (result.next()) {
-                    final Result<Order> resOrder = fromOrderResultSet(
-                        connection,
-                        result
-                    );
-                    if (resOrder.isSuccess()) {
-                        return Result.success(
-                            Optional.of(
-                                resOrder.getValue()
-                            )
-                        );
-                    } else {
-                        return Result.failure(
-                            resOrder.getErrorMessage()
-                        );
-                    }
-                } else {
-                    return Result.success(Optional.empty());
+                if (!resOrders.isSuccess()) {
+                    // Propagate error
+                    return Result.failure(resOrders.getErrorMessage());
                 }
+                return Result.success(resOrders.getValue().stream().findFirst());
             } catch (SQLException e) {
                 final String errorMessage =
                     "Failed research of Order with ID: " + id;
@@ -550,9 +906,11 @@ public abstract class Order {
 
         /**
          * Insert a new Order in the database.
+         * Any number of orders can be placed to the same restaurant at the same time.
+         * The order is not counted in the totals of the statistics yet, see addTotals().
          * @param connection
          * @param restaurant
-         * @param dateTime
+         * @param dateTime          stored, and kept in the returned order, with microsecond precision
          * @param shippingRate
          * @param client
          * @param foodRequested
@@ -567,12 +925,13 @@ public abstract class Order {
             final ClientUser client,
             final Map<Food, Integer> foodRequested
         ) {
+            final Timestamp stored = DBHelper.toMicros(dateTime);
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
                     Queries.INSERT_ORDER,
                     restaurant.getRestaurantName(),
-                    dateTime,
+                    stored,
                     shippingRate,
                     client.getUsername()
                 );
@@ -583,33 +942,32 @@ public abstract class Order {
                         "Failed Order insertion, no rows added";
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
-                } else {
-                    try (ResultSet keys = statement.getGeneratedKeys()) {
-                        if (keys.next()) {
-                            final int id = keys.getInt(1);
-
-                            return Result.success(
-                                new WaitingOrder(
-                                    id,
-                                    restaurant,
-                                    dateTime,
-                                    shippingRate,
-                                    client,
-                                    foodRequested
-                                )
-                            );
-                        } else {
-                            final String errorMessage =
-                                "Insertion of Order seams complete but the retrieval of the record ID failed";
-                            LOGGER.log(Level.SEVERE, errorMessage);
-                            throw new IllegalStateException(errorMessage);
-                        }
+                }
+                final int id;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        final String errorMessage =
+                            "Insertion of Order seams complete but the retrieval of the record ID failed";
+                        LOGGER.log(Level.SEVERE, errorMessage);
+                        throw new IllegalStateException(errorMessage);
                     }
+                    id = keys.getInt(1);
                 }
+                STATE_CHANGES.get(State.WAITING).increment();
+                return Result.success(
+                    new WaitingOrder(
+                        id,
+                        restaurant,
+                        stored,
+                        shippingRate,
+                        client,
+                        foodRequested
+                    )
+                );
             } catch (SQLException e) {
                 final String errorMessage = "Failed insertion of the order";
                 LOGGER.log(Level.SEVERE, errorMessage, e);
-                return Result.failure(errorMessage);
+                return Result.failure(errorMessage, e);
             }
         }
 
@@ -633,9 +991,6 @@ public abstract class Order {
         ) {
             final String sql;
             switch (state) {
-                case ACCEPTED:
-                    sql = Queries.SET_ORDER_ACCEPTED;
-                    break;
                 case CANCELLED:
                     sql = Queries.SET_ORDER_CANCELLED;
                     break;
@@ -650,6 +1005,7 @@ public abstract class Order {
             }
             final List<Object> args = new ArrayList<>(Arrays.asList(objects));
             args.add(order.getId());
+            final OrderStateEvent event = OrderStateEvent.begin(order, state);
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
@@ -658,19 +1014,71 @@ public abstract class Order {
                 );
             ) {
                 final int rows = statement.executeUpdate();
+                event.finish(rows >= 1);
                 if (rows < 1) {
                     final String errorMessage =
                         "Failed order update, no rows changed";
                     LOGGER.log(Level.SEVERE, errorMessage);
                     return Result.failure(errorMessage);
                 } else {
+                    STATE_CHANGES.get(state).increment();
                     return Result.success(order);
                 }
             } catch (SQLException e) {
+                event.finish(false);
                 final String errorMessage =
                     "Failed updating order: " + order.getId();
                 LOGGER.log(Level.SEVERE, errorMessage, e);
-                return Result.failure(errorMessage);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Set the given order as delivered, pay its shipping rate to the deliveryman
+         * and count the delivery in the totals of the deliveryman, all or nothing.
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one.
+         * @param connection
+         * @param order
+         * @param deliveryTime
+         * @return the input Order if everything goes right, error otherwise.
+         */
+        static Result<Order> deliver(
+            final Connection connection,
+            final AcceptedOrder order,
+            final Timestamp deliveryTime
+        ) {
+            try {
+                return DBHelper.inTransaction(connection, conn -> {
+                    final Result<Order> res = updateState(conn, order, State.DELIVERED, deliveryTime);
+                    if (!res.isSuccess()) {
+                        // Propagate error
+                        return res;
+                    }
+                    final Result<DeliverymanUser> resPayment = User.DAO.addCredit(
+                        conn,
+                        order.getDeliveryman(),
+                        order.getShippingRate()
+                    );
+                    if (!resPayment.isSuccess()) {
+                        // Propagate error
+                        return Result.failure(resPayment);
+                    }
+                    try (
+                        PreparedStatement statement = DBHelper.prepare(
+                            conn,
+                            Queries.ADD_DELIVERYMAN_DELIVERY,
+                            order.getDeliveryman().getUsername()
+                        );
+                    ) {
+                        statement.executeUpdate();
+                    }
+                    return res;
+                });
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed delivering order: " + order.getId();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
             }
         }
 
@@ -686,6 +1094,33 @@ public abstract class Order {
         static Result<Collection<Order>> listByState(
             final Connection connection,
             final State state
+        ) {
+            final Collection<Order> orders = new HashSet<>();
+            final Result<Integer> res = forEachByState(connection, state, orders::add);
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            return Result.success(orders);
+        }
+
+        /**
+         * Pass every order with the given State to the action, without keeping them in memory.
+         * The orders are read through a forward-only server-side cursor, STREAM_BATCH_SIZE at a time,
+         * and the details of each batch are loaded with a single query: memory grows with the restaurants,
+         * users and foods referenced by the orders, not with the number of orders.
+         * @param connection
+         * @param state
+         * @param action        called for each order, in the order they are read
+         * @return the number of orders passed to the action if no error is encountered, error otherwise
+         * @throws IllegalStateException if an Order exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         */
+        public static Result<Integer> forEachByState(
+            final Connection connection,
+            final State state,
+            final Consumer<? super Order> action
         ) {
             try (
                 PreparedStatement statement = DBHelper.prepare(
@@ -693,24 +1128,290 @@ public abstract class Order {
                     Queries.LIST_ORDERS_BY_STATE,
                     state.toSQLStr()
                 );
+                Hydrator hydrator = new Hydrator(connection);
+            ) {
+                statement.setFetchSize(STREAM_BATCH_SIZE);
+                try (ResultSet result = statement.executeQuery()) {
+                    final List<OrderRow> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+                    int count = 0;
+                    boolean hasNext = result.next();
+                    while (hasNext) {
+                        final Result<OrderRow> resRow = hydrator.readOrder(result);
+                        if (!resRow.isSuccess()) {
+                            // Propagate error
+                            return Result.failure(resRow.getErrorMessage());
+                        }
+                        batch.add(resRow.getValue());
+                        hasNext = result.next();
+                        if (batch.size() == STREAM_BATCH_SIZE || !hasNext) {
+                            final Result<?> res = buildOrders(
+                                hydrator,
+                                connection,
+                                batch,
+                                Queries.listFoodsByOrderIds(batch.size()),
+                                batch.stream().map(OrderRow::id).toArray(),
+                                action
+                            );
+                            if (!res.isSuccess()) {
+                                // Propagate error
+                                return Result.failure(res.getErrorMessage());
+                            }
+                            count += batch.size();
+                            batch.clear();
+                        }
+                    }
+                    return Result.success(count);
+                }
+            } catch (SQLException e) {
+                final String errorMessage = "Failed listing Orders";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+        }
+
+        /**
+         * List the orders accepted by the given deliveryman and not delivered yet.
+         * One query reads the orders of that deliveryman only, one more reads their details.
+         * @param connection
+         * @param deliverymanUsername
+         * @return a Collection<Order> if there are no errors
+         * @throws IllegalStateException if an Order exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         */
+        static Result<Collection<Order>> listAcceptedBy(
+            final Connection connection,
+            final String deliverymanUsername
+        ) {
+            try {
+                return listGraph(connection, Queries.LIST_ACCEPTED_ORDERS_BY_DELIVERYMAN, deliverymanUsername);
+            } catch (SQLException e) {
+                final String errorMessage = "Failed listing Orders of deliveryman: " + deliverymanUsername;
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+        }
+
+        /**
+         * Accept a ready order, only if no other deliveryman accepted it first.
+         * The check and the update are a single conditional UPDATE, so two deliverymen
+         * accepting the same order at the same time cannot both succeed.
+         * @param connection
+         * @param orderId
+         * @param acceptanceTime
+         * @param deliverymanUsername
+         * @return true if the order was accepted, false if it is not ready anymore
+         */
+        static Result<Boolean> claim(
+            final Connection connection,
+            final int orderId,
+            final Timestamp acceptanceTime,
+            final String deliverymanUsername
+        ) {
+            final OrderStateEvent event = OrderStateEvent.begin(orderId, null, State.READY, State.ACCEPTED);
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.SET_ORDER_ACCEPTED,
+                    acceptanceTime,
+                    deliverymanUsername,
+                    orderId
+                );
+            ) {
+                final boolean accepted = statement.executeUpdate() == 1;
+                event.finish(accepted);
+                if (accepted) {
+                    STATE_CHANGES.get(State.ACCEPTED).increment();
+                }
+                return Result.success(accepted);
+            } catch (SQLException e) {
+                event.finish(false);
+                final String errorMessage = "Failed accepting order: " + orderId;
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Accept up to count of the oldest ready orders.
+         * The orders are locked with SELECT ... FOR UPDATE SKIP LOCKED, so deliverymen claiming at the
+         * same time get different orders instead of waiting for each other.
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one.
+         * @param connection
+         * @param count                 the maximum number of orders to accept
+         * @param acceptanceTime
+         * @param deliverymanUsername
+         * @return the accepted orders, empty if there are no ready orders left
+         * @throws IllegalArgumentException if count is not positive
+         */
+        static Result<Collection<Order>> claimReady(
+            final Connection connection,
+            final int count,
+            final Timestamp acceptanceTime,
+            final String deliverymanUsername
+        ) {
+            if (count < 1) {
+                throw new IllegalArgumentException("Invalid number of orders: " + count);
+            }
+            try {
+                return DBHelper.inTransaction(
+                    connection,
+                    conn -> claimReadyLocked(conn, count, acceptanceTime, deliverymanUsername)
+                );
+            } catch (SQLException e) {
+                final String errorMessage = "Failed accepting the next ready orders";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        private static Result<Collection<Order>> claimReadyLocked(
+            final Connection connection,
+            final int count,
+            final Timestamp acceptanceTime,
+            final String deliverymanUsername
+        ) throws SQLException {
+            final List<Object> ids = new ArrayList<>(count);
+            try (
+                PreparedStatement statement = DBHelper.prepare(connection, Queries.LOCK_NEXT_READY_ORDERS, count);
                 ResultSet result = statement.executeQuery();
             ) {
-                final Collection<Order> orders = new HashSet<>();
                 while (result.next()) {
-                    final Result<Order> resOrder = fromOrderResultSet(
+                    ids.add(result.getInt("codice"));
+                }
+            }
+            if (ids.isEmpty()) {
+                return Result.success(List.of());
+            }
+            final List<Object> args = new ArrayList<>(ids.size() + 2);
+            args.add(acceptanceTime);
+            args.add(deliverymanUsername);
+            args.addAll(ids);
+            final List<OrderStateEvent> events = new ArrayList<>(ids.size());
+            for (final Object id : ids) {
+                events.add(OrderStateEvent.begin((Integer) id, null, State.READY, State.ACCEPTED));
+            }
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.setOrdersAccepted(ids.size()),
+                    args.toArray()
+                );
+            ) {
+                // The rows are locked by this transaction, so none of them can have changed state
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                events.forEach(event -> event.finish(false));
+                // Propagate error
+                throw e;
+            }
+            events.forEach(event -> event.finish(true));
+            STATE_CHANGES.get(State.ACCEPTED).add(ids.size());
+            return listGraph(connection, Queries.findOrdersByIds(ids.size()), ids.toArray());
+        }
+
+        /**
+         * Read the orders returned by a query on ORDER_GRAPH_SELECT, then their details with one more query.
+         */
+        private static Result<Collection<Order>> listGraph(
+            final Connection connection,
+            final String sql,
+            final Object... params
+        ) throws SQLException {
+            try (Hydrator hydrator = new Hydrator(connection)) {
+                final List<OrderRow> rows = new ArrayList<>();
+                try (
+                    PreparedStatement statement = DBHelper.prepare(connection, sql, params);
+                    ResultSet result = statement.executeQuery();
+                ) {
+                    while (result.next()) {
+                        final Result<OrderRow> resRow = hydrator.readOrder(result);
+                        if (!resRow.isSuccess()) {
+                            // Propagate error
+                            return Result.failure(resRow.getErrorMessage());
+                        }
+                        rows.add(resRow.getValue());
+                    }
+                }
+                final Collection<Order> orders = new ArrayList<>(rows.size());
+                if (!rows.isEmpty()) {
+                    final Result<?> res = buildOrders(
+                        hydrator,
                         connection,
-                        result
+                        rows,
+                        Queries.listFoodsByOrderIds(rows.size()),
+                        rows.stream().map(OrderRow::id).toArray(),
+                        orders::add
                     );
-                    if (!resOrder.isSuccess()) {
+                    if (!res.isSuccess()) {
                         // Propagate error
-                        return Result.failure(resOrder.getErrorMessage());
-                    } else {
-                        orders.add(resOrder.getValue());
+                        return Result.failure(res.getErrorMessage());
                     }
                 }
                 return Result.success(orders);
+            }
+        }
+
+        /**
+         * List one page of orders with the given State, in ID order (keyset pagination).
+         * One query reads the orders after the given ID, one more reads their details.
+         * @param connection
+         * @param state
+         * @param afterId       the last ID of the previous page, empty for the first page
+         * @param pageSize      the maximum number of orders in the page
+         * @return the page if there are no errors
+         * @throws IllegalStateException if an Order exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         *         or pageSize is not positive
+         */
+        static Result<Page<Order, Integer>> pageByState(
+            final Connection connection,
+            final State state,
+            final Optional<Integer> afterId,
+            final int pageSize
+        ) {
+            Page.checkPageSize(pageSize);
+            try (Hydrator hydrator = new Hydrator(connection)) {
+                final List<OrderRow> rows = new ArrayList<>(pageSize + 1);
+                try (
+                    PreparedStatement statement = DBHelper.prepare(
+                        connection,
+                        Queries.PAGE_ORDERS_BY_STATE,
+                        state.toSQLStr(),
+                        afterId.orElse(0),
+                        pageSize + 1
+                    );
+                    ResultSet result = statement.executeQuery();
+                ) {
+                    while (result.next()) {
+                        final Result<OrderRow> resRow = hydrator.readOrder(result);
+                        if (!resRow.isSuccess()) {
+                            // Propagate error
+                            return Result.failure(resRow.getErrorMessage());
+                        }
+                        rows.add(resRow.getValue());
+                    }
+                }
+                final Page<OrderRow, Integer> page = Page.of(rows, pageSize, OrderRow::id);
+                final Map<Integer, Order> orders = new HashMap<>();
+                if (!page.getItems().isEmpty()) {
+                    final Result<?> res = buildOrders(
+                        hydrator,
+                        connection,
+                        page.getItems(),
+                        Queries.listFoodsByOrderIds(page.getItems().size()),
+                        page.getItems().stream().map(OrderRow::id).toArray(),
+                        order -> orders.put(order.getId(), order)
+                    );
+                    if (!res.isSuccess()) {
+                        // Propagate error
+                        return Result.failure(res.getErrorMessage());
+                    }
+                }
+                return Result.success(page.map(row -> orders.get(row.id())));
             } catch (SQLException e) {
-                final String errorMessage = "Failed listing Orders";
+                final String errorMessage = "Failed listing a page of Orders";
                 LOGGER.log(Level.SEVERE, errorMessage, e);
                 return Result.failure(errorMessage);
             }
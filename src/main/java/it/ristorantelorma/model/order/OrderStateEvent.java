@@ -0,0 +1,71 @@
+package it.ristorantelorma.model.order;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the update of the State of an Order, committed by Order.DAO.
+ */
+@Name("it.ristorantelorma.OrderStateChange")
+@Label("Order State Change")
+@Description("Update of the state of an order")
+@Category({"RistoranteLorMa", "Orders"})
+final class OrderStateEvent extends Event {
+
+    @Label("Order")
+    int orderId;
+
+    @Label("Restaurant")
+    String restaurant;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Changed")
+    @Description("False if the order was not in the expected state anymore, or the update failed")
+    boolean changed;
+
+    /**
+     * Start timing the update of an order.
+     * @param order
+     * @param to    the new state
+     * @return the started event
+     */
+    static OrderStateEvent begin(final Order order, final State to) {
+        return begin(order.getId(), order.getRestaurant().getRestaurantName(), order.getState(), to);
+    }
+
+    /**
+     * Start timing the update of an order.
+     * @param orderId
+     * @param restaurant    the name of the restaurant, null if unknown
+     * @param from          the expected current state
+     * @param to            the new state
+     * @return the started event
+     */
+    static OrderStateEvent begin(final int orderId, final String restaurant, final State from, final State to) {
+        final OrderStateEvent event = new OrderStateEvent();
+        event.orderId = orderId;
+        event.restaurant = restaurant;
+        event.from = from.name();
+        event.to = to.name();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param updated true if the state was changed
+     */
+    void finish(final boolean updated) {
+        if (shouldCommit()) {
+            changed = updated;
+            commit();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package it.ristorantelorma.model.order;
 
 import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.Page;
 import it.ristorantelorma.model.Restaurant;
 import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.user.ClientUser;
@@ -9,6 +10,7 @@ import java.sql.Connection;
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -84,7 +86,7 @@ public class ReadyOrder extends WaitingOrder {
             );
             if (!res.isSuccess()) {
                 // Propagate error
-                return Result.failure(res.getErrorMessage());
+                return Result.failure(res);
             }
             return Result.success(new ReadyOrder(order));
         }
@@ -116,5 +118,34 @@ public class ReadyOrder extends WaitingOrder {
                     .collect(Collectors.toSet())
             );
         }
+
+        /**
+         * List one page of orders ready to be delivered, in ID order.
+         * @param connection
+         * @param afterId       the last ID of the previous page, empty for the first page
+         * @param pageSize      the maximum number of orders in the page
+         * @return the page if there are no errors
+         * @throws IllegalStateException if the Order searched exists but the linked Restaurant name,
+         *         client username, or deliveryman username do not.
+         * @throws IllegalArgumentException if an invalid Status enum is returned from the query
+         *         or pageSize is not positive
+         */
+        public static Result<Page<ReadyOrder, Integer>> page(
+            final Connection connection,
+            final Optional<Integer> afterId,
+            final int pageSize
+        ) {
+            final Result<Page<Order, Integer>> res = Order.DAO.pageByState(
+                connection,
+                State.READY,
+                afterId,
+                pageSize
+            );
+            if (!res.isSuccess()) {
+                // Propagate error
+                return Result.failure(res.getErrorMessage());
+            }
+            return Result.success(res.getValue().map(val -> (ReadyOrder) val));
+        }
     }
 }
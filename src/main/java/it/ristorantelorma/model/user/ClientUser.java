@@ -51,25 +51,6 @@ public final class ClientUser extends User {
         this.credit = credit;
     }
 
-    /**
-     * @param user       the user MUST be an instance of ClientUser
-     * @param credit
-     */
-    private ClientUser(final User user, final BigDecimal credit) {
-        super(
-            user.getName(),
-            user.getSurname(),
-            user.getUsername(),
-            user.getPassword(),
-            user.getPhone(),
-            user.getEmail(),
-            user.getCity(),
-            user.getStreet(),
-            user.getHouseNumber()
-        );
-        this.credit = credit;
-    }
-
     /**
      * @return the client balance
      */
@@ -131,11 +112,7 @@ public final class ClientUser extends User {
                 return Result.failure("The searched user is not a client");
             }
 
-            return Result.success(
-                Optional.of(
-                    new ClientUser(user, ((ClientUser) user).getCredit())
-                )
-            );
+            return Result.success(Optional.of((ClientUser) user));
         }
 
         /**
@@ -159,5 +136,29 @@ public final class ClientUser extends User {
                 return Result.failure(result.getErrorMessage());
             }
         }
+
+        /**
+         * Subtract an amount from the credit of the given ClientUser, only if the credit is enough.
+         * @param connection
+         * @param user
+         * @param amount
+         * @return the ClientUser if the credit was withdrawn, error if it was not enough or on failure
+         */
+        public static Result<ClientUser> withdrawCredit(
+            final Connection connection,
+            final ClientUser user,
+            final BigDecimal amount
+        ) {
+            Objects.requireNonNull(amount);
+            final Result<Boolean> result = User.DAO.withdrawCredit(connection, user, amount);
+            if (!result.isSuccess()) {
+                // Propagate error
+                return Result.failure(result);
+            }
+            if (!result.getValue()) {
+                return Result.failure("Insufficient credit for user: " + user.getUsername());
+            }
+            return Result.success(user);
+        }
     }
 }
@@ -61,25 +61,6 @@ public final class DeliverymanUser extends User {
         this.credit = credit;
     }
 
-    /**
-     * @param user       the user MUST be an instance of DeliverymanUser
-     * @param credit
-     */
-    private DeliverymanUser(final User user, final BigDecimal credit) {
-        super(
-            user.getName(),
-            user.getSurname(),
-            user.getUsername(),
-            user.getPassword(),
-            user.getPhone(),
-            user.getEmail(),
-            user.getCity(),
-            user.getStreet(),
-            user.getHouseNumber()
-        );
-        this.credit = credit;
-    }
-
     /**
      * @return the deliveryman balance
      */
@@ -144,11 +125,7 @@ public final class DeliverymanUser extends User {
                 return Result.failure("The searched user is not a deliveryman");
             }
 
-            return Result.success(
-                Optional.of(
-                    new DeliverymanUser(user, ((DeliverymanUser) user).getCredit())
-                )
-            );
+            return Result.success(Optional.of((DeliverymanUser) user));
         }
 
         /**
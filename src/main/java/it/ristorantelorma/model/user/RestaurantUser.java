@@ -51,25 +51,6 @@ public final class RestaurantUser extends User {
         this.credit = credit;
     }
 
-    /**
-     * @param user       the user MUST be an instance of RestaurantUser
-     * @param credit
-     */
-    private RestaurantUser(final User user, final BigDecimal credit) {
-        super(
-            user.getName(),
-            user.getSurname(),
-            user.getUsername(),
-            user.getPassword(),
-            user.getPhone(),
-            user.getEmail(),
-            user.getCity(),
-            user.getStreet(),
-            user.getHouseNumber()
-        );
-        this.credit = credit;
-    }
-
     /**
      * @return the deliveryman balance
      */
@@ -133,11 +114,7 @@ public final class RestaurantUser extends User {
                 );
             }
 
-            return Result.success(
-                Optional.of(
-                    new RestaurantUser(user, ((RestaurantUser) user).getCredit())
-                )
-            );
+            return Result.success(Optional.of((RestaurantUser) user));
         }
 
         /**
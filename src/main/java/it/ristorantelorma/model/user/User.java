@@ -1,16 +1,25 @@
 package it.ristorantelorma.model.user;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.ristorantelorma.controller.SimpleLogger;
 import it.ristorantelorma.model.DBHelper;
 import it.ristorantelorma.model.Queries;
 import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.UnitOfWork;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -342,6 +351,133 @@ public abstract class User {
             }
         }
 
+        /**
+         * Build a User from the current row of the given ResultSet.
+         * Every column is read as prefix + column name, so that the same row can carry more than one User
+         * (e.g. the columns of a join aliased as "c_username", "c_nome", ...).
+         * If the current UnitOfWork has already loaded the User, that instance is returned.
+         * @param result    a ResultSet positioned on a valid row
+         * @param prefix    prefix of the column labels, empty for a plain "SELECT * FROM utenti"
+         * @return the User if there are no errors
+         * @throws SQLException
+         * @throws IllegalArgumentException if an invalid role enum is returned from the query
+         * @throws IllegalStateException if client or deliveryman have credit = null
+         */
+        public static Result<User> fromUserResultSet(
+            final ResultSet result,
+            final String prefix
+        ) throws SQLException {
+            final String username = result.getString(prefix + "username");
+            final Optional<User> loaded = UnitOfWork.lookup(User.class, username);
+            if (loaded.isPresent()) {
+                return Result.success(loaded.get());
+            }
+            final Result<User> user = buildUser(result, prefix, username);
+            if (user.isSuccess()) {
+                return Result.success(UnitOfWork.register(User.class, username, user.getValue()));
+            }
+            return user;
+        }
+
+        private static Result<User> buildUser(
+            final ResultSet result,
+            final String prefix,
+            final String username
+        ) throws SQLException {
+            final String name = result.getString(prefix + "nome");
+            final String surname = result.getString(prefix + "cognome");
+            final String password = result.getString(prefix + "password");
+            final String phone = result.getString(prefix + "telefono");
+            final String email = result.getString(prefix + "email");
+            final String city = result.getString(prefix + "città");
+            final String street = result.getString(prefix + "via");
+            final String houseNumber = result.getString(prefix + "n_civico");
+            final Optional<BigDecimal> credit = Optional.ofNullable(
+                result.getBigDecimal(prefix + "credito")
+            );
+            final Role role = Role.fromString(
+                result.getString(prefix + "ruolo")
+            );
+            switch (role) {
+                case ADMIN:
+                    return Result.success(
+                        new AdminUser(
+                            name,
+                            surname,
+                            username,
+                            password,
+                            phone,
+                            email,
+                            city,
+                            street,
+                            houseNumber
+                        )
+                    );
+                case CLIENT:
+                    if (credit.isEmpty()) {
+                        throw new IllegalStateException(
+                            "Role cannot be 'client' with empty credit"
+                        );
+                    }
+                    return Result.success(
+                        new ClientUser(
+                            name,
+                            surname,
+                            username,
+                            password,
+                            phone,
+                            email,
+                            city,
+                            street,
+                            houseNumber,
+                            credit.get()
+                        )
+                    );
+                case DELIVERYMAN:
+                    if (credit.isEmpty()) {
+                        throw new IllegalStateException(
+                            "Role cannot be 'deliveryman' with empty credit"
+                        );
+                    }
+                    return Result.success(
+                        new DeliverymanUser(
+                            name,
+                            surname,
+                            username,
+                            password,
+                            phone,
+                            email,
+                            city,
+                            street,
+                            houseNumber,
+                            credit.get()
+                        )
+                    );
+                case RESTAURANT:
+                    if (credit.isEmpty()) {
+                        throw new IllegalStateException(
+                            "Role cannot be 'restaurant' with empty credit"
+                        );
+                    }
+                    return Result.success(
+                        new RestaurantUser(
+                            name,
+                            surname,
+                            username,
+                            password,
+                            phone,
+                            email,
+                            city,
+                            street,
+                            houseNumber,
+                            credit.get()
+                        )
+                    );
+                default:
+                    return Result.failure("Invalid role");
+            }
+        }
+
         /**
          * Find a User by its username.
          * @param connection
@@ -354,6 +490,10 @@ public abstract class User {
             final Connection connection,
             final String username
         ) {
+            final Optional<User> loaded = UnitOfWork.lookup(User.class, username);
+            if (loaded.isPresent()) {
+                return Result.success(loaded);
+            }
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
@@ -363,96 +503,12 @@ public abstract class User {
                 ResultSet result = statement.executeQuery();
             ) {
                 if (result.next()) {
-                    final String name = result.getString("nome");
-                    final String surname = result.getString("cognome");
-                    final String password = result.getString("password");
-                    final String phone = result.getString("telefono");
-                    final String email = result.getString("email");
-                    final String city = result.getString("città");
-                    final String street = result.getString("via");
-                    final String houseNumber = result.getString("n_civico");
-                    final Optional<BigDecimal> credit = Optional.ofNullable(
-                        result.getBigDecimal("credito")
-                    );
-                    final Role role = Role.fromString(
-                        result.getString("ruolo")
-                    );
-                    final User newUser;
-                    switch (role) {
-                        case ADMIN:
-                            newUser = new AdminUser(
-                                name,
-                                surname,
-                                username,
-                                password,
-                                phone,
-                                email,
-                                city,
-                                street,
-                                houseNumber
-                            );
-                            break;
-                        case CLIENT:
-                            if (credit.isEmpty()) {
-                                throw new IllegalStateException(
-                                    "Role cannot be 'client' with empty credit"
-                                );
-                            }
-                            newUser = new ClientUser(
-                                name,
-                                surname,
-                                username,
-                                password,
-                                phone,
-                                email,
-                                city,
-                                street,
-                                houseNumber,
-                                credit.get()
-                            );
-                            break;
-                        case DELIVERYMAN:
-                            if (credit.isEmpty()) {
-                                throw new IllegalStateException(
-                                    "Role cannot be 'deliveryman' with empty credit"
-                                );
-                            }
-                            newUser = new DeliverymanUser(
-                                name,
-                                surname,
-                                username,
-                                password,
-                                phone,
-                                email,
-                                city,
-                                street,
-                                houseNumber,
-                                credit.get()
-                            );
-                            break;
-                        case RESTAURANT:
-                            if (credit.isEmpty()) {
-                                throw new IllegalStateException(
-                                    "Role cannot be 'restaurant' with empty credit"
-                                );
-                            }
-                            newUser = new RestaurantUser(
-                                name,
-                                surname,
-                                username,
-                                password,
-                                phone,
-                                email,
-                                city,
-                                street,
-                                houseNumber,
-                                credit.get()
-                            );
-                            break;
-                        default:
-                            return Result.failure("Invalid role");
+                    final Result<User> resUser = fromUserResultSet(result, "");
+                    if (!resUser.isSuccess()) {
+                        // Propagate error
+                        return Result.failure(resUser.getErrorMessage());
                     }
-                    return Result.success(Optional.of(newUser));
+                    return Result.success(Optional.of(resUser.getValue()));
                 } else {
                     return Result.success(Optional.empty());
                 }
@@ -465,34 +521,121 @@ public abstract class User {
         }
 
         /**
-         * Set the credit for the given User.
+         * Find the Users with the given usernames, with one query every Queries.IN_LIST_CHUNK_SIZE usernames.
+         * Users already loaded by the current UnitOfWork are not queried again.
+         * @param connection
+         * @param usernames
+         * @return map username -> User of the Users found, the usernames not found are left out; error otherwise
+         * @throws IllegalArgumentException if an invalid role enum is returned from the query
+         * @throws IllegalStateException if client or deliveryman have credit = null
+         */
+        @SuppressFBWarnings(
+            value = "SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING",
+            justification = "SQL string built by Queries.findUsers from static strings"
+        )
+        public static Result<Map<String, User>> findAll(
+            final Connection connection,
+            final Collection<String> usernames
+        ) {
+            final Map<String, User> users = new HashMap<>();
+            final Set<String> missing = new LinkedHashSet<>();
+            for (final String username : usernames) {
+                final Optional<User> loaded = UnitOfWork.lookup(User.class, username);
+                if (loaded.isPresent()) {
+                    users.put(username, loaded.get());
+                } else {
+                    missing.add(username);
+                }
+            }
+            try {
+                for (final List<String> chunk : DBHelper.chunks(missing)) {
+                    try (
+                        PreparedStatement statement = DBHelper.prepare(
+                            connection,
+                            Queries.findUsers(chunk.size()),
+                            chunk.toArray()
+                        );
+                        ResultSet result = statement.executeQuery();
+                    ) {
+                        while (result.next()) {
+                            final Result<User> resUser = fromUserResultSet(result, "");
+                            if (!resUser.isSuccess()) {
+                                // Propagate error
+                                return Result.failure(resUser.getErrorMessage());
+                            }
+                            users.put(resUser.getValue().getUsername(), resUser.getValue());
+                        }
+                    }
+                }
+                return Result.success(users);
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed research of " + missing.size() + " users";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage);
+            }
+        }
+
+        /**
+         * Replace the stored password of the given User, unless it was changed since the User was read.
          * @param connection
          * @param user
-         * @param credit
-         * @return Success (empty) if the update succede, error otherwise
+         * @param password      the password MUST be encrypted beforehand
+         * @return true if the password was replaced, false if the User or its password changed, error otherwise
          */
-        static Result<?> updateCredit(
+        public static Result<Boolean> updatePassword(
             final Connection connection,
             final User user,
-            final BigDecimal credit
+            final String password
         ) {
             try (
                 PreparedStatement statement = DBHelper.prepare(
                     connection,
-                    Queries.SET_USER_CREDIT,
-                    credit,
-                    user.getUsername()
+                    Queries.UPDATE_USER_PASSWORD,
+                    password,
+                    user.getUsername(),
+                    user.getPassword()
                 );
             ) {
-                final int rows = statement.executeUpdate();
-                if (rows < 1) {
-                    final String errorMessage =
-                        "Failed user's credit update, no rows changed";
-                    LOGGER.log(Level.SEVERE, errorMessage);
-                    return Result.failure(errorMessage);
-                } else {
+                return Result.success(statement.executeUpdate() == 1);
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed updating user's password, username: "
+                    + user.getUsername();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Set the credit for the given User.
+         * The User is locked while the difference from the current credit is appended to the ledger.
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one.
+         * @param connection
+         * @param user
+         * @param credit
+         * @return Success (empty) if the update succede, error otherwise
+         */
+        static Result<?> updateCredit(
+            final Connection connection,
+            final User user,
+            final BigDecimal credit
+        ) {
+            try {
+                return DBHelper.inTransaction(connection, conn -> {
+                    final Optional<BigDecimal> current = lockCredit(conn, user);
+                    if (current.isEmpty()) {
+                        final String errorMessage =
+                            "Failed user's credit update, user not found";
+                        LOGGER.log(Level.SEVERE, errorMessage);
+                        return Result.failure(errorMessage);
+                    }
+                    final BigDecimal difference = credit.subtract(current.get());
+                    if (difference.signum() != 0) {
+                        insertMovement(conn, user, difference);
+                    }
                     return Result.success(new Object()); // Return dummy value
-                }
+                });
             } catch (SQLException e) {
                 final String errorMessage =
                     "Failed updating user's credit, username: "
@@ -501,5 +644,151 @@ public abstract class User {
                 return Result.failure(errorMessage);
             }
         }
+
+        /**
+         * Add an amount to the credit of the given User, without reading it first, e.g. the payment of an order.
+         * The amount is appended to the ledger, so concurrent payments to the same User never wait for each other.
+         * The in-memory credit is left unchanged, since the enclosing transaction may still be rolled back:
+         * read it again after the commit.
+         * @param <U> the class of the User
+         * @param connection
+         * @param user
+         * @param amount
+         * @return the User if the credit was updated, error otherwise
+         */
+        public static <U extends User> Result<U> addCredit(
+            final Connection connection,
+            final U user,
+            final BigDecimal amount
+        ) {
+            Objects.requireNonNull(amount);
+            try {
+                insertMovement(connection, user, amount);
+                return Result.success(user);
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed adding to user's credit, username: "
+                    + user.getUsername();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Subtract an amount from the credit of the given User, only if the credit is enough.
+         * The User is locked while its credit is checked and the withdrawal is appended to the ledger,
+         * so concurrent withdrawals cannot overdraw; payments to the User wait for the lock too.
+         * Like addCredit, the in-memory credit is left unchanged.
+         * Runs in its own transaction if the connection is in auto-commit mode, otherwise joins the current one:
+         * the ledger is read with a locking read, so the movements committed after it started are counted too.
+         * @param connection
+         * @param user
+         * @param amount
+         * @return true if the credit was withdrawn, false if it was not enough, error otherwise
+         */
+        static Result<Boolean> withdrawCredit(
+            final Connection connection,
+            final User user,
+            final BigDecimal amount
+        ) {
+            try {
+                return DBHelper.inTransaction(connection, conn -> {
+                    final Optional<BigDecimal> current = lockCredit(conn, user);
+                    if (current.isEmpty() || current.get().compareTo(amount) < 0) {
+                        return Result.success(false);
+                    }
+                    insertMovement(conn, user, amount.negate());
+                    return Result.success(true);
+                });
+            } catch (SQLException e) {
+                final String errorMessage =
+                    "Failed withdrawing from user's credit, username: "
+                    + user.getUsername();
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Fold the credit movements into the credit snapshot of every User,
+         * so that reading a credit sums only the movements appended after the last compaction.
+         * Movements are never deleted: the ledger keeps the history of every credit.
+         * @param connection
+         * @param minAge    movements newer than this are left for the next compaction
+         * @return the number of Users whose snapshot was updated if there are no errors
+         */
+        public static Result<Integer> compactCredits(
+            final Connection connection,
+            final Duration minAge
+        ) {
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.COMPACT_CREDIT_MOVEMENTS,
+                    minAge.toSeconds()
+                );
+            ) {
+                return Result.success(statement.executeUpdate());
+            } catch (SQLException e) {
+                final String errorMessage = "Failed compacting users' credit";
+                LOGGER.log(Level.SEVERE, errorMessage, e);
+                return Result.failure(errorMessage, e);
+            }
+        }
+
+        /**
+         * Lock the given User, then read its credit with a locking read of the ledger,
+         * so that the movements committed after the transaction started are counted too.
+         * @return the credit of the User, empty if it does not exist
+         */
+        private static Optional<BigDecimal> lockCredit(
+            final Connection connection,
+            final User user
+        ) throws SQLException {
+            final BigDecimal snapshot;
+            final long lastMovement;
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.LOCK_USER_CREDIT,
+                    user.getUsername()
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                if (!result.next() || result.getBigDecimal("credito") == null) {
+                    return Optional.empty();
+                }
+                snapshot = result.getBigDecimal("credito");
+                lastMovement = result.getLong("ultimo_movimento");
+            }
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.SUM_USER_CREDIT_MOVEMENTS,
+                    user.getUsername(),
+                    lastMovement
+                );
+                ResultSet result = statement.executeQuery();
+            ) {
+                return Optional.of(result.next() ? snapshot.add(result.getBigDecimal("importo")) : snapshot);
+            }
+        }
+
+        private static void insertMovement(
+            final Connection connection,
+            final User user,
+            final BigDecimal amount
+        ) throws SQLException {
+            try (
+                PreparedStatement statement = DBHelper.prepare(
+                    connection,
+                    Queries.INSERT_CREDIT_MOVEMENT,
+                    user.getUsername(),
+                    amount
+                );
+            ) {
+                statement.executeUpdate();
+            }
+        }
     }
 }
@@ -0,0 +1,158 @@
+package it.ristorantelorma.view;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Window;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+import it.ristorantelorma.model.Result;
+
+/**
+ * Waits for a database task running in background without freezing the Event Dispatch Thread.
+ * If the task takes longer than a moment, a modal progress dialog is shown.
+ * A task that only reads can be cancelled from the dialog; a task that writes is never interrupted,
+ * since it may have committed already: its dialog can only be hidden, and its outcome is always reported.
+ * The result is always handled back on the Event Dispatch Thread.
+ * The wait is committed as a BackgroundTaskEvent, when JFR records it.
+ */
+public final class BackgroundTask {
+
+    /**
+     * Tasks faster than this never show the progress dialog, so that it does not flicker.
+     */
+    private static final int DIALOG_DELAY_MS = 250;
+    private static final int PADDING = 10;
+
+    private BackgroundTask() {
+        throw new UnsupportedOperationException(
+            "Utility class and cannot be instantiated"
+        );
+    }
+
+    /**
+     * Wait for a task that only reads, which can be cancelled from the progress dialog.
+     * Must be called on the Event Dispatch Thread.
+     * @param <T> the class of the result value
+     * @param parent    the component the progress dialog is shown over
+     * @param message   what the task is doing, shown in the progress dialog
+     * @param task      the running task, usually from DatabaseConnectionManager.withConnectionAsync
+     * @param onDone    handles the result on the Event Dispatch Thread, never called if the task is cancelled
+     * @return the task, to cancel it when the view is closed
+     * @see #run(Component, String, CompletableFuture, Consumer, Runnable)
+     */
+    public static <T> CompletableFuture<Result<T>> run(
+        final Component parent,
+        final String message,
+        final CompletableFuture<Result<T>> task,
+        final Consumer<Result<T>> onDone
+    ) {
+        return run(parent, message, task, onDone, () -> { });
+    }
+
+    /**
+     * Wait for a task that only reads, which can be cancelled from the progress dialog.
+     * Must be called on the Event Dispatch Thread.
+     * @param <T> the class of the result value
+     * @param parent    the component the progress dialog is shown over
+     * @param message   what the task is doing, shown in the progress dialog
+     * @param task      the running task, usually from DatabaseConnectionManager.withConnectionAsync
+     * @param onDone    handles the result on the Event Dispatch Thread, if the task is not cancelled
+     * @param onCancel  called on the Event Dispatch Thread instead of onDone, if the task is cancelled
+     * @return the task, to cancel it when the view is closed
+     */
+    public static <T> CompletableFuture<Result<T>> run(
+        final Component parent,
+        final String message,
+        final CompletableFuture<Result<T>> task,
+        final Consumer<Result<T>> onDone,
+        final Runnable onCancel
+    ) {
+        final JButton cancelButton = new JButton("Annulla");
+        cancelButton.addActionListener(e -> task.cancel(true));
+        return await(parent, message, task, cancelButton, onDone, onCancel);
+    }
+
+    /**
+     * Wait for a task that writes, which is never cancelled nor interrupted.
+     * The progress dialog can be hidden, but onDone is still called with the real outcome of the task.
+     * Must be called on the Event Dispatch Thread.
+     * @param <T> the class of the result value
+     * @param parent    the component the progress dialog is shown over
+     * @param message   what the task is doing, shown in the progress dialog
+     * @param task      the running task, usually from DatabaseConnectionManager.withConnectionAsync
+     * @param onDone    handles the result on the Event Dispatch Thread, always called
+     * @return the task
+     */
+    public static <T> CompletableFuture<Result<T>> runWrite(
+        final Component parent,
+        final String message,
+        final CompletableFuture<Result<T>> task,
+        final Consumer<Result<T>> onDone
+    ) {
+        final JButton hideButton = new JButton("Nascondi");
+        return await(parent, message, task, hideButton, onDone, () -> { });
+    }
+
+    private static <T> CompletableFuture<Result<T>> await(
+        final Component parent,
+        final String message,
+        final CompletableFuture<Result<T>> task,
+        final JButton button,
+        final Consumer<Result<T>> onDone,
+        final Runnable onCancel
+    ) {
+        final Window owner = parent == null ? null : SwingUtilities.getWindowAncestor(parent);
+        final BackgroundTaskEvent event = BackgroundTaskEvent.begin(owner, message);
+        final JDialog dialog = new JDialog(owner, "Attendere", JDialog.DEFAULT_MODALITY_TYPE);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        final JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        // Hides the dialog in any case; the cancel button also cancels the task, through its own listener
+        button.addActionListener(e -> dialog.dispose());
+        final JPanel panel = new JPanel(new BorderLayout(PADDING, PADDING));
+        panel.setBorder(BorderFactory.createEmptyBorder(PADDING, PADDING, PADDING, PADDING));
+        panel.add(new JLabel(message), BorderLayout.NORTH);
+        panel.add(bar, BorderLayout.CENTER);
+        panel.add(button, BorderLayout.SOUTH);
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+
+        final Timer timer = new Timer(DIALOG_DELAY_MS, e -> {
+            if (!task.isDone()) {
+                dialog.setVisible(true); // Blocks until the task is done or the dialog is hidden, still handling events
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+
+        task.whenComplete((result, e) -> SwingUtilities.invokeLater(() -> {
+            timer.stop();
+            dialog.dispose();
+            if (e instanceof CancellationException) {
+                event.cancelled = true;
+                onCancel.run();
+            } else if (e != null) {
+                final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                onDone.accept(Result.failure("Operazione fallita: " + cause.getMessage(), cause));
+            } else {
+                event.success = result.isSuccess();
+                onDone.accept(result);
+            }
+            event.commit();
+        }));
+        return task;
+    }
+}
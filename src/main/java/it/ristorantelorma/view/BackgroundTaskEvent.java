@@ -0,0 +1,59 @@
+package it.ristorantelorma.view;
+
+import java.awt.Dialog;
+import java.awt.Frame;
+import java.awt.Window;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a BackgroundTask, from its start to the handling of its result,
+ * so that the latency seen by the user can be attributed to the screen that waited for it.
+ */
+@Name("it.ristorantelorma.BackgroundTask")
+@Label("Background Task")
+@Description("Database task waited for by a screen, handling of the result included")
+@Category({"RistoranteLorMa", "View"})
+final class BackgroundTaskEvent extends Event {
+
+    @Label("Screen")
+    @Description("Title of the window that waited for the task")
+    String screen;
+
+    @Label("Message")
+    String message;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Cancelled")
+    boolean cancelled;
+
+    /**
+     * Start timing a task.
+     * @param owner     the window the progress dialog is shown over, null if none
+     * @param message   what the task is doing
+     * @return the started event
+     */
+    static BackgroundTaskEvent begin(final Window owner, final String message) {
+        final BackgroundTaskEvent event = new BackgroundTaskEvent();
+        if (event.isEnabled()) {
+            event.screen = titleOf(owner);
+            event.message = message;
+        }
+        event.begin();
+        return event;
+    }
+
+    private static String titleOf(final Window owner) {
+        if (owner instanceof Frame frame) {
+            return frame.getTitle();
+        } else if (owner instanceof Dialog dialog) {
+            return dialog.getTitle();
+        }
+        return owner == null ? null : owner.getClass().getSimpleName();
+    }
+}
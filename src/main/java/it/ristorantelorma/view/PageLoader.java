@@ -0,0 +1,108 @@
+package it.ristorantelorma.view;
+
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.HierarchyEvent;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+import it.ristorantelorma.model.Page;
+import it.ristorantelorma.model.Result;
+
+/**
+ * Fills a scrollable view one page at a time: the next page is fetched when the
+ * vertical scroll bar gets near the bottom, or when the rows shown do not fill the view yet.
+ * Pages are fetched in background, one at a time, and appended on the Event Dispatch Thread;
+ * a fetch still running when the view is closed is cancelled.
+ * @param <T> the class of the items
+ * @param <K> the class of the key the items are sorted by
+ */
+public final class PageLoader<T, K> {
+
+    /**
+     * Rows left below the visible ones when the next page is fetched.
+     */
+    private static final int PREFETCH_ROWS = 5;
+
+    private final JScrollPane scrollPane;
+    private final Function<Optional<K>, CompletableFuture<Result<Page<T, K>>>> fetcher;
+    private final Consumer<List<T>> onItems;
+    private final Consumer<String> onError;
+    private Optional<K> nextKey = Optional.empty();
+    private boolean hasNext = true;
+    private Optional<CompletableFuture<Result<Page<T, K>>>> loading = Optional.empty();
+
+    /**
+     * @param scrollPane    the scroll pane showing the items
+     * @param fetcher       starts fetching the page after the given key, the first one if empty
+     * @param onItems       appends the items of a page to the view
+     * @param onError       shows the error message of a failed fetch, no more pages are fetched after it
+     */
+    public PageLoader(
+        final JScrollPane scrollPane,
+        final Function<Optional<K>, CompletableFuture<Result<Page<T, K>>>> fetcher,
+        final Consumer<List<T>> onItems,
+        final Consumer<String> onError
+    ) {
+        this.scrollPane = scrollPane;
+        this.fetcher = fetcher;
+        this.onItems = onItems;
+        this.onError = onError;
+    }
+
+    /**
+     * Fetch the first page and start following the scroll bar.
+     * Must be called on the Event Dispatch Thread.
+     */
+    public void start() {
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(this::onScroll);
+        scrollPane.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !scrollPane.isDisplayable()) {
+                loading.ifPresent(task -> task.cancel(true));
+            }
+        });
+        loadNext();
+    }
+
+    private void onScroll(final AdjustmentEvent e) {
+        if (!scrollPane.isShowing()) {
+            // Nothing is laid out yet, the scroll bar will change when it is
+            return;
+        }
+        final JScrollBar bar = scrollPane.getVerticalScrollBar();
+        final int threshold = bar.getUnitIncrement(1) * PREFETCH_ROWS;
+        if (bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - threshold) {
+            loadNext();
+        }
+    }
+
+    private void loadNext() {
+        if (loading.isPresent() || !hasNext) {
+            return;
+        }
+        final CompletableFuture<Result<Page<T, K>>> task = fetcher.apply(nextKey);
+        loading = Optional.of(task);
+        task.whenComplete((result, e) -> SwingUtilities.invokeLater(() -> {
+            loading = Optional.empty();
+            if (task.isCancelled()) {
+                return;
+            }
+            if (e != null || !result.isSuccess()) {
+                hasNext = false;
+                onError.accept(e != null ? e.getMessage() : result.getErrorMessage());
+                return;
+            }
+            final Page<T, K> page = result.getValue();
+            nextKey = page.getNextKey();
+            hasNext = page.hasNext();
+            onItems.accept(page.getItems());
+            // Once the new rows are laid out: they may still not fill the view
+            SwingUtilities.invokeLater(() -> onScroll(null));
+        }));
+    }
+}
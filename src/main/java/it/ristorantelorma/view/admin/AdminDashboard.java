@@ -5,13 +5,11 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
-import java.sql.Connection;
+import java.awt.Font;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.stream.Collectors;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.DefaultListCellRenderer;
@@ -24,15 +22,21 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextArea;
 import javax.swing.ListSelectionModel;
 import javax.swing.table.DefaultTableModel;
+import it.ristorantelorma.controller.StatisticsService;
+import it.ristorantelorma.controller.StatisticsService.Snapshot;
+import it.ristorantelorma.controller.StatisticsService.Statistic;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Food;
 import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.QueryStats;
 import it.ristorantelorma.model.Restaurant;
-import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.Review;
 import it.ristorantelorma.model.user.DeliverymanUser;
+import it.ristorantelorma.view.BackgroundTask;
+import it.ristorantelorma.view.PageLoader;
 
 /**
  * Administration interface.
@@ -40,17 +44,31 @@ import it.ristorantelorma.model.user.DeliverymanUser;
 public final class AdminDashboard {
 
     private static final String ERROR_WINDOW_TITLE = "Errore";
+    private static final String LOADING_MESSAGE = "Caricamento in corso...";
     private static final String MOST_POPULAR_CUISINE_TYPE_LABEL = "Most popular cuisine type";
     private static final String WORST_RESTAURANT_LABEL = "Worst restaurant";
     private static final String TOP_DISH_LABEL = "Top dish";
     private static final String BEST_RESTAURANT_LABEL = "Best restaurant";
     private static final String BEST_DELIVERER_LABEL = "Best deliverer";
+    private static final String REBUILD_STATISTICS_LABEL = "Rebuild statistics";
+    private static final String QUERY_STATISTICS_LABEL = "Query statistics";
     private static final int DASHBOARD_WIDTH = 800;
     private static final int DASHBOARD_HEIGHT = 600;
     private static final int REVIEWS_WIDTH = 600;
     private static final int REVIEWS_HEIGHT = 400;
     private static final int COMBO_WIDTH = 200;
     private static final int COMBO_HEIGHT = 30;
+    private static final int PAGE_SIZE = 50;
+    private static final int QUERY_STATISTICS_ROWS = 20;
+    private static final int QUERY_STATISTICS_COLUMNS = 120;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /**
+     * Shared by every dashboard, so that opening it again reuses the statistics computed less than TTL ago.
+     */
+    private static final StatisticsService STATISTICS = new StatisticsService(
+        DatabaseConnectionManager.getInstance().getDataSource(),
+        StatisticsService.DEFAULT_TTL
+    );
 
     private final JFrame frame;
     private final JComboBox<Restaurant> restaurantComboBox;
@@ -83,22 +101,8 @@ public final class AdminDashboard {
         final int verticalStrutSmall = 10;
         centerPanel.add(Box.createVerticalStrut(verticalStrutSmall));
 
-        // Load restaurants from DB
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<Collection<Restaurant>> resRestaurant = Restaurant.DAO.list(conn);
-        if (!resRestaurant.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella raccolta della lista ristoranti.\n" + resRestaurant.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            restaurantComboBox = null;
-            return;
-        }
-        final Collection<Restaurant> restaurants = resRestaurant.getValue();
-
-        restaurantComboBox = new JComboBox<>(restaurants.toArray(Restaurant[]::new));
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        restaurantComboBox = new JComboBox<>();
         restaurantComboBox.setRenderer(
             new DefaultListCellRenderer() {
                 @Override
@@ -116,137 +120,215 @@ public final class AdminDashboard {
         );
         restaurantComboBox.setMaximumSize(new Dimension(COMBO_WIDTH, COMBO_HEIGHT));
         centerPanel.add(restaurantComboBox);
+
+        // Load restaurants from DB
+        BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            db.withConnectionAsync(conn -> Restaurant.DAO.list(conn)),
+            resRestaurant -> {
+                if (!resRestaurant.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella raccolta della lista ristoranti.\n" + resRestaurant.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                resRestaurant.getValue().forEach(restaurantComboBox::addItem);
+            }
+        );
         centerPanel.add(Box.createVerticalGlue());
 
         frame.add(centerPanel, BorderLayout.CENTER);
 
+        // Start computing the statistics now, so that they are ready when a button is pressed
+        STATISTICS.snapshot();
+
         // Bottom panel with buttons
         final JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         final JButton topDishButton = new JButton(TOP_DISH_LABEL);
-        topDishButton.addActionListener(e -> {
-            final Result<Entry<Food, Integer>> result = Food.DAO.getMostPurchased(conn);
-            if (!result.isSuccess()) {
+        topDishButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            STATISTICS.snapshot().thenApply(Snapshot::topFood),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca della vivanda più acquistata: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                final Food food = result.getValue().value().getKey();
+                final int count = result.getValue().value().getValue();
                 JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella ricerca della vivanda più acquistata: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    "Vivanda più acquistata: " + food.getName()
+                        + "\nRistorante: " + food.getRestaurant().getRestaurantName()
+                        + "\nQuantità totale: " + count
+                        + computedAt(result.getValue()),
+                    TOP_DISH_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
             }
-            final Food food = result.getValue().getKey();
-            final int count = result.getValue().getValue();
-            JOptionPane.showMessageDialog(
-                frame,
-                "Vivanda più acquistata: " + food.getName()
-                    + "\nRistorante: " + food.getRestaurant().getRestaurantName()
-                    + "\nQuantità totale: " + count,
-                TOP_DISH_LABEL,
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        });
+        ));
         bottomPanel.add(topDishButton);
 
         final JButton mostPopularCuisineButton = new JButton(MOST_POPULAR_CUISINE_TYPE_LABEL);
-        mostPopularCuisineButton.addActionListener(e -> {
-            final Result<Entry<FoodType, Integer>> result = FoodType.DAO.getMostPurchased(conn);
-            if (!result.isSuccess()) {
+        mostPopularCuisineButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            STATISTICS.snapshot().thenApply(Snapshot::topFoodType),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca della tipologia di cucina più acquistata: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                final FoodType foodType = result.getValue().value().getKey();
+                final String info = "Tipologia di cucina più acquistata: " + foodType.getName()
+                    + "\nTotale piatti acquistati: " + result.getValue().value().getValue()
+                    + computedAt(result.getValue());
                 JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella ricerca della tipologia di cucina più acquistata: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    info,
+                    MOST_POPULAR_CUISINE_TYPE_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
             }
-            final FoodType foodType = result.getValue().getKey();
-            final String info = "Tipologia di cucina più acquistata: " + foodType.getName()
-                + "\nTotale piatti acquistati: " + result.getValue().getValue();
-            JOptionPane.showMessageDialog(
-                frame,
-                info,
-                MOST_POPULAR_CUISINE_TYPE_LABEL,
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        });
+        ));
         bottomPanel.add(mostPopularCuisineButton);
 
         final JButton worstRestaurantsButton = new JButton(WORST_RESTAURANT_LABEL);
-        worstRestaurantsButton.addActionListener(e -> {
-            final Result<Entry<Restaurant, Float>> result = Restaurant.DAO.getTopByNegativeReviews(conn);
-            if (!result.isSuccess()) {
+        worstRestaurantsButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            STATISTICS.snapshot().thenApply(Snapshot::worstRestaurant),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca del ristorante con le peggiori recensioni: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                final String info = "Ristorante con più recensioni negative:"
+                    + "\nNome: " + result.getValue().value().getKey().getRestaurantName()
+                    + "\nMedia voti: " + result.getValue().value().getValue()
+                    + computedAt(result.getValue());
                 JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella ricerca del ristorante con le peggiori recensioni: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    info,
+                    WORST_RESTAURANT_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
             }
-            final String info = "Ristorante con più recensioni negative:"
-                + "\nNome: " + result.getValue().getKey().getRestaurantName()
-                + "\nMedia voti: " + result.getValue().getValue();
-            JOptionPane.showMessageDialog(
-                frame,
-                info,
-                WORST_RESTAURANT_LABEL,
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        });
+        ));
         bottomPanel.add(worstRestaurantsButton);
 
         // Button Best restaurant
         final JButton bestRestaurantButton = new JButton(BEST_RESTAURANT_LABEL);
-        bestRestaurantButton.addActionListener(e -> {
-            final Result<Entry<Restaurant, Integer>> result = Restaurant.DAO.getTopByOrderCount(conn);
-            if (!result.isSuccess()) {
+        bestRestaurantButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            STATISTICS.snapshot().thenApply(Snapshot::bestRestaurant),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca del ristorante con più ordini: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                final String info = "Ristorante con più ordini:\n"
+                        + "Nome: " + result.getValue().value().getKey().getRestaurantName() + "\n"
+                        + "Numero ordini: " + result.getValue().value().getValue()
+                        + computedAt(result.getValue());
                 JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella ricerca del ristorante con più ordini: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    info,
+                    BEST_RESTAURANT_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
             }
-            final String info = "Ristorante con più ordini:\n"
-                    + "Nome: " + result.getValue().getKey().getRestaurantName() + "\n"
-                    + "Numero ordini: " + result.getValue().getValue();
-            JOptionPane.showMessageDialog(
-                frame,
-                info,
-                BEST_RESTAURANT_LABEL,
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        });
+        ));
         bottomPanel.add(bestRestaurantButton);
 
         // Button Best deliverer
         final JButton bestDelivererButton = new JButton(BEST_DELIVERER_LABEL);
-        bestDelivererButton.addActionListener(e -> {
-            final Result<Entry<DeliverymanUser, Integer>> result = DeliverymanUser.DAO.getTopByDeliveryCount(conn);
-            if (!result.isSuccess()) {
+        bestDelivererButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            STATISTICS.snapshot().thenApply(Snapshot::bestDeliveryman),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca del fattorino con più ordini consegnati: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                final DeliverymanUser deliveryman = result.getValue().value().getKey();
+                final String info = "Miglior fattorino:\n"
+                    + "Username: " + deliveryman.getUsername() + "\n"
+                    + "Nome: " + deliveryman.getName() + "\n"
+                    + "Cognome: " + deliveryman.getSurname() + "\n"
+                    + "Numero ordini consegnati: " + result.getValue().value().getValue()
+                    + computedAt(result.getValue());
                 JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella ricerca del fattorino con più ordini consegnati: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    info,
+                    BEST_DELIVERER_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
             }
-            final DeliverymanUser deliveryman = result.getValue().getKey();
-            final String info = "Miglior fattorino:\n"
-                + "Username: " + deliveryman.getUsername() + "\n"
-                + "Nome: " + deliveryman.getName() + "\n"
-                + "Cognome: " + deliveryman.getSurname() + "\n"
-                + "Numero ordini consegnati: " + result.getValue().getValue();
-            JOptionPane.showMessageDialog(
-                frame,
-                info,
-                BEST_DELIVERER_LABEL,
-                JOptionPane.INFORMATION_MESSAGE
-            );
-        });
+        ));
         bottomPanel.add(bestDelivererButton);
+
+        // Button Rebuild statistics, recomputes the totals from the whole order history
+        final JButton rebuildStatisticsButton = new JButton(REBUILD_STATISTICS_LABEL);
+        rebuildStatisticsButton.addActionListener(e -> BackgroundTask.runWrite(
+            frame,
+            "Ricalcolo delle statistiche in corso...",
+            db.supplyAsync(STATISTICS::rebuildTotals),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nel ricalcolo delle statistiche: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                JOptionPane.showMessageDialog(
+                    frame,
+                    "Statistiche ricalcolate: " + result.getValue() + " totali",
+                    REBUILD_STATISTICS_LABEL,
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            }
+        ));
+        bottomPanel.add(rebuildStatisticsButton);
+
+        // Button Query statistics, shows how much time each query took since the start or the last reset
+        final JButton queryStatisticsButton = new JButton(QUERY_STATISTICS_LABEL);
+        queryStatisticsButton.addActionListener(e -> showQueryStatistics());
+        bottomPanel.add(queryStatisticsButton);
         frame.add(bottomPanel, BorderLayout.SOUTH);
 
         // Listener for the button View Reviews
@@ -258,6 +340,35 @@ public final class AdminDashboard {
         });
     }
 
+    private void showQueryStatistics() {
+        final JTextArea text = new JTextArea(
+            QueryStats.getInstance().dump(),
+            QUERY_STATISTICS_ROWS,
+            QUERY_STATISTICS_COLUMNS
+        );
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, text.getFont().getSize()));
+        text.setEditable(false);
+        final String[] options = {"Chiudi", "Azzera"};
+        final int choice = JOptionPane.showOptionDialog(
+            frame,
+            new JScrollPane(text),
+            QUERY_STATISTICS_LABEL,
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.PLAIN_MESSAGE,
+            null,
+            options,
+            options[0]
+        );
+        if (choice == 1) {
+            QueryStats.getInstance().reset();
+        }
+    }
+
+    private static String computedAt(final Statistic<?> statistic) {
+        return "\nAggiornato alle: "
+            + statistic.computedAt().atZone(ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
     /**
      * Finestra che mostra le recensioni di un ristorante.
      */
@@ -284,7 +395,8 @@ public final class AdminDashboard {
             };
             table = new JTable(tableModel);
             table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-            frame.add(new JScrollPane(table), BorderLayout.CENTER);
+            final JScrollPane scrollPane = new JScrollPane(table);
+            frame.add(scrollPane, BorderLayout.CENTER);
 
             // Button to delete a review
             final JButton deleteButton = new JButton("Elimina recensione");
@@ -293,30 +405,34 @@ public final class AdminDashboard {
             buttonPanel.add(deleteButton);
             frame.add(buttonPanel, BorderLayout.SOUTH);
 
-            // Load reviews from DB
-            final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-            final Result<Collection<Review>> resReviews = Review.DAO.list(conn, restaurant);
-            if (!resReviews.isSuccess()) {
-                JOptionPane.showMessageDialog(
+            // Load reviews from DB one page at a time, as the table is scrolled
+            final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+            reviews = new HashMap<>();
+            new PageLoader<Review, Integer>(
+                scrollPane,
+                after -> db.withConnectionAsync(conn -> Review.DAO.page(conn, restaurant, after, PAGE_SIZE)),
+                page -> {
+                    for (final Review r : page) {
+                        reviews.put(r.getId(), r);
+                        final Object[] row = {
+                            r.getId(),
+                            r.getUser().getUsername(),
+                            r.getDate().toLocalDateTime().format(
+                                DateTimeFormatter.ofPattern("dd/mm/yyyy HH:mm")
+                            ),
+                            r.getVote().getValue(),
+                            r.getComment().orElse("")
+                        };
+                        tableModel.addRow(row);
+                    }
+                },
+                error -> JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nella raccolta della lista ristoranti.\n" + resReviews.getErrorMessage(),
+                    "Errore nella raccolta della lista recensioni.\n" + error,
                     ERROR_WINDOW_TITLE,
                     JOptionPane.ERROR_MESSAGE
-                );
-            }
-            reviews = resReviews.getValue().stream().collect(Collectors.toMap(Review::getId, e -> e));
-            for (final Review r : reviews.values().stream().sorted(Comparator.comparing(Review::getId)).toList()) {
-                final Object[] row = {
-                    r.getId(),
-                    r.getUser().getUsername(),
-                    r.getDate().toLocalDateTime().format(
-                        DateTimeFormatter.ofPattern("dd/mm/yyyy HH:mm")
-                    ),
-                    r.getVote().getValue(),
-                    r.getComment().orElse("")
-                };
-                tableModel.addRow(row);
-            }
+                )
+            ).start();
         }
 
         private void deleteSelectedReview() {
@@ -338,18 +454,24 @@ public final class AdminDashboard {
             if (confirm != JOptionPane.YES_OPTION) {
                 return;
             }
-            final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-            final Result<?> resDel = Review.DAO.delete(conn, reviews.get(id));
-            if (!resDel.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                   "Errore: recensione non trovata."
-                );
-            } else {
-                JOptionPane.showMessageDialog(frame, "Recensione eliminata.");
-                reviews.remove(id);
-                ((DefaultTableModel) table.getModel()).removeRow(selectedRow);
-            }
+            final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+            BackgroundTask.runWrite(
+                frame,
+                "Eliminazione in corso...",
+                db.withConnectionAsync(conn -> Review.DAO.delete(conn, reviews.get(id))),
+                resDel -> {
+                    if (!resDel.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                           "Errore: recensione non trovata."
+                        );
+                    } else {
+                        JOptionPane.showMessageDialog(frame, "Recensione eliminata.");
+                        reviews.remove(id);
+                        ((DefaultTableModel) table.getModel()).removeRow(selectedRow);
+                    }
+                }
+            );
         }
 
         public void setVisible(final boolean v) {
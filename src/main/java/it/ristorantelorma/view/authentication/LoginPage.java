@@ -7,8 +7,8 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.sql.Connection;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -17,10 +17,12 @@ import javax.swing.JPanel;
 import javax.swing.JPasswordField;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import it.ristorantelorma.controller.PasswordHashingService;
 import it.ristorantelorma.controller.PasswordManager;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.user.User;
+import it.ristorantelorma.view.BackgroundTask;
 import it.ristorantelorma.view.FirstPage;
 import it.ristorantelorma.view.admin.AdminDashboard;
 import it.ristorantelorma.view.customer.RestaurantsPage;
@@ -168,9 +170,61 @@ public final class LoginPage {
             return;
         }
 
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<Optional<User>> result = User.DAO.find(conn, username);
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.run(
+            this.mainFrame,
+            "Accesso in corso...",
+            db.withConnectionAsync(conn -> User.DAO.find(conn, username))
+                .thenCompose(found -> authenticate(found, password)),
+            result -> completeLogin(result, username)
+        );
+    }
 
+    /**
+     * Verifica la password dell'utente trovato, sul pool dedicato all'hashing delle password.
+     * @param found     l'utente cercato
+     * @param password
+     * @return l'utente se la password è corretta, vuoto se l'utente non esiste o la password è errata
+     */
+    private static CompletableFuture<Result<Optional<User>>> authenticate(
+        final Result<Optional<User>> found,
+        final String password
+    ) {
+        if (!found.isSuccess() || found.getValue().isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+        final User user = found.getValue().get();
+        return PasswordHashingService.getInstance().verify(password, user.getPassword()).thenApply(verified -> {
+            if (!verified.isSuccess()) {
+                // Propagate error
+                return Result.failure(verified);
+            }
+            if (!verified.getValue()) {
+                return Result.success(Optional.empty());
+            }
+            if (PasswordManager.needsRehash(user.getPassword())) {
+                upgradePassword(user, password);
+            }
+            return Result.success(Optional.of(user));
+        });
+    }
+
+    /**
+     * Salva di nuovo la password con il formato e il costo attuali, senza ritardare l'accesso.
+     * Se la password è cambiata nel frattempo non viene sovrascritta; gli errori sono solo registrati dai DAO.
+     * @param user      l'utente appena autenticato
+     * @param password  la password in chiaro, appena verificata
+     */
+    private static void upgradePassword(final User user, final String password) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        PasswordHashingService.getInstance().encode(password).thenAccept(encoded -> {
+            if (encoded.isSuccess()) {
+                db.withConnectionAsync(conn -> User.DAO.updatePassword(conn, user, encoded.getValue()));
+            }
+        });
+    }
+
+    private void completeLogin(final Result<Optional<User>> result, final String username) {
         if (!result.isSuccess()) {
             JOptionPane.showMessageDialog(
                 this.mainFrame,
@@ -183,30 +237,28 @@ public final class LoginPage {
 
         if (result.getValue().isPresent()) {
             final User user = result.getValue().get();
-            if (PasswordManager.checkPassword(password, user.getPassword())) {
-                this.hide();
-                SwingUtilities.invokeLater(() -> {
-                    switch (user.getRole()) {
-                        case ADMIN -> {
-                            new AdminDashboard().setVisible(true);
-                        }
-                        case DELIVERYMAN -> {
-                            new DeliverymanPage(conn, username).setVisible(true);
-                        }
-                        case RESTAURANT -> {
-                            new RestaurantManagementPage(username).setVisible(true);
-                        }
-                        default -> {
-                            new RestaurantsPage(this, conn, username).setVisible(true);
-                        }
+            this.hide();
+            SwingUtilities.invokeLater(() -> {
+                switch (user.getRole()) {
+                    case ADMIN -> {
+                        new AdminDashboard().setVisible(true);
                     }
-                });
-            } else {
-                JOptionPane.showMessageDialog(this.mainFrame,
-                    "Username o password errati!",
-                    "Errore",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+                    case DELIVERYMAN -> {
+                        new DeliverymanPage(username).setVisible(true);
+                    }
+                    case RESTAURANT -> {
+                        new RestaurantManagementPage(username).setVisible(true);
+                    }
+                    default -> {
+                        new RestaurantsPage(this, username).setVisible(true);
+                    }
+                }
+            });
+        } else {
+            JOptionPane.showMessageDialog(this.mainFrame,
+                "Username o password errati!",
+                "Errore",
+                JOptionPane.ERROR_MESSAGE);
         }
     }
 
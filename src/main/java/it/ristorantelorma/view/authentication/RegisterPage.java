@@ -21,15 +21,15 @@ import java.awt.event.ItemListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.math.BigDecimal;
-import java.sql.Connection;
 import java.util.function.Consumer;
 import javax.swing.JOptionPane;
-import it.ristorantelorma.controller.PasswordManager;
+import it.ristorantelorma.controller.PasswordHashingService;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.user.ClientUser;
 import it.ristorantelorma.model.user.Role;
 import it.ristorantelorma.model.user.User;
+import it.ristorantelorma.view.BackgroundTask;
 import it.ristorantelorma.view.FirstPage;
 import it.ristorantelorma.view.ViewUtils;
 import it.ristorantelorma.view.ViewUtils.Form;
@@ -325,51 +325,54 @@ public class RegisterPage {
         } else {
             role = Role.CLIENT;
         }
-        final String hashedPassword = PasswordManager.newEncodedPassword(password);
-        if (hashedPassword == null) {
-            JOptionPane.showMessageDialog(
-                mainFrame,
-                "Errore durante la cifratura della password",
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<User> resInsert = User.DAO.insert(
-            conn, name, surname, username, hashedPassword, phone,
-            email, city, street, houseNumber, role
-        );
-        if (!resInsert.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                mainFrame,
-                "Registrazione fallita.\n" + resInsert.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-        if (role == Role.CLIENT) {
-            final ClientUser user = (ClientUser) resInsert.getValue();
-            final Result<ClientUser> resCredit = ClientUser.DAO.updateCredit(conn, user, credit);
-            if (!resCredit.isSuccess()) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.runWrite(
+            mainFrame,
+            "Registrazione in corso...",
+            db.supplyAsync(() -> {
+                // Hashed on the dedicated pool, this virtual thread just waits for it
+                final Result<String> resHash = PasswordHashingService.getInstance().encode(password).join();
+                if (!resHash.isSuccess()) {
+                    return Result.failure("Errore durante la cifratura della password");
+                }
+                final String hashedPassword = resHash.getValue();
+                final Result<User> resInsert = db.withConnection(conn -> User.DAO.insert(
+                    conn, name, surname, username, hashedPassword, phone,
+                    email, city, street, houseNumber, role
+                ));
+                if (!resInsert.isSuccess()) {
+                    return Result.failure("Registrazione fallita.\n" + resInsert.getErrorMessage());
+                }
+                if (role == Role.CLIENT) {
+                    final ClientUser user = (ClientUser) resInsert.getValue();
+                    final Result<ClientUser> resCredit = db.withConnection(
+                        conn -> ClientUser.DAO.updateCredit(conn, user, credit)
+                    );
+                    if (!resCredit.isSuccess()) {
+                        return Result.failure("Registrazione fallita.\n" + resCredit.getErrorMessage());
+                    }
+                }
+                return resInsert;
+            }),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        mainFrame,
+                        result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
                 JOptionPane.showMessageDialog(
                     mainFrame,
-                    "Registrazione fallita.\n" + resCredit.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+                    "Registrazione avvenuta con successo!",
+                    "Successo",
+                    JOptionPane.INFORMATION_MESSAGE
                 );
-                return;
+                handleResetButtonClick();
             }
-        }
-        JOptionPane.showMessageDialog(
-            mainFrame,
-            "Registrazione avvenuta con successo!",
-            "Successo",
-            JOptionPane.INFORMATION_MESSAGE
         );
-        handleResetButtonClick();
     }
 
     /**
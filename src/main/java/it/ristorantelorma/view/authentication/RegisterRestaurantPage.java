@@ -14,13 +14,14 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import it.ristorantelorma.controller.PasswordManager;
+import it.ristorantelorma.controller.PasswordHashingService;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Restaurant;
 import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.user.RestaurantUser;
 import it.ristorantelorma.model.user.Role;
 import it.ristorantelorma.model.user.User;
+import it.ristorantelorma.view.BackgroundTask;
 import it.ristorantelorma.view.FirstPage;
 import it.ristorantelorma.view.ViewUtils.Form;
 
@@ -184,99 +185,94 @@ public final class RegisterRestaurantPage {
             return;
         }
 
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<Optional<User>> resUser = User.DAO.find(conn, username);
-        if (!resUser.isSuccess()) {
+        final Timestamp openingTs = parseTime(openingTime);
+        final Timestamp closingTs = parseTime(closingTime);
+        if (openingTs == null || closingTs == null) {
             JOptionPane.showMessageDialog(
                 mainFrame,
-                "Errore nella ricerca del utente.\n" + resUser.getErrorMessage(),
+                "Formato ora non valido. Usa HH:mm.",
                 ERROR_WINDOW_TITLE,
                 JOptionPane.ERROR_MESSAGE
             );
             return;
         }
 
-        final RestaurantUser restaurantUser;
-        if (resUser.getValue().isEmpty()) {
-            // If the user do not exists
-            final String hashedPassword = PasswordManager.newEncodedPassword(password);
-            if (hashedPassword == null) {
-                JOptionPane.showMessageDialog(
-                    mainFrame,
-                    "Errore durante la cifratura della password",
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            final Result<User> resInsert = User.DAO.insert(
-                conn, name, surname, username, hashedPassword, phone,
-                email, city, street, houseNumber, Role.RESTAURANT
-            );
-            if (!resInsert.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    mainFrame,
-                    "Registrazione fallita.\n" + resInsert.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.runWrite(
+            mainFrame,
+            "Registrazione in corso...",
+            db.supplyAsync(() -> {
+                final Result<Optional<User>> resUser = db.withConnection(
+                    conn -> User.DAO.find(conn, username)
                 );
-                return;
-            }
-            restaurantUser = (RestaurantUser) resInsert.getValue();
-        } else {
-            // If the user already exists
-            final User tmpUser = resUser.getValue().get();
-            if (!(tmpUser instanceof RestaurantUser)) {
-                try (PreparedStatement updateStmt = conn.prepareStatement(
-                        "UPDATE utenti SET ruolo = ? WHERE username = ?")) {
-                    updateStmt.setString(1, "ristorante");
-                    updateStmt.setString(2, username);
-                    updateStmt.executeUpdate();
-                } catch (SQLException e) {
+                if (!resUser.isSuccess()) {
+                    return Result.failure("Errore nella ricerca del utente.\n" + resUser.getErrorMessage());
+                }
+
+                final RestaurantUser restaurantUser;
+                if (resUser.getValue().isEmpty()) {
+                    // If the user do not exists
+                    // Hashed on the dedicated pool, this virtual thread just waits for it
+                    final Result<String> resHash = PasswordHashingService.getInstance().encode(password).join();
+                    if (!resHash.isSuccess()) {
+                        return Result.failure("Errore durante la cifratura della password");
+                    }
+                    final String hashedPassword = resHash.getValue();
+                    final Result<User> resInsert = db.withConnection(conn -> User.DAO.insert(
+                        conn, name, surname, username, hashedPassword, phone,
+                        email, city, street, houseNumber, Role.RESTAURANT
+                    ));
+                    if (!resInsert.isSuccess()) {
+                        return Result.failure("Registrazione fallita.\n" + resInsert.getErrorMessage());
+                    }
+                    restaurantUser = (RestaurantUser) resInsert.getValue();
+                } else {
+                    // If the user already exists
+                    final User tmpUser = resUser.getValue().get();
+                    if (!(tmpUser instanceof RestaurantUser)) {
+                        try (
+                            Connection conn = db.getConnection();
+                            PreparedStatement updateStmt = conn.prepareStatement(
+                                "UPDATE utenti SET ruolo = ? WHERE username = ?");
+                        ) {
+                            updateStmt.setString(1, "ristorante");
+                            updateStmt.setString(2, username);
+                            updateStmt.executeUpdate();
+                        } catch (SQLException e) {
+                            return Result.failure("Errore durante la registrazione: " + e.getMessage());
+                        }
+                    }
+                    restaurantUser = (RestaurantUser) tmpUser;
+                }
+
+                final Result<Restaurant> restResult = db.withConnection(conn -> Restaurant.DAO.insert(
+                    conn, restaurantUser, restaurantName, partitaIVA, openingTs, closingTs
+                ));
+                if (!restResult.isSuccess()) {
+                    return Result.failure("Errore inserimento ristorante: " + restResult.getErrorMessage());
+                }
+                return restResult;
+            }),
+            result -> {
+                if (!result.isSuccess()) {
                     JOptionPane.showMessageDialog(
                         mainFrame,
-                        "Errore durante la registrazione: " + e.getMessage(),
+                        result.getErrorMessage(),
                         ERROR_WINDOW_TITLE,
                         JOptionPane.ERROR_MESSAGE
                     );
                     return;
                 }
+                JOptionPane.showMessageDialog(
+                    mainFrame,
+                    "Registrazione ristorante avvenuta con successo!",
+                    "Successo",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+                this.hide();
+                parentPage.show();
             }
-            restaurantUser = (RestaurantUser) tmpUser;
-        }
-
-        final Timestamp openingTs = parseTime(openingTime);
-        final Timestamp closingTs = parseTime(closingTime);
-        if (openingTs == null || closingTs == null) {
-            JOptionPane.showMessageDialog(
-                mainFrame,
-                "Formato ora non valido. Usa HH:mm.",
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-        final Result<Restaurant> restResult = Restaurant.DAO.insert(
-            conn, restaurantUser, restaurantName, partitaIVA, openingTs, closingTs
-        );
-        if (!restResult.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                mainFrame,
-                "Errore inserimento ristorante: " + restResult.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-
-        JOptionPane.showMessageDialog(
-            mainFrame,
-            "Registrazione ristorante avvenuta con successo!",
-            "Successo",
-            JOptionPane.INFORMATION_MESSAGE
         );
-        this.hide();
-        parentPage.show();
     }
 
     private Timestamp parseTime(final String timeStr) {
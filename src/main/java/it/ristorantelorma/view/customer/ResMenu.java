@@ -5,11 +5,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.math.BigDecimal;
-import java.sql.Connection;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,15 +22,13 @@ import javax.swing.JSpinner;
 import javax.swing.JTextArea;
 import javax.swing.SpinnerNumberModel;
 
+import it.ristorantelorma.controller.CheckoutService;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Food;
 import it.ristorantelorma.model.Restaurant;
 import it.ristorantelorma.model.Result;
-import it.ristorantelorma.model.order.Order;
-import it.ristorantelorma.model.order.ReadyOrder;
-import it.ristorantelorma.model.order.WaitingOrder;
 import it.ristorantelorma.model.user.ClientUser;
-import it.ristorantelorma.model.user.RestaurantUser;
+import it.ristorantelorma.view.BackgroundTask;
 
 /**
  * Food selection menu for an order.
@@ -52,6 +45,11 @@ public final class ResMenu {
     private BigDecimal balance;
     private final JFrame frame;
 
+    /**
+     * Everything the menu is built from, loaded in background.
+     */
+    private record MenuData(Restaurant restaurant, List<Food> foods, ClientUser client) { }
+
     /**
      * @param restaurantName
      * @param restaurantsPage
@@ -63,58 +61,72 @@ public final class ResMenu {
         frame.setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
         frame.setLocationRelativeTo(null);
 
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<Optional<Restaurant>> resRestaurant = Restaurant.DAO.find(conn, restaurantName);
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.run(
+            frame,
+            "Caricamento del menù...",
+            db.supplyAsync(() -> load(db, restaurantName, username)),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                buildMenu(result.getValue(), restaurantsPage, username);
+            }
+        );
+    }
+
+    /**
+     * Load the restaurant, its menu and the client.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the loaded data, or the error message to show
+     */
+    private static Result<MenuData> load(
+        final DatabaseConnectionManager db,
+        final String restaurantName,
+        final String username
+    ) {
+        final Result<Optional<Restaurant>> resRestaurant = db.withConnection(
+            conn -> Restaurant.DAO.find(conn, restaurantName)
+        );
         if (!resRestaurant.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella ricerca del ristorante.\n" + resRestaurant.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
+            return Result.failure("Errore nella ricerca del ristorante.\n" + resRestaurant.getErrorMessage());
         } else if (resRestaurant.getValue().isEmpty()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Il ristorante " + restaurantName + " non esiste.",
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
+            return Result.failure("Il ristorante " + restaurantName + " non esiste.");
         }
         final Restaurant restaurant = resRestaurant.getValue().get();
 
-        final Result<Collection<Food>> resFoods = Food.DAO.list(conn, restaurant);
+        final Result<List<Food>> resFoods = db.withConnection(
+            conn -> Food.DAO.menu(conn, restaurant)
+        );
         if (!resFoods.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella raccolta della lista vivande.\n" + resFoods.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
+            return Result.failure("Errore nella raccolta della lista vivande.\n" + resFoods.getErrorMessage());
         }
-        final List<Food> menuData = new ArrayList<>(resFoods.getValue());
 
-        final Result<Optional<ClientUser>> resOptClient = ClientUser.DAO.find(conn, username);
+        final Result<Optional<ClientUser>> resOptClient = db.withConnection(
+            conn -> ClientUser.DAO.find(conn, username)
+        );
         if (!resOptClient.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella ricerca del cliente.\n" + resOptClient.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
+            return Result.failure("Errore nella ricerca del cliente.\n" + resOptClient.getErrorMessage());
         } else if (resOptClient.getValue().isEmpty()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "L'utente " + username + " non esiste.",
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
+            return Result.failure("L'utente " + username + " non esiste.");
         }
-        final ClientUser client = resOptClient.getValue().get();
+        return Result.success(
+            new MenuData(restaurant, resFoods.getValue(), resOptClient.getValue().get())
+        );
+    }
+
+    private void buildMenu(final MenuData data, final RestaurantsPage restaurantsPage, final String username) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        final Restaurant restaurant = data.restaurant();
+        final String restaurantName = restaurant.getRestaurantName();
+        final List<Food> menuData = data.foods();
+        final ClientUser client = data.client();
 
         balance = client.getCredit();
 
@@ -160,8 +172,8 @@ public final class ResMenu {
             frame.dispose();
             restaurantsPage.setVisible(true);
         });
+        final CheckoutService checkoutService = new CheckoutService(db.getDataSource());
         sendOrderButton.addActionListener(e -> {
-            BigDecimal total;
             final Map<Food, Integer> orderedFood = new HashMap<>();
             for (int i = 0; i < quantitySpinners.length; i++) {
                 final int qty = (Integer) quantitySpinners[i].getValue();
@@ -169,85 +181,47 @@ public final class ResMenu {
                     orderedFood.put(menuData.get(i), qty);
                 }
             }
-            total = orderedFood
+            // TODO: properly handle shipping rate
+            final BigDecimal shippingRate = new BigDecimal("2.5");
+            final BigDecimal total = orderedFood
                     .entrySet()
                     .stream()
                     .map(el -> el.getKey().getPrice().multiply(new BigDecimal(el.getValue())))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            final RestaurantUser restaurantUser = restaurant.getUser();
-            final Result<RestaurantUser> resPayRest = RestaurantUser.DAO.updateCredit(
-                conn, restaurantUser, restaurantUser.getCredit().add(total)
-            );
-            if (!resPayRest.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nell'aggiornamento del bilancio del ristorante.\n" + resPayRest.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            // TODO: properly handle shipping rate
-            final BigDecimal shippingRate = new BigDecimal("2.5");
-            total = total.add(shippingRate);
+                    .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .add(shippingRate);
             if (total.compareTo(balance) > 0) {
                 JOptionPane.showMessageDialog(frame, "Saldo insufficiente!");
                 return;
             }
-            final Result<ClientUser> resClient = ClientUser.DAO.updateCredit(conn, client, balance.subtract(total));
-            if (!resClient.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nell'aggiornamento del bilancio del cliente.\n" + resClient.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            balance = balance.subtract(total);
-
-            final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
-            final Result<WaitingOrder> resNewOrder = Order.DAO.insert(
-                conn, restaurant, now, shippingRate, resClient.getValue(), orderedFood
-            );
-            if (!resNewOrder.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nel inserimento dell'ordine.\n" + resNewOrder.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            // TODO: properly implement switch from
-            final Result<ReadyOrder> resOrder = ReadyOrder.DAO.from(conn, resNewOrder.getValue());
-            if (!resOrder.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nel aggiornamento dell'ordine.\n" + resOrder.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            final ReadyOrder order = resOrder.getValue();
-
-            final Result<Map<Food, Integer>> resFoodRequested = Order.DAO.insertFoodRequested(
-                conn, order.getId(), orderedFood
+            // Never place the same order twice, even before the progress dialog shows up
+            sendOrderButton.setEnabled(false);
+            BackgroundTask.runWrite(
+                frame,
+                "Invio dell'ordine...",
+                db.supplyAsync(() -> checkoutService.checkout(
+                    client,
+                    restaurant,
+                    orderedFood,
+                    shippingRate
+                )),
+                resOrder -> {
+                    sendOrderButton.setEnabled(true);
+                    if (!resOrder.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Errore nell'invio dell'ordine.\n" + resOrder.getErrorMessage(),
+                            ERROR_WINDOW_TITLE,
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                        return;
+                    }
+                    balance = balance.subtract(total);
+
+                    JOptionPane.showMessageDialog(frame, "Ordine inviato con successo!");
+                    frame.dispose();
+                    restaurantsPage.setVisible(true);
+                }
             );
-            if (!resFoodRequested.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nel inserimento degli elementi dell'ordine.\n" + resFoodRequested.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-
-            JOptionPane.showMessageDialog(frame, "Ordine inviato con successo!");
-            frame.dispose();
-            restaurantsPage.setVisible(true);
         });
 
         buttonPanel.add(backButton);
@@ -297,6 +271,7 @@ public final class ResMenu {
         mainPanel.add(infoPanel, BorderLayout.EAST);
 
         frame.setContentPane(mainPanel);
+        frame.revalidate();
 
         // Dopo aver creato totalLabel:
         for (final JSpinner spinner : quantitySpinners) {
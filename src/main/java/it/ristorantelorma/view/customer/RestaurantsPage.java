@@ -4,8 +4,6 @@ import java.awt.BorderLayout;
 import java.awt.Font;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.sql.Connection;
-import java.util.Collection;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -14,10 +12,12 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Restaurant;
-import it.ristorantelorma.model.Result;
+import it.ristorantelorma.view.PageLoader;
 import it.ristorantelorma.view.authentication.LoginPage;
 
 /**
@@ -32,20 +32,20 @@ public final class RestaurantsPage {
     private static final int TABLE_ROW_HEIGHT = 28;
     private static final int TABLE_COLUMN_MIN_WIDTH = 60;
     private static final int TABLE_COLUMN_MAX_WIDTH = 70;
+    private static final int PAGE_SIZE = 50;
 
     private final LoginPage loginPage;
     private final JFrame frame;
 
     /**
      * @param loginPage
-     * @param connection
      * @param username
      */
     @SuppressFBWarnings(
         value = "EI_EXPOSE_REP",
         justification = "loginPage can freely be modified by others without issues"
     )
-    public RestaurantsPage(final LoginPage loginPage, final Connection connection, final String username) {
+    public RestaurantsPage(final LoginPage loginPage, final String username) {
         this.loginPage = loginPage;
         frame = new JFrame("RestaurantsPage");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -54,33 +54,10 @@ public final class RestaurantsPage {
 
         final JPanel mainPanel = new JPanel(new BorderLayout());
 
-        // Read restaurant list from database
-        final Collection<Restaurant> restaurants;
-        final Result<Collection<Restaurant>> result = Restaurant.DAO.list(connection);
-        if (result.isSuccess()) {
-            restaurants = result.getValue();
-        } else {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nel caricamento dei ristoranti: " + result.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-
-        // Prepare data for the table
-        final String[][] data = new String[restaurants.size()][3];
-        int i = 0;
-        for (final Restaurant r : restaurants) {
-            data[i][0] = r.getRestaurantName();
-            data[i][1] = r.getOpeningTime().toLocalDateTime().toLocalTime().toString();
-            data[i][2] = r.getClosingTime().toLocalDateTime().toLocalTime().toString();
-            i++;
-        }
         final String[] columns = { "Nome Attività", "Apertura", "Chiusura" };
+        final DefaultTableModel tableModel = new DefaultTableModel(columns, 0);
 
-        final JTable table = new JTable(data, columns);
+        final JTable table = new JTable(tableModel);
         table.setEnabled(true);
         table.setRowSelectionAllowed(true);
         table.setShowGrid(false);
@@ -98,7 +75,7 @@ public final class RestaurantsPage {
             public void mouseClicked(final MouseEvent evt) {
                 final int row = table.rowAtPoint(evt.getPoint());
                 if (row >= 0) {
-                    final String restaurantName = data[row][0];
+                    final String restaurantName = (String) tableModel.getValueAt(row, 0);
                     // Open the menu window for the selected restaurant
                     SwingUtilities.invokeLater(() -> {
                         frame.setVisible(false);
@@ -112,6 +89,29 @@ public final class RestaurantsPage {
         final JScrollPane scrollPane = new JScrollPane(table);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
 
+        // Read the restaurants from database one page at a time, as the table is scrolled
+        new PageLoader<Restaurant, String>(
+            scrollPane,
+            after -> DatabaseConnectionManager.getInstance().withConnectionAsync(
+                conn -> Restaurant.DAO.page(conn, after, PAGE_SIZE)
+            ),
+            page -> {
+                for (final Restaurant r : page) {
+                    tableModel.addRow(new Object[] {
+                        r.getRestaurantName(),
+                        r.getOpeningTime().toLocalDateTime().toLocalTime().toString(),
+                        r.getClosingTime().toLocalDateTime().toLocalTime().toString()
+                    });
+                }
+            },
+            error -> JOptionPane.showMessageDialog(
+                frame,
+                "Errore nel caricamento dei ristoranti: " + error,
+                ERROR_WINDOW_TITLE,
+                JOptionPane.ERROR_MESSAGE
+            )
+        ).start();
+
         final JPanel buttonPanel = new JPanel();
         final JButton logoutButton = new JButton("Logout");
         logoutButton.addActionListener(e -> handleLogout());
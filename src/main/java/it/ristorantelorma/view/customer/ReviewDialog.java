@@ -2,7 +2,6 @@ package it.ristorantelorma.view.customer;
 
 import java.awt.Component;
 import java.awt.FlowLayout;
-import java.sql.Connection;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -26,6 +25,7 @@ import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.Review;
 import it.ristorantelorma.model.Vote;
 import it.ristorantelorma.model.user.ClientUser;
+import it.ristorantelorma.view.BackgroundTask;
 
 /**
  * Review dialog window.
@@ -87,72 +87,78 @@ public final class ReviewDialog {
             final Vote vote = (Vote) voteComboBox.getSelectedItem();
             final String comment = reviewArea.getText();
 
-            final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-            final Result<Optional<ClientUser>> userResult = ClientUser.DAO.find(conn, username);
-            if (!userResult.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    dialog,
-                    "Errore nella ricerca del cliente: " + userResult.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            } else if (userResult.getValue().isEmpty()) {
-                JOptionPane.showMessageDialog(
-                    dialog,
-                    "Il cliente " + username + " non esiste.",
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            final ClientUser user = userResult.getValue().get();
-
-            final Result<Optional<Restaurant>> restaurantResult = Restaurant.DAO.find(conn, restaurantName);
-            if (!restaurantResult.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    dialog,
-                    "Errore nella ricerca del ristorante: " + restaurantResult.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            } else if (restaurantResult.getValue().isEmpty()) {
-                JOptionPane.showMessageDialog(
-                    dialog,
-                    "Il ristorante " + restaurantName + " non esiste.",
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            final Restaurant restaurant = restaurantResult.getValue().get();
-
-            final Result<Review> reviewResult = Review.DAO.insert(
-                conn,
-                restaurant,
-
-                Timestamp.valueOf(LocalDateTime.now()),
-                vote,
-                comment.isEmpty() ? Optional.empty() : Optional.of(comment),
-                user
+            final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+            saveButton.setEnabled(false);
+            BackgroundTask.runWrite(
+                dialog,
+                "Salvataggio della recensione...",
+                db.supplyAsync(() -> save(db, username, restaurantName, vote, comment)),
+                reviewResult -> {
+                    saveButton.setEnabled(true);
+                    if (!reviewResult.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            dialog,
+                            reviewResult.getErrorMessage(),
+                            ERROR_WINDOW_TITLE,
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(dialog, "Recensione salvata!");
+                    dialog.dispose();
+                }
             );
-            if (!reviewResult.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    dialog,
-                    "Errore nel inserimento della recensione: " + reviewResult.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            JOptionPane.showMessageDialog(dialog, "Recensione salvata!");
-            dialog.dispose();
         });
 
         dialog.setContentPane(panel);
     }
 
+    /**
+     * Insert the review of the client for the restaurant.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the inserted review, or the error message to show
+     */
+    private static Result<Review> save(
+        final DatabaseConnectionManager db,
+        final String username,
+        final String restaurantName,
+        final Vote vote,
+        final String comment
+    ) {
+        final Result<Optional<ClientUser>> userResult = db.withConnection(
+            conn -> ClientUser.DAO.find(conn, username)
+        );
+        if (!userResult.isSuccess()) {
+            return Result.failure("Errore nella ricerca del cliente: " + userResult.getErrorMessage());
+        } else if (userResult.getValue().isEmpty()) {
+            return Result.failure("Il cliente " + username + " non esiste.");
+        }
+        final ClientUser user = userResult.getValue().get();
+
+        final Result<Optional<Restaurant>> restaurantResult = db.withConnection(
+            conn -> Restaurant.DAO.find(conn, restaurantName)
+        );
+        if (!restaurantResult.isSuccess()) {
+            return Result.failure("Errore nella ricerca del ristorante: " + restaurantResult.getErrorMessage());
+        } else if (restaurantResult.getValue().isEmpty()) {
+            return Result.failure("Il ristorante " + restaurantName + " non esiste.");
+        }
+        final Restaurant restaurant = restaurantResult.getValue().get();
+
+        final Result<Review> reviewResult = db.withConnection(conn -> Review.DAO.insert(
+            conn,
+            restaurant,
+            Timestamp.valueOf(LocalDateTime.now()),
+            vote,
+            comment.isEmpty() ? Optional.empty() : Optional.of(comment),
+            user
+        ));
+        if (!reviewResult.isSuccess()) {
+            return Result.failure("Errore nel inserimento della recensione: " + reviewResult.getErrorMessage());
+        }
+        return reviewResult;
+    }
+
     /**
      * Shows or hides the Dialog depending on the value of parameter b.
      * @see JDialog#setVisible(boolean)
@@ -6,7 +6,6 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.sql.Connection;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -24,12 +23,16 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
 
+import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Result;
 import it.ristorantelorma.model.order.AcceptedOrder;
 import it.ristorantelorma.model.order.DeliveredOrder;
 import it.ristorantelorma.model.order.ReadyOrder;
 import it.ristorantelorma.model.user.DeliverymanUser;
+import it.ristorantelorma.view.BackgroundTask;
+import it.ristorantelorma.view.PageLoader;
 
 /**
  * Deliveryman-specific page to handle order acceptance and delivery.
@@ -46,16 +49,20 @@ public final class DeliverymanPage {
     private static final String HTML_NEWLINE = "<br>";
     private static final Dimension BUTTON_DIMENSION = new Dimension(160, 30);
     private static final int EMPTY_GAP_HEIGHT = 10;
+    private static final int PAGE_SIZE = 50;
+    private static final String LOADING_MESSAGE = "Caricamento ordini...";
+    private static final int CLAIM_BATCH_SIZE = 3;
 
     private final JButton showOrdersButton;
+    private final JButton acceptNextButton;
     private final JButton viewAcceptedButton;
     private final JFrame frame;
 
     /**
-     * @param conn
      * @param username
      */
-    public DeliverymanPage(final Connection conn, final String username) {
+    public DeliverymanPage(final String username) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
         frame = new JFrame("DeliveryDB");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(MAIN_WINDOW_WIDTH, MAIN_WINDOW_HEIGHT);
@@ -69,43 +76,24 @@ public final class DeliverymanPage {
         centerPanel.setBackground(Color.WHITE);
 
         showOrdersButton = createButton("Show available orders");
+        acceptNextButton = createButton("Accept next " + CLAIM_BATCH_SIZE);
         viewAcceptedButton = createButton("View Accepted");
 
         centerPanel.add(Box.createVerticalStrut(EMPTY_GAP_HEIGHT * 2));
         centerPanel.add(showOrdersButton);
         centerPanel.add(Box.createVerticalStrut(EMPTY_GAP_HEIGHT));
+        centerPanel.add(acceptNextButton);
+        centerPanel.add(Box.createVerticalStrut(EMPTY_GAP_HEIGHT));
         centerPanel.add(viewAcceptedButton);
 
         frame.add(centerPanel, BorderLayout.CENTER);
 
         showOrdersButton.addActionListener(e -> {
-            final Collection<ReadyOrder> readyOrders;
-            final Result<Collection<ReadyOrder>> result = ReadyOrder.DAO.list(conn);
-            if (result.isSuccess()) {
-                readyOrders = result.getValue();
-            } else {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nel recupero degli ordini: " + result.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-
-            final String[][] data = new String[readyOrders.size()][4];
-            int i = 0;
-            final List<ReadyOrder> readyOrdersList = new ArrayList<>(readyOrders);
-            for (final ReadyOrder order : readyOrders) {
-                data[i][0] = String.valueOf(order.getId());
-                data[i][1] = order.getClient().getUsername();
-                data[i][2] = order.getRestaurant().getRestaurantName();
-                data[i][3] = String.valueOf(order.getFoodRequested().size());
-                i++;
-            }
             final String[] columns = { "ID Ordine", "Cliente", "Ristorante", "N. Piatti" };
+            final DefaultTableModel tableModel = new DefaultTableModel(columns, 0);
+            final List<ReadyOrder> readyOrdersList = new ArrayList<>();
 
-            final JTable table = new JTable(data, columns);
+            final JTable table = new JTable(tableModel);
             table.setEnabled(true);
             table.setRowSelectionAllowed(true);
             table.setShowGrid(false);
@@ -143,35 +131,32 @@ public final class DeliverymanPage {
                         );
                         if (choice == JOptionPane.YES_OPTION) {
                             final Timestamp now = new Timestamp(System.currentTimeMillis());
-                            final Optional<DeliverymanUser> optDeliveryman = DeliverymanUser.DAO.find(conn, username).getValue();
-                            if (optDeliveryman.isEmpty()) {
-                                JOptionPane.showMessageDialog(
-                                    frame,
-                                    "Deliveryman non trovato!",
-                                    ERROR_WINDOW_TITLE,
-                                    JOptionPane.ERROR_MESSAGE
-                                );
-                                return;
-                            }
-                            final DeliverymanUser deliveryman = optDeliveryman.get();
-                            final var acceptResult = AcceptedOrder.DAO.from(conn, order, now, deliveryman);
-                            if (acceptResult.isSuccess()) {
-                                JOptionPane.showMessageDialog(
-                                    frame,
-                                    "Ordine accettato!",
-                                    "Conferma",
-                                    JOptionPane.INFORMATION_MESSAGE
-                                );
-                                SwingUtilities.getWindowAncestor(table).dispose(); // Close the orders window
-                                showOrdersButton.doClick(); // Reopen the updated window
-                            } else {
-                                JOptionPane.showMessageDialog(
-                                    frame,
-                                    "Errore nell'accettazione: " + acceptResult.getErrorMessage(),
-                                    ERROR_WINDOW_TITLE,
-                                    JOptionPane.ERROR_MESSAGE
-                                );
-                            }
+                            BackgroundTask.runWrite(
+                                table,
+                                "Accettazione in corso...",
+                                db.supplyAsync(() -> accept(db, order, now, username)),
+                                acceptResult -> {
+                                    if (acceptResult.isSuccess()) {
+                                        JOptionPane.showMessageDialog(
+                                            frame,
+                                            acceptResult.getValue().isPresent()
+                                                ? "Ordine accettato!"
+                                                : "L'ordine è già stato accettato da un altro fattorino.",
+                                            "Conferma",
+                                            JOptionPane.INFORMATION_MESSAGE
+                                        );
+                                        SwingUtilities.getWindowAncestor(table).dispose(); // Close the orders window
+                                        showOrdersButton.doClick(); // Reopen the updated window
+                                    } else {
+                                        JOptionPane.showMessageDialog(
+                                            frame,
+                                            "Errore nell'accettazione: " + acceptResult.getErrorMessage(),
+                                            ERROR_WINDOW_TITLE,
+                                            JOptionPane.ERROR_MESSAGE
+                                        );
+                                    }
+                                }
+                            );
                         }
                     }
                 }
@@ -183,94 +168,237 @@ public final class DeliverymanPage {
 
             final JScrollPane scrollPane = new JScrollPane(table);
             dialog.add(scrollPane);
-            dialog.setVisible(true);
-        });
 
-        viewAcceptedButton.addActionListener(e -> {
-            final Collection<AcceptedOrder> acceptedOrders;
-            final Result<Collection<AcceptedOrder>> result = AcceptedOrder.DAO.list(conn);
-            if (result.isSuccess()) {
-                // Filter the orders based on the deliveryman username
-                acceptedOrders = result
-                    .getValue()
-                    .stream()
-                    .filter(order -> order.getDeliveryman().getUsername().equals(username))
-                    .toList();
-            } else {
-                JOptionPane.showMessageDialog(
+            // Read the orders one page at a time, as the table is scrolled
+            new PageLoader<ReadyOrder, Integer>(
+                scrollPane,
+                after -> db.withConnectionAsync(conn -> ReadyOrder.DAO.page(conn, after, PAGE_SIZE)),
+                page -> {
+                    for (final ReadyOrder order : page) {
+                        readyOrdersList.add(order);
+                        tableModel.addRow(new Object[] {
+                            String.valueOf(order.getId()),
+                            order.getClient().getUsername(),
+                            order.getRestaurant().getRestaurantName(),
+                            String.valueOf(order.getFoodRequested().size())
+                        });
+                    }
+                },
+                error -> JOptionPane.showMessageDialog(
                     frame,
-                    "Errore nel recupero degli ordini accettati: " + result.getErrorMessage(),
+                    "Errore nel recupero degli ordini: " + error,
                     ERROR_WINDOW_TITLE,
                     JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
+                )
+            ).start();
+            dialog.setVisible(true);
+        });
 
-            final String[] columns = { "ID Ordine", "Cliente", "Ristorante", "N. Piatti", "Accettato il" };
-            final String[][] data = new String[acceptedOrders.size()][columns.length];
-            int i = 0;
-            final List<AcceptedOrder> acceptedOrdersList = new ArrayList<>(acceptedOrders);
-            for (final AcceptedOrder order : acceptedOrders) {
-                data[i][0] = String.valueOf(order.getId());
-                data[i][1] = order.getClient().getUsername();
-                data[i][2] = order.getRestaurant().getRestaurantName();
-                data[i][3] = String.valueOf(order.getFoodRequested().size());
-                data[i][4] = order.getAcceptanceTime().toString();
-                i++;
+        acceptNextButton.addActionListener(e -> {
+            final Timestamp now = new Timestamp(System.currentTimeMillis());
+            BackgroundTask.runWrite(
+                frame,
+                "Accettazione in corso...",
+                db.supplyAsync(() -> acceptNext(db, now, username)),
+                result -> {
+                    if (!result.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Errore nell'accettazione: " + result.getErrorMessage(),
+                            ERROR_WINDOW_TITLE,
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                    } else if (result.getValue().isEmpty()) {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Nessun ordine disponibile.",
+                            "Conferma",
+                            JOptionPane.INFORMATION_MESSAGE
+                        );
+                    } else {
+                        showAcceptedOrders(result.getValue());
+                    }
+                }
+            );
+        });
+
+        viewAcceptedButton.addActionListener(e -> BackgroundTask.run(
+            frame,
+            LOADING_MESSAGE,
+            db.supplyAsync(() -> listAccepted(db, username)),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nel recupero degli ordini accettati: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                showAcceptedOrders(result.getValue());
             }
+        ));
+    }
 
-            final JTable table = new JTable(data, columns);
-            table.setEnabled(true);
-            table.setRowSelectionAllowed(true);
-            table.setShowGrid(false);
-            table.setFont(new Font("Dialog", Font.PLAIN, FONT_SIZE));
-            table.setRowHeight(TABLE_ROW_HEIGHT);
+    /**
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the deliveryman with the given username, or the error message to show
+     */
+    private static Result<DeliverymanUser> findDeliveryman(
+        final DatabaseConnectionManager db,
+        final String username
+    ) {
+        final Result<Optional<DeliverymanUser>> resDeliveryman = db.withConnection(
+            conn -> DeliverymanUser.DAO.find(conn, username)
+        );
+        if (!resDeliveryman.isSuccess()) {
+            // Propagate error
+            return Result.failure(resDeliveryman);
+        }
+        if (resDeliveryman.getValue().isEmpty()) {
+            return Result.failure("Deliveryman non trovato!");
+        }
+        return Result.success(resDeliveryman.getValue().get());
+    }
 
-            table.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(final MouseEvent evt) {
-                    final int row = table.rowAtPoint(evt.getPoint());
-                    if (row >= 0) {
-                        final AcceptedOrder order = acceptedOrdersList.get(row);
-                        final var client = order.getClient();
-                        final StringBuilder items = new StringBuilder();
-                        for (final var entry : order.getFoodRequested().entrySet()) {
-                            items.append("- ").append(entry.getKey().getName())
-                                 .append(" x ").append(entry.getValue()).append(HTML_NEWLINE);
-                        }
-                        final String details = "<html><b>Ristorante:</b> "
-                            + order.getRestaurant().getRestaurantName() + HTML_NEWLINE
-                            + "<b>Cliente:</b> " + client.getUsername() + HTML_NEWLINE
-                            + "<b>Città:</b> " + client.getCity() + HTML_NEWLINE
-                            + "<b>Via:</b> " + client.getStreet() + HTML_NEWLINE
-                            + "<b>N. Civico:</b> " + client.getHouseNumber() + HTML_NEWLINE
-                            + "<b>Piatti ordinati:</b>" + HTML_NEWLINE
-                            + items + HTML_NEWLINE
-                            + "<b>Accettato il:</b> " + order.getAcceptanceTime() + HTML_NEWLINE
-                            + "<b>Compenso:</b> €" + order.getShippingRate() + "</html>";
+    /**
+     * Find the deliveryman and list only the orders accepted by them.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     */
+    private static Result<Collection<AcceptedOrder>> listAccepted(
+        final DatabaseConnectionManager db,
+        final String username
+    ) {
+        final Result<DeliverymanUser> resDeliveryman = findDeliveryman(db, username);
+        if (!resDeliveryman.isSuccess()) {
+            // Propagate error
+            return Result.failure(resDeliveryman);
+        }
+        final DeliverymanUser deliveryman = resDeliveryman.getValue();
+        return db.withConnection(conn -> AcceptedOrder.DAO.listByDeliveryman(conn, deliveryman));
+    }
 
-                        final int scelta = JOptionPane.showConfirmDialog(
-                            frame,
-                            details + HTML_NEWLINE + "Segna come consegnato?",
-                            "Consegna Ordine",
-                            JOptionPane.YES_NO_OPTION,
-                            JOptionPane.QUESTION_MESSAGE
-                        );
-                        if (scelta == JOptionPane.YES_OPTION) {
-                            final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
-                            final var deliverResult = DeliveredOrder.DAO.from(conn, order, now);
-                            if (deliverResult.isSuccess()) {
-                                // Accredit the compensation to the deliveryman
-                                final DeliverymanUser deliveryman = order.getDeliveryman();
-                                final Result<DeliverymanUser> resUpdate = DeliverymanUser.DAO.updateCredit(
-                                    conn,
-                                    deliveryman,
-                                    deliveryman.getCredit().add(order.getShippingRate())
-                                );
-                                if (!resUpdate.isSuccess()) {
+    /**
+     * Find the deliveryman and assign the order to them, unless another deliveryman accepted it first.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the accepted order, empty if it was not ready anymore
+     */
+    private static Result<Optional<AcceptedOrder>> accept(
+        final DatabaseConnectionManager db,
+        final ReadyOrder order,
+        final Timestamp now,
+        final String username
+    ) {
+        final Result<DeliverymanUser> resDeliveryman = findDeliveryman(db, username);
+        if (!resDeliveryman.isSuccess()) {
+            // Propagate error
+            return Result.failure(resDeliveryman);
+        }
+        final DeliverymanUser deliveryman = resDeliveryman.getValue();
+        return db.withConnection(conn -> AcceptedOrder.DAO.claim(conn, order, now, deliveryman));
+    }
+
+    /**
+     * Find the deliveryman and assign the oldest ready orders to them.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     */
+    private static Result<Collection<AcceptedOrder>> acceptNext(
+        final DatabaseConnectionManager db,
+        final Timestamp now,
+        final String username
+    ) {
+        final Result<DeliverymanUser> resDeliveryman = findDeliveryman(db, username);
+        if (!resDeliveryman.isSuccess()) {
+            // Propagate error
+            return Result.failure(resDeliveryman);
+        }
+        final DeliverymanUser deliveryman = resDeliveryman.getValue();
+        return db.withConnection(conn -> AcceptedOrder.DAO.claimNext(conn, CLAIM_BATCH_SIZE, now, deliveryman));
+    }
+
+    /**
+     * Mark the order as delivered and accredit the compensation to the deliveryman, in a single transaction.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the delivered order, or the error message to show
+     */
+    private static Result<AcceptedOrder> deliver(
+        final DatabaseConnectionManager db,
+        final AcceptedOrder order,
+        final Timestamp now
+    ) {
+        final Result<AcceptedOrder> deliverResult = db.withConnection(
+            conn -> DeliveredOrder.DAO.from(conn, order, now)
+        );
+        if (!deliverResult.isSuccess()) {
+            return Result.failure("Errore nella consegna: " + deliverResult.getErrorMessage());
+        }
+        return deliverResult;
+    }
+
+    private void showAcceptedOrders(final Collection<AcceptedOrder> acceptedOrders) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        final String[] columns = { "ID Ordine", "Cliente", "Ristorante", "N. Piatti", "Accettato il" };
+        final String[][] data = new String[acceptedOrders.size()][columns.length];
+        int i = 0;
+        final List<AcceptedOrder> acceptedOrdersList = new ArrayList<>(acceptedOrders);
+        for (final AcceptedOrder order : acceptedOrders) {
+            data[i][0] = String.valueOf(order.getId());
+            data[i][1] = order.getClient().getUsername();
+            data[i][2] = order.getRestaurant().getRestaurantName();
+            data[i][3] = String.valueOf(order.getFoodRequested().size());
+            data[i][4] = order.getAcceptanceTime().toString();
+            i++;
+        }
+
+        final JTable table = new JTable(data, columns);
+        table.setEnabled(true);
+        table.setRowSelectionAllowed(true);
+        table.setShowGrid(false);
+        table.setFont(new Font("Dialog", Font.PLAIN, FONT_SIZE));
+        table.setRowHeight(TABLE_ROW_HEIGHT);
+
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(final MouseEvent evt) {
+                final int row = table.rowAtPoint(evt.getPoint());
+                if (row >= 0) {
+                    final AcceptedOrder order = acceptedOrdersList.get(row);
+                    final var client = order.getClient();
+                    final StringBuilder items = new StringBuilder();
+                    for (final var entry : order.getFoodRequested().entrySet()) {
+                        items.append("- ").append(entry.getKey().getName())
+                             .append(" x ").append(entry.getValue()).append(HTML_NEWLINE);
+                    }
+                    final String details = "<html><b>Ristorante:</b> "
+                        + order.getRestaurant().getRestaurantName() + HTML_NEWLINE
+                        + "<b>Cliente:</b> " + client.getUsername() + HTML_NEWLINE
+                        + "<b>Città:</b> " + client.getCity() + HTML_NEWLINE
+                        + "<b>Via:</b> " + client.getStreet() + HTML_NEWLINE
+                        + "<b>N. Civico:</b> " + client.getHouseNumber() + HTML_NEWLINE
+                        + "<b>Piatti ordinati:</b>" + HTML_NEWLINE
+                        + items + HTML_NEWLINE
+                        + "<b>Accettato il:</b> " + order.getAcceptanceTime() + HTML_NEWLINE
+                        + "<b>Compenso:</b> €" + order.getShippingRate() + "</html>";
+
+                    final int scelta = JOptionPane.showConfirmDialog(
+                        frame,
+                        details + HTML_NEWLINE + "Segna come consegnato?",
+                        "Consegna Ordine",
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.QUESTION_MESSAGE
+                    );
+                    if (scelta == JOptionPane.YES_OPTION) {
+                        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                        BackgroundTask.runWrite(
+                            table,
+                            "Consegna in corso...",
+                            db.supplyAsync(() -> deliver(db, order, now)),
+                            deliverResult -> {
+                                if (!deliverResult.isSuccess()) {
                                     JOptionPane.showMessageDialog(
                                         frame,
-                                        "Errore nell'accredito del compenso al fattorino: " + resUpdate.getErrorMessage(),
+                                        deliverResult.getErrorMessage(),
                                         ERROR_WINDOW_TITLE,
                                         JOptionPane.ERROR_MESSAGE
                                     );
@@ -284,27 +412,20 @@ public final class DeliverymanPage {
                                 );
                                 SwingUtilities.getWindowAncestor(table).dispose();
                                 viewAcceptedButton.doClick();
-                            } else {
-                                JOptionPane.showMessageDialog(
-                                    null,
-                                    "Errore nella consegna: " + deliverResult.getErrorMessage(),
-                                    ERROR_WINDOW_TITLE,
-                                    JOptionPane.ERROR_MESSAGE
-                                );
                             }
-                        }
+                        );
                     }
                 }
-            });
+            }
+        });
 
-            final JDialog dialog = new JDialog(frame, "Ordini da consegnare", true);
-            dialog.setSize(DELIVERY_WINDOW_WIDTH, DELIVERY_WINDOW_HEIGHT);
-            dialog.setLocationRelativeTo(frame);
+        final JDialog dialog = new JDialog(frame, "Ordini da consegnare", true);
+        dialog.setSize(DELIVERY_WINDOW_WIDTH, DELIVERY_WINDOW_HEIGHT);
+        dialog.setLocationRelativeTo(frame);
 
-            final JScrollPane scrollPane = new JScrollPane(table);
-            dialog.add(scrollPane);
-            dialog.setVisible(true);
-        });
+        final JScrollPane scrollPane = new JScrollPane(table);
+        dialog.add(scrollPane);
+        dialog.setVisible(true);
     }
 
     private JButton createButton(final String text) {
@@ -5,7 +5,6 @@ import java.awt.Component;
 import java.awt.Font;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Connection;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -33,6 +32,7 @@ import it.ristorantelorma.model.Food;
 import it.ristorantelorma.model.FoodType;
 import it.ristorantelorma.model.Restaurant;
 import it.ristorantelorma.model.Result;
+import it.ristorantelorma.view.BackgroundTask;
 import it.ristorantelorma.view.ViewUtils;
 import it.ristorantelorma.view.ViewUtils.Form;
 
@@ -49,7 +49,11 @@ public final class MenuEditPage {
     private static final int FONT_SIZE = 14;
 
     private final JFrame frame;
-    private final JTable table;
+
+    /**
+     * Everything the menu is built from, loaded in background.
+     */
+    private record MenuData(Collection<FoodType> types, Collection<Food> foods) { }
 
     /**
      * @param restaurant
@@ -65,33 +69,49 @@ public final class MenuEditPage {
         title.setFont(new Font("SansSerif", Font.PLAIN, FONT_SIZE * 3 / 2)); // Around FONT_SIZE * 1.5
         frame.add(title, BorderLayout.NORTH);
 
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.run(
+            frame,
+            "Caricamento del menù...",
+            db.supplyAsync(() -> load(db, restaurant)),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                showMenu(restaurant, result.getValue());
+            }
+        );
+    }
 
-        final Result<Collection<FoodType>> resTypes = FoodType.DAO.list(conn);
+    /**
+     * Load the food types and the menu of the restaurant.
+     * Runs in background, so that it does not block the Event Dispatch Thread.
+     * @return the loaded data, or the error message to show
+     */
+    private static Result<MenuData> load(final DatabaseConnectionManager db, final Restaurant restaurant) {
+        final Result<Collection<FoodType>> resTypes = db.withConnection(conn -> FoodType.DAO.list(conn));
         if (!resTypes.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                null,
-                "Errore nella raccolta della lista tipologie.\n" + resTypes.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            table = new JTable();
-            return;
+            return Result.failure("Errore nella raccolta della lista tipologie.\n" + resTypes.getErrorMessage());
         }
-        final Collection<FoodType> types = resTypes.getValue();
-
-        final Result<Collection<Food>> resFoods = Food.DAO.list(conn, restaurant);
+        final Result<Collection<Food>> resFoods = db.withConnection(
+            conn -> Food.DAO.list(conn, restaurant)
+        );
         if (!resFoods.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella raccolta della lista vivande.\n" + resFoods.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            table = new JTable();
-            return;
+            return Result.failure("Errore nella raccolta della lista vivande.\n" + resFoods.getErrorMessage());
         }
-        final Collection<Food> foods = resFoods.getValue().stream().sorted(Comparator.comparing(Food::getId)).toList();
+        return Result.success(new MenuData(resTypes.getValue(), resFoods.getValue()));
+    }
+
+    private void showMenu(final Restaurant restaurant, final MenuData data) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        final Collection<FoodType> types = data.types();
+        final Collection<Food> foods = data.foods().stream().sorted(Comparator.comparing(Food::getId)).toList();
         final List<Object[]> content = new ArrayList<>();
         for (final Food food : foods) {
             content.add(new Object[]{
@@ -102,7 +122,7 @@ public final class MenuEditPage {
             });
         }
 
-        table = MenuTable.getTable(content, types);
+        final JTable table = MenuTable.getTable(content, types);
         frame.add(new JScrollPane(table), BorderLayout.CENTER);
 
         final JButton addButton = new JButton("Aggiungi");
@@ -153,20 +173,28 @@ public final class MenuEditPage {
                 final String name = nameField.getText();
                 final BigDecimal price = new BigDecimal(priceField.getValue().toString()).setScale(2, RoundingMode.HALF_UP);
                 final FoodType type = (FoodType) typeField.getSelectedItem();
-                final Result<Food> resFood = Food.DAO.insert(conn, name, restaurant, price, type);
-                if (!resFood.isSuccess()) {
-                    JOptionPane.showMessageDialog(
-                        frame,
-                        "Errore nell'inserimento della vivanda.\n" + resFoods.getErrorMessage(),
-                        ERROR_WINDOW_TITLE,
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                    return;
-                }
-                ((MenuTable.TableModel) table.getModel()).addRow(
-                    new Object[]{resFood.getValue().getId(), name, price, type}
+                submit.setEnabled(false);
+                BackgroundTask.runWrite(
+                    dialog,
+                    "Inserimento della vivanda...",
+                    db.withConnectionAsync(conn -> Food.DAO.insert(conn, name, restaurant, price, type)),
+                    resFood -> {
+                        submit.setEnabled(true);
+                        if (!resFood.isSuccess()) {
+                            JOptionPane.showMessageDialog(
+                                frame,
+                                "Errore nell'inserimento della vivanda.\n" + resFood.getErrorMessage(),
+                                ERROR_WINDOW_TITLE,
+                                JOptionPane.ERROR_MESSAGE
+                            );
+                            return;
+                        }
+                        ((MenuTable.TableModel) table.getModel()).addRow(
+                            new Object[]{resFood.getValue().getId(), name, price, type}
+                        );
+                        dialog.dispose();
+                    }
                 );
-                dialog.dispose();
             });
             form.addCenterComponent(submit);
 
@@ -200,6 +228,7 @@ public final class MenuEditPage {
             dialog.setVisible(true);
         });
         frame.add(addButton, BorderLayout.SOUTH);
+        frame.revalidate();
     }
 
     /**
@@ -5,7 +5,6 @@ import java.awt.FlowLayout;
 import java.awt.FontMetrics;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Connection;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,6 +36,7 @@ import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Food;
 import it.ristorantelorma.model.FoodType;
 import it.ristorantelorma.model.Result;
+import it.ristorantelorma.view.BackgroundTask;
 
 /**
  * Contains the menu table stuff.
@@ -311,7 +311,7 @@ final class MenuTable {
         ButtonColumn(final JTable table) {
             panel = new JPanel(new FlowLayout());
 
-            final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
+            final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
 
             updateButton = new JButton(UPDATE);
             updateButton.addActionListener(e -> {
@@ -319,61 +319,97 @@ final class MenuTable {
                 final String name = (String) table.getValueAt(row, 1);
                 final BigDecimal price = (BigDecimal) table.getValueAt(row, 2);
                 final FoodType type = (FoodType) table.getValueAt(row, 3);
-                final Result<Optional<Food>> resFood = Food.DAO.find(conn, id);
-                if (!resFood.isSuccess() || resFood.getValue().isEmpty()) {
-                    LOGGER.log(Level.WARNING, "Failed search of Food with ID: " + id);
-                }
-                final Food food = resFood.getValue().get();
-                final Result<Food> resNewFood = Food.DAO.update(conn, food, name, price, type);
-                if (!resNewFood.isSuccess()) {
-                    JOptionPane.showMessageDialog(
-                        panel,
-                        "Errore nel aggiornamento della vivanda.\n" + resNewFood.getErrorMessage(),
-                        ERROR_WINDOW_TITLE,
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                } else {
-                    JOptionPane.showMessageDialog(
-                        panel,
-                        "Vivanda aggiornata correttamente",
-                        "Successo",
-                        JOptionPane.INFORMATION_MESSAGE
-                    );
-                }
+                BackgroundTask.runWrite(
+                    table,
+                    "Aggiornamento della vivanda...",
+                    db.supplyAsync(() -> {
+                        final Result<Food> resFood = findFood(db, id);
+                        if (!resFood.isSuccess()) {
+                            // Propagate error
+                            return resFood;
+                        }
+                        return db.withConnection(
+                            conn -> Food.DAO.update(conn, resFood.getValue(), name, price, type)
+                        );
+                    }),
+                    resNewFood -> {
+                        if (!resNewFood.isSuccess()) {
+                            JOptionPane.showMessageDialog(
+                                panel,
+                                "Errore nel aggiornamento della vivanda.\n" + resNewFood.getErrorMessage(),
+                                ERROR_WINDOW_TITLE,
+                                JOptionPane.ERROR_MESSAGE
+                            );
+                        } else {
+                            JOptionPane.showMessageDialog(
+                                panel,
+                                "Vivanda aggiornata correttamente",
+                                "Successo",
+                                JOptionPane.INFORMATION_MESSAGE
+                            );
+                        }
+                    }
+                );
             });
             deleteButton = new JButton(DELETE);
             deleteButton.addActionListener(e -> {
                 final int id = (Integer) table.getValueAt(row, 0);
-                final Result<Optional<Food>> resFood = Food.DAO.find(conn, id);
-                if (!resFood.isSuccess() || resFood.getValue().isEmpty()) {
-                    LOGGER.log(Level.WARNING, "Failed search of Food with ID: " + id);
-                }
-                final Food food = resFood.getValue().get();
-                final Result<?> resDelFood = Food.DAO.delete(conn, food);
-                if (!resDelFood.isSuccess()) {
-                    JOptionPane.showMessageDialog(
-                        panel,
-                        "Errore nella rimozione della vivanda.\n" + resDelFood.getErrorMessage(),
-                        ERROR_WINDOW_TITLE,
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                } else {
-                    final int selectedRow = table.getSelectedRow();
-                    if (selectedRow >= 0) {
-                        ((TableModel) table.getModel()).removeRow(selectedRow);
-                        JOptionPane.showMessageDialog(
-                            panel,
-                            "Vivanda rimossa correttamente",
-                            "Successo",
-                            JOptionPane.INFORMATION_MESSAGE
-                        );
+                final int selectedRow = table.getSelectedRow();
+                BackgroundTask.runWrite(
+                    table,
+                    "Rimozione della vivanda...",
+                    db.supplyAsync(() -> {
+                        final Result<Food> resFood = findFood(db, id);
+                        if (!resFood.isSuccess()) {
+                            // Propagate error
+                            return resFood;
+                        }
+                        final Result<?> resDel = db.withConnection(conn -> Food.DAO.delete(conn, resFood.getValue()));
+                        if (!resDel.isSuccess()) {
+                            // Propagate error
+                            return Result.failure(resDel);
+                        }
+                        return resFood;
+                    }),
+                    resDelFood -> {
+                        if (!resDelFood.isSuccess()) {
+                            JOptionPane.showMessageDialog(
+                                panel,
+                                "Errore nella rimozione della vivanda.\n" + resDelFood.getErrorMessage(),
+                                ERROR_WINDOW_TITLE,
+                                JOptionPane.ERROR_MESSAGE
+                            );
+                        } else if (selectedRow >= 0) {
+                            ((TableModel) table.getModel()).removeRow(selectedRow);
+                            JOptionPane.showMessageDialog(
+                                panel,
+                                "Vivanda rimossa correttamente",
+                                "Successo",
+                                JOptionPane.INFORMATION_MESSAGE
+                            );
+                        }
                     }
-                }
+                );
             });
             panel.add(updateButton);
             panel.add(deleteButton);
         }
 
+        /**
+         * Runs in background, so that it does not block the Event Dispatch Thread.
+         * @return the Food with the given ID, error if it does not exist
+         */
+        private static Result<Food> findFood(final DatabaseConnectionManager db, final int id) {
+            final Result<Optional<Food>> resFood = db.withConnection(
+                conn -> Food.DAO.find(conn, id)
+            );
+            if (!resFood.isSuccess() || resFood.getValue().isEmpty()) {
+                LOGGER.log(Level.WARNING, "Failed search of Food with ID: " + id);
+                return Result.failure("Vivanda non trovata: " + id);
+            }
+            return Result.success(resFood.getValue().get());
+        }
+
         @Override
         public Component getTableCellRendererComponent(final JTable table, final Object value,
                 final boolean isSelected, final boolean hasFocus, final int row, final int column) {
@@ -2,12 +2,10 @@ package it.ristorantelorma.view.restaurant;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.sql.Connection;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Optional;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -17,7 +15,7 @@ import javax.swing.JPanel;
 import javax.swing.JTextField;
 import it.ristorantelorma.model.DatabaseConnectionManager;
 import it.ristorantelorma.model.Restaurant;
-import it.ristorantelorma.model.Result;
+import it.ristorantelorma.view.BackgroundTask;
 import it.ristorantelorma.view.ViewUtils.Form;
 
 /**
@@ -62,27 +60,37 @@ public final class RestaurantManagementPage {
         closingTimeField = new JTextField();
         closingTimeField.setPreferredSize(FIELD_DIMENSION);
 
-        final Connection conn = DatabaseConnectionManager.getInstance().getConnection();
-        final Result<Optional<Restaurant>> result = Restaurant.DAO.findByUsername(conn, username);
-        if (!result.isSuccess()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Errore nella ricerca del ristorante: " + result.getErrorMessage(),
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-        if (result.getValue().isEmpty()) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Ristorante appartenente al utente " + username + " non trovato",
-                ERROR_WINDOW_TITLE,
-                JOptionPane.ERROR_MESSAGE
-            );
-            return;
-        }
-        final Restaurant restaurant = result.getValue().get();
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
+        BackgroundTask.run(
+            frame,
+            "Caricamento del ristorante...",
+            db.withConnectionAsync(conn -> Restaurant.DAO.findByUsername(conn, username)),
+            result -> {
+                if (!result.isSuccess()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Errore nella ricerca del ristorante: " + result.getErrorMessage(),
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                if (result.getValue().isEmpty()) {
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Ristorante appartenente al utente " + username + " non trovato",
+                        ERROR_WINDOW_TITLE,
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    return;
+                }
+                showRestaurant(result.getValue().get());
+            }
+        );
+    }
+
+    private void showRestaurant(final Restaurant restaurant) {
+        final DatabaseConnectionManager db = DatabaseConnectionManager.getInstance();
 
         userField.setText(restaurant.getUser().getUsername());
         restaurantNameField.setText(restaurant.getRestaurantName());
@@ -110,21 +118,29 @@ public final class RestaurantManagementPage {
             final Timestamp closingTime = Timestamp.valueOf(
                 LocalDate.now().atTime(LocalTime.parse(closingTimeField.getText()))
             );
-            final Result<Restaurant> resRestaurant = Restaurant.DAO.updateTime(conn, restaurant, openingTime, closingTime);
-            if (!resRestaurant.isSuccess()) {
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Errore nell'aggiornamento del ristorante: " + resRestaurant.getErrorMessage(),
-                    ERROR_WINDOW_TITLE,
-                    JOptionPane.ERROR_MESSAGE
-                );
-                return;
-            }
-            JOptionPane.showMessageDialog(
+            BackgroundTask.runWrite(
                 frame,
-                "Orari ristorante aggiornati con successo",
-                "Successo",
-                JOptionPane.INFORMATION_MESSAGE
+                "Aggiornamento in corso...",
+                db.withConnectionAsync(
+                    conn -> Restaurant.DAO.updateTime(conn, restaurant, openingTime, closingTime)
+                ),
+                resRestaurant -> {
+                    if (!resRestaurant.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Errore nell'aggiornamento del ristorante: " + resRestaurant.getErrorMessage(),
+                            ERROR_WINDOW_TITLE,
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Orari ristorante aggiornati con successo",
+                        "Successo",
+                        JOptionPane.INFORMATION_MESSAGE
+                    );
+                }
             );
         });
         buttonPanel.add(updateButton);
@@ -140,6 +156,7 @@ public final class RestaurantManagementPage {
         form.addCenterComponent(buttonPanel);
 
         frame.add(form, BorderLayout.CENTER);
+        frame.revalidate();
     }
 
     /**
@@ -0,0 +1,164 @@
+package it.ristorantelorma.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import it.ristorantelorma.model.DatabaseConnectionManager;
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.order.ReadyOrder;
+import it.ristorantelorma.model.user.ClientUser;
+import it.ristorantelorma.model.user.RestaurantUser;
+import it.ristorantelorma.model.user.Role;
+import it.ristorantelorma.model.user.User;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Places many orders to the same restaurant at the same time on the real database,
+ * configured with the same environment variables of the application.
+ * Skipped if the database cannot be reached. Everything created is deleted at the end.
+ */
+class CheckoutConcurrencyTest {
+
+    private static final int ORDERS = 200;
+    private static final int CLIENTS = 20;
+    private static final BigDecimal PRICE = new BigDecimal("5.00");
+    private static final BigDecimal SHIPPING = new BigDecimal("2.50");
+    private static final String PREFIX = "ct" + ThreadLocalRandom.current().nextInt(1_000_000) + "_";
+
+    private static DatabaseConnectionManager db;
+    private static Restaurant restaurant;
+    private static Food food;
+    private static final List<ClientUser> CLIENT_USERS = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        try {
+            db = DatabaseConnectionManager.getInstance();
+        } catch (ExceptionInInitializerError | NoClassDefFoundError e) {
+            assumeTrue(false, "Database not available");
+        }
+        final Result<?> res = db.withConnection(conn -> {
+            final RestaurantUser owner = (RestaurantUser) insertUser(conn, PREFIX + "owner", Role.RESTAURANT);
+            restaurant = Restaurant.DAO.insert(
+                conn,
+                owner,
+                PREFIX + "restaurant",
+                String.format("%011d", ThreadLocalRandom.current().nextLong(100_000_000_000L)),
+                Timestamp.valueOf("2025-01-01 00:00:00"),
+                Timestamp.valueOf("2025-01-01 23:59:59")
+            ).getValue();
+            final FoodType type = FoodType.DAO.list(conn).getValue().iterator().next();
+            food = Food.DAO.insert(conn, "Pizza", restaurant, PRICE, type).getValue();
+            for (int i = 0; i < CLIENTS; i++) {
+                final ClientUser client = (ClientUser) insertUser(conn, PREFIX + "client" + i, Role.CLIENT);
+                CLIENT_USERS.add(ClientUser.DAO.updateCredit(conn, client, new BigDecimal("1000.00")).getValue());
+            }
+            return Result.success(restaurant);
+        });
+        assumeTrue(res.isSuccess(), "Cannot create the test data: " + res.getErrorMessage());
+    }
+
+    private static User insertUser(final Connection conn, final String username, final Role role) {
+        return User.DAO.insert(
+            conn, "Test", "Test", username, "salt:hash", "0000000000", username + "@example.com",
+            "Cesena", "Via Roma", "1", role
+        ).getValue();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        if (db == null) {
+            return;
+        }
+        try (Connection conn = db.getConnection()) {
+            update(conn, """
+                DELETE d FROM dettaglio_ordini d JOIN ordini o ON o.codice = d.codice_ordine
+                WHERE o.nome_attività = ?;
+                """, PREFIX + "restaurant");
+            update(conn, "DELETE FROM ordini WHERE nome_attività = ?;", PREFIX + "restaurant");
+            update(conn, "DELETE FROM vivande WHERE nome_attività = ?;", PREFIX + "restaurant");
+            update(conn, "DELETE FROM ristoranti WHERE nome_attività = ?;", PREFIX + "restaurant");
+            update(conn, "DELETE FROM movimenti_credito WHERE username LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM utenti WHERE username LIKE ?;", PREFIX + "%");
+        }
+    }
+
+    private static void update(final Connection conn, final String sql, final String param) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            statement.setString(1, param);
+            statement.executeUpdate();
+        }
+    }
+
+    @Test
+    void testSimultaneousOrdersAreAllAccepted() throws Exception {
+        final CheckoutService service = new CheckoutService(db.getDataSource());
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Result<ReadyOrder>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < ORDERS; i++) {
+                final ClientUser client = CLIENT_USERS.get(i % CLIENTS);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.checkout(client, restaurant, Map.of(food, 1), SHIPPING);
+                }));
+            }
+            start.countDown();
+        }
+
+        final List<String> failures = new ArrayList<>();
+        for (final Future<Result<ReadyOrder>> result : results) {
+            if (!result.get().isSuccess()) {
+                failures.add(result.get().getErrorMessage());
+            }
+        }
+        assertEquals(List.of(), failures);
+        try (
+            Connection conn = db.getConnection();
+            PreparedStatement statement = conn.prepareStatement(
+                "SELECT COUNT(*) FROM ordini WHERE nome_attività = ?;"
+            );
+        ) {
+            statement.setString(1, PREFIX + "restaurant");
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                assertEquals(ORDERS, rs.getInt(1));
+            }
+        }
+        // The counters of the statistics are updated by every order, none is lost
+        try (
+            Connection conn = db.getConnection();
+            PreparedStatement statement = conn.prepareStatement(
+                "SELECT ordini FROM totali_ristoranti WHERE nome_attività = ?;"
+            );
+        ) {
+            statement.setString(1, PREFIX + "restaurant");
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                assertEquals(ORDERS, rs.getInt(1));
+            }
+        }
+        final RestaurantUser owner = db.withConnection(conn -> RestaurantUser.DAO.find(conn, PREFIX + "owner"))
+            .getValue()
+            .get();
+        assertEquals(PRICE.multiply(new BigDecimal(ORDERS)), owner.getCredit());
+    }
+}
@@ -0,0 +1,141 @@
+package it.ristorantelorma.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.FakeDatabase;
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.MacroType;
+import it.ristorantelorma.model.Queries;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.order.ReadyOrder;
+import it.ristorantelorma.model.user.ClientUser;
+import it.ristorantelorma.model.user.RestaurantUser;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CheckoutServiceTest {
+
+    private static final BigDecimal SHIPPING = new BigDecimal("2.5");
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final CheckoutService service = new CheckoutService(db.getDataSource(), 3, Duration.ZERO);
+    private final List<List<Object>> movements = new ArrayList<>();
+    private int creditReads;
+    private BigDecimal credit = new BigDecimal("20");
+
+    private final ClientUser client = new ClientUser(
+        "Luigi", "Verdi", "luigi", "salt:hash", "0000000000", "luigi@example.com",
+        "Cesena", "Via Roma", "1", BigDecimal.ZERO
+    );
+    private final Restaurant restaurant;
+    private final Map<Food, Integer> foods = new HashMap<>();
+
+    CheckoutServiceTest() {
+        db.on(Queries.FIND_USER, params -> List.of(FakeDatabase.userRow("mario", "ristorante")));
+        final RestaurantUser user = RestaurantUser.DAO.find(db.getConnection(), "mario").getValue().get();
+        restaurant = new Restaurant(user, "Da Mario", "01234567890", new Timestamp(0), new Timestamp(0));
+        final FoodType type = new FoodType("Primo", MacroType.DISH);
+        foods.put(new Food(1, "Carbonara", restaurant, new BigDecimal("8.00"), type), 2);
+
+        db.on(Queries.LOCK_USER_CREDIT, params -> {
+            creditReads++;
+            // Rolled back transactions are not undone, so the fake credit never changes
+            return List.of(Map.of("credito", credit, "ultimo_movimento", 0L));
+        });
+        db.on(Queries.SUM_USER_CREDIT_MOVEMENTS, params -> List.of(Map.of("importo", BigDecimal.ZERO)));
+        db.on(Queries.INSERT_CREDIT_MOVEMENT, params -> {
+            movements.add(params);
+            return List.of(Map.of());
+        });
+        db.on(Queries.INSERT_ORDER, params -> List.of(Map.of()));
+        db.on(Queries.ADD_RESTAURANT_ORDER, params -> List.of(Map.of()));
+        db.on(Queries.SET_ORDER_READY, params -> List.of(Map.of()));
+        db.on(Queries.insertOrderDetails(1), params -> List.of(Map.of()));
+        db.on(Queries.addFoodTotals(1), params -> List.of(Map.of()));
+        db.reset();
+    }
+
+    @Test
+    void testCheckoutIsOneTransaction() {
+        final Result<ReadyOrder> order = service.checkout(client, restaurant, foods, SHIPPING);
+        assertTrue(order.isSuccess());
+        assertEquals(
+            List.of(
+                Queries.LOCK_USER_CREDIT,
+                Queries.SUM_USER_CREDIT_MOVEMENTS,
+                Queries.INSERT_CREDIT_MOVEMENT,
+                Queries.INSERT_CREDIT_MOVEMENT,
+                Queries.INSERT_ORDER,
+                Queries.SET_ORDER_READY,
+                Queries.insertOrderDetails(1),
+                Queries.ADD_RESTAURANT_ORDER,
+                Queries.addFoodTotals(1)
+            ),
+            db.getExecuted()
+        );
+        assertEquals(
+            List.of(
+                List.of("luigi", new BigDecimal("-18.50")),
+                List.of("mario", new BigDecimal("16.00"))
+            ),
+            movements
+        );
+        assertEquals(1, db.getCommitCount());
+        assertEquals(0, db.getRollbackCount());
+    }
+
+    @Test
+    void testInsufficientCreditPaysNobody() {
+        credit = BigDecimal.TEN;
+        final Result<ReadyOrder> order = service.checkout(client, restaurant, foods, SHIPPING);
+        assertFalse(order.isSuccess());
+        assertEquals(List.of(Queries.LOCK_USER_CREDIT, Queries.SUM_USER_CREDIT_MOVEMENTS), db.getExecuted());
+        assertTrue(movements.isEmpty());
+        assertEquals(0, db.getCommitCount());
+        assertEquals(1, db.getRollbackCount());
+    }
+
+    @Test
+    void testFailureRollsBackEverything() {
+        db.failNext(Queries.insertOrderDetails(1), new SQLException("Duplicate entry", "23000", 1062));
+        final Result<ReadyOrder> order = service.checkout(client, restaurant, foods, SHIPPING);
+        assertFalse(order.isSuccess());
+        assertEquals(7, db.getQueryCount());
+        // The shared counters were not locked yet
+        assertFalse(db.getExecuted().contains(Queries.ADD_RESTAURANT_ORDER));
+        assertEquals(0, db.getCommitCount());
+        assertEquals(1, db.getRollbackCount());
+    }
+
+    @Test
+    void testDeadlockIsRetried() {
+        db.failNext(Queries.INSERT_CREDIT_MOVEMENT, new SQLTransactionRollbackException("Deadlock found", "40001", 1213));
+        final Result<ReadyOrder> order = service.checkout(client, restaurant, foods, SHIPPING);
+        assertTrue(order.isSuccess());
+        assertEquals(2, creditReads);
+        assertEquals(1, db.getRollbackCount());
+        assertEquals(1, db.getCommitCount());
+    }
+
+    @Test
+    void testDeadlockRetriesAreBounded() {
+        for (int i = 0; i < 3; i++) {
+            db.failNext(Queries.INSERT_ORDER, new SQLTransactionRollbackException("Deadlock found", "40001", 1213));
+        }
+        final Result<ReadyOrder> order = service.checkout(client, restaurant, foods, SHIPPING);
+        assertFalse(order.isSuccess());
+        assertEquals(3, db.getRollbackCount());
+        assertEquals(0, db.getCommitCount());
+    }
+}
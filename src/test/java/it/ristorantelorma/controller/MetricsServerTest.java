@@ -0,0 +1,81 @@
+package it.ristorantelorma.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.ConnectionPool;
+import it.ristorantelorma.model.QueryStats.QueryStat;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.order.State;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTest {
+
+    private static final String BODY = "ristorantelorma_checkouts_total{outcome=\"success\"} 1\n";
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    @Test
+    void testRender() {
+        final Map<State, Long> orders = new EnumMap<>(State.class);
+        orders.put(State.READY, 3L);
+        orders.put(State.DELIVERED, 2L);
+        final Map<State, Long> transitions = new EnumMap<>(State.class);
+        transitions.put(State.WAITING, 4L);
+        final String text = MetricsServer.render(
+            new ConnectionPool.Stats(1, 2, 0, 10, 0, Duration.ofMillis(5), Duration.ofMillis(2), 7, 3),
+            List.of(new QueryStat("FIND_USER", 3, 1, 3, 1500, 400, 900, 900, 900)),
+            Result.success(orders),
+            transitions,
+            new CheckoutService.Stats(5, 1, 2),
+            new PasswordHashingService.Stats(1, Duration.ofMillis(250), 2, Duration.ofMillis(500), Duration.ZERO)
+        );
+        final List<String> lines = text.lines().toList();
+
+        assertTrue(lines.contains("# TYPE ristorantelorma_db_pool_active_connections gauge"));
+        assertTrue(lines.contains("ristorantelorma_db_pool_active_connections 1"));
+        assertTrue(lines.contains("ristorantelorma_db_pool_wait_seconds_total 0.005"));
+        assertTrue(lines.contains("ristorantelorma_query_duration_seconds{query=\"FIND_USER\",quantile=\"0.5\"} 4.0E-4"));
+        assertTrue(lines.contains("ristorantelorma_query_duration_seconds_count{query=\"FIND_USER\"} 3"));
+        assertTrue(lines.contains("ristorantelorma_query_errors_total{query=\"FIND_USER\"} 1"));
+        assertTrue(lines.contains("# TYPE ristorantelorma_orders gauge"));
+        assertTrue(lines.contains("ristorantelorma_orders{state=\"ready\"} 3"));
+        assertTrue(lines.contains("ristorantelorma_order_state_transitions_total{state=\"waiting\"} 4"));
+        assertTrue(lines.contains("ristorantelorma_checkouts_total{outcome=\"failure\"} 1"));
+        assertTrue(lines.contains("ristorantelorma_password_hash_seconds_sum{operation=\"verify\"} 0.5"));
+        // Every family is declared once, before its samples
+        assertEquals(
+            lines.stream().filter(line -> line.startsWith("# TYPE")).count(),
+            lines.stream().filter(line -> line.startsWith("# TYPE")).distinct().count()
+        );
+    }
+
+    @Test
+    void testServe() throws IOException, InterruptedException {
+        try (MetricsServer server = new MetricsServer(0, () -> BODY)) {
+            server.start();
+            final HttpClient client = HttpClient.newHttpClient();
+            final URI uri = URI.create("http://localhost:" + server.getPort() + MetricsServer.PATH);
+
+            final HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(BODY, response.body());
+            assertTrue(response.headers().firstValue("Content-Type").get().startsWith("text/plain; version=0.0.4"));
+
+            final HttpResponse<String> post = client.send(
+                HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(METHOD_NOT_ALLOWED, post.statusCode());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package it.ristorantelorma.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.Result;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PasswordHashingServiceTest {
+
+    private static final String PASSWORD = "P@ssw0rd";
+
+    private final PasswordHashingService service = new PasswordHashingService(2);
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void testEncodeAndVerify() {
+        final Result<String> encoded = service.encode(PASSWORD).join();
+        assertTrue(encoded.isSuccess());
+
+        assertEquals(Result.success(true), service.verify(PASSWORD, encoded.getValue()).join());
+        assertEquals(Result.success(false), service.verify("password", encoded.getValue()).join());
+    }
+
+    @Test
+    void testInvalidHashIsAFailure() {
+        assertFalse(service.verify(PASSWORD, "not a hash").join().isSuccess());
+    }
+
+    @Test
+    void testClosedServiceFails() {
+        service.close();
+        assertFalse(service.encode(PASSWORD).join().isSuccess());
+    }
+}
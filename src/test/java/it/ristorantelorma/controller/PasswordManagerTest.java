@@ -1,6 +1,8 @@
 package it.ristorantelorma.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.nio.charset.Charset;
 import org.junit.jupiter.api.Test;
@@ -9,7 +11,9 @@ class PasswordManagerTest {
 
     private static final String PASSWORD = "P@ssw0rd";
     private static final byte[] SALT = "012345678901234567".getBytes(Charset.defaultCharset());
-    private static final String HASHED_PASSWORD = "MDEyMzQ1Njc4OTAxMjM0NTY3:".concat(
+    private static final String HASHED_PASSWORD =
+            "$pbkdf2-sha256$196608$MDEyMzQ1Njc4OTAxMjM0NTY3$OXErFhgWC0RlHOgXRABCnsP9PE/WHUg53QFbvsI7G8g";
+    private static final String LEGACY_HASHED_PASSWORD = "MDEyMzQ1Njc4OTAxMjM0NTY3:".concat(
             "QAkP4UwIf5g/rOA5m2T1Co56iMSbDsdPlNf3yhkevscb/oMkMFALVivZlkJRJksNgzNCnGk0v8D0Anxzm6dcueJqZQtbGlJ6e7JX");
 
     @Test
@@ -20,6 +24,13 @@ class PasswordManagerTest {
     @Test
     void testCheckPassword() {
         assertTrue(PasswordManager.checkPassword(PASSWORD, HASHED_PASSWORD));
+        assertFalse(PasswordManager.checkPassword("password", HASHED_PASSWORD));
+    }
+
+    @Test
+    void testCheckLegacyPassword() {
+        assertTrue(PasswordManager.checkPassword(PASSWORD, LEGACY_HASHED_PASSWORD));
+        assertFalse(PasswordManager.checkPassword("password", LEGACY_HASHED_PASSWORD));
     }
 
     @Test
@@ -28,4 +39,21 @@ class PasswordManagerTest {
                 PasswordManager.newEncodedPassword(PASSWORD)));
     }
 
+    @Test
+    void testNeedsRehash() {
+        assertFalse(PasswordManager.needsRehash(HASHED_PASSWORD));
+        assertTrue(PasswordManager.needsRehash(LEGACY_HASHED_PASSWORD));
+        assertTrue(PasswordManager.needsRehash(HASHED_PASSWORD.replace("$196608$", "$1000$")));
+        assertTrue(PasswordManager.checkPassword(PASSWORD,
+                "$pbkdf2-sha256$1000$MDEyMzQ1Njc4OTAxMjM0NTY3$Hp6GUZjlvYhoV3b2lEaNSrOuI+jJm+WytnEt9pprQf8"));
+    }
+
+    @Test
+    void testInvalidHashedPassword() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordManager.checkPassword(PASSWORD, "salt"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PasswordManager.checkPassword(PASSWORD, HASHED_PASSWORD.replace("pbkdf2-sha256", "md5")));
+        assertThrows(IllegalArgumentException.class,
+                () -> PasswordManager.checkPassword(PASSWORD, HASHED_PASSWORD.replace("$196608$", "$many$")));
+    }
 }
@@ -0,0 +1,122 @@
+package it.ristorantelorma.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.controller.StatisticsService.Snapshot;
+import it.ristorantelorma.model.FakeDatabase;
+import it.ristorantelorma.model.Queries;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class StatisticsServiceTest {
+
+    private static final int STATISTICS = 5;
+    private static final int DELIVERIES = 42;
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final List<String> AGGREGATES = List.of(
+        Queries.FIND_FOOD_MOST_PURCHASED,
+        Queries.FIND_FOOD_TYPE_MOST_PURCHASED,
+        Queries.FIND_RESTAURANT_MOST_NEGATIVE_REVIEWS,
+        Queries.FIND_RESTAURANT_MOST_ORDERS,
+        Queries.FIND_DELIVERYMAN_WITH_MORE_DELIVERIES
+    );
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final TestClock clock = new TestClock();
+    private final StatisticsService service = new StatisticsService(db.getDataSource(), TTL, clock);
+    /**
+     * The aggregates expected to run wait here for each other: if they ran one after another, they would time out.
+     */
+    private volatile CyclicBarrier together = new CyclicBarrier(STATISTICS);
+    private volatile boolean deliverymanFound = true;
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static final class TestClock extends Clock {
+        private volatile Instant now = Instant.EPOCH;
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    StatisticsServiceTest() {
+        // Only the deliveryman can be found, the other aggregates find no rows
+        final Map<String, Object> deliveryman = FakeDatabase.userRow("fabio", "fattorino");
+        deliveryman.put("numero_ordini", DELIVERIES);
+        for (final String query : AGGREGATES) {
+            db.on(query, params -> {
+                try {
+                    together.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException("The aggregates did not run at the same time", e);
+                }
+                return query.equals(Queries.FIND_DELIVERYMAN_WITH_MORE_DELIVERIES) && deliverymanFound
+                    ? List.of(deliveryman)
+                    : List.of();
+            });
+        }
+    }
+
+    @Test
+    void testAggregatesRunConcurrently() {
+        final Snapshot snapshot = service.snapshot().join();
+
+        assertEquals(STATISTICS, db.getQueryCount());
+        assertTrue(snapshot.bestDeliveryman().isSuccess());
+        assertEquals("fabio", snapshot.bestDeliveryman().getValue().value().getKey().getUsername());
+        assertEquals(DELIVERIES, snapshot.bestDeliveryman().getValue().value().getValue());
+        assertEquals(Instant.EPOCH, snapshot.bestDeliveryman().getValue().computedAt());
+        assertFalse(snapshot.topFood().isSuccess());
+    }
+
+    @Test
+    void testStatisticsAreCachedUntilTheyExpire() {
+        final Snapshot first = service.snapshot().join();
+        db.reset();
+        deliverymanFound = false;
+        together = new CyclicBarrier(STATISTICS - 1);
+        clock.advance(TTL);
+
+        // The failed aggregates are computed again, the deliveryman is still fresh
+        final Snapshot second = service.snapshot().join();
+        assertEquals(STATISTICS - 1, db.getQueryCount());
+        assertFalse(db.getExecuted().contains(Queries.FIND_DELIVERYMAN_WITH_MORE_DELIVERIES));
+        assertEquals(first.bestDeliveryman(), second.bestDeliveryman());
+
+        db.reset();
+        together = new CyclicBarrier(STATISTICS);
+        clock.advance(Duration.ofSeconds(1));
+        final Snapshot third = service.snapshot().join();
+        assertEquals(STATISTICS, db.getQueryCount());
+        assertFalse(third.bestDeliveryman().isSuccess());
+    }
+}
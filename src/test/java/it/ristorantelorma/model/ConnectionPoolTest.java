@@ -0,0 +1,250 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+
+    private static final Duration SHORT = Duration.ofMillis(50);
+    private static final Duration LONG = Duration.ofHours(1);
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final List<AtomicBoolean> opened = new ArrayList<>();
+    private final List<List<Object>> prepared = new ArrayList<>();
+    private ConnectionPool pool;
+
+    /**
+     * Open a fake connection that stays valid until its flag is cleared.
+     */
+    private Connection open() {
+        final Connection fake = db.getConnection();
+        final AtomicBoolean valid = new AtomicBoolean(true);
+        opened.add(valid);
+        return (Connection) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if ("isValid".equals(method.getName())) {
+                    return valid.get();
+                }
+                if ("prepareStatement".equals(method.getName())) {
+                    prepared.add(List.of(args));
+                }
+                return method.invoke(fake, args);
+            }
+        );
+    }
+
+    private ConnectionPool newPool(final int min, final int max, final Duration idle, final Duration leak)
+            throws SQLException {
+        pool = new ConnectionPool(this::open, new ConnectionPool.Config(min, max, SHORT, idle, leak, SHORT, 2));
+        return pool;
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testOpensMinSizeEagerly() throws SQLException {
+        newPool(2, 4, LONG, LONG);
+        assertEquals(2, opened.size());
+        assertEquals(2, pool.getStats().idle());
+    }
+
+    @Test
+    void testCloseGivesConnectionBack() throws SQLException {
+        newPool(1, 4, LONG, LONG);
+        for (int i = 0; i < 10; i++) {
+            try (Connection conn = pool.getConnection()) {
+                assertEquals(1, pool.getStats().active());
+                assertFalse(conn.isClosed());
+            }
+        }
+        assertEquals(1, opened.size());
+        assertEquals(0, pool.getStats().active());
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(10, pool.getStats().borrows());
+    }
+
+    @Test
+    void testClosedHandleCannotBeUsed() throws SQLException {
+        newPool(1, 1, LONG, LONG);
+        final Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    void testExhaustedPoolTimesOut() throws SQLException {
+        newPool(0, 2, LONG, LONG);
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            assertNotSame(first, second);
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+            assertEquals(1, pool.getStats().timeouts());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+            assertEquals(1, pool.getStats().active());
+        }
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    void testInvalidConnectionIsReplacedOnBorrow() throws SQLException {
+        newPool(1, 1, LONG, LONG);
+        opened.get(0).set(false);
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    void testIdleConnectionsAboveMinAreEvicted() throws SQLException, InterruptedException {
+        newPool(1, 3, Duration.ofMillis(1), LONG);
+        try (Connection a = pool.getConnection(); Connection b = pool.getConnection();
+                Connection c = pool.getConnection()) {
+            assertEquals(3, List.of(a, b, c).stream().distinct().count());
+            assertEquals(3, pool.getStats().active());
+        }
+        assertEquals(3, pool.getStats().idle());
+        Thread.sleep(SHORT.toMillis());
+        pool.housekeeping();
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    void testLeakIsReportedWithBorrowSite() throws SQLException, InterruptedException {
+        newPool(0, 1, LONG, Duration.ofMillis(1));
+        final List<LogRecord> records = new ArrayList<>();
+        final Handler handler = new Handler() {
+            @Override
+            public void publish(final LogRecord logRecord) {
+                records.add(logRecord);
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+        logger.addHandler(handler);
+        try (Connection conn = pool.getConnection()) {
+            Thread.sleep(SHORT.toMillis());
+            pool.housekeeping();
+            pool.housekeeping();
+            // Reported, but still usable by its borrower
+            assertFalse(conn.isClosed());
+        } finally {
+            logger.removeHandler(handler);
+        }
+        final List<LogRecord> leaks = records.stream().filter(r -> r.getLevel() == Level.WARNING).toList();
+        assertEquals(1, leaks.size());
+        final StackTraceElement borrowSite = leaks.get(0).getThrown().getStackTrace()[1];
+        assertEquals(getClass().getName(), borrowSite.getClassName());
+    }
+
+    @Test
+    void testStatementsAreReusedPerQuery() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of());
+        db.on(Queries.FIND_FOOD_TYPE, params -> List.of());
+        newPool(1, 1, LONG, LONG);
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.getConnection()) {
+                DBHelper.prepare(conn, Queries.FIND_USER, "mario").close();
+                DBHelper.prepare(conn, Queries.FIND_FOOD_TYPE, "Primo").close();
+            }
+        }
+        assertEquals(2, prepared.size());
+        assertEquals(4, pool.getStats().statementHits());
+        assertEquals(2, pool.getStats().statementMisses());
+    }
+
+    @Test
+    void testBuiltQueriesAreNotCached() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of());
+        db.on(Queries.findUsers(3), params -> List.of());
+        newPool(1, 1, LONG, LONG);
+        for (int i = 0; i < 2; i++) {
+            try (Connection conn = pool.getConnection()) {
+                DBHelper.prepare(conn, Queries.FIND_USER, "mario").close();
+                DBHelper.prepare(conn, Queries.findUsers(3), "mario", "luigi", "anna").close();
+            }
+        }
+        // The built query is prepared every time, without evicting the constant one
+        assertEquals(3, prepared.size());
+        assertEquals(1, pool.getStats().statementHits());
+        assertEquals(1, pool.getStats().statementMisses());
+    }
+
+    @Test
+    void testGeneratedKeysOnlyForInserts() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of());
+        db.on(Queries.INSERT_FOOD_TYPE, params -> List.of());
+        newPool(1, 1, LONG, LONG);
+        try (Connection conn = pool.getConnection()) {
+            DBHelper.prepare(conn, Queries.FIND_USER, "mario").close();
+            DBHelper.prepare(conn, Queries.INSERT_FOOD_TYPE, "Primo", "cibo").close();
+        }
+        assertEquals(List.of(Queries.FIND_USER, Statement.NO_GENERATED_KEYS), prepared.get(0));
+        assertEquals(List.of(Queries.INSERT_FOOD_TYPE, Statement.RETURN_GENERATED_KEYS), prepared.get(1));
+    }
+
+    @Test
+    void testStatementInUseIsNotShared() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of());
+        newPool(1, 1, LONG, LONG);
+        try (Connection conn = pool.getConnection();
+                PreparedStatement outer = DBHelper.prepare(conn, Queries.FIND_USER, "mario");
+                PreparedStatement inner = DBHelper.prepare(conn, Queries.FIND_USER, "luigi")) {
+            assertNotSame(outer, inner);
+            assertFalse(inner.isClosed());
+        }
+        assertEquals(2, prepared.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of());
+        db.on(Queries.FIND_FOOD_TYPE, params -> List.of());
+        db.on(Queries.FIND_FOOD_BY_ID, params -> List.of());
+        newPool(1, 1, LONG, LONG);
+        try (Connection conn = pool.getConnection()) {
+            DBHelper.prepare(conn, Queries.FIND_USER, "mario").close();
+            DBHelper.prepare(conn, Queries.FIND_FOOD_TYPE, "Primo").close();
+            DBHelper.prepare(conn, Queries.FIND_FOOD_BY_ID, 1).close();
+            DBHelper.prepare(conn, Queries.FIND_FOOD_BY_ID, 2).close();
+            DBHelper.prepare(conn, Queries.FIND_USER, "luigi").close();
+        }
+        assertEquals(4, prepared.size());
+        assertEquals(1, pool.getStats().statementHits());
+    }
+}
@@ -0,0 +1,353 @@
+package it.ristorantelorma.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.math.BigDecimal;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.sql.DataSource;
+
+/**
+ * Minimal in-memory stand-in for a JDBC Connection, used to test the DAOs without a database.
+ * Every query must be registered with the rows it returns; executed statements are recorded,
+ * so that tests can assert how many round trips a DAO call costs.
+ * Queries may run on several threads at once, as long as they are all registered beforehand.
+ */
+public final class FakeDatabase {
+
+    private final Map<String, Function<List<Object>, List<Map<String, Object>>>> queries = new HashMap<>();
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Deque<SQLException>> failures = new HashMap<>();
+    private int nextKey = 1;
+    private int commits;
+    private int rollbacks;
+
+    /**
+     * Register the rows returned by the given query.
+     * @param query     the exact SQL string, usually a Queries constant
+     * @param rows      function from the bound parameters to the returned rows (column label -> value)
+     */
+    public void on(final String query, final Function<List<Object>, List<Map<String, Object>>> rows) {
+        queries.put(query, rows);
+    }
+
+    /**
+     * Make the next execution of the given query throw the given exception.
+     * @param query     the exact SQL string, usually a Queries constant
+     * @param failure   the exception thrown
+     */
+    public void failNext(final String query, final SQLException failure) {
+        failures.computeIfAbsent(query, q -> new ArrayDeque<>()).add(failure);
+    }
+
+    /**
+     * @return the number of committed transactions
+     */
+    public int getCommitCount() {
+        return commits;
+    }
+
+    /**
+     * @return the number of rolled back transactions
+     */
+    public int getRollbackCount() {
+        return rollbacks;
+    }
+
+    /**
+     * @return the number of statements executed so far
+     */
+    public int getQueryCount() {
+        return executed.size();
+    }
+
+    /**
+     * @return the executed statements, in order
+     */
+    public List<String> getExecuted() {
+        return List.copyOf(executed);
+    }
+
+    /**
+     * Forget the executed statements.
+     */
+    public void reset() {
+        executed.clear();
+    }
+
+    /**
+     * @return a new Connection backed by this fake database
+     */
+    public Connection getConnection() {
+        final boolean[] autoCommit = {true};
+        final int[] isolation = {Connection.TRANSACTION_REPEATABLE_READ};
+        final InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return newStatement((String) args[0]);
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    return null;
+                case "commit":
+                    commits++;
+                    return null;
+                case "rollback":
+                    rollbacks++;
+                    return null;
+                case "isValid":
+                    return true;
+                case "isClosed":
+                    return false;
+                case "getTransactionIsolation":
+                    return isolation[0];
+                case "setTransactionIsolation":
+                    isolation[0] = (Integer) args[0];
+                    return null;
+                case "close":
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeConnection";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {Connection.class},
+            handler
+        );
+    }
+
+    /**
+     * @return a DataSource handing out connections backed by this fake database
+     */
+    public DataSource getDataSource() {
+        final InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConnection":
+                    return getConnection();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeDataSource";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        };
+        return (DataSource) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {DataSource.class},
+            handler
+        );
+    }
+
+    /**
+     * @param username
+     * @param role      the ruolo column, e.g. "cliente"
+     * @return the row of a User with a credit of 10, as read by FIND_USER
+     */
+    public static Map<String, Object> userRow(final String username, final String role) {
+        return userRow("", username, role);
+    }
+
+    /**
+     * @param prefix    prepended to every column label, e.g. "c_" for the client joined with an order
+     * @param username  null for a user missing from an outer join, whose columns are all null
+     * @param role      the ruolo column, e.g. "cliente"
+     * @return the row of a User with a credit of 10
+     */
+    public static Map<String, Object> userRow(final String prefix, final String username, final String role) {
+        final Map<String, Object> row = new HashMap<>();
+        row.put(prefix + "username", username);
+        row.put(prefix + "nome", "Nome " + username);
+        row.put(prefix + "cognome", "Cognome " + username);
+        row.put(prefix + "password", "salt:hash");
+        row.put(prefix + "telefono", "0000000000");
+        row.put(prefix + "email", username + "@example.com");
+        row.put(prefix + "città", "Cesena");
+        row.put(prefix + "via", "Via Roma");
+        row.put(prefix + "n_civico", "1");
+        row.put(prefix + "credito", username == null ? null : BigDecimal.TEN);
+        row.put(prefix + "ruolo", role);
+        return row;
+    }
+
+    /**
+     * @return the restaurant "Da Mario", without its owner
+     */
+    public static Restaurant restaurant() {
+        return new Restaurant(null, "Da Mario", "01234567890", new Timestamp(0), new Timestamp(0));
+    }
+
+    private PreparedStatement newStatement(final String query) {
+        final Map<Integer, Object> params = new HashMap<>();
+        final List<Map<Integer, Object>> batch = new ArrayList<>();
+        final List<Map<String, Object>> keys = new ArrayList<>();
+        final InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setObject":
+                case "setInt":
+                case "setLong":
+                case "setString":
+                case "setTimestamp":
+                case "setBigDecimal":
+                    params.put((Integer) args[0], args[1]);
+                    return null;
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "executeQuery":
+                    execute(query);
+                    return newResultSet(rowsOf(query, params));
+                case "executeUpdate":
+                    execute(query);
+                    final int rows = rowsOf(query, params).size();
+                    keys.clear();
+                    for (int i = 0; i < rows; i++) {
+                        keys.add(Map.of("1", nextKey++));
+                    }
+                    return rows;
+                case "getGeneratedKeys":
+                    return newResultSet(List.copyOf(keys));
+                case "addBatch":
+                    batch.add(new HashMap<>(params));
+                    return null;
+                case "executeBatch":
+                    execute(query);
+                    final int[] counts = new int[batch.size()];
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = rowsOf(query, batch.get(i)).size();
+                    }
+                    batch.clear();
+                    return counts;
+                case "setFetchSize":
+                case "setMaxRows":
+                case "close":
+                    return null;
+                case "isClosed":
+                    return false;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakePreparedStatement[" + query + "]";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            handler
+        );
+    }
+
+    private void execute(final String query) throws SQLException {
+        executed.add(query);
+        final Deque<SQLException> queued = failures.get(query);
+        if (queued != null && !queued.isEmpty()) {
+            throw queued.poll();
+        }
+    }
+
+    private List<Map<String, Object>> rowsOf(final String query, final Map<Integer, Object> params) {
+        final Function<List<Object>, List<Map<String, Object>>> rows = queries.get(query);
+        if (rows == null) {
+            throw new IllegalStateException("Unexpected query: " + query);
+        }
+        final List<Object> values = new ArrayList<>();
+        for (int i = 1; i <= params.size(); i++) {
+            values.add(params.get(i));
+        }
+        return rows.apply(values);
+    }
+
+    private static Object nullValue(final Class<?> type) {
+        if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else {
+            return null;
+        }
+    }
+
+    private static ResultSet newResultSet(final List<Map<String, Object>> rows) {
+        final int[] cursor = {-1};
+        final boolean[] wasNull = {false};
+        final InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    cursor[0]++;
+                    return cursor[0] < rows.size();
+                case "wasNull":
+                    return wasNull[0];
+                case "close":
+                    return null;
+                case "isClosed":
+                    return false;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "FakeResultSet";
+                default:
+                    break;
+            }
+            if (method.getName().startsWith("get") && args != null && args.length == 1) {
+                final Map<String, Object> row = rows.get(cursor[0]);
+                final String label = String.valueOf(args[0]);
+                if (!row.containsKey(label)) {
+                    throw new IllegalStateException("Unknown column: " + label);
+                }
+                final Object value = row.get(label);
+                wasNull[0] = value == null;
+                if (value == null) {
+                    return nullValue(method.getReturnType());
+                }
+                if (method.getReturnType() == String.class) {
+                    return value.toString();
+                }
+                if (method.getReturnType() == int.class) {
+                    return ((Number) value).intValue();
+                }
+                if (method.getReturnType() == long.class) {
+                    return ((Number) value).longValue();
+                }
+                if (method.getReturnType() == float.class) {
+                    return ((Number) value).floatValue();
+                }
+                return value;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        };
+        return (ResultSet) Proxy.newProxyInstance(
+            FakeDatabase.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            handler
+        );
+    }
+}
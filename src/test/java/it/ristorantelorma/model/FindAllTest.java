@@ -0,0 +1,130 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.user.User;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class FindAllTest {
+
+    private static final int USERS = 1200;
+    private static final int FOODS = 20;
+    private static final int REVIEWS = 30;
+    private static final int CLIENTS = 5;
+
+    private static List<Map<String, Object>> users(final List<Object> usernames, final String role) {
+        return usernames.stream().map(username -> FakeDatabase.userRow(String.valueOf(username), role)).toList();
+    }
+
+    @Test
+    void testUsersAreLookedUpInChunks() {
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.findUsers(Queries.IN_LIST_CHUNK_SIZE), params -> users(params, "cliente"));
+        final int last = USERS % Queries.IN_LIST_CHUNK_SIZE;
+        // The last username does not exist
+        db.on(Queries.findUsers(last), params -> users(params.subList(0, last - 1), "cliente"));
+        final List<String> usernames = IntStream.range(0, USERS).mapToObj(i -> "user" + i).toList();
+
+        final Result<Map<String, User>> result = User.DAO.findAll(db.getConnection(), usernames);
+
+        assertTrue(result.isSuccess());
+        assertEquals(USERS - 1, result.getValue().size());
+        assertFalse(result.getValue().containsKey("user" + (USERS - 1)));
+        assertEquals(
+            List.of(
+                Queries.findUsers(Queries.IN_LIST_CHUNK_SIZE),
+                Queries.findUsers(Queries.IN_LIST_CHUNK_SIZE),
+                Queries.findUsers(last)
+            ),
+            db.getExecuted()
+        );
+    }
+
+    @Test
+    void testUsersLoadedByTheUnitOfWorkAreNotQueried() {
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.findUsers(2), params -> users(params, "cliente"));
+        db.on(Queries.findUsers(1), params -> users(params, "cliente"));
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            assertTrue(UnitOfWork.current().filter(current -> current == uow).isPresent());
+            final User mario = User.DAO.findAll(db.getConnection(), List.of("mario", "luigi")).getValue().get("mario");
+            final Map<String, User> again = User.DAO.findAll(db.getConnection(), List.of("mario", "anna")).getValue();
+            assertSame(mario, again.get("mario"));
+            assertEquals(List.of(Queries.findUsers(2), Queries.findUsers(1)), db.getExecuted());
+        }
+    }
+
+    @Test
+    void testReviewsResolveTheirUsersWithOneQuery() {
+        final FakeDatabase db = new FakeDatabase();
+        final List<Map<String, Object>> reviews = new ArrayList<>();
+        for (int id = 1; id <= REVIEWS; id++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("codice", id);
+            row.put("data", new Timestamp(0));
+            row.put("voto", "5");
+            row.put("commento", null);
+            row.put("username", "client" + id % CLIENTS);
+            reviews.add(row);
+        }
+        db.on(Queries.LIST_REVIEWS_OF_RESTAURANT, params -> reviews);
+        db.on(Queries.findUsers(CLIENTS), params -> users(params, "cliente"));
+
+        final Result<Collection<Review>> result = Review.DAO.list(db.getConnection(), FakeDatabase.restaurant());
+
+        assertTrue(result.isSuccess());
+        assertEquals(REVIEWS, result.getValue().size());
+        assertEquals(List.of(Queries.LIST_REVIEWS_OF_RESTAURANT, Queries.findUsers(CLIENTS)), db.getExecuted());
+    }
+
+    @Test
+    void testFoodsResolveRestaurantsAndOwnersOnce() {
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.findFoodsByIds(FOODS), params -> params.stream().map(id -> {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("codice", id);
+            row.put("nome", "Vivanda " + id);
+            row.put("nome_attività", (Integer) id % 2 == 0 ? "Da Mario" : "Da Luigi");
+            row.put("prezzo", new BigDecimal("5.00"));
+            row.put("tipologia", "Primo");
+            row.put("t_tipologia", "cibo");
+            return row;
+        }).toList());
+        db.on(Queries.findRestaurantsByNames(2), params -> params.stream().map(name -> {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("nome_attività", name);
+            row.put("username", "owner " + name);
+            row.put("p_iva", "01234567890");
+            row.put("ora_apertura", new Timestamp(0));
+            row.put("ora_chiusura", new Timestamp(0));
+            return row;
+        }).toList());
+        db.on(Queries.findUsers(2), params -> users(params, "ristorante"));
+        final List<Integer> ids = IntStream.rangeClosed(1, FOODS).boxed().toList();
+
+        final Result<Map<Integer, Food>> result = Food.DAO.findAll(db.getConnection(), ids);
+
+        assertTrue(result.isSuccess());
+        assertEquals(FOODS, result.getValue().size());
+        assertEquals("owner Da Luigi", result.getValue().get(1).getRestaurant().getUser().getUsername());
+        assertEquals(
+            List.of(
+                Queries.findFoodsByIds(FOODS),
+                Queries.findRestaurantsByNames(2),
+                Queries.findUsers(2)
+            ),
+            db.getExecuted()
+        );
+    }
+}
@@ -0,0 +1,88 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class FoodTypeRegistryTest {
+
+    private static final int FOODS = 20;
+    private static final int TYPES = 3;
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final Connection conn = db.getConnection();
+
+    FoodTypeRegistryTest() {
+        final List<Map<String, Object>> foods = new ArrayList<>();
+        final List<Map<String, Object>> types = new ArrayList<>();
+        for (int id = 1; id <= FOODS; id++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("codice", id);
+            row.put("nome", "Vivanda " + id);
+            row.put("nome_attività", "Da Mario");
+            row.put("prezzo", new BigDecimal("5.00"));
+            row.put("tipologia", "Tipo " + id % TYPES);
+            row.put("t_tipologia", "cibo");
+            foods.add(row);
+        }
+        for (int type = 0; type < TYPES; type++) {
+            types.add(Map.of("nome", "Tipo " + type, "tipologia", "cibo"));
+        }
+        db.on(Queries.LIST_FOODS, params -> foods);
+        db.on(Queries.LIST_FOOD_TYPES, params -> types);
+        db.on(Queries.FIND_FOOD_TYPE, params -> List.of());
+        db.on(Queries.INSERT_FOOD_TYPE, params -> List.of(Map.of()));
+    }
+
+    @AfterEach
+    void clearRegistry() {
+        FoodType.DAO.clearRegistry();
+    }
+
+    @Test
+    void testFindResolvesFromRegistry() {
+        assertTrue(FoodType.DAO.preload(conn).isSuccess());
+        db.reset();
+        final FoodType first = FoodType.DAO.find(conn, "Tipo 1").getValue().get();
+        assertSame(first, FoodType.DAO.find(conn, "Tipo 1").getValue().get());
+        assertEquals(0, db.getQueryCount());
+    }
+
+    @Test
+    void testFoodListDoesNotQueryTypesAfterPreload() {
+        assertTrue(FoodType.DAO.preload(conn).isSuccess());
+        db.reset();
+        final Result<Collection<Food>> foods = Food.DAO.list(conn, FakeDatabase.restaurant());
+        assertTrue(foods.isSuccess());
+        assertEquals(1, db.getQueryCount());
+        final Food food = foods.getValue().iterator().next();
+        assertSame(FoodType.DAO.find(conn, food.getType().getName()).getValue().get(), food.getType());
+    }
+
+    @Test
+    void testInsertUpdatesRegistry() {
+        assertTrue(FoodType.DAO.preload(conn).isSuccess());
+        final FoodType inserted = FoodType.DAO.insert(conn, "Dolce", MacroType.DISH).getValue();
+        db.reset();
+        assertSame(inserted, FoodType.DAO.find(conn, "Dolce").getValue().get());
+        assertEquals(0, db.getQueryCount());
+    }
+
+    @Test
+    void testClearedRegistryQueriesDatabase() {
+        assertTrue(FoodType.DAO.preload(conn).isSuccess());
+        FoodType.DAO.clearRegistry();
+        db.reset();
+        assertTrue(FoodType.DAO.find(conn, "Tipo 1").getValue().isEmpty());
+        assertEquals(1, db.getQueryCount());
+    }
+}
@@ -0,0 +1,148 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MenuCacheTest {
+
+    private static final int CAPACITY = 2;
+    private static final Duration MAX_AGE = Duration.ofMinutes(1);
+
+    private final TestClock clock = new TestClock();
+    private final MenuCache cache = new MenuCache(CAPACITY, MAX_AGE, clock);
+    private final Restaurant restaurant = new Restaurant(
+        null, "Da Mario", "01234567890", new Timestamp(0), new Timestamp(0)
+    );
+    private final FoodType type = new FoodType("Primo", MacroType.DISH);
+    private final Food food = new Food(1, "Carbonara", restaurant, new BigDecimal("9.50"), type);
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.EPOCH;
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @AfterEach
+    void clearMenuCache() {
+        Food.DAO.clearMenuCache();
+    }
+
+    @Test
+    void testSnapshotIsImmutableAndShared() {
+        final List<Food> foods = new ArrayList<>(List.of(food));
+        final List<Food> snapshot = cache.put("Da Mario", cache.version("Da Mario"), foods);
+        foods.clear();
+
+        assertSame(snapshot, cache.get("Da Mario").get());
+        assertEquals(List.of(food), snapshot);
+        assertThrows(UnsupportedOperationException.class, snapshot::clear);
+    }
+
+    @Test
+    void testLeastRecentlyReadMenuIsEvicted() {
+        cache.put("A", 0, List.of());
+        cache.put("B", 0, List.of());
+        cache.get("A");
+        cache.put("C", 0, List.of());
+
+        assertTrue(cache.get("A").isPresent());
+        assertTrue(cache.get("B").isEmpty());
+        assertTrue(cache.get("C").isPresent());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(CAPACITY, cache.stats().size());
+    }
+
+    @Test
+    void testMenuChangedWhileLoadingIsNotCached() {
+        final long version = cache.version("Da Mario");
+        cache.invalidate("Da Mario");
+        cache.put("Da Mario", version, List.of(food));
+
+        assertTrue(cache.get("Da Mario").isEmpty());
+        cache.put("Da Mario", cache.version("Da Mario"), List.of(food));
+        assertTrue(cache.get("Da Mario").isPresent());
+    }
+
+    @Test
+    void testSnapshotExpires() {
+        cache.put("Da Mario", 0, List.of(food));
+        clock.advance(MAX_AGE);
+        assertTrue(cache.get("Da Mario").isPresent());
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(cache.get("Da Mario").isEmpty());
+    }
+
+    @Test
+    void testStats() {
+        cache.get("Da Mario");
+        cache.put("Da Mario", 0, List.of(food, food));
+        cache.get("Da Mario");
+        cache.get("Da Mario");
+        cache.get("Da Mario");
+
+        final MenuCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.75, stats.hitRatio());
+        assertEquals(2, stats.foods());
+        assertTrue(stats.estimatedBytes() > 0);
+        assertEquals(0, new MenuCache().stats().hitRatio());
+    }
+
+    @Test
+    void testMenuIsQueriedUntilItChanges() {
+        final FakeDatabase db = new FakeDatabase();
+        final Map<String, Object> row = new HashMap<>();
+        row.put("codice", food.getId());
+        row.put("nome", food.getName());
+        row.put("nome_attività", "Da Mario");
+        row.put("prezzo", food.getPrice());
+        row.put("tipologia", "Primo");
+        row.put("t_tipologia", "cibo");
+        db.on(Queries.LIST_FOODS, params -> List.of(row));
+        db.on(Queries.UPDATE_FOOD, params -> List.of(Map.of()));
+
+        final List<Food> menu = Food.DAO.menu(db.getConnection(), restaurant).getValue();
+        assertSame(menu, Food.DAO.menu(db.getConnection(), restaurant).getValue());
+        assertEquals(1, db.getQueryCount());
+
+        assertTrue(Food.DAO.update(db.getConnection(), food, "Amatriciana", food.getPrice(), type).isSuccess());
+        assertEquals(1, Food.DAO.menu(db.getConnection(), restaurant).getValue().size());
+        assertEquals(List.of(Queries.LIST_FOODS, Queries.UPDATE_FOOD, Queries.LIST_FOODS), db.getExecuted());
+    }
+}
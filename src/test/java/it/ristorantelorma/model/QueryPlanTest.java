@@ -0,0 +1,298 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import it.ristorantelorma.model.order.Order;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs EXPLAIN for every query of Queries on the real database, configured with the same
+ * environment variables of the application, after seeding it with a few thousand rows.
+ * Fails if a query reads a whole table bigger than MAX_SCANNED_ROWS instead of using an index.
+ * Skipped if the database cannot be reached. Everything created is deleted at the end.
+ */
+class QueryPlanTest {
+
+    /**
+     * Full scans estimated to read more rows than this are regressions.
+     * The seeded tables ORDINI, DETTAGLIO_ORDINI, RECENSIONI and MOVIMENTI_CREDITO are far bigger.
+     */
+    private static final int MAX_SCANNED_ROWS = 100;
+    private static final int RESTAURANTS = 20;
+    private static final int FOODS = 10;
+    private static final int CLIENTS = 100;
+    private static final int DELIVERYMEN = 10;
+    private static final int ORDERS = 2000;
+    private static final int REVIEWS = 1000;
+    private static final int MOVEMENTS = 2000;
+    private static final int LIST_SIZE = 3;
+    private static final int RAND = ThreadLocalRandom.current().nextInt(1_000_000);
+    private static final String PREFIX = "qp" + RAND + "_";
+
+    /**
+     * Queries that read a whole table by design: they list or process all of its rows.
+     */
+    private static final Set<String> FULL_SCANS = Set.of(
+        "LIST_RESTAURANTS",
+        "LIST_FOOD_TYPES",
+        "COMPACT_CREDIT_MOVEMENTS",
+        "CLEAR_DELIVERYMAN_TOTALS",
+        "REBUILD_DELIVERYMAN_TOTALS",
+        "CLEAR_RESTAURANT_TOTALS",
+        "REBUILD_RESTAURANT_TOTALS",
+        "CLEAR_FOOD_TOTALS",
+        "REBUILD_FOOD_TOTALS"
+    );
+
+    private static DatabaseConnectionManager db;
+
+    @BeforeAll
+    static void setUp() {
+        try {
+            db = DatabaseConnectionManager.getInstance();
+        } catch (ExceptionInInitializerError | NoClassDefFoundError e) {
+            assumeTrue(false, "Database not available");
+        }
+        try (Connection conn = db.getConnection(); Statement statement = conn.createStatement()) {
+            seed(conn);
+            final Result<Integer> totals = Order.DAO.rebuildTotals(conn);
+            assumeTrue(totals.isSuccess(), "Cannot rebuild the totals: " + totals.getErrorMessage());
+            statement.execute(
+                "ANALYZE TABLE utenti, ristoranti, vivande, ordini, dettaglio_ordini, recensioni, movimenti_credito, "
+                + "totali_vivande, totali_ristoranti, totali_fattorini;"
+            );
+        } catch (SQLException e) {
+            assumeTrue(false, "Cannot create the test data: " + e.getMessage());
+        }
+    }
+
+    private static void seed(final Connection conn) throws SQLException {
+        final String users = """
+            INSERT INTO utenti (nome, cognome, username, password, telefono, email, città, via, n_civico, credito, ruolo)
+            SELECT 'Test', 'Test', CONCAT(?, seq), 'salt:hash', '0000000000', CONCAT(?, seq, '@example.com'),
+            'Cesena', 'Via Roma', '1', %s, '%s' FROM seq_1_to_%d;
+            """;
+        update(conn, users.formatted("0", "ristorante", RESTAURANTS), PREFIX + "owner", PREFIX + "owner");
+        update(conn, users.formatted("1000", "cliente", CLIENTS), PREFIX + "client", PREFIX + "client");
+        update(conn, users.formatted("0", "fattorino", DELIVERYMEN), PREFIX + "deliveryman", PREFIX + "deliveryman");
+        update(conn, """
+            INSERT INTO ristoranti (username, nome_attività, p_iva, ora_apertura, ora_chiusura)
+            SELECT CONCAT(?, seq), CONCAT(?, seq), LPAD(? * 100 + seq, 11, '0'), '08:00:00', '23:00:00'
+            FROM seq_1_to_%d;
+            """.formatted(RESTAURANTS), PREFIX + "owner", PREFIX + "restaurant", RAND);
+        update(conn, """
+            INSERT INTO vivande (nome, nome_attività, prezzo, tipologia)
+            SELECT CONCAT('Piatto ', f.seq), CONCAT(?, r.seq), 5.00, 'Primo'
+            FROM seq_1_to_%d r, seq_1_to_%d f;
+            """.formatted(RESTAURANTS, FOODS), PREFIX + "restaurant");
+        // Like a real history: almost every order is delivered, a few are still open
+        update(conn, """
+            INSERT INTO ordini (nome_attività, data_ora, stato, tariffa_spedizione, username_cliente,
+            ora_accettazione, ora_consegna, username_fattorino)
+            SELECT CONCAT(?, seq %% %d + 1), NOW(6) - INTERVAL seq MINUTE,
+            CASE seq %% 50 WHEN 0 THEN 'attesa' WHEN 1 THEN 'pronto' WHEN 2 THEN 'accettato' ELSE 'consegnato' END,
+            2.50, CONCAT(?, seq %% %d + 1),
+            IF(seq %% 50 >= 2, NOW(), NULL), IF(seq %% 50 >= 3, NOW(), NULL),
+            IF(seq %% 50 >= 2, CONCAT(?, seq %% %d + 1), NULL)
+            FROM seq_1_to_%d;
+            """.formatted(RESTAURANTS, CLIENTS, DELIVERYMEN, ORDERS),
+            PREFIX + "restaurant", PREFIX + "client", PREFIX + "deliveryman"
+        );
+        update(conn, """
+            INSERT INTO dettaglio_ordini (codice_vivanda, codice_ordine, quantità)
+            SELECT v.codice, o.codice, 1
+            FROM ordini o JOIN vivande v ON v.nome_attività = o.nome_attività
+            WHERE o.nome_attività LIKE ? AND v.nome IN ('Piatto 1', 'Piatto 2');
+            """, PREFIX + "%");
+        update(conn, """
+            INSERT INTO recensioni (nome_attività, data, voto, commento, username)
+            SELECT CONCAT(?, seq %% %d + 1), NOW(6), CAST(seq %% 5 + 1 AS CHAR), NULL, CONCAT(?, seq %% %d + 1)
+            FROM seq_1_to_%d;
+            """.formatted(RESTAURANTS, CLIENTS, REVIEWS), PREFIX + "restaurant", PREFIX + "client");
+        update(conn, """
+            INSERT INTO movimenti_credito (username, importo)
+            SELECT CONCAT(?, seq %% %d + 1), 1.00 FROM seq_1_to_%d;
+            """.formatted(CLIENTS, MOVEMENTS), PREFIX + "client");
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        if (db == null) {
+            return;
+        }
+        try (Connection conn = db.getConnection()) {
+            update(conn, """
+                DELETE d FROM dettaglio_ordini d JOIN ordini o ON o.codice = d.codice_ordine
+                WHERE o.nome_attività LIKE ?;
+                """, PREFIX + "%");
+            update(conn, "DELETE FROM ordini WHERE nome_attività LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM recensioni WHERE nome_attività LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM vivande WHERE nome_attività LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM ristoranti WHERE nome_attività LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM movimenti_credito WHERE username LIKE ?;", PREFIX + "%");
+            update(conn, "DELETE FROM utenti WHERE username LIKE ?;", PREFIX + "%");
+        }
+    }
+
+    private static void update(final Connection conn, final String sql, final Object... params) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the parameters each query is explained with, by the name of its constant or builder
+     */
+    private static Map<String, List<Object>> sampleParameters() {
+        final String client = PREFIX + "client1";
+        final String deliveryman = PREFIX + "deliveryman1";
+        final String restaurant = PREFIX + "restaurant1";
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        final BigDecimal amount = BigDecimal.TEN;
+        final int id = 1;
+        final Map<String, List<Object>> params = new LinkedHashMap<>();
+        params.put("FIND_USER", List.of(client));
+        params.put("INSERT_USER", List.of(
+            "Test", "Test", PREFIX + "new", "salt:hash", "0000000000", "new@example.com",
+            "Cesena", "Via Roma", "1", amount, "cliente"
+        ));
+        params.put("UPDATE_USER_PASSWORD", List.of("salt:hash", client, "salt:hash"));
+        params.put("INSERT_CREDIT_MOVEMENT", List.of(client, amount));
+        params.put("LOCK_USER_CREDIT", List.of(client));
+        params.put("SUM_USER_CREDIT_MOVEMENTS", List.of(client, 0));
+        params.put("COMPACT_CREDIT_MOVEMENTS", List.of(10));
+        params.put("FIND_DELIVERYMAN_WITH_MORE_DELIVERIES", List.of());
+        params.put("ADD_DELIVERYMAN_DELIVERY", List.of(deliveryman));
+        params.put("CLEAR_DELIVERYMAN_TOTALS", List.of());
+        params.put("REBUILD_DELIVERYMAN_TOTALS", List.of());
+        params.put("FIND_RESTAURANT_BY_NAME", List.of(restaurant));
+        params.put("FIND_RESTAURANT_BY_USERNAME", List.of(PREFIX + "owner1"));
+        params.put("INSERT_RESTAURANT", List.of(PREFIX + "owner1", PREFIX + "new", "00000000000", now, now));
+        params.put("LIST_RESTAURANTS", List.of());
+        params.put("PAGE_RESTAURANTS", List.of(restaurant, 10));
+        params.put("FIND_RESTAURANT_MOST_ORDERS", List.of());
+        params.put("ADD_RESTAURANT_ORDER", List.of(restaurant));
+        params.put("CLEAR_RESTAURANT_TOTALS", List.of());
+        params.put("REBUILD_RESTAURANT_TOTALS", List.of());
+        params.put("FIND_RESTAURANT_MOST_NEGATIVE_REVIEWS", List.of());
+        params.put("UPDATE_RESTAURANT", List.of(now, now, restaurant));
+        params.put("FIND_FOOD_TYPE", List.of("Primo"));
+        params.put("INSERT_FOOD_TYPE", List.of(PREFIX + "new", "cibo"));
+        params.put("LIST_FOOD_TYPES", List.of());
+        params.put("FIND_FOOD_TYPE_MOST_PURCHASED", List.of());
+        params.put("FIND_FOOD_BY_NAME", List.of("Piatto 1", restaurant));
+        params.put("FIND_FOOD_BY_ID", List.of(id));
+        params.put("INSERT_FOOD", List.of("Piatto", restaurant, amount, "Primo"));
+        params.put("LIST_FOODS", List.of(restaurant));
+        params.put("LIST_FOODS_BY_ORDER_ID", List.of(id));
+        params.put("FIND_FOOD_MOST_PURCHASED", List.of());
+        params.put("CLEAR_FOOD_TOTALS", List.of());
+        params.put("REBUILD_FOOD_TOTALS", List.of());
+        params.put("UPDATE_FOOD", List.of("Piatto", amount, "Primo", id));
+        params.put("DELETE_FOOD", List.of(id));
+        params.put("FIND_ORDER_BY_ID", List.of(id));
+        params.put("INSERT_ORDER", List.of(restaurant, now, amount, client));
+        params.put("SET_ORDER_READY", List.of(id));
+        params.put("SET_ORDER_ACCEPTED", List.of(now, deliveryman, id));
+        params.put("LOCK_NEXT_READY_ORDERS", List.of(LIST_SIZE));
+        params.put("SET_ORDER_DELIVERED", List.of(now, id));
+        params.put("SET_ORDER_CANCELLED", List.of(id));
+        params.put("LIST_ORDERS_BY_STATE", List.of("pronto"));
+        params.put("LIST_ACCEPTED_ORDERS_BY_DELIVERYMAN", List.of(deliveryman));
+        params.put("PAGE_ORDERS_BY_STATE", List.of("pronto", 0, 10));
+        params.put("COUNT_ORDERS_BY_STATE", List.of());
+        params.put("LIST_REVIEWS_OF_RESTAURANT", List.of(restaurant));
+        params.put("PAGE_REVIEWS_OF_RESTAURANT", List.of(restaurant, 0, 10));
+        params.put("INSERT_REVIEW", List.of(restaurant, now, "5", "Ottimo", client));
+        params.put("DELETE_REVIEW", List.of(id));
+        params.put("insertOrderDetails", List.of(id, id, 1, id, id + 1, 1, id, id + 2, 1));
+        params.put("addFoodTotals", List.of(id, 1, id + 1, 1, id + 2, 1));
+        params.put("listFoodsByOrderIds", List.of(id, id + 1, id + 2));
+        params.put("setOrdersAccepted", List.of(now, deliveryman, id, id + 1, id + 2));
+        params.put("findOrdersByIds", List.of(id, id + 1, id + 2));
+        params.put("findUsers", List.of(client, deliveryman, PREFIX + "owner1"));
+        params.put("findRestaurantsByNames", List.of(restaurant, PREFIX + "restaurant2", PREFIX + "restaurant3"));
+        params.put("findFoodsByIds", List.of(id, id + 1, id + 2));
+        return params;
+    }
+
+    /**
+     * @return every query of Queries, by the name of its constant or builder
+     */
+    private static Map<String, String> queries() {
+        final Map<String, String> queries = new LinkedHashMap<>();
+        for (final Field field : Queries.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    queries.put(field.getName(), (String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        queries.put("insertOrderDetails", Queries.insertOrderDetails(LIST_SIZE));
+        queries.put("addFoodTotals", Queries.addFoodTotals(LIST_SIZE));
+        queries.put("listFoodsByOrderIds", Queries.listFoodsByOrderIds(LIST_SIZE));
+        queries.put("setOrdersAccepted", Queries.setOrdersAccepted(LIST_SIZE));
+        queries.put("findOrdersByIds", Queries.findOrdersByIds(LIST_SIZE));
+        queries.put("findUsers", Queries.findUsers(LIST_SIZE));
+        queries.put("findRestaurantsByNames", Queries.findRestaurantsByNames(LIST_SIZE));
+        queries.put("findFoodsByIds", Queries.findFoodsByIds(LIST_SIZE));
+        return queries;
+    }
+
+    @Test
+    void testEveryQueryHasSampleParameters() {
+        assertEquals(queries().keySet(), sampleParameters().keySet());
+    }
+
+    @Test
+    void testNoQueryScansABigTable() throws SQLException {
+        final Map<String, List<Object>> params = sampleParameters();
+        final List<String> regressions = new ArrayList<>();
+        try (Connection conn = db.getConnection()) {
+            for (final Map.Entry<String, String> query : queries().entrySet()) {
+                if (FULL_SCANS.contains(query.getKey())) {
+                    continue;
+                }
+                try (PreparedStatement statement = conn.prepareStatement("EXPLAIN " + query.getValue())) {
+                    final List<Object> values = params.getOrDefault(query.getKey(), List.of());
+                    for (int i = 0; i < values.size(); i++) {
+                        statement.setObject(i + 1, values.get(i));
+                    }
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            // Derived tables ("<derived2>") are scanned in memory, their source tables have rows of their own
+                            final String table = rs.getString("table");
+                            if ("ALL".equals(rs.getString("type")) && table != null && !table.startsWith("<")
+                                && rs.getLong("rows") > MAX_SCANNED_ROWS) {
+                                regressions.add(query.getKey() + " scans " + table + " (" + rs.getLong("rows") + " rows)");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(List.of(), regressions);
+    }
+}
@@ -0,0 +1,108 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.QueryStats.QueryStat;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class QueryStatsTest {
+
+    private static final int ROWS = 3;
+    private static final int EXECUTIONS = 100;
+    /**
+     * Relative error of a percentile read from the histogram.
+     */
+    private static final double MAX_ERROR = 0.125;
+
+    private final QueryStats stats = new QueryStats();
+    private final FakeDatabase db = new FakeDatabase();
+
+    @Test
+    void testQueriesAreNamed() {
+        assertEquals("FIND_USER", Queries.nameOf(Queries.FIND_USER));
+        assertEquals("findUsers", Queries.nameOf(Queries.findUsers(ROWS)));
+        assertEquals("insertOrderDetails", Queries.nameOf(Queries.insertOrderDetails(1)));
+        assertEquals("other", Queries.nameOf("SELECT 1;"));
+    }
+
+    @Test
+    void testRowsAndFailuresAreCounted() throws SQLException {
+        db.on(Queries.FIND_USER, params -> List.of(Map.of(), Map.of(), Map.of()));
+        db.on(Queries.DELETE_REVIEW, params -> List.of(Map.of()));
+        try (PreparedStatement statement = stats.instrument(
+            db.getConnection().prepareStatement(Queries.FIND_USER), Queries.FIND_USER
+        )) {
+            int read = 0;
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    read++;
+                }
+            }
+            assertEquals(ROWS, read);
+            db.failNext(Queries.FIND_USER, new SQLException("Lost connection"));
+            assertThrows(SQLException.class, statement::executeQuery);
+        }
+        try (PreparedStatement statement = stats.instrument(
+            db.getConnection().prepareStatement(Queries.DELETE_REVIEW), Queries.DELETE_REVIEW
+        )) {
+            statement.executeUpdate();
+        }
+
+        final Map<String, QueryStat> byName = byName();
+        assertEquals(2, byName.get("FIND_USER").calls());
+        assertEquals(1, byName.get("FIND_USER").errors());
+        assertEquals(ROWS, byName.get("FIND_USER").rows());
+        assertEquals(1, byName.get("DELETE_REVIEW").rows());
+    }
+
+    @Test
+    void testPercentiles() {
+        for (int i = 1; i <= EXECUTIONS; i++) {
+            stats.record(Queries.FIND_USER, TimeUnit.MILLISECONDS.toNanos(i), 0, false);
+        }
+        final QueryStat stat = byName().get("FIND_USER");
+        assertEquals(EXECUTIONS, stat.calls());
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(EXECUTIONS), stat.maxMicros());
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(EXECUTIONS * (EXECUTIONS + 1) / 2), stat.totalMicros());
+        assertPercentile(50, stat.p50Micros());
+        assertPercentile(95, stat.p95Micros());
+        assertPercentile(99, stat.p99Micros());
+        assertTrue(stats.dump().contains("FIND_USER"));
+
+        stats.reset();
+        assertEquals(List.of(), stats.snapshot());
+    }
+
+    @Test
+    void testHistogramBuckets() {
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            final int bucket = QueryStats.Histogram.bucket(micros);
+            assertTrue(micros <= QueryStats.Histogram.highestValue(bucket));
+            assertTrue(bucket == 0 || micros > QueryStats.Histogram.highestValue(bucket - 1));
+        }
+    }
+
+    private static void assertPercentile(final long expectedMillis, final long micros) {
+        final long expected = TimeUnit.MILLISECONDS.toMicros(expectedMillis);
+        assertTrue(
+            micros >= expected && micros <= expected * (1 + MAX_ERROR),
+            "Expected about " + expected + " but was " + micros
+        );
+    }
+
+    private Map<String, QueryStat> byName() {
+        final Map<String, QueryStat> byName = new HashMap<>();
+        for (final QueryStat stat : stats.snapshot()) {
+            byName.put(stat.name(), stat);
+        }
+        return byName;
+    }
+}
@@ -0,0 +1,102 @@
+package it.ristorantelorma.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class UnitOfWorkTest {
+
+    private static final int FOODS = 20;
+    private static final int TYPES = 3;
+
+    private static FakeDatabase menu() {
+        final List<Map<String, Object>> foods = new ArrayList<>();
+        for (int id = 1; id <= FOODS; id++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("codice", id);
+            row.put("nome", "Vivanda " + id);
+            row.put("nome_attività", "Da Mario");
+            row.put("prezzo", new BigDecimal("5.00"));
+            row.put("tipologia", "Tipo " + id % TYPES);
+            row.put("t_tipologia", "cibo");
+            foods.add(row);
+        }
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.LIST_FOODS, params -> foods);
+        return db;
+    }
+
+    @Test
+    void testNoUnitOfWork() {
+        assertTrue(UnitOfWork.current().isEmpty());
+        final FoodType type = new FoodType("Primo", MacroType.DISH);
+        assertSame(type, UnitOfWork.register(FoodType.class, "Primo", type));
+        assertTrue(UnitOfWork.lookup(FoodType.class, "Primo").isEmpty());
+    }
+
+    @Test
+    void testNestedUnitOfWorkIsShared() {
+        final FoodType first = new FoodType("Primo", MacroType.DISH);
+        try (UnitOfWork outer = UnitOfWork.begin()) {
+            UnitOfWork.register(FoodType.class, "Primo", first);
+            try (UnitOfWork inner = UnitOfWork.begin()) {
+                assertSame(outer, inner);
+                assertSame(first, UnitOfWork.register(FoodType.class, "Primo", new FoodType("Primo", MacroType.DISH)));
+            }
+            assertEquals(Optional.of(first), UnitOfWork.lookup(FoodType.class, "Primo"));
+        }
+        assertTrue(UnitOfWork.current().isEmpty());
+    }
+
+    @Test
+    void testReplaceAndEvict() {
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            assertEquals(Optional.of(uow), UnitOfWork.current());
+            final FoodType type = new FoodType("Primo", MacroType.DISH);
+            UnitOfWork.register(FoodType.class, "Primo", type);
+            final FoodType updated = new FoodType("Primo", MacroType.DRINK);
+            UnitOfWork.replace(FoodType.class, "Primo", updated);
+            assertSame(updated, UnitOfWork.lookup(FoodType.class, "Primo").get());
+            UnitOfWork.evict(FoodType.class, "Primo");
+            assertTrue(UnitOfWork.lookup(FoodType.class, "Primo").isEmpty());
+        }
+    }
+
+    @Test
+    void testMenuIsOneQueryAndSharesFoodTypes() {
+        final FakeDatabase db = menu();
+        final Connection conn = db.getConnection();
+
+        final List<Food> foods = new ArrayList<>(Food.DAO.list(conn, FakeDatabase.restaurant()).getValue());
+        assertEquals(1, db.getQueryCount());
+        final Map<String, FoodType> types = new HashMap<>();
+        for (final Food food : foods) {
+            final FoodType type = types.computeIfAbsent(food.getType().getName(), k -> food.getType());
+            assertSame(type, food.getType());
+        }
+        assertEquals(TYPES, types.size());
+    }
+
+    @Test
+    void testUnitOfWorkDoesNotOutliveTheOperation() {
+        final FakeDatabase db = menu();
+        final Connection conn = db.getConnection();
+        final Food first = UnitOfWork.call(() -> Food.DAO.list(conn, FakeDatabase.restaurant()).getValue().iterator().next());
+        final Food second = UnitOfWork.call(
+            () -> Food.DAO.list(conn, FakeDatabase.restaurant()).getValue().stream()
+                .filter(f -> f.getId() == first.getId())
+                .findFirst()
+                .get()
+        );
+        assertNotSame(first, second);
+    }
+}
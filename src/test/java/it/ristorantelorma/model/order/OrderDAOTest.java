@@ -0,0 +1,613 @@
+package it.ristorantelorma.model.order;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.FakeDatabase;
+import it.ristorantelorma.model.Food;
+import it.ristorantelorma.model.FoodType;
+import it.ristorantelorma.model.MacroType;
+import it.ristorantelorma.model.Page;
+import it.ristorantelorma.model.Queries;
+import it.ristorantelorma.model.Restaurant;
+import it.ristorantelorma.model.Result;
+import it.ristorantelorma.model.user.DeliverymanUser;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class OrderDAOTest {
+
+    private static final String RESTAURANT = "Da Mario";
+    private static final int FOODS_PER_ORDER = 3;
+    private static final int CLIENTS = 5;
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private static Map<String, Object> orderRow(final int id) {
+        final Map<String, Object> row = new HashMap<>();
+        row.put("codice", id);
+        row.put("nome_attività", RESTAURANT);
+        row.put("data_ora", new Timestamp(id * 1000L));
+        row.put("stato", "pronto");
+        row.put("tariffa_spedizione", new BigDecimal("2.50"));
+        row.put("username_cliente", "client" + id % CLIENTS);
+        row.put("ora_accettazione", null);
+        row.put("ora_consegna", null);
+        row.put("username_fattorino", null);
+        row.put("r_nome_attività", RESTAURANT);
+        row.put("r_p_iva", "01234567890");
+        row.put("r_ora_apertura", new Timestamp(0));
+        row.put("r_ora_chiusura", new Timestamp(0));
+        row.putAll(FakeDatabase.userRow("p_", "mario", "ristorante"));
+        row.putAll(FakeDatabase.userRow("c_", "client" + id % CLIENTS, "cliente"));
+        row.putAll(FakeDatabase.userRow("f_", null, null));
+        return row;
+    }
+
+    private static Map<String, Object> acceptedRow(final int id, final String deliveryman) {
+        final Map<String, Object> row = orderRow(id);
+        row.put("stato", "accettato");
+        row.put("ora_accettazione", new Timestamp(id * 1000L));
+        row.put("username_fattorino", deliveryman);
+        row.putAll(FakeDatabase.userRow("f_", deliveryman, "fattorino"));
+        return row;
+    }
+
+    private static DeliverymanUser deliveryman(final FakeDatabase db, final String username) {
+        db.on(Queries.FIND_USER, params -> List.of(FakeDatabase.userRow(username, "fattorino")));
+        final DeliverymanUser deliveryman = DeliverymanUser.DAO.find(db.getConnection(), username).getValue().get();
+        db.reset();
+        return deliveryman;
+    }
+
+    private static List<Map<String, Object>> detailRows(final int orderId) {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        for (int food = 1; food <= FOODS_PER_ORDER; food++) {
+            final Map<String, Object> row = new HashMap<>();
+            row.put("codice_ordine", orderId);
+            row.put("quantità", food);
+            row.put("v_codice", food);
+            row.put("v_nome", "Vivanda " + food);
+            row.put("v_nome_attività", RESTAURANT);
+            row.put("v_prezzo", new BigDecimal("5.00"));
+            row.put("v_tipologia", "Primo");
+            row.put("t_tipologia", "cibo");
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static FakeDatabase readyOrders(final int count) {
+        final List<Map<String, Object>> orders = new ArrayList<>();
+        final List<Map<String, Object>> details = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            orders.add(orderRow(id));
+            details.addAll(detailRows(id));
+        }
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.LIST_ORDERS_BY_STATE, params -> "pronto".equals(params.get(0)) ? orders : List.of());
+        for (int size = 1; size <= Math.min(count, STREAM_BATCH_SIZE); size++) {
+            db.on(
+                Queries.listFoodsByOrderIds(size),
+                params -> details.stream().filter(d -> params.contains(d.get("codice_ordine"))).toList()
+            );
+        }
+        db.on(
+            Queries.PAGE_ORDERS_BY_STATE,
+            params -> orders.stream()
+                .filter(o -> o.get("stato").equals(params.get(0)))
+                .filter(o -> (int) o.get("codice") > (int) params.get(1))
+                .limit((int) params.get(2))
+                .toList()
+        );
+        db.on(
+            Queries.FIND_ORDER_BY_ID,
+            params -> orders.stream().filter(o -> o.get("codice").equals(params.get(0))).toList()
+        );
+        db.on(
+            Queries.LIST_FOODS_BY_ORDER_ID,
+            params -> details.stream().filter(d -> d.get("codice_ordine").equals(params.get(0))).toList()
+        );
+        return db;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200, STREAM_BATCH_SIZE})
+    void testListByStateQueryCountIsConstant(final int orders) {
+        final FakeDatabase db = readyOrders(orders);
+        final Connection conn = db.getConnection();
+
+        final Result<Collection<ReadyOrder>> result = ReadyOrder.DAO.list(conn);
+
+        assertTrue(result.isSuccess());
+        assertEquals(orders, result.getValue().size());
+        assertEquals(2, db.getQueryCount(), () -> "Executed: " + db.getExecuted());
+    }
+
+    @Test
+    void testForEachByStateLoadsDetailsPerBatch() {
+        final int orders = 2 * STREAM_BATCH_SIZE + 1;
+        final FakeDatabase db = readyOrders(orders);
+        final List<Integer> ids = new ArrayList<>();
+
+        final Result<Integer> result = Order.DAO.forEachByState(db.getConnection(), State.READY, order -> {
+            assertEquals(FOODS_PER_ORDER, order.getFoodRequested().size());
+            ids.add(order.getId());
+        });
+
+        assertTrue(result.isSuccess());
+        assertEquals(orders, result.getValue());
+        assertEquals(orders, ids.size());
+        assertEquals(1 + 3, db.getQueryCount());
+    }
+
+    @Test
+    void testListByStateBuildsSharedGraph() {
+        final FakeDatabase db = readyOrders(10);
+        final List<ReadyOrder> orders = new ArrayList<>(ReadyOrder.DAO.list(db.getConnection()).getValue());
+
+        final ReadyOrder first = orders.get(0);
+        for (final ReadyOrder order : orders) {
+            assertSame(first.getRestaurant(), order.getRestaurant());
+            assertEquals(FOODS_PER_ORDER, order.getFoodRequested().size());
+            for (final Food food : order.getFoodRequested().keySet()) {
+                assertSame(first.getRestaurant(), food.getRestaurant());
+                assertEquals(food.getId(), order.getFoodRequested().get(food));
+            }
+        }
+    }
+
+    @Test
+    void testPagesFollowKeys() {
+        final int pageSize = 4;
+        final FakeDatabase db = readyOrders(10);
+        final List<Integer> ids = new ArrayList<>();
+        Optional<Integer> after = Optional.empty();
+        int pages = 0;
+        do {
+            final Result<Page<ReadyOrder, Integer>> result = ReadyOrder.DAO.page(db.getConnection(), after, pageSize);
+            assertTrue(result.isSuccess());
+            result.getValue().getItems().forEach(order -> {
+                assertEquals(FOODS_PER_ORDER, order.getFoodRequested().size());
+                ids.add(order.getId());
+            });
+            after = result.getValue().getNextKey();
+            pages++;
+        } while (after.isPresent());
+
+        assertEquals(IntStream.rangeClosed(1, 10).boxed().toList(), ids);
+        assertEquals(3, pages);
+        assertEquals(2 * pages, db.getQueryCount());
+    }
+
+    @Test
+    void testFullLastPageHasNoNext() {
+        final FakeDatabase db = readyOrders(4);
+
+        final Result<Page<ReadyOrder, Integer>> result = ReadyOrder.DAO.page(db.getConnection(), Optional.empty(), 4);
+
+        assertTrue(result.isSuccess());
+        assertEquals(4, result.getValue().getItems().size());
+        assertFalse(result.getValue().hasNext());
+    }
+
+    @Test
+    void testListByDeliverymanReadsOnlyTheirOrders() {
+        final List<Map<String, Object>> orders = new ArrayList<>();
+        final List<Map<String, Object>> details = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            orders.add(acceptedRow(id, id % 2 == 0 ? "fabio" : "gino"));
+            details.addAll(detailRows(id));
+        }
+        final FakeDatabase db = new FakeDatabase();
+        db.on(
+            Queries.LIST_ACCEPTED_ORDERS_BY_DELIVERYMAN,
+            params -> orders.stream().filter(o -> o.get("username_fattorino").equals(params.get(0))).toList()
+        );
+        db.on(
+            Queries.listFoodsByOrderIds(5),
+            params -> details.stream().filter(d -> params.contains(d.get("codice_ordine"))).toList()
+        );
+        final Connection conn = db.getConnection();
+        final DeliverymanUser fabio = deliveryman(db, "fabio");
+
+        final Result<Collection<AcceptedOrder>> result = AcceptedOrder.DAO.listByDeliveryman(conn, fabio);
+
+        assertTrue(result.isSuccess());
+        assertEquals(5, result.getValue().size());
+        for (final AcceptedOrder order : result.getValue()) {
+            assertEquals("fabio", order.getDeliveryman().getUsername());
+            assertEquals(0, order.getId() % 2);
+            assertEquals(FOODS_PER_ORDER, order.getFoodRequested().size());
+        }
+        assertEquals(List.of(Queries.LIST_ACCEPTED_ORDERS_BY_DELIVERYMAN, Queries.listFoodsByOrderIds(5)), db.getExecuted());
+    }
+
+    @Test
+    void testClaimLostRaceIsNotAnError() {
+        final FakeDatabase db = readyOrders(1);
+        final Connection conn = db.getConnection();
+        final ReadyOrder order = ReadyOrder.DAO.list(conn).getValue().iterator().next();
+        final List<Map<String, Object>> ready = new ArrayList<>(List.of(Map.of()));
+        db.on(Queries.SET_ORDER_ACCEPTED, params -> {
+            // Only the first update finds the order still ready
+            final List<Map<String, Object>> changed = List.copyOf(ready);
+            ready.clear();
+            return changed;
+        });
+        final Timestamp now = new Timestamp(0);
+
+        final Result<Optional<AcceptedOrder>> first = AcceptedOrder.DAO.claim(conn, order, now, deliveryman(db, "fabio"));
+        final Result<Optional<AcceptedOrder>> second = AcceptedOrder.DAO.claim(conn, order, now, deliveryman(db, "gino"));
+
+        assertTrue(first.isSuccess());
+        assertEquals("fabio", first.getValue().get().getDeliveryman().getUsername());
+        assertTrue(second.isSuccess());
+        assertTrue(second.getValue().isEmpty());
+        assertFalse(AcceptedOrder.DAO.from(conn, order, now, deliveryman(db, "gino")).isSuccess());
+    }
+
+    @Test
+    void testClaimIsRecordedByJfr() throws IOException {
+        final FakeDatabase db = readyOrders(1);
+        final Connection conn = db.getConnection();
+        final List<Map<String, Object>> ready = new ArrayList<>(List.of(Map.of()));
+        db.on(Queries.SET_ORDER_ACCEPTED, params -> {
+            final List<Map<String, Object>> changed = List.copyOf(ready);
+            ready.clear();
+            return changed;
+        });
+        final Timestamp now = new Timestamp(0);
+        final Path file = Files.createTempFile("orders", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("it.ristorantelorma.Query").withoutThreshold();
+            recording.enable("it.ristorantelorma.OrderStateChange").withoutThreshold();
+            recording.start();
+            final ReadyOrder order = ReadyOrder.DAO.list(conn).getValue().iterator().next();
+            AcceptedOrder.DAO.claim(conn, order, now, deliveryman(db, "fabio"));
+            AcceptedOrder.DAO.claim(conn, order, now, deliveryman(db, "gino"));
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        final List<RecordedEvent> changes = events.stream()
+            .filter(e -> "it.ristorantelorma.OrderStateChange".equals(e.getEventType().getName()))
+            .toList();
+        assertEquals(2, changes.size());
+        assertEquals(List.of(true, false), changes.stream().map(e -> e.getBoolean("changed")).toList());
+        changes.forEach(e -> {
+            assertEquals(1, e.getInt("orderId"));
+            assertEquals("READY", e.getString("from"));
+            assertEquals("ACCEPTED", e.getString("to"));
+        });
+        final List<RecordedEvent> queries = events.stream()
+            .filter(e -> "it.ristorantelorma.Query".equals(e.getEventType().getName()))
+            .toList();
+        final RecordedEvent list = queries.stream()
+            .filter(e -> "LIST_ORDERS_BY_STATE".equals(e.getString("query")))
+            .findFirst()
+            .get();
+        assertEquals("ReadyOrder.DAO.list", list.getString("dao"));
+        assertEquals(1, list.getLong("rows"));
+        assertEquals(
+            List.of(1L, 0L),
+            queries.stream()
+                .filter(e -> "SET_ORDER_ACCEPTED".equals(e.getString("query")))
+                .peek(e -> assertEquals("AcceptedOrder.DAO.claim", e.getString("dao")))
+                .map(e -> e.getLong("rows"))
+                .toList()
+        );
+    }
+
+    @Test
+    void testClaimNextLocksThenAcceptsInOneTransaction() {
+        final int count = 3;
+        final List<Map<String, Object>> orders = new ArrayList<>();
+        final List<Map<String, Object>> details = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            orders.add(orderRow(id));
+            details.addAll(detailRows(id));
+        }
+        final FakeDatabase db = new FakeDatabase();
+        final DeliverymanUser fabio = deliveryman(db, "fabio");
+        db.on(
+            Queries.LOCK_NEXT_READY_ORDERS,
+            params -> orders.stream()
+                .limit((int) params.get(0))
+                .map(o -> Map.of("codice", o.get("codice")))
+                .toList()
+        );
+        db.on(Queries.setOrdersAccepted(count), params -> params.subList(2, params.size()).stream()
+            .map(id -> Map.<String, Object>of())
+            .toList()
+        );
+        db.on(
+            Queries.findOrdersByIds(count),
+            params -> params.stream().map(id -> acceptedRow((int) id, "fabio")).toList()
+        );
+        db.on(
+            Queries.listFoodsByOrderIds(count),
+            params -> details.stream().filter(d -> params.contains(d.get("codice_ordine"))).toList()
+        );
+
+        final Result<Collection<AcceptedOrder>> result = AcceptedOrder.DAO.claimNext(
+            db.getConnection(),
+            count,
+            new Timestamp(0),
+            fabio
+        );
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(1, 2, 3), result.getValue().stream().map(Order::getId).toList());
+        result.getValue().forEach(order -> assertEquals("fabio", order.getDeliveryman().getUsername()));
+        assertEquals(
+            List.of(
+                Queries.LOCK_NEXT_READY_ORDERS,
+                Queries.setOrdersAccepted(count),
+                Queries.findOrdersByIds(count),
+                Queries.listFoodsByOrderIds(count)
+            ),
+            db.getExecuted()
+        );
+        assertEquals(1, db.getCommitCount());
+    }
+
+    @Test
+    void testClaimNextWithNoReadyOrders() {
+        final FakeDatabase db = new FakeDatabase();
+        final DeliverymanUser fabio = deliveryman(db, "fabio");
+        db.on(Queries.LOCK_NEXT_READY_ORDERS, params -> List.of());
+
+        final Result<Collection<AcceptedOrder>> result = AcceptedOrder.DAO.claimNext(
+            db.getConnection(),
+            3,
+            new Timestamp(0),
+            fabio
+        );
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getValue().isEmpty());
+        assertEquals(1, db.getQueryCount());
+    }
+
+    @Test
+    void testFind() {
+        final FakeDatabase db = readyOrders(10);
+
+        final Result<Optional<Order>> result = Order.DAO.find(db.getConnection(), 7);
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getValue().isPresent());
+        final Order order = result.getValue().get();
+        assertEquals(7, order.getId());
+        assertEquals(State.READY, order.getState());
+        assertEquals("client2", order.getClient().getUsername());
+        assertEquals(FOODS_PER_ORDER, order.getFoodRequested().size());
+        assertEquals(2, db.getQueryCount());
+    }
+
+    @Test
+    void testFindMissing() {
+        final FakeDatabase db = readyOrders(1);
+
+        final Result<Optional<Order>> result = Order.DAO.find(db.getConnection(), 42);
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getValue().isEmpty());
+        assertEquals(1, db.getQueryCount());
+    }
+
+    private static Map<Food, Integer> foods(final Restaurant restaurant, final int lines) {
+        final FoodType type = new FoodType("Primo", MacroType.DISH);
+        final Map<Food, Integer> foods = new HashMap<>();
+        for (int id = 1; id <= lines; id++) {
+            foods.put(new Food(id, "Vivanda " + id, restaurant, BigDecimal.ONE, type), id);
+        }
+        return foods;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100, Queries.ORDER_DETAILS_CHUNK_SIZE, 2 * Queries.ORDER_DETAILS_CHUNK_SIZE + 1})
+    void testInsertFoodRequestedIsChunked(final int lines) {
+        final FakeDatabase db = new FakeDatabase();
+        final List<List<Object>> inserted = new ArrayList<>();
+        for (final int rows : new int[] {1, lines % Queries.ORDER_DETAILS_CHUNK_SIZE, Queries.ORDER_DETAILS_CHUNK_SIZE}) {
+            if (rows > 0) {
+                db.on(Queries.insertOrderDetails(rows), params -> {
+                    inserted.add(params);
+                    return List.of(Map.of());
+                });
+            }
+        }
+        final Restaurant restaurant = new Restaurant(null, RESTAURANT, "01234567890", new Timestamp(0), new Timestamp(0));
+
+        final Result<Map<Food, Integer>> result = Order.DAO.insertFoodRequested(
+            db.getConnection(), 42, foods(restaurant, lines)
+        );
+
+        assertTrue(result.isSuccess());
+        final int chunks = (lines + Queries.ORDER_DETAILS_CHUNK_SIZE - 1) / Queries.ORDER_DETAILS_CHUNK_SIZE;
+        assertEquals(chunks, db.getQueryCount());
+        assertEquals(1, db.getCommitCount());
+        final List<Object> params = inserted.stream().flatMap(List::stream).toList();
+        assertEquals(3 * lines, params.size());
+        for (int i = 0; i < params.size(); i += 3) {
+            assertEquals(42, params.get(i + 1));
+            assertEquals(params.get(i), params.get(i + 2));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100, 2 * Queries.ORDER_DETAILS_CHUNK_SIZE + 1})
+    void testTotalsAreAddedRestaurantFirstThenFoodsInIdOrder(final int lines) {
+        final FakeDatabase db = new FakeDatabase();
+        final List<List<Object>> totals = new ArrayList<>();
+        db.on(Queries.ADD_RESTAURANT_ORDER, params -> List.of(Map.of()));
+        for (final int rows : new int[] {1, lines % Queries.ORDER_DETAILS_CHUNK_SIZE, Queries.ORDER_DETAILS_CHUNK_SIZE}) {
+            if (rows > 0) {
+                db.on(Queries.addFoodTotals(rows), params -> {
+                    totals.add(params);
+                    return List.of(Map.of());
+                });
+            }
+        }
+        final Restaurant restaurant = new Restaurant(null, RESTAURANT, "01234567890", new Timestamp(0), new Timestamp(0));
+
+        final Result<Map<Food, Integer>> result = Order.DAO.addTotals(
+            db.getConnection(), restaurant, foods(restaurant, lines)
+        );
+
+        assertTrue(result.isSuccess());
+        assertEquals(Queries.ADD_RESTAURANT_ORDER, db.getExecuted().get(0));
+        assertEquals(1, db.getCommitCount());
+        // Food totals are added in ID order
+        final List<Object> added = totals.stream().flatMap(List::stream).toList();
+        assertEquals(2 * lines, added.size());
+        for (int i = 0; i < added.size(); i += 2) {
+            assertEquals(i / 2 + 1, added.get(i));
+            assertEquals(added.get(i), added.get(i + 1));
+        }
+    }
+
+    @Test
+    void testDeliveryIsPaidAndCountedInTheSameTransaction() {
+        final FakeDatabase db = new FakeDatabase();
+        final DeliverymanUser fabio = deliveryman(db, "fabio");
+        final List<List<Object>> paid = new ArrayList<>();
+        final List<List<Object>> counted = new ArrayList<>();
+        db.on(Queries.SET_ORDER_DELIVERED, params -> List.of(Map.of()));
+        db.on(Queries.INSERT_CREDIT_MOVEMENT, params -> {
+            paid.add(params);
+            return List.of(Map.of());
+        });
+        db.on(Queries.ADD_DELIVERYMAN_DELIVERY, params -> {
+            counted.add(params);
+            return List.of(Map.of());
+        });
+        final Restaurant restaurant = new Restaurant(null, RESTAURANT, "01234567890", new Timestamp(0), new Timestamp(0));
+        final AcceptedOrder order = new AcceptedOrder(
+            1, restaurant, new Timestamp(0), BigDecimal.ONE, null, Map.of(), new Timestamp(0), fabio
+        );
+
+        final Result<AcceptedOrder> result = DeliveredOrder.DAO.from(db.getConnection(), order, new Timestamp(0));
+
+        assertTrue(result.isSuccess());
+        assertEquals(
+            List.of(Queries.SET_ORDER_DELIVERED, Queries.INSERT_CREDIT_MOVEMENT, Queries.ADD_DELIVERYMAN_DELIVERY),
+            db.getExecuted()
+        );
+        assertEquals(List.of(List.of("fabio", BigDecimal.ONE)), paid);
+        assertEquals(List.of(List.of("fabio")), counted);
+        assertEquals(1, db.getCommitCount());
+        // The in-memory credit is left unchanged, as for every credit movement
+        assertEquals(BigDecimal.TEN, fabio.getCredit());
+    }
+
+    @Test
+    void testDeliveredOrderIsNotCountedAgain() {
+        final FakeDatabase db = new FakeDatabase();
+        final DeliverymanUser fabio = deliveryman(db, "fabio");
+        // The order is not accepted anymore, so the guarded update changes no rows
+        db.on(Queries.SET_ORDER_DELIVERED, params -> List.of());
+        final Restaurant restaurant = new Restaurant(null, RESTAURANT, "01234567890", new Timestamp(0), new Timestamp(0));
+        final AcceptedOrder order = new AcceptedOrder(
+            1, restaurant, new Timestamp(0), BigDecimal.ONE, null, Map.of(), new Timestamp(0), fabio
+        );
+
+        final Result<AcceptedOrder> result = DeliveredOrder.DAO.from(db.getConnection(), order, new Timestamp(0));
+
+        assertFalse(result.isSuccess());
+        assertEquals(List.of(Queries.SET_ORDER_DELIVERED), db.getExecuted());
+        assertEquals(0, db.getCommitCount());
+    }
+
+    @Test
+    void testRebuildTotalsInOneTransaction() {
+        final FakeDatabase db = new FakeDatabase();
+        final List<String> rebuilds = List.of(
+            Queries.REBUILD_FOOD_TOTALS,
+            Queries.REBUILD_RESTAURANT_TOTALS,
+            Queries.REBUILD_DELIVERYMAN_TOTALS
+        );
+        for (final String query : List.of(
+            Queries.CLEAR_FOOD_TOTALS,
+            Queries.CLEAR_RESTAURANT_TOTALS,
+            Queries.CLEAR_DELIVERYMAN_TOTALS
+        )) {
+            db.on(query, params -> List.of());
+        }
+        for (final String query : rebuilds) {
+            db.on(query, params -> List.of(Map.of(), Map.of()));
+        }
+        final Connection connection = db.getConnection();
+
+        final Result<Integer> result = Order.DAO.rebuildTotals(connection);
+
+        assertTrue(result.isSuccess());
+        assertEquals(2 * rebuilds.size(), result.getValue());
+        assertEquals(
+            List.of(
+                Queries.CLEAR_FOOD_TOTALS,
+                Queries.REBUILD_FOOD_TOTALS,
+                Queries.CLEAR_RESTAURANT_TOTALS,
+                Queries.REBUILD_RESTAURANT_TOTALS,
+                Queries.CLEAR_DELIVERYMAN_TOTALS,
+                Queries.REBUILD_DELIVERYMAN_TOTALS
+            ),
+            db.getExecuted()
+        );
+        assertEquals(1, db.getCommitCount());
+        assertEquals(Connection.TRANSACTION_REPEATABLE_READ, assertDoesNotThrow(connection::getTransactionIsolation));
+    }
+
+    @Test
+    void testRebuildTotalsRefusesAnOpenTransaction() throws SQLException {
+        final FakeDatabase db = new FakeDatabase();
+        final Connection connection = db.getConnection();
+        connection.setAutoCommit(false);
+
+        final Result<Integer> result = Order.DAO.rebuildTotals(connection);
+
+        assertFalse(result.isSuccess());
+        assertEquals(0, db.getQueryCount());
+        assertEquals(Connection.TRANSACTION_REPEATABLE_READ, connection.getTransactionIsolation());
+    }
+
+    @Test
+    void testCountByStateIncludesEmptyStates() {
+        final FakeDatabase db = new FakeDatabase();
+        db.on(Queries.COUNT_ORDERS_BY_STATE, params -> List.of(
+            Map.of("stato", "pronto", "ordini", 3L),
+            Map.of("stato", "consegnato", "ordini", 2L)
+        ));
+
+        final Result<Map<State, Long>> result = Order.DAO.countByState(db.getConnection());
+
+        assertTrue(result.isSuccess());
+        assertEquals(
+            Map.of(State.WAITING, 0L, State.READY, 3L, State.ACCEPTED, 0L, State.DELIVERED, 2L, State.CANCELLED, 0L),
+            result.getValue()
+        );
+    }
+}
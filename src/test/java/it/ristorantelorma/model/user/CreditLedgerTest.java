@@ -0,0 +1,80 @@
+package it.ristorantelorma.model.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import it.ristorantelorma.model.FakeDatabase;
+import it.ristorantelorma.model.Queries;
+import it.ristorantelorma.model.Result;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CreditLedgerTest {
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final List<List<Object>> movements = new ArrayList<>();
+    private final List<List<Object>> lockedReads = new ArrayList<>();
+    private final ClientUser client = new ClientUser(
+        "Luigi", "Verdi", "luigi", "salt:hash", "0000000000", "luigi@example.com",
+        "Cesena", "Via Roma", "1", new BigDecimal("20.00")
+    );
+
+    CreditLedgerTest() {
+        db.on(Queries.LOCK_USER_CREDIT, params -> List.of(Map.of("credito", new BigDecimal("15.00"), "ultimo_movimento", 7L)));
+        // Movements after the snapshot, possibly committed after the transaction started
+        db.on(Queries.SUM_USER_CREDIT_MOVEMENTS, params -> {
+            lockedReads.add(params);
+            return List.of(Map.of("importo", new BigDecimal("5.00")));
+        });
+        db.on(Queries.INSERT_CREDIT_MOVEMENT, params -> {
+            movements.add(params);
+            return List.of(Map.of());
+        });
+    }
+
+    @Test
+    void testAddCreditOnlyAppends() {
+        final Result<?> result = User.DAO.addCredit(db.getConnection(), client, BigDecimal.TEN);
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(Queries.INSERT_CREDIT_MOVEMENT), db.getExecuted());
+        assertEquals(List.of(List.of("luigi", BigDecimal.TEN)), movements);
+    }
+
+    @Test
+    void testUpdateCreditAppendsTheDifference() {
+        final Result<ClientUser> result = ClientUser.DAO.updateCredit(db.getConnection(), client, new BigDecimal("50.00"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(new BigDecimal("50.00"), client.getCredit());
+        assertEquals(List.of(List.of("luigi", new BigDecimal("30.00"))), movements);
+        assertEquals(1, db.getCommitCount());
+    }
+
+    @Test
+    void testWithdrawLocksTheCreditInItsOwnTransaction() {
+        final Result<Boolean> result = User.DAO.withdrawCredit(db.getConnection(), client, new BigDecimal("15.00"));
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getValue());
+        assertEquals(
+            List.of(Queries.LOCK_USER_CREDIT, Queries.SUM_USER_CREDIT_MOVEMENTS, Queries.INSERT_CREDIT_MOVEMENT),
+            db.getExecuted()
+        );
+        assertEquals(List.of(List.of("luigi", 7L)), lockedReads);
+        assertEquals(List.of(List.of("luigi", new BigDecimal("-15.00"))), movements);
+        assertEquals(1, db.getCommitCount());
+    }
+
+    @Test
+    void testWithdrawMoreThanTheCredit() {
+        final Result<Boolean> result = User.DAO.withdrawCredit(db.getConnection(), client, new BigDecimal("20.01"));
+
+        assertTrue(result.isSuccess());
+        assertFalse(result.getValue());
+        assertTrue(movements.isEmpty());
+    }
+}
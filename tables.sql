@@ -25,27 +25,32 @@ create table DETTAGLIO_ORDINI (
      quantità int not null,
      constraint IDDETTAGLIO_ORDINI primary key (codice_ordine, codice_vivanda));
 
+create table MOVIMENTI_CREDITO (
+     codice bigint not null AUTO_INCREMENT,
+     username varchar(32) not null,
+     importo decimal(12,2) not null,
+     data_ora datetime not null default current_timestamp,
+     constraint IDMOVIMENTI_CREDITO primary key (codice));
+
 create table ORDINI (
      nome_attività varchar(64) not null,
      codice int not null AUTO_INCREMENT,
-     data_ora datetime not null,
+     data_ora datetime(6) not null,
      stato enum('attesa', 'pronto', 'accettato', 'consegnato', 'annullato') not null,
      tariffa_spedizione decimal(5,2) not null,
      username_cliente varchar(32) not null,
      ora_accettazione datetime,
      ora_consegna datetime,
      username_fattorino varchar(32),
-     constraint IDORDINI_1_ID primary key (codice),
-     constraint IDORDINI unique (nome_attività, data_ora));
+     constraint IDORDINI_1_ID primary key (codice));
 
 create table RECENSIONI (
      nome_attività varchar(64) not null,
      codice int not null AUTO_INCREMENT,
-     data datetime not null,
+     data datetime(6) not null,
      voto enum('1', '2', '3', '4', '5') not null,
      commento varchar(1024),
      username varchar(32) not null,
-     constraint IDRECENSIONI unique (nome_attività, data),
      constraint IDRECENSIONI_1 primary key (codice));
 
 create table RISTORANTI (
@@ -55,7 +60,7 @@ create table RISTORANTI (
      ora_apertura time not null,
      ora_chiusura time not null,
      constraint IDRISTORANTI primary key (nome_attività),
-     constraint FKUSERNAME_ID unique (username)
+     constraint FKUSERNAME_ID unique (username),
      constraint PIVA unique (p_iva));
 
 create table TIPO_VIVANDE (
@@ -63,6 +68,24 @@ create table TIPO_VIVANDE (
      tipologia enum('cibo', 'bevanda') not null,
      constraint IDTIPO_CUCINA primary key (nome));
 
+-- Counters of the admin statistics, updated in the same transaction as the orders they count,
+-- so that reading the top ones does not scan the whole order history.
+-- They can be recomputed from scratch with Order.DAO.rebuildTotals
+create table TOTALI_FATTORINI (
+     username varchar(32) not null,
+     consegne bigint not null,
+     constraint IDTOTALI_FATTORINI primary key (username));
+
+create table TOTALI_RISTORANTI (
+     nome_attività varchar(64) not null,
+     ordini bigint not null,
+     constraint IDTOTALI_RISTORANTI primary key (nome_attività));
+
+create table TOTALI_VIVANDE (
+     codice_vivanda int not null,
+     quantità bigint not null,
+     constraint IDTOTALI_VIVANDE primary key (codice_vivanda));
+
 create table UTENTI (
      nome varchar(32) not null,
      cognome varchar(32) not null,
@@ -73,7 +96,8 @@ create table UTENTI (
      città varchar(32) not null,
      via varchar(32) not null,
      n_civico varchar(8) not null,
-     credito decimal(5,2) null,
+     credito decimal(12,2) null,
+     ultimo_movimento bigint not null default 0,
      ruolo enum('admin', 'ristorante', 'cliente', 'fattorino') not null,
      constraint IDUTENTI primary key (username));
 
@@ -98,9 +122,9 @@ alter table DETTAGLIO_ORDINI add constraint FKcodice_vivanda
      foreign key (codice_vivanda)
      references VIVANDE (codice);
 
-alter table ORDINI add constraint IDORDINI_1_CHK
-    check(exists(select * from DETTAGLIO_ORDINI
-                 where DETTAGLIO_ORDINI.codice_ordine = codice));
+-- IDORDINI_1_CHK (every order has at least one DETTAGLIO_ORDINI row) cannot be a check:
+-- MySQL and MariaDB do not allow subqueries in it. CheckoutService enforces it instead,
+-- inserting an order and its details in the same transaction.
 
 alter table ORDINI add constraint CHECK_STATO_ORDINI
     check(
@@ -115,12 +139,17 @@ alter table ORDINI add constraint CHECK_SPEDIZIONE_ORDINI
 alter table DETTAGLIO_ORDINI add constraint CHECK_QUANTITA_DETTAGLIO_ORDINI
     check(quantità > 0);
 
+-- Every user but the admin has a credit, as User.DAO expects when it reads one
 alter table UTENTI add constraint CHECK_UTENTI
-    check(ruolo = 'cliente' AND credito IS NOT NULL);
+    check(ruolo = 'admin' OR credito IS NOT NULL);
 
 alter table VIVANDE add constraint CHECK_VIVANDE
     check(prezzo > 0);
 
+alter table MOVIMENTI_CREDITO add constraint FKmovimento
+     foreign key (username)
+     references UTENTI (username);
+
 alter table ORDINI add constraint FKcomanda
      foreign key (nome_attività)
      references RISTORANTI (nome_attività);
@@ -145,6 +174,21 @@ alter table RISTORANTI add constraint FKutente
      foreign key (username)
      references UTENTI (username);
 
+alter table TOTALI_FATTORINI add constraint FKtotale_fattorino
+     foreign key (username)
+     references UTENTI (username)
+     on delete cascade;
+
+alter table TOTALI_RISTORANTI add constraint FKtotale_ristorante
+     foreign key (nome_attività)
+     references RISTORANTI (nome_attività)
+     on delete cascade;
+
+alter table TOTALI_VIVANDE add constraint FKtotale_vivanda
+     foreign key (codice_vivanda)
+     references VIVANDE (codice)
+     on delete cascade;
+
 alter table VIVANDE add constraint FKclassificazione
      foreign key (tipologia)
      references TIPO_VIVANDE (nome);
@@ -154,6 +198,62 @@ alter table VIVANDE add constraint FKcomposizione
      references RISTORANTI (nome_attività);
 
 
+-- Index Section
+-- _____________
+
+-- Orders and reviews of a restaurant in time order; also serve the FKcomanda and FKvalutazione foreign keys.
+-- Not unique: many orders or reviews can be placed at the same time, the key is the codice column
+create index IDORDINI
+     on ORDINI (nome_attività, data_ora);
+
+create index IDRECENSIONI
+     on RECENSIONI (nome_attività, data);
+
+-- Accepted orders of a deliveryman; also serves the FKconsegna foreign key
+create index IDX_ORDINI_FATTORINO
+     on ORDINI (username_fattorino, stato);
+
+-- Ready orders queue, claimed with SELECT ... FOR UPDATE SKIP LOCKED: without it the locking
+-- read scans, and locks, the whole table
+create index IDX_ORDINI_STATO
+     on ORDINI (stato, codice);
+
+-- Delivered orders of each deliveryman, counted without reading the table rows
+-- when totali_fattorini is rebuilt: the statistics read the counter instead
+create index IDX_ORDINI_CONSEGNE
+     on ORDINI (username_fattorino, ora_consegna);
+
+-- Quantities sold of each food, summed without reading the table rows;
+-- also serves the FKcodice_vivanda foreign key
+create index IDX_DETTAGLIO_ORDINI_VIVANDA
+     on DETTAGLIO_ORDINI (codice_vivanda, quantità);
+
+-- Votes of each restaurant, averaged without reading the table rows
+create index IDX_RECENSIONI_VOTO
+     on RECENSIONI (nome_attività, voto);
+
+-- Reviews of a restaurant in codice order, read a page at a time by PAGE_REVIEWS_OF_RESTAURANT
+-- without sorting them first
+create index IDX_RECENSIONI_PAGINA
+     on RECENSIONI (nome_attività, codice);
+
+-- Credit movements not compacted yet into UTENTI.credito, summed by every balance read;
+-- also serves the FKmovimento foreign key
+create index IDX_MOVIMENTI_CREDITO_UTENTE
+     on MOVIMENTI_CREDITO (username, codice, importo);
+
+
+-- Top counters of the admin statistics, read backwards with ORDER BY ... DESC LIMIT 1
+create index IDX_TOTALI_FATTORINI_CONSEGNE
+     on TOTALI_FATTORINI (consegne);
+
+create index IDX_TOTALI_RISTORANTI_ORDINI
+     on TOTALI_RISTORANTI (ordini);
+
+create index IDX_TOTALI_VIVANDE_QUANTITA
+     on TOTALI_VIVANDE (quantità);
+
+
 -- Table Population
 -- _____________
 